@@ -28,8 +28,12 @@
  */
 package com.impossibl.postgres.api.jdbc;
 
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
+
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.Connection;
 import java.sql.SQLException;
 
@@ -118,6 +122,12 @@ public interface PGConnection extends Connection {
    */
   Integer getDefaultFetchSize();
 
+  /**
+   * Get the registry the connection records its metrics in
+   * @return The registry or {@code null} if metrics are not enabled
+   */
+  MetricsRegistry getMetrics();
+
 
   /**
    * Resolves a name to an SQLType suitable for passing
@@ -155,6 +165,36 @@ public interface PGConnection extends Connection {
   void copyFrom(String sql, InputStream inputStream) throws SQLException;
 
 
+  /**
+   * Allows issuing PostgreSQL's COPY command providing a {@link ReadableByteChannel}
+   * to read from.
+   *
+   * When the channel is a {@link java.nio.channels.FileChannel} and the connection is not
+   * using SSL, data is transferred directly from the file to the socket without being
+   * copied through the heap. The channel is read from its current position and is not
+   * closed.
+   *
+   * @param sql SQL text for a valid <code>COPY ... FROM STDIN</code> command.
+   * @param channel {@link ReadableByteChannel} containing data in <code>COPY</code> format.
+   * @throws SQLException If an error occurs during the copy operation or if an alternate command is provided.
+   */
+  void copyFrom(String sql, ReadableByteChannel channel) throws SQLException;
+
+
+  /**
+   * Allows issuing PostgreSQL's COPY command providing pre-filled buffers
+   * to send.
+   *
+   * The remaining bytes of each buffer are sent, in order, without copying them. The buffers'
+   * positions are not modified.
+   *
+   * @param sql SQL text for a valid <code>COPY ... FROM STDIN</code> command.
+   * @param buffers Buffers containing data in <code>COPY</code> format.
+   * @throws SQLException If an error occurs during the copy operation or if an alternate command is provided.
+   */
+  void copyFrom(String sql, ByteBuffer... buffers) throws SQLException;
+
+
   /**
    * Allows issuing PostgreSQL's COPY command providing an {@link OutputStream}
    * stream to write to, instead of relying on {@link System#out}.
@@ -165,4 +205,19 @@ public interface PGConnection extends Connection {
    */
   void copyTo(String sql, OutputStream outputStream) throws SQLException;
 
+
+  /**
+   * Allows issuing PostgreSQL's COPY command delivering each data message,
+   * as it is received, to a listener.
+   *
+   * Data is delivered on the calling thread. Reading from the server is suspended
+   * while the listener lags behind, avoiding both unbounded buffering and blocking
+   * the connection's I/O thread.
+   *
+   * @param sql SQL text for a valid <code>COPY ... TO STDOUT</code> command.
+   * @param listener {@link PGCopyOutListener} receiving data in <code>COPY</code> format.
+   * @throws SQLException If an error occurs during the copy operation or if an alternate command is provided.
+   */
+  void copyTo(String sql, PGCopyOutListener listener) throws SQLException;
+
 }
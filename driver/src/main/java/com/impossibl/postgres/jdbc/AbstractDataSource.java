@@ -43,6 +43,7 @@ import static com.impossibl.postgres.jdbc.DataSourceSettings.PORT_NUMBER;
 import static com.impossibl.postgres.jdbc.DataSourceSettings.SERVER_ADDRESSES;
 import static com.impossibl.postgres.jdbc.DataSourceSettings.SERVER_NAME;
 import static com.impossibl.postgres.jdbc.JDBCSettings.JDBC;
+import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_SHARING;
 import static com.impossibl.postgres.jdbc.JDBCSettings.REGISTRY_SHARING;
 import static com.impossibl.postgres.system.SystemSettings.CREDENTIALS_PASSWORD;
 import static com.impossibl.postgres.system.SystemSettings.CREDENTIALS_USERNAME;
@@ -77,12 +78,14 @@ public abstract class AbstractDataSource implements CommonDataSource {
   protected Settings settings = new Settings(DS, JDBC, SYS, PROTO);
 
   private Map<ServerConnectionInfo, SharedRegistry> sharedRegistries;
+  private Map<SharedRegistry, Map<SharedStatementCache.Scope, SharedStatementCache>> sharedStatementCaches;
 
   /**
    * Constructor
    */
   protected AbstractDataSource() {
     this.sharedRegistries = new ConcurrentHashMap<>();
+    this.sharedStatementCaches = new ConcurrentHashMap<>();
   }
 
   /**
@@ -115,13 +118,26 @@ public abstract class AbstractDataSource implements CommonDataSource {
           connInfo -> sharedRegistries.computeIfAbsent(connInfo, key -> new SharedRegistry(key.getServerInfo(), PGDataSource.class.getClassLoader()));
     }
 
+    // Statement caches can only be shared by connections sharing a registry
+    SharedStatementCache.Factory sharedStatementCacheFactory;
+    if (!settings.enabled(REGISTRY_SHARING) || !settings.enabled(PREPARED_STATEMENT_CACHE_SHARING)) {
+
+      sharedStatementCacheFactory = SharedStatementCache.UNSHARED;
+    }
+    else {
+
+      sharedStatementCacheFactory =
+          (sharedRegistry, scope, connSettings) -> sharedStatementCaches.computeIfAbsent(sharedRegistry, key -> new ConcurrentHashMap<>())
+              .computeIfAbsent(scope, key -> new SharedStatementCache(connSettings));
+    }
+
     String url = settings.get(DATABASE_URL);
     if (url != null) {
 
       // Strip DataSource specific settings
       settings.unsetAll(DS.getAllOwnedSettings());
 
-      PGDirectConnection connection = ConnectionUtil.createConnection(url, settings.asProperties(), sharedRegistryFactory);
+      PGDirectConnection connection = ConnectionUtil.createConnection(url, settings.asProperties(), sharedRegistryFactory, sharedStatementCacheFactory);
       if (connection == null) {
         throw new SQLException("Unsupported database URL");
       }
@@ -139,7 +155,7 @@ public abstract class AbstractDataSource implements CommonDataSource {
       // Strip DataSource specific settings
       settings.unsetAll(DS.getAllOwnedSettings());
 
-      return ConnectionUtil.createConnection(connSpec.getAddresses(), settings, sharedRegistryFactory);
+      return ConnectionUtil.createConnection(connSpec.getAddresses(), settings, sharedRegistryFactory, sharedStatementCacheFactory);
     }
 
   }
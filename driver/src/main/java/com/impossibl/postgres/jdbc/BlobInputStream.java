@@ -30,33 +30,35 @@ package com.impossibl.postgres.jdbc;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.SQLException;
 
-import static java.lang.Math.min;
-
 public class BlobInputStream extends InputStream {
 
-  private static final int MAX_BUF_SIZE = 8 * 1024;
-
   PGBlob owner;
   LargeObject lo;
-  byte[] buf = {};
-  int pos = 0;
+  LargeObjectReadChannel channel;
 
   public BlobInputStream(PGBlob owner, LargeObject lo) {
     this.owner = owner;
     this.lo = lo;
+    this.channel = new LargeObjectReadChannel(lo);
+  }
+
+  /**
+   * Channel reading from the same position as the stream.
+   *
+   * @return Channel reading the blob's data.
+   */
+  public ReadableByteChannel getChannel() {
+    return channel;
   }
 
   @Override
   public int read() throws IOException {
     checkClosed();
 
-    if (pos >= buf.length) {
-      readNextRegion();
-    }
-
-    return (pos < buf.length) ? (buf[pos++] & 0xff) : -1;
+    return channel.read();
   }
 
   @Override
@@ -70,28 +72,7 @@ public class BlobInputStream extends InputStream {
       throw new IndexOutOfBoundsException();
     }
 
-    int left = len;
-    while (left > 0) {
-
-      if (pos >= buf.length) {
-        readNextRegion();
-
-        if (len == left && buf.length == 0)
-          return -1;
-      }
-
-      int avail = buf.length - pos;
-      int amt = min(avail,  left);
-      if (amt <= 0) {
-        break;
-      }
-
-      System.arraycopy(buf, pos, b, off + (len - left), amt);
-      pos += amt;
-      left -= amt;
-    }
-
-    return len - left;
+    return channel.read(b, off, len);
   }
 
   @Override
@@ -100,6 +81,7 @@ public class BlobInputStream extends InputStream {
       return;
     }
 
+    channel.close();
     try {
       lo.close();
     }
@@ -113,16 +95,6 @@ public class BlobInputStream extends InputStream {
     lo = null;
   }
 
-  public void readNextRegion() throws IOException {
-    try {
-      buf = lo.read(MAX_BUF_SIZE);
-      pos = 0;
-    }
-    catch (SQLException e) {
-      throw new IOException(e);
-    }
-  }
-
   private void checkClosed() throws IOException {
     if (lo == null) {
       throw new IOException("Stream is closed");
@@ -36,6 +36,7 @@ public class BlobOutputStream extends OutputStream {
 
   PGBlob owner;
   LargeObject lo;
+  LargeObjectWriteChannel channel;
   byte[] buf;
   int pos;
 
@@ -43,6 +44,7 @@ public class BlobOutputStream extends OutputStream {
     super();
     this.owner = owner;
     this.lo = lo;
+    this.channel = new LargeObjectWriteChannel(lo);
     this.pos = 0;
     this.buf = new byte[1024];
   }
@@ -74,12 +76,7 @@ public class BlobOutputStream extends OutputStream {
       writeNextRegion();
     }
 
-    try {
-      lo.write(b, off, len);
-    }
-    catch (SQLException e) {
-      throw new IOException(e);
-    }
+    channel.write(b, off, len);
 
   }
 
@@ -92,6 +89,8 @@ public class BlobOutputStream extends OutputStream {
     if (pos > 0) {
       writeNextRegion();
     }
+
+    channel.flush();
   }
 
   @Override
@@ -101,6 +100,7 @@ public class BlobOutputStream extends OutputStream {
     }
 
     flush();
+    channel.close();
     try {
       lo.close();
     }
@@ -116,13 +116,8 @@ public class BlobOutputStream extends OutputStream {
 
   private void writeNextRegion() throws IOException {
 
-    try {
-      lo.write(buf, 0, pos);
-      pos = 0;
-    }
-    catch (SQLException e) {
-      throw new IOException(e);
-    }
+    channel.write(buf, 0, pos);
+    pos = 0;
 
   }
 
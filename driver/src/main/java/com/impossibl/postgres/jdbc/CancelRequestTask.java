@@ -37,90 +37,40 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.protocol.ServerConnection;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.net.InetSocketAddress;
-import java.net.Socket;
-import java.net.SocketAddress;
-import java.nio.ByteBuffer;
-import java.util.logging.Logger;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
-import io.netty.channel.unix.DomainSocketAddress;
+import io.netty.channel.ChannelFuture;
 
 public class CancelRequestTask extends ExecutionTimerTask {
 
-  private static final Logger logger = Logger.getLogger(CancelRequestTask.class.getName());
+  /**
+   * Maximum time (in milliseconds) to connect to the server when sending a
+   * cancel request, which also bounds the wait for its delivery.
+   */
+  static final long CONNECT_TIMEOUT = SECONDS.toMillis(10);
 
-  private SocketAddress serverAddress;
-  private ServerConnection.KeyData keyData;
+  private ServerConnection serverConnection;
+  private volatile ChannelFuture sent;
 
-  CancelRequestTask(SocketAddress serverAddress, ServerConnection.KeyData keyData) {
-    this.serverAddress = serverAddress;
-    this.keyData = keyData;
+  CancelRequestTask(ServerConnection serverConnection) {
+    this.serverConnection = serverConnection;
   }
 
   @Override
   public void go() {
-    sendCancelRequest();
+    sent = serverConnection.sendCancelRequest(CONNECT_TIMEOUT);
   }
 
-  private void sendCancelRequest() {
-
-    if (keyData.getProcessId() == 0 && keyData.getSecretKey() == 0) {
-      logger.warning("Cannot send CancelRequest because of missing BackendKeyData.");
-      return;
-    }
-
-    try {
-
-      if (serverAddress instanceof InetSocketAddress) {
-
-        InetSocketAddress target = (InetSocketAddress) serverAddress;
-
-        try (Socket abortSocket = new Socket(target.getAddress(), target.getPort())) {
-          writeCancelRequest(new DataOutputStream(abortSocket.getOutputStream()));
-        }
-
-      }
-      else if (serverAddress instanceof DomainSocketAddress) {
-
-        io.netty.channel.unix.Socket unixSocket = io.netty.channel.unix.Socket.newSocketDomain();
-        try {
-          unixSocket.connect(serverAddress);
-
-          try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-
-            writeCancelRequest(new DataOutputStream(os));
-
-            byte[] request = os.toByteArray();
-            ByteBuffer buffer = ByteBuffer.allocateDirect(request.length);
-            buffer.put(request, 0, request.length);
-            buffer.flip();
-
-            unixSocket.write(buffer, 0, buffer.limit());
-          }
-
-        }
-        finally {
-          unixSocket.close();
-        }
-
-      }
-
-    }
-    catch (IOException ignored) {
-      // All exceptions during a cancellation attempt are ignored...
+  @Override
+  void cancel() {
+    super.cancel();
+
+    // Ensure a started request has been delivered before any following
+    // request can begin execution (and be cancelled by mistake)
+    ChannelFuture sent = this.sent;
+    if (sent != null) {
+      sent.awaitUninterruptibly(CONNECT_TIMEOUT);
     }
-
-  }
-
-  private void writeCancelRequest(DataOutputStream os) throws IOException {
-
-    os.writeInt(16);
-    os.writeInt(80877102);
-    os.writeInt(keyData.getProcessId());
-    os.writeInt(keyData.getSecretKey());
   }
 
 }
@@ -36,26 +36,32 @@ import java.sql.SQLException;
 
 public class ClobReader extends Reader {
 
-  private static final int MAX_BUF_SIZE = 8 * 1024;
-
   PGClob owner;
   LargeObject lo;
-  byte[] buf = {};
-  int pos = 0;
+  LargeObjectReadChannel channel;
 
   public ClobReader(PGClob owner, LargeObject lo) {
     this.owner = owner;
     this.lo = lo;
+    this.channel = new LargeObjectReadChannel(lo);
   }
 
   @Override
   public int read() throws IOException {
 
-    if (pos >= buf.length) {
-      readNextRegion();
+    int b0 = channel.read();
+    if (b0 == -1) {
+      return -1;
+    }
+
+    int b1 = channel.read();
+    int b2 = channel.read();
+    int b3 = channel.read();
+    if ((b1 | b2 | b3) < 0) {
+      throw new IOException("invalid clob buffer read");
     }
 
-    return (pos < buf.length) ? ((buf[pos++] & 0xff) << 24 | (buf[pos++] & 0xff) << 16 | (buf[pos++] & 0xff) << 8 | (buf[pos++] & 0xff) << 0) : -1;
+    return b0 << 24 | b1 << 16 | b2 << 8 | b3;
   }
 
   @Override
@@ -88,6 +94,7 @@ public class ClobReader extends Reader {
       return;
     }
 
+    channel.close();
     try {
       lo.close();
     }
@@ -101,17 +108,4 @@ public class ClobReader extends Reader {
     lo = null;
   }
 
-  public void readNextRegion() throws IOException {
-    try {
-      buf = lo.read(MAX_BUF_SIZE);
-      if (buf.length % PGClob.CHAR_SIZE != 0) {
-        throw new IOException("invalid clob buffer read");
-      }
-      pos = 0;
-    }
-    catch (SQLException e) {
-      throw new IOException(e);
-    }
-  }
-
 }
@@ -38,6 +38,7 @@ public class ClobWriter extends Writer {
 
   PGClob owner;
   LargeObject lo;
+  LargeObjectWriteChannel channel;
   byte[] buf;
   int pos;
 
@@ -45,6 +46,7 @@ public class ClobWriter extends Writer {
     super();
     this.owner = owner;
     this.lo = lo;
+    this.channel = new LargeObjectWriteChannel(lo);
     this.pos = 0;
     this.buf = new byte[1024 * PGClob.CHAR_SIZE];
   }
@@ -80,9 +82,15 @@ public class ClobWriter extends Writer {
 
   @Override
   public void flush() throws IOException {
+    if (lo == null) {
+      return;
+    }
+
     if (pos > 0) {
       writeNextRegion();
     }
+
+    channel.flush();
   }
 
   @Override
@@ -92,6 +100,7 @@ public class ClobWriter extends Writer {
     }
 
     flush();
+    channel.close();
     try {
       lo.close();
     }
@@ -107,13 +116,8 @@ public class ClobWriter extends Writer {
 
   private void writeNextRegion() throws IOException {
 
-    try {
-      lo.write(buf, 0, pos);
-      pos = 0;
-    }
-    catch (SQLException e) {
-      throw new IOException(e);
-    }
+    channel.write(buf, 0, pos);
+    pos = 0;
 
   }
 
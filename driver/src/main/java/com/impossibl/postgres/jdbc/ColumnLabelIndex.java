@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.ResultField;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Index of result field names, used to resolve column labels.
+ *
+ * Labels are matched case insensitively, with the first matching field
+ * taking precedence. Labels that match a field name exactly are resolved
+ * without allocation; others fall back to a lookup of the case folded label.
+ */
+class ColumnLabelIndex {
+
+  private final Map<String, Integer> exactIndexes;
+  private final Map<String, Integer> caseInsensitiveIndexes;
+
+  ColumnLabelIndex(ResultField[] resultFields) {
+    exactIndexes = new HashMap<>(resultFields.length * 2);
+    caseInsensitiveIndexes = new HashMap<>(resultFields.length * 2);
+
+    for (int c = 0; c < resultFields.length; ++c) {
+      String name = resultFields[c].getName();
+
+      // Only the first of any case insensitive duplicates is indexed
+      if (caseInsensitiveIndexes.putIfAbsent(fold(name), c + 1) == null) {
+        exactIndexes.put(name, c + 1);
+      }
+    }
+  }
+
+  /**
+   * Finds the column matching a label.
+   *
+   * @param columnLabel Label to find
+   * @return 1-based index of the matching column or {@code 0} if none matches
+   */
+  int find(String columnLabel) {
+    if (columnLabel == null) {
+      return 0;
+    }
+
+    Integer columnIndex = exactIndexes.get(columnLabel);
+    if (columnIndex == null) {
+      columnIndex = caseInsensitiveIndexes.get(fold(columnLabel));
+      if (columnIndex == null) {
+        return 0;
+      }
+    }
+
+    return columnIndex;
+  }
+
+  private static String fold(String label) {
+    return label.toLowerCase(Locale.ROOT);
+  }
+
+}
@@ -28,16 +28,22 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.jdbc.JDBCSettings.TargetServerType;
 import com.impossibl.postgres.system.Settings;
 import com.impossibl.postgres.system.SystemSettings;
 import com.impossibl.postgres.types.SharedRegistry;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
 import static com.impossibl.postgres.jdbc.JDBCSettings.HOUSEKEEPER;
+import static com.impossibl.postgres.jdbc.JDBCSettings.HOUSEKEEPER_LEAK_DETECTION;
 import static com.impossibl.postgres.jdbc.JDBCSettings.JDBC;
+import static com.impossibl.postgres.jdbc.JDBCSettings.LOAD_BALANCE_HOSTS;
+import static com.impossibl.postgres.jdbc.JDBCSettings.TARGET_SERVER_STATUS_TTL;
+import static com.impossibl.postgres.jdbc.JDBCSettings.TARGET_SERVER_TYPE;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_URL;
 import static com.impossibl.postgres.system.SystemSettings.PROTO;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_CONNECT_PARALLEL;
 import static com.impossibl.postgres.system.SystemSettings.SYS;
 import static com.impossibl.postgres.utils.guava.Strings.emptyToNull;
 import static com.impossibl.postgres.utils.guava.Strings.nullToEmpty;
@@ -52,17 +58,21 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static java.util.Collections.singletonList;
 import static java.util.Comparator.comparing;
+import static java.util.concurrent.TimeUnit.SECONDS;
 
 import io.netty.channel.unix.DomainSocketAddress;
 
@@ -77,6 +87,23 @@ class ConnectionUtil {
 
   private static Logger logger = Logger.getLogger(ConnectionUtil.class.getName());
 
+  /**
+   * Cached classification of a server as read-only (standby) or not.
+   */
+  private static class ServerStatus {
+
+    boolean readOnly;
+    long expires;
+
+    ServerStatus(boolean readOnly, long expires) {
+      this.readOnly = readOnly;
+      this.expires = expires;
+    }
+
+  }
+
+  private static final Map<SocketAddress, ServerStatus> serverStatuses = new ConcurrentHashMap<>();
+
   static class ConnectionSpecifier {
 
     private List<SocketAddress> addresses;
@@ -269,6 +296,11 @@ class ConnectionUtil {
   }
 
   static PGDirectConnection createConnection(String url, Properties info, SharedRegistry.Factory sharedRegistryFactory) throws SQLException {
+    return createConnection(url, info, sharedRegistryFactory, SharedStatementCache.UNSHARED);
+  }
+
+  static PGDirectConnection createConnection(String url, Properties info, SharedRegistry.Factory sharedRegistryFactory,
+                                             SharedStatementCache.Factory sharedStatementCacheFactory) throws SQLException {
     ConnectionSpecifier connSpec = parseURL(url);
     if (connSpec == null) {
       return null;
@@ -276,21 +308,22 @@ class ConnectionUtil {
 
     Settings settings = buildSettings(connSpec, info);
 
-    return createConnection(connSpec.addresses, settings, sharedRegistryFactory);
+    return createConnection(connSpec.addresses, settings, sharedRegistryFactory, sharedStatementCacheFactory);
   }
 
-  static PGDirectConnection createConnection(List<SocketAddress> addresses, Settings settings, SharedRegistry.Factory sharedRegistryFactory) throws SQLException {
+  static PGDirectConnection createConnection(List<SocketAddress> addresses, Settings settings, SharedRegistry.Factory sharedRegistryFactory,
+                                             SharedStatementCache.Factory sharedStatementCacheFactory) throws SQLException {
 
     SQLException lastException = null;
 
     // Select housekeeper for connection
     Housekeeper.Ref housekeeper = null;
     if (settings.enabled(HOUSEKEEPER)) {
-      housekeeper = ThreadedHousekeeper.acquire();
+      housekeeper = ThreadedHousekeeper.acquire(settings.get(HOUSEKEEPER_LEAK_DETECTION));
     }
 
-    // Try to connect to each provided address in turn returning the first
-    // successful connection
+    // Filter out addresses that cannot be connected to
+    List<SocketAddress> connectableAddresses = new ArrayList<>();
     for (SocketAddress address : addresses) {
 
       if (address instanceof InetSocketAddress) {
@@ -312,18 +345,94 @@ class ConnectionUtil {
         }
       }
 
-      try {
+      connectableAddresses.add(address);
+    }
+
+    if (settings.enabled(LOAD_BALANCE_HOSTS)) {
+      Collections.shuffle(connectableAddresses);
+    }
 
-        PGDirectConnection conn = new PGDirectConnection(address, settings, housekeeper);
+    TargetServerType targetServerType = settings.get(TARGET_SERVER_TYPE);
+    long statusTTL = SECONDS.toNanos(settings.get(TARGET_SERVER_STATUS_TTL));
+    boolean parallel = settings.enabled(PROTOCOL_CONNECT_PARALLEL);
 
-        conn.init(sharedRegistryFactory);
+    // When preferring standbys, any server is accepted in a second pass
+    TargetServerType[] passes = {targetServerType};
+    if (targetServerType == TargetServerType.PREFER_STANDBY) {
+      passes = new TargetServerType[] {TargetServerType.STANDBY, TargetServerType.ANY};
+    }
 
-        return conn;
+    for (TargetServerType pass : passes) {
 
+      List<SocketAddress> candidates = selectCandidates(connectableAddresses, pass);
+      if (candidates.isEmpty() && !connectableAddresses.isEmpty()) {
+        lastException = new SQLException("Connection Error: no " + pass.name().toLowerCase() + " server available", "8001");
       }
-      catch (IOException e) {
 
-        lastException = makeSQLException("Connection Error: ", "8001", e);
+      while (!candidates.isEmpty()) {
+
+        // Race connections to all candidates or try each in turn
+
+        List<SocketAddress> attempted = parallel ? new ArrayList<>(candidates) : singletonList(candidates.get(0));
+
+        PGDirectConnection conn;
+        try {
+
+          conn = new PGDirectConnection(attempted, settings, housekeeper);
+
+          conn.init(sharedRegistryFactory, sharedStatementCacheFactory);
+
+        }
+        catch (IOException e) {
+
+          lastException = makeSQLException("Connection Error: ", "8001", e);
+
+          candidates.removeAll(attempted);
+          continue;
+        }
+
+        if (pass == TargetServerType.ANY) {
+          return conn;
+        }
+
+        SocketAddress address = attempted.size() == 1 ? attempted.get(0) : conn.getServerAddress();
+
+        try {
+
+          // Prefer the status reported at startup, then the cached status,
+          // and only query the server when both are unavailable
+          Boolean readOnly = conn.getReportedServerReadOnly();
+          if (readOnly == null) {
+            ServerStatus status = serverStatuses.get(address);
+            if (status != null && status.expires - System.nanoTime() > 0) {
+              readOnly = status.readOnly;
+            }
+            else {
+              readOnly = conn.queryServerReadOnly();
+              serverStatuses.put(address, new ServerStatus(readOnly, System.nanoTime() + statusTTL));
+            }
+          }
+          else {
+            serverStatuses.put(address, new ServerStatus(readOnly, System.nanoTime() + statusTTL));
+          }
+
+          if (pass.accepts(readOnly)) {
+            return conn;
+          }
+
+          lastException = new SQLException("Connection Error: server '" + address + "' is not a " + pass.name().toLowerCase(), "8001");
+        }
+        catch (SQLException e) {
+
+          lastException = e;
+        }
+
+        conn.close();
+
+        if (!candidates.remove(address)) {
+          candidates.removeAll(attempted);
+        }
+
       }
 
     }
@@ -336,6 +445,37 @@ class ConnectionUtil {
     throw lastException;
   }
 
+  /**
+   * Selects the addresses that may match the target server type, ordering
+   * addresses known to match first. Addresses known not to match are excluded.
+   */
+  private static List<SocketAddress> selectCandidates(List<SocketAddress> addresses, TargetServerType targetServerType) {
+
+    if (targetServerType == TargetServerType.ANY) {
+      return new ArrayList<>(addresses);
+    }
+
+    long now = System.nanoTime();
+
+    List<SocketAddress> matching = new ArrayList<>();
+    List<SocketAddress> unknown = new ArrayList<>();
+
+    for (SocketAddress address : addresses) {
+
+      ServerStatus status = serverStatuses.get(address);
+      if (status == null || status.expires - now < 0) {
+        unknown.add(address);
+      }
+      else if (targetServerType.accepts(status.readOnly)) {
+        matching.add(address);
+      }
+    }
+
+    matching.addAll(unknown);
+
+    return matching;
+  }
+
   /**
    * Combines multiple sources of properties into one group. Connection info
    * parameters take precedence over URL query parameters. Also, ensure
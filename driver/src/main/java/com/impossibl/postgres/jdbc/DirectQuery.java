@@ -36,6 +36,7 @@
 package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.RequestExecutor.RowStream;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.AnyQueryResult;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.CompositeQueryResults;
@@ -43,6 +44,7 @@ import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.QueryResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowDataSet;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.chainWarnings;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
@@ -60,6 +62,8 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import io.netty.buffer.ByteBuf;
 
+import static io.netty.util.ReferenceCountUtil.release;
+
 
 public class DirectQuery implements Query {
 
@@ -71,6 +75,11 @@ public class DirectQuery implements Query {
   private Status status;
   private Long timeout;
   private int maxRows;
+  private boolean streaming;
+  private RowStream stream;
+  private QueryResult streamResult;
+  private ResultField[] streamResultFields;
+  private ExecuteResult prefetchResult;
   private List<ResultBatch> resultBatches;
   private ResultField[] suspendedResultFields;
 
@@ -103,13 +112,18 @@ public class DirectQuery implements Query {
     this.maxRows = maxRows;
   }
 
+  @Override
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
   @Override
   public List<ResultBatch> getResultBatches() {
     return resultBatches;
   }
 
   private boolean requiresPortal() {
-    return maxRows > 0;
+    return maxRows > 0 && !streaming;
   }
 
   private boolean hasParameters() {
@@ -165,11 +179,64 @@ public class DirectQuery implements Query {
     return applyExecuteResult(connection, result);
   }
 
+  private SQLWarning executeStream(PGDirectConnection connection, String sql) throws SQLException {
+
+    portalName = null;
+
+    QueryResult result = new QueryResult();
+
+    // Wait (under the execution timeout) for the first rows, or completion
+    RowDataSet rows = connection.executeTimed(this.timeout, (timeout) -> {
+      stream = connection.getRequestExecutor().queryStream(sql, parameterFormats, parameterBuffers, resultFieldFormats, result);
+      streamResultFields = stream.awaitFields(timeout);
+      return stream.take(maxRows, timeout);
+    });
+
+    streamResult = result;
+
+    return applyStream(connection, rows);
+  }
+
+  private SQLWarning applyStream(PGDirectConnection connection, RowDataSet rows) throws SQLException {
+
+    if (rows == null) {
+      stream = null;
+
+      // Stream is exhausted, the result has completed
+      connection.execute(timeout -> {
+        streamResult.await(timeout, MILLISECONDS);
+      });
+
+      return applyExecuteResult(connection, streamResult);
+    }
+
+    ResultBatch resultBatch = new ResultBatch(null, null, null, streamResultFields, rows);
+
+    try {
+      transformFieldTypes(resultBatch, connection.getRegistry()::resolve);
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    resultBatches = new ArrayList<>(singletonList(resultBatch));
+
+    status = Status.Streaming;
+
+    return null;
+  }
+
   private SQLWarning resumeExtended(PGDirectConnection connection) throws SQLException {
 
+    ExecuteResult prefetched = prefetchResult;
+    prefetchResult = null;
+
     ExecuteResult result = connection.executeTimed(this.timeout, (timeout) -> {
-      ExecuteResult handler = new ExecuteResult(false, suspendedResultFields);
-      connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+      ExecuteResult handler = prefetched;
+      if (handler == null) {
+        handler = new ExecuteResult(false, suspendedResultFields);
+        connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+      }
       handler.await(timeout, MILLISECONDS);
       return handler;
     });
@@ -205,10 +272,17 @@ public class DirectQuery implements Query {
   public SQLWarning execute(PGDirectConnection connection) throws SQLException {
 
     boolean wasSuspended = status == Status.Suspended;
+    boolean wasStreaming = status == Status.Streaming;
 
     status = Status.InProgress;
     try {
 
+      if (wasStreaming) {
+        // Wait (under the execution timeout) for the next rows, or completion
+        RowDataSet rows = connection.executeTimed(this.timeout, (timeout) -> stream.take(maxRows, timeout));
+        return applyStream(connection, rows);
+      }
+
       if (wasSuspended) {
 
         if (portalName == null) {
@@ -222,7 +296,10 @@ public class DirectQuery implements Query {
       }
 
 
-      if (requiresPortal() || hasParameters()) {
+      if (streaming) {
+        return executeStream(connection, sql);
+      }
+      else if (requiresPortal() || hasParameters()) {
         return executeExtended(connection, sql);
       }
       else {
@@ -237,9 +314,41 @@ public class DirectQuery implements Query {
     }
   }
 
+  @Override
+  public void prefetch(PGDirectConnection connection) throws SQLException {
+
+    if (status != Status.Suspended || prefetchResult != null) {
+      return;
+    }
+
+    ExecuteResult handler = new ExecuteResult(false, suspendedResultFields);
+
+    connection.execute(timeout -> {
+      connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+    });
+
+    prefetchResult = handler;
+  }
+
   @Override
   public void dispose(PGDirectConnection connection) throws SQLException {
 
+    if (prefetchResult != null) {
+      ExecuteResult prefetched = prefetchResult;
+      prefetchResult = null;
+
+      // Wait for the prefetched batch before finishing the portal
+      connection.execute(timeout -> {
+        prefetched.await(timeout, MILLISECONDS);
+        release(prefetched.getBatch());
+      });
+    }
+
+    if (stream != null) {
+      stream.close();
+      stream = null;
+    }
+
     if (portalName != null) {
       connection.execute((timeout) -> {
         RequestExecutorHandlers.SynchronizedResult finish = new RequestExecutorHandlers.SynchronizedResult();
@@ -38,8 +38,11 @@ package com.impossibl.postgres.jdbc;
 
 import java.util.concurrent.atomic.AtomicReference;
 
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
 
-abstract class ExecutionTimerTask implements Runnable {
+
+abstract class ExecutionTimerTask implements Runnable, TimerTask {
 
   enum State {
     NotStarted,
@@ -49,17 +52,22 @@ abstract class ExecutionTimerTask implements Runnable {
   }
 
   private final AtomicReference<State> state = new AtomicReference<>(State.NotStarted);
-  private Thread thread;
 
+  /**
+   * Executes the task; runs on a shared timer thread and must not block.
+   */
   protected abstract void go();
 
+  @Override
+  public void run(Timeout timeout) {
+    run();
+  }
+
   @Override
   public void run() {
 
     try {
 
-      thread = Thread.currentThread();
-
       if (!state.compareAndSet(State.NotStarted, State.Running))
         return;
 
@@ -72,7 +80,7 @@ abstract class ExecutionTimerTask implements Runnable {
     finally {
       state.set(State.Completed);
       synchronized (state) {
-        state.notify();
+        state.notifyAll();
       }
     }
 
@@ -82,8 +90,6 @@ abstract class ExecutionTimerTask implements Runnable {
 
     if (this.state.getAndSet(State.Cancelling) == State.Running) {
 
-      thread.interrupt();
-
       synchronized (state) {
 
         while (state.get() == State.Cancelling) {
@@ -55,7 +55,17 @@ public interface Housekeeper {
 
     String getKind();
 
-    StackTraceElement[] getAllocationStackTrace();
+    /**
+     * Stack trace of the referent's allocation.
+     *
+     * Housekeepers capture allocation traces themselves, as directed by the
+     * leak detection level; this is only consulted when none was captured.
+     *
+     * @return Allocation stack trace or {@code null} if unavailable
+     */
+    default StackTraceElement[] getAllocationStackTrace() {
+      return null;
+    }
 
   }
 
@@ -75,6 +75,29 @@ public class JDBCSettings {
   )
   public static final Setting<Integer> PREPARED_STATEMENT_CACHE_THRESHOLD = Setting.declare();
 
+  @Setting.Info(
+      desc = "Enables or disables sharing statement usage & descriptions between the connections of a data source.\n\n" +
+          "Allows connections to prepare statements that are frequently used by other connections immediately. " +
+          "Requires registry sharing.\n\n" +
+          "Statements are only shared between connections with the same user & search path. A connection stops " +
+          "sharing once it changes its search path or role, or references temporary objects.",
+      def = "false",
+      name = "prepared-statement.cache.sharing",
+      group = "jdbc",
+      alternateNames = "preparedStatementCacheSharing"
+  )
+  public static final Setting<Boolean> PREPARED_STATEMENT_CACHE_SHARING = Setting.declare();
+
+  @Setting.Info(
+      desc = "Prepare statements recently cached by other connections of a data source when a connection is opened.\n\n" +
+          "Requires prepared statement cache sharing.",
+      def = "false",
+      name = "prepared-statement.cache.eager",
+      group = "jdbc",
+      alternateNames = "preparedStatementCacheEager"
+  )
+  public static final Setting<Boolean> PREPARED_STATEMENT_CACHE_EAGER = Setting.declare();
+
   @Setting.Info(
       desc = "Size of the query description cache.\n\nA value of zero disables the cache.",
       def = "250", min = 0,
@@ -114,6 +137,23 @@ public class JDBCSettings {
   )
   public static final Setting<Boolean> STRICT_MODE = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Enables or disables executing batches of simple INSERT statements via binary COPY.\n\n" +
+          "When enabled, <code>PreparedStatement.executeBatch(...)</code> of statements of the form " +
+          "<code>INSERT INTO table (col1, col2, ...) VALUES (?, ?, ...)</code> are transparently executed " +
+          "as a binary <code>COPY ... FROM STDIN</code> as long as every parameter is encoded in the exact binary " +
+          "format of its column. Batches that do not qualify, including those targeting views or tables " +
+          "with rules or row level security (which COPY does not support), are executed normally.\n\n" +
+          "NOTE: Each row of a batch executed via COPY reports an update count of 1; a failure of any row " +
+          "fails the entire batch.",
+      def = "false",
+      name = "batch.copy",
+      group = "jdbc",
+      alternateNames = "batchCopy"
+  )
+  public static final Setting<Boolean> BATCH_COPY = Setting.declare();
+
   @Setting.Info(
       desc = "Default fetch size of query results.\n\n Value can be changed at runtime.\n\nA value of zero disables batching results.",
       min = 0,
@@ -123,6 +163,189 @@ public class JDBCSettings {
   )
   public static final Setting<Integer> DEFAULT_FETCH_SIZE = Setting.declare();
 
+  @Setting.Info(
+      desc = "Target size, in bytes, of each batch of rows fetched when a fetch size is in effect.\n\n" +
+          "When non-zero the fetch size only determines the number of rows in the first batch; the " +
+          "number of rows in each following batch is derived from the average size of the rows " +
+          "received so far, at most doubling between batches.\n\n" +
+          "A value of zero disables adaptive fetching.",
+      def = "0",
+      min = 0,
+      name = "fetch.target-size",
+      group = "jdbc",
+      alternateNames = "fetchTargetSize"
+  )
+  public static final Setting<Integer> FETCH_TARGET_SIZE = Setting.declare();
+
+  @Setting.Info(
+      desc = "Enables or disables prefetching the next batch of rows when a fetch size is in effect.\n\n" +
+          "When enabled the next batch is requested as soon as half of the current batch has been " +
+          "consumed, overlapping the transfer of the next batch with the processing of the current " +
+          "one. At most one batch is prefetched, so up to two batches are held in memory at a time.",
+      def = "false",
+      name = "fetch.prefetch",
+      group = "jdbc",
+      alternateNames = "fetchPrefetch"
+  )
+  public static final Setting<Boolean> FETCH_PREFETCH = Setting.declare();
+
+  @Setting.Info(
+      desc = "Enables or disables streaming the rows of forward-only, read-only result sets.\n\n" +
+          "Streamed rows are handed to the result set as they are received, reading from the " +
+          "connection is suspended while the application lags behind, keeping memory use constant " +
+          "regardless of the size of the result, even in auto-commit mode. The fetch size limits " +
+          "the number of rows handed over at a time.\n\n" +
+          "NOTE: Executing other statements on the connection while a result is streaming buffers " +
+          "its remaining rows. The query timeout applies to each wait for the next batch of streamed rows.",
+      def = "false",
+      name = "result-set.streaming",
+      group = "jdbc",
+      alternateNames = "streamResults"
+  )
+  public static final Setting<Boolean> RESULT_SET_STREAMING = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum number of large object reads or writes kept in flight by blob & clob streams.\n\n" +
+          "Streams read ahead (and write behind) by pipelining requests, growing the size of each " +
+          "request as the stream progresses. A value of one disables pipelining.",
+      def = "4",
+      min = 1,
+      name = "large-object.pipeline.depth",
+      group = "jdbc",
+      alternateNames = "largeObjectPipelineDepth"
+  )
+  public static final Setting<Integer> LARGE_OBJECT_PIPELINE_DEPTH = Setting.declare();
+
+  @Setting.Info(
+      desc = "Enables or disables asynchronous delivery of notifications.\n\n" +
+          "When disabled, listeners are called on the connection's I/O thread, stalling every connection " +
+          "sharing the thread until they return. When enabled, each listener receives its notifications, in " +
+          "order, on the `notification.executor` via a bounded queue of its own.",
+      def = "false",
+      name = "notification.async",
+      group = "jdbc",
+      alternateNames = "notificationAsync"
+  )
+  public static final Setting<Boolean> NOTIFICATION_ASYNC = Setting.declare();
+
+  @Setting.Info(
+      desc = "Class name of the `java.util.concurrent.Executor` used to deliver notifications.\n\n" +
+          "A single instance of the class, created via its public no-argument constructor, is shared by all " +
+          "connections naming it. When not provided a shared pool of daemon threads is used.\n\n" +
+          "NOTE: `notification.async` must be `true`",
+      name = "notification.executor",
+      group = "jdbc",
+      alternateNames = "notificationExecutor"
+  )
+  public static final Setting<String> NOTIFICATION_EXECUTOR = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum number of notifications queued for each listener.\n\n" +
+          "NOTE: `notification.async` must be `true`",
+      def = "1000",
+      min = 1,
+      name = "notification.queue.size",
+      group = "jdbc",
+      alternateNames = "notificationQueueSize"
+  )
+  public static final Setting<Integer> NOTIFICATION_QUEUE_SIZE = Setting.declare();
+
+  public enum NotificationQueuePolicy {
+
+    @Setting.Description(
+        "Notifications received while a listener's queue is full are dropped (and counted in the " +
+        "`notification.dropped` metric)."
+    )
+    DROP,
+
+    @Setting.Description(
+        "The connection's I/O thread waits (up to 10 seconds) for room in a listener's queue, applying back " +
+        "pressure to the server; notifications that still do not fit are dropped. Listeners must not use the " +
+        "connection they are listening to."
+    )
+    BLOCK,
+  }
+
+  @Setting.Info(
+      desc = "Action taken when a notification is received while a listener's queue is full.\n\n" +
+          "NOTE: `notification.async` must be `true`",
+      def = "drop",
+      name = "notification.queue.policy",
+      group = "jdbc",
+      alternateNames = "notificationQueuePolicy"
+  )
+  public static final Setting<NotificationQueuePolicy> NOTIFICATION_QUEUE_POLICY = Setting.declare();
+
+  public enum TargetServerType {
+
+    @Setting.Description(
+        "Connect to any server."
+    )
+    ANY,
+
+    @Setting.Description(
+        "Connect only to a primary (read-write) server."
+    )
+    PRIMARY,
+
+    @Setting.Description(
+        "Connect only to a standby (read-only) server."
+    )
+    STANDBY,
+
+    @Setting.Description(
+        "Connect to a standby (read-only) server if one is available, otherwise to any server."
+    )
+    PREFER_STANDBY;
+
+    boolean accepts(boolean readOnly) {
+      switch (this) {
+        case PRIMARY:
+          return !readOnly;
+        case STANDBY:
+          return readOnly;
+        default:
+          return true;
+      }
+    }
+
+  }
+
+  @Setting.Info(
+      desc =
+          "Type of server to connect to when multiple server addresses are provided.\n\n" +
+          "Servers are classified via the `in_hot_standby` & `default_transaction_read_only` parameters " +
+          "reported during startup (or by querying `transaction_read_only` for servers that do not report them). " +
+          "Classifications are cached for `target-server.status.ttl` seconds, allowing addresses known to be " +
+          "of the wrong type to be skipped.",
+      def = "any",
+      name = "target-server.type",
+      group = "jdbc",
+      alternateNames = "targetServerType"
+  )
+  public static final Setting<TargetServerType> TARGET_SERVER_TYPE = Setting.declare();
+
+  @Setting.Info(
+      desc = "Time (in seconds) the classification of a server (as a primary or standby) is cached.",
+      def = "10",
+      min = 0,
+      name = "target-server.status.ttl",
+      group = "jdbc",
+      alternateNames = "hostRecheckSeconds"
+  )
+  public static final Setting<Integer> TARGET_SERVER_STATUS_TTL = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Enables or disables spreading connections across server addresses.\n\n" +
+          "When enabled, the server addresses are attempted in random order.",
+      def = "false",
+      name = "load-balance.hosts",
+      group = "jdbc",
+      alternateNames = "loadBalanceHosts"
+  )
+  public static final Setting<Boolean> LOAD_BALANCE_HOSTS = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables the housekeeping system for leaked JDBC objects.",
       def = "true",
@@ -132,6 +355,35 @@ public class JDBCSettings {
   )
   public static final Setting<Boolean> HOUSEKEEPER = Setting.declare();
 
+  public enum LeakDetection {
+
+    @Setting.Description(
+        "Leaked objects are cleaned up without reporting where they were allocated."
+    )
+    OFF,
+
+    @Setting.Description(
+        "Allocation stack traces are captured for a sampled fraction (1/128) of objects."
+    )
+    SAMPLED,
+
+    @Setting.Description(
+        "Allocation stack traces are captured for every object."
+    )
+    FULL,
+  }
+
+  @Setting.Info(
+      desc =
+          "Level of allocation tracking used to report leaked JDBC objects.\n\n" +
+          "NOTE: Only applies when `housekeeper` is enabled",
+      def = "sampled",
+      name = "housekeeper.leak-detection",
+      group = "jdbc",
+      alternateNames = "leakDetection"
+  )
+  public static final Setting<LeakDetection> HOUSEKEEPER_LEAK_DETECTION = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables sharing type registries between connections.",
       def = "true",
@@ -28,6 +28,7 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
 import com.impossibl.postgres.utils.guava.ByteStreams;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
@@ -119,7 +120,15 @@ class LargeObject {
   }
 
   byte[] read(long len) throws SQLException {
-    try (InputStream data = connection.executeForValue("@lo.read", InputStream.class, fd, (int) len)) {
+    return awaitRead(submitRead((int) len));
+  }
+
+  ExecuteResult submitRead(int len) throws SQLException {
+    return connection.submitForValue("@lo.read", fd, len);
+  }
+
+  byte[] awaitRead(ExecuteResult result) throws SQLException {
+    try (InputStream data = connection.awaitForValue(result, InputStream.class)) {
       return ByteStreams.toByteArray(data);
     }
     catch (IOException e) {
@@ -128,10 +137,18 @@ class LargeObject {
   }
 
   int write(byte[] data, int off, int len) throws SQLException {
+    return awaitWrite(submitWrite(data, off, len));
+  }
+
+  ExecuteResult submitWrite(byte[] data, int off, int len) throws SQLException {
 
     InputStream dataIn = new ByteArrayInputStream(data, off, len);
 
-    return connection.executeForValue("@lo.write", Integer.class, fd, dataIn);
+    return connection.submitForValue("@lo.write", fd, dataIn);
+  }
+
+  int awaitWrite(ExecuteResult result) throws SQLException {
+    return connection.awaitForValue(result, Integer.class);
   }
 
   int truncate(long len) throws SQLException {
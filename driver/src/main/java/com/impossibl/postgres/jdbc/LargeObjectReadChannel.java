@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static java.lang.Math.min;
+
+/**
+ * Reads a large object sequentially, reading ahead by pipelining
+ * {@code loread} requests.
+ *
+ * Reading starts with a single small request; each time a chunk is consumed
+ * the size of subsequent requests doubles (up to {@link #MAX_CHUNK_SIZE}) and
+ * the number of requests kept in flight grows by one (up to the connection's
+ * {@link JDBCSettings#LARGE_OBJECT_PIPELINE_DEPTH pipeline depth}). The amount
+ * of data buffered is therefore bounded by the depth and maximum chunk size.
+ *
+ * Note: Reading ahead advances the large object's position beyond the data
+ * consumed, the large object must be dedicated to the channel.
+ */
+class LargeObjectReadChannel implements ReadableByteChannel {
+
+  static final int INITIAL_CHUNK_SIZE = 8 * 1024;
+  static final int MAX_CHUNK_SIZE = 512 * 1024;
+
+  private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  private static class PendingRead {
+
+    ExecuteResult result;
+    int length;
+
+    PendingRead(ExecuteResult result, int length) {
+      this.result = result;
+      this.length = length;
+    }
+
+  }
+
+  private LargeObject lo;
+  private int maxDepth;
+  private int depth = 1;
+  private int chunkSize = INITIAL_CHUNK_SIZE;
+  private Deque<PendingRead> pending = new ArrayDeque<>();
+  private ByteBuffer current = EMPTY;
+  private boolean exhausted;
+
+  LargeObjectReadChannel(LargeObject lo) {
+    this.lo = lo;
+    this.maxDepth = lo.connection.getLargeObjectPipelineDepth();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return lo != null;
+  }
+
+  int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+    return current.get() & 0xff;
+  }
+
+  int read(byte[] b, int off, int len) throws IOException {
+    return read(ByteBuffer.wrap(b, off, len));
+  }
+
+  @Override
+  public int read(ByteBuffer dst) throws IOException {
+
+    if (!dst.hasRemaining()) {
+      return 0;
+    }
+
+    int start = dst.position();
+
+    while (dst.hasRemaining() && fill()) {
+
+      int amt = min(current.remaining(), dst.remaining());
+
+      ByteBuffer src = current.duplicate();
+      src.limit(src.position() + amt);
+      dst.put(src);
+
+      current.position(current.position() + amt);
+    }
+
+    int read = dst.position() - start;
+    return read != 0 ? read : -1;
+  }
+
+  /**
+   * Ensures data is available in the current chunk, waiting for the next
+   * pending read if necessary.
+   *
+   * @return {@code true} if data is available, {@code false} if the end
+   * of the large object has been reached.
+   */
+  private boolean fill() throws IOException {
+    checkOpen();
+
+    try {
+
+      while (!current.hasRemaining()) {
+
+        submit();
+
+        PendingRead next = pending.poll();
+        if (next == null) {
+          return false;
+        }
+
+        byte[] data = lo.awaitRead(next.result);
+
+        // A short read signals the end of the large object
+        if (data.length < next.length) {
+          exhausted = true;
+        }
+
+        current = ByteBuffer.wrap(data);
+
+        // Chunk consumed, widen the window
+        depth = min(depth + 1, maxDepth);
+      }
+
+      return true;
+    }
+    catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private void submit() throws SQLException {
+
+    while (!exhausted && pending.size() < depth) {
+
+      pending.add(new PendingRead(lo.submitRead(chunkSize), chunkSize));
+
+      chunkSize = min(chunkSize * 2, MAX_CHUNK_SIZE);
+    }
+
+  }
+
+  private void checkOpen() throws IOException {
+    if (lo == null) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  /**
+   * Waits for, and discards, any reads still in flight. The large object
+   * itself is left open.
+   */
+  @Override
+  public void close() {
+    if (lo == null) {
+      return;
+    }
+
+    PendingRead next;
+    while ((next = pending.poll()) != null) {
+      try {
+        lo.awaitRead(next.result);
+      }
+      catch (SQLException ignored) {
+        // Data is discarded, any failure will be reported by the large object
+      }
+    }
+
+    lo = null;
+    current = EMPTY;
+  }
+
+}
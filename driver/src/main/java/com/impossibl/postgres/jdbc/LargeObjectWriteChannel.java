@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static java.lang.Math.min;
+
+/**
+ * Writes a large object sequentially, writing behind by pipelining
+ * {@code lowrite} requests.
+ *
+ * Writes return as soon as their request has been submitted; at most the
+ * connection's {@link JDBCSettings#LARGE_OBJECT_PIPELINE_DEPTH pipeline depth}
+ * requests are kept in flight. Failures of a request are reported by a
+ * subsequent write or by {@link #flush()}.
+ */
+class LargeObjectWriteChannel implements WritableByteChannel {
+
+  static final int MAX_CHUNK_SIZE = LargeObjectReadChannel.MAX_CHUNK_SIZE;
+
+  private LargeObject lo;
+  private int maxDepth;
+  private Deque<ExecuteResult> pending = new ArrayDeque<>();
+
+  LargeObjectWriteChannel(LargeObject lo) {
+    this.lo = lo;
+    this.maxDepth = lo.connection.getLargeObjectPipelineDepth();
+  }
+
+  @Override
+  public boolean isOpen() {
+    return lo != null;
+  }
+
+  void write(byte[] b, int off, int len) throws IOException {
+    checkOpen();
+
+    try {
+
+      while (len > 0) {
+
+        int amt = min(len, MAX_CHUNK_SIZE);
+
+        // Wait for the oldest write when the window is full
+        while (pending.size() >= maxDepth) {
+          lo.awaitWrite(pending.poll());
+        }
+
+        pending.add(lo.submitWrite(b, off, amt));
+
+        off += amt;
+        len -= amt;
+      }
+
+    }
+    catch (SQLException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public int write(ByteBuffer src) throws IOException {
+
+    int len = src.remaining();
+
+    if (src.hasArray()) {
+      write(src.array(), src.arrayOffset() + src.position(), len);
+    }
+    else {
+      byte[] data = new byte[len];
+      src.duplicate().get(data);
+      write(data, 0, len);
+    }
+
+    src.position(src.position() + len);
+
+    return len;
+  }
+
+  /**
+   * Waits for all writes in flight to complete.
+   *
+   * @throws IOException If any pending write failed.
+   */
+  void flush() throws IOException {
+    checkOpen();
+
+    SQLException error = null;
+
+    ExecuteResult next;
+    while ((next = pending.poll()) != null) {
+      try {
+        lo.awaitWrite(next);
+      }
+      catch (SQLException e) {
+        if (error == null) {
+          error = e;
+        }
+      }
+    }
+
+    if (error != null) {
+      throw new IOException(error);
+    }
+  }
+
+  private void checkOpen() throws IOException {
+    if (lo == null) {
+      throw new ClosedChannelException();
+    }
+  }
+
+  /**
+   * Waits for all writes in flight to complete. The large object
+   * itself is left open.
+   *
+   * @throws IOException If any pending write failed.
+   */
+  @Override
+  public void close() throws IOException {
+    if (lo == null) {
+      return;
+    }
+
+    try {
+      flush();
+    }
+    finally {
+      lo = null;
+    }
+  }
+
+}
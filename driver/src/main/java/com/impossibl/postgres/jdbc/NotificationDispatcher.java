@@ -0,0 +1,402 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.metrics.Counter;
+import com.impossibl.postgres.jdbc.JDBCSettings.NotificationQueuePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Dispatches a connection's notifications to its listeners.
+ *
+ * Listeners filtering on a single channel name (a plain name or one quoted
+ * via {@link Pattern#quote(String)}) are indexed by the name; only listeners
+ * with other filters are matched against each notification.
+ *
+ * When an executor is provided, each listener receives its notifications,
+ * in order, on the executor via a bounded queue of its own. Otherwise
+ * listeners are called on the thread reporting the notification.
+ */
+class NotificationDispatcher {
+
+  private static final Logger logger = Logger.getLogger(NotificationDispatcher.class.getName());
+
+  /**
+   * Maximum time (in milliseconds) the {@link NotificationQueuePolicy#BLOCK} policy waits
+   * for room in a listener's queue before dropping the notification.
+   */
+  static final long BLOCK_TIMEOUT = SECONDS.toMillis(10);
+
+  private static final Pattern PLAIN_CHANNEL_NAME = Pattern.compile("[A-Za-z0-9_]+");
+
+  private static final Map<String, Executor> sharedExecutors = new ConcurrentHashMap<>();
+
+  private static Executor defaultExecutor;
+
+  private static class Notification {
+
+    int processId;
+    String channelName;
+    String payload;
+
+    Notification(int processId, String channelName, String payload) {
+      this.processId = processId;
+      this.channelName = channelName;
+      this.payload = payload;
+    }
+
+  }
+
+  private class Registration implements Runnable {
+
+    String name;
+    Pattern channelNameFilter;
+    PGNotificationListener listener;
+    BlockingQueue<Notification> queue;
+    AtomicBoolean scheduled = new AtomicBoolean();
+    AtomicBoolean closeReported = new AtomicBoolean();
+    volatile boolean closing;
+    volatile boolean removed;
+
+    Registration(String name, Pattern channelNameFilter, PGNotificationListener listener) {
+      this.name = name;
+      this.channelNameFilter = channelNameFilter;
+      this.listener = listener;
+      this.queue = executor != null ? new ArrayBlockingQueue<>(queueSize) : null;
+    }
+
+    boolean matches(String channelName) {
+      return channelNameFilter == null || channelNameFilter.matcher(channelName).matches();
+    }
+
+    void notification(Notification notification) {
+
+      if (queue == null) {
+        reportNotification(notification);
+        return;
+      }
+
+      if (!offer(notification)) {
+        dropped.increment();
+        logger.fine("Notification queue full, dropped notification for channel: " + notification.channelName);
+        return;
+      }
+
+      schedule();
+    }
+
+    private boolean offer(Notification notification) {
+
+      if (queuePolicy != NotificationQueuePolicy.BLOCK) {
+        return queue.offer(notification);
+      }
+
+      try {
+        return queue.offer(notification, BLOCK_TIMEOUT, MILLISECONDS);
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    void closed() {
+
+      if (queue == null) {
+        reportClosed();
+        return;
+      }
+
+      closing = true;
+      schedule();
+    }
+
+    void remove() {
+      removed = true;
+      if (queue != null) {
+        queue.clear();
+      }
+    }
+
+    private void schedule() {
+      if (!scheduled.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        executor.execute(this);
+      }
+      catch (RejectedExecutionException e) {
+        logger.log(Level.WARNING, "Notification executor rejected delivery, delivering synchronously", e);
+        run();
+      }
+    }
+
+    @Override
+    public void run() {
+
+      try {
+
+        Notification notification;
+        while (!removed && (notification = queue.poll()) != null) {
+          reportNotification(notification);
+        }
+
+        if (closing && queue.isEmpty() && !closeReported.getAndSet(true)) {
+          reportClosed();
+        }
+
+      }
+      finally {
+        scheduled.set(false);
+      }
+
+      // Reschedule if notifications (or the close) arrived after draining
+      if (!removed && (!queue.isEmpty() || (closing && !closeReported.get()))) {
+        schedule();
+      }
+    }
+
+    private void reportNotification(Notification notification) {
+      try {
+        listener.notification(notification.processId, notification.channelName, notification.payload);
+      }
+      catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception in connection listener", t);
+      }
+    }
+
+    private void reportClosed() {
+      try {
+        listener.closed();
+      }
+      catch (Throwable t) {
+        logger.log(Level.WARNING, "Exception in connection listener", t);
+      }
+    }
+
+  }
+
+  private Executor executor;
+  private int queueSize;
+  private NotificationQueuePolicy queuePolicy;
+  private Counter dropped;
+  private Map<String, List<Registration>> channelRegistrations = new ConcurrentHashMap<>();
+  private List<Registration> filteredRegistrations = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a dispatcher.
+   *
+   * @param executor Executor notifications are delivered on, or null to deliver them synchronously
+   * @param queueSize Maximum number of notifications queued for each listener
+   * @param queuePolicy Action taken when a listener's queue is full
+   * @param dropped Counter of dropped notifications
+   */
+  NotificationDispatcher(Executor executor, int queueSize, NotificationQueuePolicy queuePolicy, Counter dropped) {
+    this.executor = executor;
+    this.queueSize = queueSize;
+    this.queuePolicy = queuePolicy;
+    this.dropped = dropped;
+  }
+
+  /**
+   * Resolves the executor named by the {@code notification.executor} setting.
+   *
+   * @param className Class name of the executor, or null for the default executor
+   * @return Executor instance, shared by all connections naming the same class
+   */
+  static Executor getExecutor(String className) {
+
+    if (className == null || className.isEmpty()) {
+      return getDefaultExecutor();
+    }
+
+    return sharedExecutors.computeIfAbsent(className, NotificationDispatcher::loadExecutor);
+  }
+
+  private static synchronized Executor getDefaultExecutor() {
+
+    if (defaultExecutor == null) {
+      AtomicInteger threadCount = new AtomicInteger();
+      defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "PG-JDBC Notification (" + threadCount.incrementAndGet() + ")");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+
+    return defaultExecutor;
+  }
+
+  private static Executor loadExecutor(String className) {
+    try {
+      Class<?> executorClass = Class.forName(className, true, NotificationDispatcher.class.getClassLoader());
+      return (Executor) executorClass.getConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Invalid notification executor: " + className, e);
+    }
+  }
+
+  /*
+   * Returns the channel name matched by a filter that matches a single
+   * channel name, or null for filters that require matching
+   */
+  static String getChannelName(String channelNameFilter) {
+
+    if (PLAIN_CHANNEL_NAME.matcher(channelNameFilter).matches()) {
+      return channelNameFilter;
+    }
+
+    int length = channelNameFilter.length();
+    if (length >= 4 && channelNameFilter.startsWith("\\Q") && channelNameFilter.indexOf("\\E") == length - 2) {
+      return channelNameFilter.substring(2, length - 2);
+    }
+
+    return null;
+  }
+
+  void add(String name, String channelNameFilter, PGNotificationListener listener) {
+
+    String channelName = channelNameFilter != null ? getChannelName(channelNameFilter) : null;
+    if (channelName != null) {
+
+      Registration registration = new Registration(name, null, listener);
+
+      // Added atomically with respect to removing the channel's list once empty
+      channelRegistrations.compute(channelName, (key, registrations) -> {
+        if (registrations == null) {
+          registrations = new CopyOnWriteArrayList<>();
+        }
+        registrations.add(registration);
+        return registrations;
+      });
+    }
+    else {
+
+      Pattern channelNameFilterPattern = channelNameFilter != null ? Pattern.compile(channelNameFilter) : null;
+
+      filteredRegistrations.add(new Registration(name, channelNameFilterPattern, listener));
+    }
+
+  }
+
+  void remove(PGNotificationListener listener) {
+    remove(registration -> registration.listener == null || registration.listener.equals(listener));
+  }
+
+  void remove(String name) {
+    remove(registration -> registration.name.equals(name) || registration.listener == null);
+  }
+
+  private void remove(Predicate<Registration> filter) {
+
+    for (String channelName : channelRegistrations.keySet()) {
+      channelRegistrations.computeIfPresent(channelName, (key, registrations) -> {
+        remove(registrations, filter);
+        return registrations.isEmpty() ? null : registrations;
+      });
+    }
+
+    remove(filteredRegistrations, filter);
+  }
+
+  private static void remove(List<Registration> registrations, Predicate<Registration> filter) {
+
+    List<Registration> removed = new ArrayList<>();
+    for (Registration registration : registrations) {
+      if (filter.test(registration)) {
+        registration.remove();
+        removed.add(registration);
+      }
+    }
+
+    registrations.removeAll(removed);
+  }
+
+  /**
+   * Dispatches a notification to all listeners with matching filters.
+   */
+  void notification(int processId, String channelName, String payload) {
+
+    Notification notification = new Notification(processId, channelName, payload);
+
+    List<Registration> registrations = channelRegistrations.get(channelName);
+    if (registrations != null) {
+      for (Registration registration : registrations) {
+        registration.notification(notification);
+      }
+    }
+
+    for (Registration registration : filteredRegistrations) {
+      if (registration.matches(channelName)) {
+        registration.notification(notification);
+      }
+    }
+
+  }
+
+  /**
+   * Reports the connection closed to all listeners, after any notifications
+   * queued for them, and removes all listeners.
+   */
+  void closed() {
+
+    List<Registration> registrations = new ArrayList<>(filteredRegistrations);
+    channelRegistrations.values().forEach(registrations::addAll);
+
+    channelRegistrations.clear();
+    filteredRegistrations.clear();
+
+    for (Registration registration : registrations) {
+      registration.closed();
+    }
+
+  }
+
+}
@@ -362,6 +362,12 @@ public class PGCallableStatement extends PGPreparedStatement implements Callable
     return mapFromOutParameterIndex(idx);
   }
 
+  @Override
+  boolean allowStreaming() {
+    // Out parameters are read from the complete result
+    return false;
+  }
+
   @Override
   boolean allowBatchSelects() {
     return true;
@@ -30,7 +30,10 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGCopyOutListener;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.metrics.Histogram;
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
 import com.impossibl.postgres.jdbc.SQLTextTree.ParameterPiece;
 import com.impossibl.postgres.jdbc.SQLTextTree.Processor;
@@ -38,22 +41,29 @@ import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.CopyFromHandler;
 import com.impossibl.postgres.protocol.RequestExecutor.CopyToHandler;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.PrepareResult;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.QueryResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.system.BasicContext;
+import com.impossibl.postgres.system.NoticeException;
 import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.Setting;
 import com.impossibl.postgres.system.Settings;
+import com.impossibl.postgres.system.metrics.DefaultMetricsRegistry;
+import com.impossibl.postgres.system.metrics.Metrics;
+import com.impossibl.postgres.system.metrics.MetricsMBean;
 import com.impossibl.postgres.types.ArrayType;
 import com.impossibl.postgres.types.CompositeType;
 import com.impossibl.postgres.types.SharedRegistry;
 import com.impossibl.postgres.types.Type;
 import com.impossibl.postgres.utils.Await;
 import com.impossibl.postgres.utils.BlockingReadTimeoutException;
-import com.impossibl.postgres.utils.CacheMap;
+import com.impossibl.postgres.utils.ConcurrentCache;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.chainWarnings;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
@@ -62,22 +72,33 @@ import static com.impossibl.postgres.jdbc.Exceptions.CLOSED_CONNECTION;
 import static com.impossibl.postgres.jdbc.Exceptions.INVALID_COMMAND_FOR_GENERATED_KEYS;
 import static com.impossibl.postgres.jdbc.Exceptions.NOT_SUPPORTED;
 import static com.impossibl.postgres.jdbc.Exceptions.UNWRAP_ERROR;
+import static com.impossibl.postgres.jdbc.JDBCSettings.BATCH_COPY;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_APPLICATION_NAME;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_CLIENT_USER;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CLIENT_INFO;
 import static com.impossibl.postgres.jdbc.JDBCSettings.DEFAULT_FETCH_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.DEFAULT_NETWORK_TIMEOUT;
-import static com.impossibl.postgres.jdbc.JDBCSettings.DESCRIPTION_CACHE_SIZE;
+import static com.impossibl.postgres.jdbc.JDBCSettings.FETCH_PREFETCH;
+import static com.impossibl.postgres.jdbc.JDBCSettings.FETCH_TARGET_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.JDBC;
+import static com.impossibl.postgres.jdbc.JDBCSettings.LARGE_OBJECT_PIPELINE_DEPTH;
+import static com.impossibl.postgres.jdbc.JDBCSettings.NOTIFICATION_ASYNC;
+import static com.impossibl.postgres.jdbc.JDBCSettings.NOTIFICATION_EXECUTOR;
+import static com.impossibl.postgres.jdbc.JDBCSettings.NOTIFICATION_QUEUE_POLICY;
+import static com.impossibl.postgres.jdbc.JDBCSettings.NOTIFICATION_QUEUE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PARSED_SQL_CACHE_SIZE;
+import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_EAGER;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_SIZE;
 import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_THRESHOLD;
 import static com.impossibl.postgres.jdbc.JDBCSettings.READ_ONLY;
+import static com.impossibl.postgres.jdbc.JDBCSettings.RESULT_SET_STREAMING;
 import static com.impossibl.postgres.jdbc.JDBCSettings.STRICT_MODE;
+import static com.impossibl.postgres.jdbc.PGStatement.CACHED_STATEMENT_PREFIX;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.appendReturningClause;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.escapeLiteral;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getBeginText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getCommitText;
+import static com.impossibl.postgres.jdbc.SQLTextUtils.getCopyFromText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getGetSessionIsolationLevelText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getGetSessionReadabilityText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getIsolationLevel;
@@ -87,11 +108,15 @@ import static com.impossibl.postgres.jdbc.SQLTextUtils.getRollbackToText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSavepointText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSessionIsolationLevelText;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.getSetSessionReadabilityText;
+import static com.impossibl.postgres.jdbc.SQLTextUtils.isSessionScoped;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.isTrue;
 import static com.impossibl.postgres.jdbc.SQLTextUtils.prependCursorDeclaration;
 import static com.impossibl.postgres.protocol.TransactionStatus.Idle;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_URL;
+import static com.impossibl.postgres.system.SystemSettings.DEFAULT_TRANSACTION_READ_ONLY;
+import static com.impossibl.postgres.system.SystemSettings.IN_HOT_STANDBY;
+import static com.impossibl.postgres.system.SystemSettings.METRICS_JMX;
 import static com.impossibl.postgres.system.SystemSettings.PROTO;
 import static com.impossibl.postgres.system.SystemSettings.SERVER;
 import static com.impossibl.postgres.system.SystemSettings.STANDARD_CONFORMING_STRINGS;
@@ -105,7 +130,9 @@ import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.lang.ref.WeakReference;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -135,12 +162,10 @@ import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
+import static java.lang.Integer.toHexString;
 import static java.lang.String.format;
 import static java.sql.ClientInfoStatus.REASON_UNKNOWN;
 import static java.sql.ClientInfoStatus.REASON_UNKNOWN_PROPERTY;
@@ -149,13 +174,16 @@ import static java.sql.ResultSet.CONCUR_READ_ONLY;
 import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 import static java.util.Arrays.asList;
-import static java.util.Collections.synchronizedMap;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
+import javax.management.ObjectName;
+
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFuture;
+import io.netty.util.Timeout;
 
 import static io.netty.util.ReferenceCountUtil.release;
 
@@ -179,14 +207,14 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     ServerConnection serverConnection;
     List<WeakReference<PGStatement>> statements;
-    StackTraceElement[] allocationStackTrace;
     String connectionInfo;
+    ObjectName metricsMBeanName;
 
-    private Cleanup(ServerConnection serverConnection, List<WeakReference<PGStatement>> statements, String connectionInfo) {
+    private Cleanup(ServerConnection serverConnection, List<WeakReference<PGStatement>> statements, String connectionInfo, ObjectName metricsMBeanName) {
       this.serverConnection = serverConnection;
       this.statements = statements;
-      this.allocationStackTrace = new Exception().getStackTrace();
       this.connectionInfo = connectionInfo;
+      this.metricsMBeanName = metricsMBeanName;
     }
 
     @Override
@@ -194,22 +222,23 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       return "connection ( " + connectionInfo + " )";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
       serverConnection.shutdown();
 
       closeStatements(statements);
+
+      if (metricsMBeanName != null) {
+        MetricsMBean.unregister(metricsMBeanName);
+      }
     }
 
   }
 
   boolean strict;
+  private boolean batchCopy;
+  private Map<String, Boolean> batchCopyTargets = new ConcurrentHashMap<>();
   private long statementId = 0L;
   private long portalId = 0L;
   private int savepointId;
@@ -218,76 +247,191 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   private int networkTimeout;
   private SQLWarning warningChain;
   private List<WeakReference<PGStatement>> activeStatements;
-  private Map<StatementCacheKey, StatementDescription> descriptionCache;
-  private Map<StatementCacheKey, PreparedStatementDescription> preparedStatementCache;
+  private volatile SharedStatementCache statementCache;
+  private volatile boolean statementCacheShared;
+  private ConcurrentCache<StatementCacheKey, PreparedStatementDescription> preparedStatementCache;
   private int preparedStatementCacheThreshold;
-  private Map<StatementCacheKey, Integer> preparedStatementHeat;
   private Integer defaultFetchSize;
-  private Map<NotificationKey, PGNotificationListener> notificationListeners;
+  private int fetchTargetSize;
+  private boolean fetchPrefetch;
+  private Metrics metrics;
+  private Histogram fetchStall;
+  private Histogram statementExecution;
+  private ObjectName metricsMBeanName;
+  private int largeObjectPipelineDepth;
+  private boolean resultSetStreaming;
+  private NotificationDispatcher notificationDispatcher;
   final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
 
-  private static Map<String, SQLText> parsedSqlCache;
+  private static ConcurrentCache<String, SQLText> parsedSqlCache;
 
-  PGDirectConnection(SocketAddress address, Settings settings, Housekeeper.Ref housekeeper) throws IOException {
-    super(address, settings.duplicateKnowing(JDBC, SYS, PROTO, SERVER));
+  PGDirectConnection(List<SocketAddress> addresses, Settings settings, Housekeeper.Ref housekeeper) throws IOException {
+    super(addresses, settings.duplicateKnowing(JDBC, SYS, PROTO, SERVER));
 
     this.strict = getSetting(STRICT_MODE);
+    this.batchCopy = getSetting(BATCH_COPY);
     this.networkTimeout = getSetting(DEFAULT_NETWORK_TIMEOUT);
     this.activeStatements = new ArrayList<>();
-    this.notificationListeners = new ConcurrentHashMap<>();
-
-    final int descriptionCacheSize = getSetting(DESCRIPTION_CACHE_SIZE);
-    if (descriptionCacheSize > 0) {
-      this.descriptionCache = synchronizedMap(new CacheMap<>(descriptionCacheSize, 1.1f, true));
-    }
+    this.notificationDispatcher = new NotificationDispatcher(
+        getSetting(NOTIFICATION_ASYNC) ? NotificationDispatcher.getExecutor(getSetting(NOTIFICATION_EXECUTOR)) : null,
+        getSetting(NOTIFICATION_QUEUE_SIZE), getSetting(NOTIFICATION_QUEUE_POLICY),
+        getServerConnection().getMetrics().counter(Metrics.NOTIFICATIONS_DROPPED)
+    );
 
     final int statementCacheSize = getSetting(PREPARED_STATEMENT_CACHE_SIZE);
     if (statementCacheSize > 0) {
       WeakReference<PGDirectConnection> weakThis = new WeakReference<>(this);
-      preparedStatementCache = synchronizedMap(new CacheMap<>(statementCacheSize, 1.1f, true, eldest -> {
+      preparedStatementCache = new ConcurrentCache<>(statementCacheSize, (key, evicted) -> {
+        PGDirectConnection connection = weakThis.get();
+        if (connection != null) {
+          // Replacements of an equal key reuse the statement's name
+          PreparedStatementDescription current = connection.preparedStatementCache.peek(key);
+          if (current != null && current.name.equals(evicted.name)) {
+            return;
+          }
+        }
         try {
-          PGStatement.dispose(weakThis.get(), eldest.getValue().name);
+          PGStatement.dispose(connection, evicted.name);
         }
         catch (SQLException ignored) {
         }
-      }));
+      });
     }
 
-    final int statementCacheThreshold = getSetting(PREPARED_STATEMENT_CACHE_THRESHOLD);
-    if (statementCacheThreshold > 0) {
-      preparedStatementCacheThreshold = statementCacheThreshold;
-      preparedStatementHeat = new ConcurrentHashMap<>();
-    }
+    preparedStatementCacheThreshold = getSetting(PREPARED_STATEMENT_CACHE_THRESHOLD);
 
     final int sqlCacheSize = getSetting(PARSED_SQL_CACHE_SIZE);
     if (sqlCacheSize > 0) {
       synchronized (PGDirectConnection.class) {
         if (parsedSqlCache == null) {
-          parsedSqlCache = synchronizedMap(new CacheMap<>(sqlCacheSize, 1.1f, true));
+          parsedSqlCache = new ConcurrentCache<>(sqlCacheSize);
         }
       }
     }
 
     this.defaultFetchSize = getSetting(DEFAULT_FETCH_SIZE);
+    this.fetchTargetSize = getSetting(FETCH_TARGET_SIZE);
+    this.fetchPrefetch = getSetting(FETCH_PREFETCH);
+    this.largeObjectPipelineDepth = getSetting(LARGE_OBJECT_PIPELINE_DEPTH);
+    this.resultSetStreaming = getSetting(RESULT_SET_STREAMING);
 
-    prepareUtilQuery("TB", getBeginText());
-    prepareUtilQuery("TC", getCommitText());
-    prepareUtilQuery("TR", getRollbackText());
+    this.metrics = getServerConnection().getMetrics();
+    this.fetchStall = metrics.histogram(Metrics.RESULT_SET_FETCH_STALL);
+    this.statementExecution = metrics.histogram(Metrics.STATEMENT_EXECUTION);
+    if (getSetting(METRICS_JMX) && metrics.getRegistry() instanceof DefaultMetricsRegistry) {
+      this.metricsMBeanName = MetricsMBean.register((DefaultMetricsRegistry) metrics.getRegistry());
+    }
+
+    submitUtilQuery("TB", getBeginText());
+    submitUtilQuery("TC", getCommitText());
+    submitUtilQuery("TR", getRollbackText());
 
     this.housekeeper = housekeeper;
     if (this.housekeeper != null)
-      this.cleanupKey = this.housekeeper.add(this, new Cleanup(getServerConnection(), activeStatements, getSetting(DATABASE_URL)));
+      this.cleanupKey = this.housekeeper.add(this, new Cleanup(getServerConnection(), activeStatements, getSetting(DATABASE_URL), metricsMBeanName));
     else
       this.cleanupKey = null;
   }
 
   @Override
   public void init(SharedRegistry.Factory sharedRegistryFactory) throws IOException {
+    init(sharedRegistryFactory, SharedStatementCache.UNSHARED);
+  }
+
+  void init(SharedRegistry.Factory sharedRegistryFactory, SharedStatementCache.Factory sharedStatementCacheFactory) throws IOException {
+
+    // Submitted ahead of initialization, so it completes in the same flight
+    QueryResult statementScope = null;
+    if (sharedStatementCacheFactory != SharedStatementCache.UNSHARED) {
+      statementScope = new QueryResult();
+      getRequestExecutor().query("SELECT current_user, current_setting('search_path')", statementScope);
+    }
 
     super.init(sharedRegistryFactory);
 
+    if (statementScope != null) {
+      statementCache = sharedStatementCacheFactory.get(getRegistry().getShared(), loadStatementScope(statementScope), settings);
+      statementCacheShared = true;
+    }
+    else {
+      statementCache = sharedStatementCacheFactory.get(getRegistry().getShared(), null, settings);
+    }
+
     applySettings(settings);
+
+    if (settings.enabled(PREPARED_STATEMENT_CACHE_EAGER)) {
+      prepareSharedStatements();
+    }
+  }
+
+  /**
+   * Loads the session state that determines how the server resolves
+   * statement text.
+   */
+  private SharedStatementCache.Scope loadStatementScope(QueryResult statementScope) throws IOException {
+
+    statementScope.await(networkTimeout, MILLISECONDS);
+
+    try (ResultBatch resultBatch = statementScope.getBatch()) {
+      RowData row = resultBatch.borrowRows().borrow(0);
+      ResultField[] fields = resultBatch.getFields();
+      return new SharedStatementCache.Scope(
+          (String) row.getField(0, fields[0], this, String.class, null),
+          (String) row.getField(1, fields[1], this, String.class, null));
+    }
+  }
+
+  /**
+   * Stops sharing statements with other connections, replacing the shared
+   * statement cache with a private cache. Called when this session's state
+   * diverges from the state of the connections sharing the cache.
+   */
+  private void detachStatementCache() {
+
+    if (!statementCacheShared) {
+      return;
+    }
+
+    statementCache = SharedStatementCache.UNSHARED.get(getRegistry().getShared(), null, settings);
+    statementCacheShared = false;
+  }
+
+  /**
+   * Prepares the statements recently cached by other connections sharing
+   * this connection's statement cache, in a single pipelined flight.
+   */
+  private void prepareSharedStatements() throws IOException {
+
+    if (preparedStatementCache == null) {
+      return;
+    }
+
+    List<StatementCacheKey> keys = statementCache.getPreparedStatements();
+    List<PrepareResult> results = new ArrayList<>(keys.size());
+
+    for (StatementCacheKey key : keys) {
+      PrepareResult result = new PrepareResult();
+      getRequestExecutor().prepare(getCachedStatementName(key), key.getSql(), key.getParameterTypes(), result);
+      results.add(result);
+    }
+
+    for (int idx = 0; idx < keys.size(); ++idx) {
+      StatementCacheKey key = keys.get(idx);
+      PrepareResult result = results.get(idx);
+
+      try {
+        result.await(networkTimeout, MILLISECONDS);
+      }
+      catch (NoticeException e) {
+        // Statement is no longer valid (e.g. a referenced table was dropped)
+        logger.fine("Skipped preparing shared statement: " + e.getMessage());
+        continue;
+      }
+
+      preparedStatementCache.put(key, describePreparedStatement(getCachedStatementName(key), result));
+    }
+
   }
 
   private void applySettings(Settings settings) throws IOException {
@@ -423,6 +567,11 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
   SQLText parseSQL(String sqlText) throws SQLException {
 
+    if ((statementCacheShared || batchCopy) && isSessionScoped(sqlText)) {
+      detachStatementCache();
+      batchCopyTargets.clear();
+    }
+
     try {
       final boolean standardConformingStrings = getSetting(STANDARD_CONFORMING_STRINGS, false);
 
@@ -431,6 +580,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       }
 
       SQLText parsedSql = parsedSqlCache.get(sqlText);
+      metrics.getParsedSqlCache().recordLookup(parsedSql != null);
       if (parsedSql == null) {
         parsedSql = new SQLText(sqlText, standardConformingStrings);
         parsedSqlCache.put(sqlText, parsedSql);
@@ -526,9 +676,9 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       // Schedule task to run at execution timeout
 
-      ExecutionTimerTask task = new CancelRequestTask(getServerConnection().getRemoteAddress(), getKeyData());
+      ExecutionTimerTask task = new CancelRequestTask(getServerConnection());
 
-      ScheduledFuture<?> taskHandle = getServerConnection().getIOExecutor().schedule(task, executionTimeout, MILLISECONDS);
+      Timeout taskHandle = getServerConnection().getTimer().newTimeout(task, executionTimeout, MILLISECONDS);
 
       try {
 
@@ -538,7 +688,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       finally {
 
         // Cancel the scheduled running (if it hasn't began to run)
-        taskHandle.cancel(true);
+        taskHandle.cancel();
 
         // Also, ensure any task that is currently running also gets
         // completely cancelled, or finishes, before returning
@@ -608,16 +758,85 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   <T> T executeForValue(String sql, Class<T> returnType, Object... params) throws SQLException {
 
     try (ResultBatch resultBatch = executeForResultBatch(sql, params)) {
+      return getFirstValue(resultBatch, returnType);
+    }
 
-      try {
-        Object value = resultBatch.borrowRows().borrow(0).getField(0, resultBatch.getFields()[0], this, returnType, null);
-        return returnType.cast(value);
-      }
-      catch (IOException e) {
-        throw new SQLException("Error decoding column", e);
+  }
+
+  /**
+   * Submits the given SQL text without waiting for its result, allowing
+   * multiple requests to be pipelined. Its value must be retrieved via
+   * {@link #awaitForValue(ExecuteResult, Class)}.
+   *
+   * @param sql
+   *          SQL text to submit
+   * @param params
+   *          Parameter values of the SQL text
+   * @return Result of the submitted request
+   * @throws SQLException
+   *           If an error was encountered during submission
+   */
+  ExecuteResult submitForValue(String sql, Object... params) throws SQLException {
+
+    return execute((long timeout) -> submitQueryPrepared(sql, params));
+  }
+
+  /**
+   * Waits for a result submitted via {@link #submitForValue(String, Object...)}
+   * returning the first column of the first row
+   */
+  <T> T awaitForValue(ExecuteResult result, Class<T> returnType) throws SQLException {
+
+    try (ResultBatch resultBatch = execute((long timeout) -> awaitBatch(result, timeout))) {
+      return getFirstValue(resultBatch, returnType);
+    }
+
+  }
+
+  private static ResultBatch awaitBatch(ExecuteResult result, long timeout) throws IOException {
+
+    result.await(timeout, MILLISECONDS);
+    return result.getBatch();
+  }
+
+  private <T> T getFirstValue(ResultBatch resultBatch, Class<T> returnType) throws SQLException {
+
+    try {
+      Object value = resultBatch.borrowRows().borrow(0).getField(0, resultBatch.getFields()[0], this, returnType, null);
+      return returnType.cast(value);
+    }
+    catch (IOException e) {
+      throw new SQLException("Error decoding column", e);
+    }
+
+  }
+
+  /**
+   * Checks that the table targeted by a batch COPY is a plain (or partitioned) table
+   * without rules or row level security. COPY fails for views and tables with row
+   * level security and ignores rules, where the equivalent INSERT would not.
+   *
+   * @param table Table name (optionally qualified) targeted by the batch
+   * @return true if the batch can be executed via COPY
+   * @throws SQLException If an error occurs querying the table
+   */
+  boolean isBatchCopyTarget(String table) throws SQLException {
+
+    Boolean target = batchCopyTargets.get(table);
+    if (target == null) {
+
+      String sql =
+          "SELECT c.relkind IN ('r', 'p') AND NOT c.relhasrules AND NOT c.relrowsecurity " +
+          "FROM pg_catalog.pg_class c WHERE c.oid = to_regclass($1)";
+
+      try (ResultBatch resultBatch = executeForResultBatch(sql, new Object[] {table})) {
+        target = !resultBatch.isEmpty() && getFirstValue(resultBatch, Boolean.class);
       }
+
+      batchCopyTargets.put(table, target);
     }
 
+    return target;
   }
 
   long executeForRowsAffected(String sql) throws SQLException {
@@ -666,6 +885,77 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     return defaultFetchSize;
   }
 
+  SocketAddress getServerAddress() {
+    return getServerConnection().getRemoteAddress();
+  }
+
+  /**
+   * Determines if the server only allows read-only transactions (e.g. it is
+   * a hot standby) from the parameters reported by the server during startup.
+   *
+   * @return {@code true} if the server is read-only or {@code null} if the
+   *          server did not report the required parameters
+   */
+  Boolean getReportedServerReadOnly() {
+
+    Boolean inHotStandby = getSetting(IN_HOT_STANDBY);
+    Boolean defaultReadOnly = getSetting(DEFAULT_TRANSACTION_READ_ONLY);
+    if (inHotStandby != null && defaultReadOnly != null) {
+      return inHotStandby || defaultReadOnly;
+    }
+
+    return null;
+  }
+
+  /**
+   * Determines if the server only allows read-only transactions (e.g. it is
+   * a hot standby) by querying the server.
+   *
+   * @return {@code true} if the server is read-only
+   * @throws SQLException
+   *           If an error was encountered querying the server
+   */
+  boolean queryServerReadOnly() throws SQLException {
+    return executeForString("SHOW transaction_read_only").equals("on");
+  }
+
+  int getFetchTargetSize() {
+    return fetchTargetSize;
+  }
+
+  boolean isFetchPrefetch() {
+    return fetchPrefetch;
+  }
+
+  /**
+   * Histogram of time, in nanoseconds, result sets spent waiting on the server
+   * for their next batch of rows (excluding each result's first batch).
+   */
+  Histogram getFetchStallHistogram() {
+    return fetchStall;
+  }
+
+  /**
+   * Histogram of time, in nanoseconds, statements spent executing (until
+   * their first results were available).
+   */
+  Histogram getStatementExecutionHistogram() {
+    return statementExecution;
+  }
+
+  @Override
+  public MetricsRegistry getMetrics() {
+    return metrics.getRegistry();
+  }
+
+  int getLargeObjectPipelineDepth() {
+    return largeObjectPipelineDepth;
+  }
+
+  boolean isResultSetStreaming() {
+    return resultSetStreaming;
+  }
+
   @Override
   public PGAnyType resolveType(String name) throws SQLException {
     try {
@@ -691,6 +981,12 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     closeStatements();
 
+    ObjectName metricsMBeanName = this.metricsMBeanName;
+    this.metricsMBeanName = null;
+    if (metricsMBeanName != null) {
+      MetricsMBean.unregister(metricsMBeanName);
+    }
+
     if (housekeeper != null) {
       housekeeper.remove(cleanupKey);
       housekeeper.release();
@@ -702,8 +998,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
     cleanupClosed();
 
-    reportClosed();
-    notificationListeners.clear();
+    notificationDispatcher.closed();
   }
 
   /**
@@ -969,6 +1264,8 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   @Override
   public void setSchema(String schema) throws SQLException {
     checkClosed();
+    detachStatementCache();
+    batchCopyTargets.clear();
     if (schema == null) {
       execute("SET search_path TO DEFAULT");
     }
@@ -1067,6 +1364,10 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     PGPreparedStatement statement =
         new PGPreparedStatement(this, resultSetType, resultSetConcurrency, resultSetHoldability, sqlText.toString(), parameterCount[0], cursorName);
 
+    if (batchCopy && cursorName == null) {
+      statement.setBatchCopy(getCopyFromText(sqlText));
+    }
+
     activeStatements.add(new WeakReference<>(statement));
 
     return statement;
@@ -1373,17 +1674,15 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     if (isClosed())
       return;
 
-    // Save socket address (as shutdown might erase it)
-    SocketAddress serverAddress = getServerConnection().getRemoteAddress();
-
-    //Shutdown socket (also guarantees no more commands begin execution)
-    ChannelFuture shutdown = shutdown();
-
     //Issue cancel request from separate socket (per Postgres protocol). This
     //is a convenience to the server as the abort does not depend on its
-    //success to complete properly
+    //success to complete properly. It is sent without blocking & must be
+    //issued before shutdown (as shutdown might erase the server's address)
 
-    executor.execute(new CancelRequestTask(serverAddress, getKeyData()));
+    getServerConnection().sendCancelRequest(CancelRequestTask.CONNECT_TIMEOUT);
+
+    //Shutdown socket (also guarantees no more commands begin execution)
+    ChannelFuture shutdown = shutdown();
 
     shutdown.syncUninterruptibly();
 
@@ -1436,7 +1735,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
   @Override
   protected void connectionNotificationReceived(int processId, String channelName, String payload) {
-    reportNotification(processId, channelName, payload);
+    notificationDispatcher.notification(processId, channelName, payload);
   }
 
   @Override
@@ -1450,83 +1749,15 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
   }
 
   public void addNotificationListener(String name, String channelNameFilter, PGNotificationListener listener) {
-
-    name = nullToEmpty(name);
-    channelNameFilter = channelNameFilter != null ? channelNameFilter : ".*";
-
-    Pattern channelNameFilterPattern = Pattern.compile(channelNameFilter);
-
-    NotificationKey key = new NotificationKey(name, channelNameFilterPattern);
-
-    notificationListeners.put(key, listener);
+    notificationDispatcher.add(nullToEmpty(name), channelNameFilter, listener);
   }
 
   public void removeNotificationListener(PGNotificationListener listener) {
-
-    Iterator<Map.Entry<NotificationKey, PGNotificationListener>> iter = notificationListeners.entrySet().iterator();
-    while (iter.hasNext()) {
-
-      Map.Entry<NotificationKey, PGNotificationListener> entry = iter.next();
-
-      PGNotificationListener iterListener = entry.getValue();
-      if (iterListener == null || iterListener.equals(listener)) {
-
-        iter.remove();
-      }
-
-    }
+    notificationDispatcher.remove(listener);
   }
 
   public void removeNotificationListener(String listenerName) {
-
-    Iterator<Map.Entry<NotificationKey, PGNotificationListener>> iter = notificationListeners.entrySet().iterator();
-    while (iter.hasNext()) {
-
-      Map.Entry<NotificationKey, PGNotificationListener> entry = iter.next();
-
-      String iterListenerName = entry.getKey().name;
-      PGNotificationListener iterListener = entry.getValue();
-      if (iterListenerName.equals(listenerName) || iterListener == null) {
-
-        iter.remove();
-      }
-
-    }
-  }
-
-  private void reportNotification(int processId, String channelName, String payload) {
-
-    for (Map.Entry<NotificationKey, PGNotificationListener> entry : notificationListeners.entrySet()) {
-
-      PGNotificationListener listener = entry.getValue();
-      if (entry.getKey().channelNameFilter.matcher(channelName).matches()) {
-
-        try {
-          listener.notification(processId, channelName, payload);
-        }
-        catch (Throwable t) {
-          logger.log(Level.WARNING, "Exception in connection listener", t);
-        }
-      }
-
-    }
-
-  }
-
-  private void reportClosed() {
-
-    for (Map.Entry<NotificationKey, PGNotificationListener> entry : notificationListeners.entrySet()) {
-
-      PGNotificationListener listener = entry.getValue();
-
-      try {
-        listener.closed();
-      }
-      catch (Throwable t) {
-        logger.log(Level.WARNING, "Exception in connection listener", t);
-      }
-    }
-
+    notificationDispatcher.remove(listenerName);
   }
 
   boolean isCacheEnabled() {
@@ -1544,11 +1775,15 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     // Check prepared statement cache...
     if (preparedStatementCache != null) {
       PreparedStatementDescription cached = preparedStatementCache.get(key);
-      if (cached != null) return cached;
+      if (cached != null) {
+        metrics.getDescriptionCache().recordLookup(true);
+        return cached;
+      }
     }
 
     // Check description cache
-    StatementDescription cached = descriptionCache.get(key);
+    StatementDescription cached = statementCache.getDescription(key);
+    metrics.getDescriptionCache().recordLookup(cached != null);
     if (cached != null) return cached;
 
     try {
@@ -1558,7 +1793,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
       throw makeSQLException(e);
     }
 
-    descriptionCache.put(key, cached);
+    statementCache.putDescription(key, cached);
 
     return cached;
   }
@@ -1581,16 +1816,13 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     PreparedStatementDescription cached = preparedStatementCache.get(key);
+    metrics.getPreparedStatementCache().recordLookup(cached != null);
     if (cached != null) return cached;
 
 
-    if (preparedStatementHeat != null) {
-      Integer heat = preparedStatementHeat.computeIfPresent(key, (k, h) -> h + 1);
-      if (heat == null) {
-        preparedStatementHeat.put(key, 1);
-        return null;
-      }
-      else if (heat < preparedStatementCacheThreshold) {
+    if (statementCache.isHeatTracked()) {
+      int heat = statementCache.incrementHeat(key);
+      if (heat == 1 || heat < preparedStatementCacheThreshold) {
         return null;
       }
     }
@@ -1603,16 +1835,76 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
     }
 
     preparedStatementCache.put(key, cached);
+    statementCache.addPreparedStatement(key);
 
     // Save a copy in the description cache as well. This cache uses no parameter types for
-    // more general lookup capability.
-    descriptionCache.putIfAbsent(new StatementCacheKey(key.getSql(), EMPTY_TYPES), cached);
+    // more general lookup capability. The statement's name is specific to this connection
+    // and is not included.
+    statementCache.putDescriptionIfAbsent(new StatementCacheKey(key.getSql(), EMPTY_TYPES),
+        new StatementDescription(cached.parameterTypes, cached.resultFields));
 
     return cached;
   }
 
+  static String getCachedStatementName(StatementCacheKey key) {
+    return CACHED_STATEMENT_PREFIX + toHexString(key.hashCode());
+  }
+
+  /**
+   * Builds the description of a statement prepared for caching.
+   *
+   * @param name Name of the prepared statement
+   * @param result Result of the prepare request
+   * @return Description of the prepared statement
+   * @throws IOException If an error occurs resolving types
+   */
+  PreparedStatementDescription describePreparedStatement(String name, PrepareResult result) throws IOException {
+
+    // Results are always described as "Text"... update them to our preferred format.
+    ResultField[] describedResultFields = result.getDescribedResultFields().clone();
+    for (ResultField describedResultField : describedResultFields) {
+      Type type = getRegistry().resolve(describedResultField.getTypeRef());
+      if (type != null) {
+        describedResultField.setFormat(type.getResultFormat());
+      }
+    }
+
+    return new PreparedStatementDescription(name, result.getDescribedParameterTypes(this), describedResultFields);
+  }
+
   @Override
   public void copyFrom(String sql, InputStream inputStream) throws SQLException {
+    copyFrom((handler, timeout) -> getRequestExecutor().copyFrom(sql, inputStream, handler, timeout));
+  }
+
+  @Override
+  public void copyFrom(String sql, ReadableByteChannel channel) throws SQLException {
+    copyFrom((handler, timeout) -> getRequestExecutor().copyFrom(sql, channel, handler, timeout));
+  }
+
+  @Override
+  public void copyFrom(String sql, ByteBuffer... buffers) throws SQLException {
+    ByteBuf data = Unpooled.wrappedBuffer(buffers);
+    try {
+      copyFrom(sql, data);
+    }
+    finally {
+      data.release();
+    }
+  }
+
+  /**
+   * Copies the readable bytes of the buffer, which remains owned by the caller.
+   */
+  void copyFrom(String sql, ByteBuf data) throws SQLException {
+    copyFrom((handler, timeout) -> getRequestExecutor().copyFrom(sql, data, handler, timeout));
+  }
+
+  interface CopyFromFunction {
+    void copyFrom(CopyFromHandler handler, long timeout) throws IOException;
+  }
+
+  private void copyFrom(CopyFromFunction function) throws SQLException {
 
     AtomicReference<Throwable> errorRef = new AtomicReference<>(null);
 
@@ -1620,7 +1912,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       CountDownLatch latch = new CountDownLatch(1);
 
-      getRequestExecutor().copyFrom(sql, inputStream, new CopyFromHandler() {
+      function.copyFrom(new CopyFromHandler() {
 
         @Override
         public void handleComplete() {
@@ -1637,9 +1929,11 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
           latch.countDown();
         }
 
-      });
+      }, timeout);
 
-      Await.awaitUninterruptibly(timeout, MILLISECONDS, latch::await);
+      if (!Await.awaitUninterruptibly(timeout, MILLISECONDS, latch::await)) {
+        throw new BlockingReadTimeoutException();
+      }
 
     });
 
@@ -1660,6 +1954,19 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
   @Override
   public void copyTo(String sql, OutputStream outputStream) throws SQLException {
+    copyTo((handler, timeout) -> getRequestExecutor().copyTo(sql, outputStream, handler, timeout));
+  }
+
+  @Override
+  public void copyTo(String sql, PGCopyOutListener listener) throws SQLException {
+    copyTo((handler, timeout) -> getRequestExecutor().copyTo(sql, data -> listener.copyData(data.nioBuffer()), handler, timeout));
+  }
+
+  interface CopyToFunction {
+    void copyTo(CopyToHandler handler, long timeout) throws IOException;
+  }
+
+  private void copyTo(CopyToFunction function) throws SQLException {
 
     AtomicReference<Throwable> errorRef = new AtomicReference<>(null);
 
@@ -1667,7 +1974,7 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
 
       CountDownLatch latch = new CountDownLatch(1);
 
-      getRequestExecutor().copyTo(sql, outputStream, new CopyToHandler() {
+      function.copyTo(new CopyToHandler() {
 
         @Override
         public void handleComplete() {
@@ -1684,9 +1991,11 @@ public class PGDirectConnection extends BasicContext implements PGConnection {
           latch.countDown();
         }
 
-      });
+      }, timeout);
 
-      Await.awaitUninterruptibly(timeout, MILLISECONDS, latch::await);
+      if (!Await.awaitUninterruptibly(timeout, MILLISECONDS, latch::await)) {
+        throw new BlockingReadTimeoutException();
+      }
 
     });
 
@@ -1767,12 +2076,23 @@ class StatementDescription {
 
   Type[] parameterTypes;
   ResultField[] resultFields;
+  private ColumnLabelIndex resultFieldLabels;
 
   StatementDescription(Type[] parameterTypes, ResultField[] resultFields) {
     this.parameterTypes = parameterTypes;
     this.resultFields = resultFields;
   }
 
+  ColumnLabelIndex getResultFieldLabels() {
+    // Racing threads may each build an index, any of them can be used
+    ColumnLabelIndex labels = resultFieldLabels;
+    if (labels == null) {
+      labels = new ColumnLabelIndex(resultFields);
+      resultFieldLabels = labels;
+    }
+    return labels;
+  }
+
 }
 
 class PreparedStatementDescription extends StatementDescription {
@@ -1785,19 +2105,3 @@ class PreparedStatementDescription extends StatementDescription {
   }
 
 }
-
-class NotificationKey {
-
-  String name;
-  Pattern channelNameFilter;
-
-  NotificationKey(String name, Pattern channelNameFilter) {
-    this.name = name;
-    this.channelNameFilter = channelNameFilter;
-  }
-
-  String getName() {
-    return name;
-  }
-
-}
@@ -0,0 +1,171 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Fans the notifications received by a single connection out to any
+ * number of in-process subscribers.
+ *
+ * The connection issues a {@code LISTEN} for a channel when it gains its
+ * first subscriber and an {@code UNLISTEN} when it loses its last. Subscribers
+ * are indexed by channel name; enabling {@code notification.async} on the
+ * connection delivers each subscriber's notifications off the connection's
+ * I/O thread, via a queue of its own.
+ *
+ * The connection should be dedicated to the multiplexer, it is closed
+ * with the multiplexer.
+ */
+public class PGNotificationMultiplexer implements AutoCloseable {
+
+  private static final AtomicInteger multiplexerIds = new AtomicInteger();
+
+  /**
+   * A subscription to a channel's notifications.
+   */
+  public class Subscription implements AutoCloseable {
+
+    private String name;
+    private String channelName;
+
+    Subscription(String name, String channelName) {
+      this.name = name;
+      this.channelName = channelName;
+    }
+
+    public String getChannelName() {
+      return channelName;
+    }
+
+    /**
+     * Cancels the subscription.
+     *
+     * @throws SQLException If an error occurs stopping to listen to the channel.
+     */
+    @Override
+    public void close() throws SQLException {
+      unsubscribe(this);
+    }
+
+  }
+
+  private PGConnection connection;
+  private String namePrefix;
+  private int subscriptionId;
+  private Map<String, Integer> channelSubscriberCounts = new HashMap<>();
+  private Map<String, Subscription> subscriptions = new HashMap<>();
+
+  public PGNotificationMultiplexer(PGConnection connection) {
+    this.connection = connection;
+    this.namePrefix = "multiplexer-" + multiplexerIds.incrementAndGet() + "-";
+  }
+
+  public PGConnection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Subscribes a listener to the notifications of a channel.
+   *
+   * @param channelName Exact (case sensitive) name of the channel.
+   * @param listener Listener to receive the channel's notifications.
+   * @return Subscription that cancels delivery when closed.
+   * @throws SQLException If an error occurs listening to the channel.
+   */
+  public synchronized Subscription subscribe(String channelName, PGNotificationListener listener) throws SQLException {
+
+    if (connection.isClosed()) {
+      throw new SQLException("Multiplexer closed");
+    }
+
+    if (!channelSubscriberCounts.containsKey(channelName)) {
+      execute("LISTEN " + quote(channelName));
+      channelSubscriberCounts.put(channelName, 0);
+    }
+    channelSubscriberCounts.merge(channelName, 1, Integer::sum);
+
+    Subscription subscription = new Subscription(namePrefix + subscriptionId++, channelName);
+    subscriptions.put(subscription.name, subscription);
+
+    connection.addNotificationListener(subscription.name, Pattern.quote(channelName), listener);
+
+    return subscription;
+  }
+
+  private synchronized void unsubscribe(Subscription subscription) throws SQLException {
+
+    if (subscriptions.remove(subscription.name) == null) {
+      return;
+    }
+
+    connection.removeNotificationListener(subscription.name);
+
+    int subscriberCount = channelSubscriberCounts.merge(subscription.channelName, -1, Integer::sum);
+    if (subscriberCount == 0) {
+      channelSubscriberCounts.remove(subscription.channelName);
+      if (!connection.isClosed()) {
+        execute("UNLISTEN " + quote(subscription.channelName));
+      }
+    }
+  }
+
+  /**
+   * Closes the connection, reporting it closed to all subscribers.
+   *
+   * @throws SQLException If an error occurs closing the connection.
+   */
+  @Override
+  public synchronized void close() throws SQLException {
+
+    connection.close();
+
+    subscriptions.clear();
+    channelSubscriberCounts.clear();
+  }
+
+  private void execute(String sql) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute(sql);
+    }
+  }
+
+  private static String quote(String channelName) {
+    return '"' + channelName.replace("\"", "\"\"") + '"';
+  }
+
+}
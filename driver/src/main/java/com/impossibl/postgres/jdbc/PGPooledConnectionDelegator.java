@@ -30,10 +30,14 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGAnyType;
 import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.jdbc.PGCopyOutListener;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.CallableStatement;
@@ -170,6 +174,34 @@ public class PGPooledConnectionDelegator implements PGConnection {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void copyFrom(String sql, ReadableByteChannel channel) {
+    try {
+      checkClosed();
+      delegator.copyFrom(sql, channel);
+    }
+    catch (SQLException se) {
+      // Nothing to do
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void copyFrom(String sql, ByteBuffer... buffers) {
+    try {
+      checkClosed();
+      delegator.copyFrom(sql, buffers);
+    }
+    catch (SQLException se) {
+      // Nothing to do
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -184,6 +216,20 @@ public class PGPooledConnectionDelegator implements PGConnection {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void copyTo(String sql, PGCopyOutListener listener) {
+    try {
+      checkClosed();
+      delegator.copyTo(sql, listener);
+    }
+    catch (SQLException se) {
+      // Nothing to do
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -1039,6 +1085,13 @@ public class PGPooledConnectionDelegator implements PGConnection {
     return delegator.getDefaultFetchSize();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  public MetricsRegistry getMetrics() {
+    return delegator.getMetrics();
+  }
+
   /**
    * {@inheritDoc}
    */
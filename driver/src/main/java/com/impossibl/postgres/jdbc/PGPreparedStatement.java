@@ -28,9 +28,10 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.jdbc.SQLTextUtils.CopyFromText;
 import com.impossibl.postgres.protocol.FieldFormat;
-import com.impossibl.postgres.protocol.RequestExecutor;
-import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
+import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.BatchExecuteResult;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.PrepareResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
@@ -51,12 +52,14 @@ import static com.impossibl.postgres.jdbc.Exceptions.NO_RESULT_COUNT_AVAILABLE;
 import static com.impossibl.postgres.jdbc.Exceptions.NO_RESULT_SET_AVAILABLE;
 import static com.impossibl.postgres.jdbc.Exceptions.PARAMETER_INDEX_OUT_OF_BOUNDS;
 import static com.impossibl.postgres.jdbc.JDBCTypeMapping.getJDBCType;
+import static com.impossibl.postgres.jdbc.PGDirectConnection.getCachedStatementName;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapBlob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapClob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapObject;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapRowId;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapXML;
 import static com.impossibl.postgres.protocol.FieldFormat.Text;
+import static com.impossibl.postgres.protocol.FieldFormats.REQUEST_ALL_TEXT;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 import static com.impossibl.postgres.utils.ByteBufs.releaseAll;
 import static com.impossibl.postgres.utils.ByteBufs.retainedDuplicateAll;
@@ -87,10 +90,10 @@ import java.sql.SQLXML;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Calendar;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
 
 import static java.lang.Integer.toHexString;
 import static java.lang.Long.min;
@@ -99,12 +102,14 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.util.ReferenceCountUtil;
 
 import static io.netty.buffer.ByteBufUtil.writeUtf8;
 
 class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
+  private static final byte[] COPY_BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xff, '\r', '\n', 0};
 
   String sqlText;
   Type[] parameterTypes;
@@ -117,6 +122,8 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
   private List<FieldFormat[]> batchParameterFormats;
   private List<ByteBuf[]> batchParameterBuffers;
   private boolean wantsGeneratedKeys;
+  private CopyFromText batchCopy;
+  private StatementDescription description;
   protected boolean parsed;
 
 
@@ -135,6 +142,10 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     this.wantsGeneratedKeys = true;
   }
 
+  void setBatchCopy(CopyFromText batchCopy) {
+    this.batchCopy = batchCopy;
+  }
+
   private int checkParameterIndex(int parameterIdx) throws SQLException {
 
     if (parameterIdx < 1 || parameterIdx > parameterTypes.length) {
@@ -241,8 +252,44 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
       return;
     }
 
+    StatementDescription cachedDescription = describe();
+
+    if (cachedDescription != null) {
+      parameterTypesParsed = cachedDescription.parameterTypes;
+    }
+
+  }
+
+  /**
+   * Determines the formats requested for generated keys of a batch; the
+   * preferred formats of the statement's described result fields, matching
+   * the formats requested by single executions.
+   */
+  private FieldFormatRef[] getGeneratedKeyFormats() throws SQLException {
+
+    StatementDescription description = describe();
+    if (description == null || description.resultFields.length == 0) {
+      return REQUEST_ALL_TEXT;
+    }
+
+    FieldFormat[] formats = new FieldFormat[description.resultFields.length];
+    try {
+      for (int fieldIdx = 0; fieldIdx < formats.length; ++fieldIdx) {
+        Type type = connection.getRegistry().resolve(description.resultFields[fieldIdx].getTypeRef());
+        formats[fieldIdx] = type != null ? type.getResultFormat() : Text;
+      }
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    return formats;
+  }
+
+  private StatementDescription describe() throws SQLException {
+
     // First, check statement cache
-    StatementDescription cachedDescription = connection.getCachedStatementDescription(sqlText, () -> {
+    return connection.getCachedStatementDescription(sqlText, () -> {
 
       PrepareResult result = connection.execute(timeout -> {
         PrepareResult handler = new PrepareResult();
@@ -253,11 +300,6 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
       return new StatementDescription(result.getDescribedParameterTypes(connection), result.getDescribedResultFields());
     });
-
-    if (cachedDescription != null) {
-      parameterTypesParsed = cachedDescription.parameterTypes;
-    }
-
   }
 
   void parseIfNeeded() throws SQLException {
@@ -284,7 +326,7 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
       cachedStatement = connection.getCachedPreparedStatement(key, () -> {
 
         String name = connection.isCacheEnabled() ?
-            CACHED_STATEMENT_PREFIX + toHexString(key.hashCode()) : NO_CACHE_STATEMENT_PREFIX + toHexString(key.hashCode());
+            getCachedStatementName(key) : NO_CACHE_STATEMENT_PREFIX + toHexString(key.hashCode());
 
         PrepareResult prep = connection.execute((timeout) -> {
           PrepareResult handler = new PrepareResult();
@@ -295,22 +337,14 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
         warningChain = chainWarnings(warningChain, prep);
 
-        // Results are always described as "Text"... update them to our preferred format.
-        ResultField[] describedResultFields = prep.getDescribedResultFields().clone();
-        for (ResultField describedResultField : describedResultFields) {
-          Type type = connection.getRegistry().resolve(describedResultField.getTypeRef());
-          if (type != null) {
-            describedResultField.setFormat(type.getResultFormat());
-          }
-        }
-
-        return new PreparedStatementDescription(name, prep.getDescribedParameterTypes(connection), describedResultFields);
+        return connection.describePreparedStatement(name, prep);
       });
 
       if (cachedStatement != null) {
         name = cachedStatement.name;
         parameterTypesParsed = cachedStatement.parameterTypes;
         resultFields = cachedStatement.resultFields;
+        description = cachedStatement;
         parsed = true;
       }
 
@@ -318,6 +352,17 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
   }
 
+  @Override
+  ColumnLabelIndex getColumnLabelIndex(ResultField[] resultFields) {
+
+    // Share the index cached with the statement's description
+    if (description != null && description.resultFields == resultFields) {
+      return description.getResultFieldLabels();
+    }
+
+    return super.getColumnLabelIndex(resultFields);
+  }
+
   boolean allowBatchSelects() {
     return false;
   }
@@ -333,14 +378,14 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
     boolean res;
 
     if (name == null) {
-      res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields);
+      res = super.executeDirect(sqlText, parameterFormats, parameterBuffers, resultFields, true);
     }
     else {
       res = super.executeStatement(name, parameterFormats, parameterBuffers);
     }
 
     if (cursorName != null) {
-      res = super.executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName, null, null, resultFields);
+      res = super.executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName, null, null, resultFields, true);
     }
 
     if (wantsGeneratedKeys) {
@@ -438,75 +483,108 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
         return;
       }
 
-      results.setBatchSize(batchParameterBuffers.size());
+      int sz = batchParameterBuffers.size();
 
-      RowDataSet generatedKeys = new RowDataSet();
+      results.setBatchSize(sz);
 
       if (!connection.autoCommit && connection.getTransactionStatus() == TransactionStatus.Idle) {
         connection.execute((long timeout) -> connection.getRequestExecutor().lazyExecute("TC"));
       }
 
-      Type[] lastParameterTypes = null;
-      ResultField[] lastResultFields = null;
-
-      int batchIdx = 0;
-      AtomicInteger completedBatchIdx = new AtomicInteger(0);
-      int sz = batchParameterBuffers.size();
+      if (batchCopy != null && !wantsGeneratedKeys && isBatchCopyCompatible() && connection.isBatchCopyTarget(batchCopy.getTable())) {
+        executeBatchCopy(results);
+        return;
+      }
 
-      try {
-        RequestExecutor requestExecutor = connection.getRequestExecutor();
-        List<ExecuteResult> requestHandlers = new ArrayList<>();
+      // Determine the distinct parameter type signatures of the batch up front,
+      // allowing all statements to be prepared in the same flight as the
+      // executions that use them.
 
-        while (batchIdx < sz) {
+      Map<StatementCacheKey, Integer> signatures = new LinkedHashMap<>();
+      int[] executionStatements = new int[sz];
 
-          Type[] suggestedParameterTypes = mergedTypes(batchParameterTypes.get(batchIdx), lastParameterTypes);
+      Type[] lastParameterTypes = null;
+      for (int batchIdx = 0; batchIdx < sz; ++batchIdx) {
 
-          if (lastParameterTypes == null || !Arrays.equals(lastParameterTypes, parameterTypes)) {
+        Type[] suggestedParameterTypes = mergedTypes(batchParameterTypes.get(batchIdx), lastParameterTypes);
 
-            /**
-             * Note: This causes all in-flight requests to finish at
-             * this point; negating any pipe-lining effect we could
-             * have achieved.
-             **/
+        Integer statementIdx = signatures.get(new StatementCacheKey(sqlText, suggestedParameterTypes));
+        if (statementIdx == null) {
+          statementIdx = signatures.size();
+          signatures.put(new StatementCacheKey(sqlText, suggestedParameterTypes), statementIdx);
+        }
 
-            PrepareResult prep = connection.execute((timeout) -> {
-              PrepareResult handler = new PrepareResult();
-              requestExecutor.prepare(null, sqlText, suggestedParameterTypes, handler);
-              handler.await(timeout, MILLISECONDS);
-              return handler;
-            });
+        executionStatements[batchIdx] = statementIdx;
+        lastParameterTypes = suggestedParameterTypes;
+      }
 
-            warningChain = chainWarnings(warningChain, prep);
+      // A single signature can use the unnamed statement, multiple signatures
+      // require (temporary) named statements to allow interleaving executions
 
-            parameterTypes = prep.getDescribedParameterTypes(connection);
-            lastParameterTypes = parameterTypes;
-            lastResultFields = prep.getDescribedResultFields();
-          }
+      String[] statementNames = new String[signatures.size()];
+      Type[][] statementParameterTypes = new Type[signatures.size()][];
+      for (Map.Entry<StatementCacheKey, Integer> signature : signatures.entrySet()) {
+        int statementIdx = signature.getValue();
+        statementNames[statementIdx] = signatures.size() > 1 ? NO_CACHE_STATEMENT_PREFIX + connection.getNextStatementName() : null;
+        statementParameterTypes[statementIdx] = signature.getKey().getParameterTypes();
+      }
 
-          FieldFormat[] parameterFormats = batchParameterFormats.get(batchIdx);
-          ByteBuf[] parameterBuffers = batchParameterBuffers.get(batchIdx);
-          ResultField[] resultFields = lastResultFields;
+      FieldFormat[][] parameterFormats = batchParameterFormats.toArray(new FieldFormat[sz][]);
+      ByteBuf[][] parameterBuffers = batchParameterBuffers.toArray(new ByteBuf[sz][]);
 
-          ExecuteResult handler = new ExecuteResult(resultFields);
-          requestExecutor.execute(null, null, parameterFormats, parameterBuffers, resultFields, 0, handler);
-          requestHandlers.add(handler);
+      FieldFormatRef[] resultFieldFormats = wantsGeneratedKeys ? getGeneratedKeyFormats() : REQUEST_ALL_TEXT;
 
-          batchIdx++;
+      BatchExecuteResult handler = new BatchExecuteResult(statementNames.length);
 
-          finishCompletedRequests(requestHandlers, completedBatchIdx, results, generatedKeys);
+      Exception error = null;
+      try {
+        connection.execute(timeout -> {
+          connection.getRequestExecutor().executeBatch(sqlText, statementNames, statementParameterTypes,
+              executionStatements, parameterFormats, parameterBuffers, resultFieldFormats, handler);
+          handler.await(timeout, MILLISECONDS);
+        });
+      }
+      catch (SQLException se) {
+        if (!handler.isCompleted()) {
+          handler.abandon();
+          throw results.getException(0, null, se);
         }
+        error = handler.getError() != null ? (Exception) handler.getError() : se;
+      }
+      finally {
+        closeStatements(statementNames);
+      }
+
+      warningChain = chainWarnings(warningChain, handler);
+
+      int lastStatementIdx = executionStatements[sz - 1];
 
-        finishRequests(requestHandlers, completedBatchIdx, results, generatedKeys);
+      Type[] describedParameterTypes;
+      try {
+        describedParameterTypes = handler.getDescribedParameterTypes(lastStatementIdx, connection);
+      }
+      catch (IOException e) {
+        throw makeSQLException(e);
       }
-      catch (IOException | SQLException se) {
-        throw results.getException(completedBatchIdx.get(), null, se);
+      if (describedParameterTypes != null) {
+        parameterTypes = describedParameterTypes;
+      }
+
+      RowDataSet generatedKeys = new RowDataSet();
+
+      finishResults(handler.getBatches(), results, generatedKeys);
+
+      if (error != null) {
+        generatedKeys.release();
+        throw results.getException(handler.getBatches().size(), null, error);
       }
 
-      generatedKeysResultSet = createResultSet(lastResultFields, generatedKeys, true, connection.getTypeMap());
+      generatedKeysResultSet = createResultSet(handler.getDescribedResultFields(lastStatementIdx), generatedKeys, true, connection.getTypeMap());
 
     }
     finally {
       batchParameterTypes = null;
+      batchParameterFormats = null;
       if (batchParameterBuffers != null) {
         batchParameterBuffers.forEach(ByteBufs::releaseAll);
         batchParameterBuffers = null;
@@ -515,57 +593,144 @@ class PGPreparedStatement extends PGStatement implements PreparedStatement {
 
   }
 
-  private void finishRequest(AtomicInteger batchIdx, ExecuteResult request, BatchResults results, RowDataSet generatedKeys) throws BatchUpdateException {
+  /**
+   * Checks that every parameter of the batch is encoded in the exact binary
+   * format of its target column, allowing the batch to be executed via a
+   * binary COPY.
+   */
+  private boolean isBatchCopyCompatible() throws SQLException {
 
-    warningChain = chainWarnings(warningChain, request);
+    if (parameterCount == 0) {
+      return false;
+    }
 
-    Throwable error = request.getError();
-    if (error != null) {
-      throw results.getException(batchIdx.get(), null, (Exception) error);
+    describeIfNeeded();
+
+    if (parameterTypesParsed == null) {
+      return false;
     }
 
-    try (ResultBatch resultBatch = request.getBatch()) {
+    for (int batchIdx = 0; batchIdx < batchParameterBuffers.size(); ++batchIdx) {
 
-      if (!allowBatchSelects() && resultBatch.getCommand().equals("SELECT")) {
-        throw results.getException(batchIdx.get(), "SELECT in executeBatch", null);
-      }
-      else if (resultBatch.getRowsAffected() != null) {
-        results.setUpdateCount(batchIdx.get(), resultBatch.getRowsAffected());
-      }
-      else {
-        results.setUpdateCount(batchIdx.get(), SUCCESS_NO_INFO);
-      }
+      Type[] types = batchParameterTypes.get(batchIdx);
+      FieldFormat[] formats = batchParameterFormats.get(batchIdx);
+      ByteBuf[] buffers = batchParameterBuffers.get(batchIdx);
+
+      for (int parameterIdx = 0; parameterIdx < parameterCount; ++parameterIdx) {
+
+        if (buffers[parameterIdx] == null) {
+          continue;
+        }
 
-      if (wantsGeneratedKeys) {
-        generatedKeys.add(resultBatch.borrowRows().take(0));
+        Type columnType = parameterTypesParsed[parameterIdx];
+        Type type = types[parameterIdx];
+        if (columnType == null || type == null) {
+          return false;
+        }
+
+        // Text encoded strings are equivalent to the binary format of any string type
+        if (formats[parameterIdx] == Text) {
+          if (type.getCategory() != Type.Category.String || columnType.getCategory() != Type.Category.String) {
+            return false;
+          }
+        }
+        else if (!type.equals(columnType)) {
+          return false;
+        }
       }
     }
+
+    return true;
   }
 
-  private void finishCompletedRequests(List<ExecuteResult> batchRequests, AtomicInteger batchIdx, BatchResults results, RowDataSet generatedKeys) throws BatchUpdateException {
+  private void executeBatchCopy(BatchResults results) throws SQLException {
 
-    while (!batchRequests.isEmpty() && batchRequests.get(0).isCompleted()) {
-      ExecuteResult request = batchRequests.remove(0);
+    // Parameter buffers are copied as is; only the framing between them is written,
+    // into a single buffer that is sliced around them
 
-      finishRequest(batchIdx, request, results, generatedKeys);
+    CompositeByteBuf data = connection.getAllocator().compositeBuffer(Integer.MAX_VALUE);
+    ByteBuf framing = connection.getAllocator().buffer();
+    try {
 
-      batchIdx.incrementAndGet();
+      framing.writeBytes(COPY_BINARY_SIGNATURE);
+      framing.writeInt(0);
+      framing.writeInt(0);
+
+      int framed = 0;
+      for (ByteBuf[] buffers : batchParameterBuffers) {
+        framing.writeShort(parameterCount);
+        for (ByteBuf buffer : buffers) {
+          if (buffer == null) {
+            framing.writeInt(-1);
+          }
+          else {
+            framing.writeInt(buffer.readableBytes());
+            data.addComponent(true, framing.retainedSlice(framed, framing.writerIndex() - framed));
+            data.addComponent(true, buffer.retainedDuplicate());
+            framed = framing.writerIndex();
+          }
+        }
+      }
+
+      framing.writeShort(-1);
+      data.addComponent(true, framing.retainedSlice(framed, framing.writerIndex() - framed));
+
+      connection.copyFrom(batchCopy.getText(), data);
+    }
+    catch (SQLException e) {
+      throw results.getException(0, null, e);
+    }
+    finally {
+      framing.release();
+      data.release();
+    }
+
+    for (int batchIdx = 0; batchIdx < batchParameterBuffers.size(); ++batchIdx) {
+      results.setUpdateCount(batchIdx, 1);
     }
 
   }
 
-  private void finishRequests(List<ExecuteResult> batchRequests, AtomicInteger batchIdx, BatchResults results, RowDataSet generatedKeys) throws SQLException {
+  private void finishResults(List<ResultBatch> resultBatches, BatchResults results, RowDataSet generatedKeys) throws BatchUpdateException {
 
-    while (!batchRequests.isEmpty()) {
-      ExecuteResult request = batchRequests.remove(0);
+    try {
 
-      connection.execute(timeout -> {
-        request.await(timeout, MILLISECONDS);
-      });
+      for (int batchIdx = 0; batchIdx < resultBatches.size(); ++batchIdx) {
+        ResultBatch resultBatch = resultBatches.get(batchIdx);
 
-      finishRequest(batchIdx, request, results, generatedKeys);
+        if (!allowBatchSelects() && "SELECT".equals(resultBatch.getCommand())) {
+          generatedKeys.release();
+          throw results.getException(batchIdx, "SELECT in executeBatch", null);
+        }
+        else if (resultBatch.getRowsAffected() != null) {
+          results.setUpdateCount(batchIdx, resultBatch.getRowsAffected());
+        }
+        else {
+          results.setUpdateCount(batchIdx, SUCCESS_NO_INFO);
+        }
 
-      batchIdx.incrementAndGet();
+        if (wantsGeneratedKeys) {
+          generatedKeys.add(resultBatch.borrowRows().take(0));
+        }
+      }
+
+    }
+    finally {
+      resultBatches.forEach(ResultBatch::release);
+    }
+
+  }
+
+  private void closeStatements(String[] statementNames) {
+
+    for (String statementName : statementNames) {
+      if (statementName == null) continue;
+      try {
+        connection.getRequestExecutor().close(ServerObjectType.Statement, statementName);
+      }
+      catch (IOException ignored) {
+        // Close errors can be ignored
+      }
     }
 
   }
@@ -30,6 +30,7 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.jdbc.Housekeeper.CleanupRunnable;
 import com.impossibl.postgres.protocol.FieldBuffersRowData;
+import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowData;
@@ -54,10 +55,17 @@ import static com.impossibl.postgres.jdbc.Exceptions.ROW_INDEX_OUT_OF_BOUNDS;
 import static com.impossibl.postgres.jdbc.Exceptions.RS_NOT_UPDATABLE;
 import static com.impossibl.postgres.jdbc.Exceptions.UNWRAP_ERROR;
 import static com.impossibl.postgres.jdbc.Query.Status.Completed;
+import static com.impossibl.postgres.jdbc.Query.Status.Suspended;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapBlob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapClob;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapObject;
 import static com.impossibl.postgres.jdbc.Unwrapping.unwrapRowId;
+import static com.impossibl.postgres.protocol.TypeOid.BOOL;
+import static com.impossibl.postgres.protocol.TypeOid.FLOAT4;
+import static com.impossibl.postgres.protocol.TypeOid.FLOAT8;
+import static com.impossibl.postgres.protocol.TypeOid.INT2;
+import static com.impossibl.postgres.protocol.TypeOid.INT4;
+import static com.impossibl.postgres.protocol.TypeOid.INT8;
 import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
 
@@ -111,12 +119,10 @@ class PGResultSet implements ResultSet {
 
     PGStatement statement;
     Query query;
-    StackTraceElement[] allocationStackTrace;
 
     private Cleanup(PGStatement statement, Query query) {
       this.statement = statement;
       this.query = query;
-      this.allocationStackTrace = new Exception().getStackTrace();
     }
 
     @Override
@@ -124,11 +130,6 @@ class PGResultSet implements ResultSet {
       return "result-set";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
@@ -164,6 +165,7 @@ class PGResultSet implements ResultSet {
   private Integer fetchSize;
   private SQLWarning warningChain;
   private Boolean nullFlag;
+  private ColumnLabelIndex columnLabels;
   private final SettingsContext context;
   private final Housekeeper.Ref housekeeper;
   private final Object cleanupKey;
@@ -307,6 +309,35 @@ class PGResultSet implements ResultSet {
     return val;
   }
 
+  /**
+   * Retrieves the type oid of a binary encoded column, allowing the
+   * primitive getters to read directly from the row data.
+   *
+   * @param columnIndex
+   *          Column index to inspect
+   * @return Type oid of the column or {@code 0} if it is not binary encoded
+   */
+  private int getBinaryTypeOid(int columnIndex) {
+    ResultField field = scroller.getResultFields()[columnIndex - 1];
+    if (field.getFormat() != FieldFormat.Binary) {
+      return 0;
+    }
+    return field.getTypeRef().getOid();
+  }
+
+  /**
+   * Checks if the column is NULL using the primitive accessors of the
+   * row data, setting the NULL flag for subsequent operations
+   *
+   * @param columnIndex
+   *          Column index to check
+   * @return {@code true} if the column is NULL
+   */
+  private boolean checkNull(int columnIndex) {
+    nullFlag = scroller.getRowData().isNull(columnIndex - 1);
+    return nullFlag;
+  }
+
   void set(int columnIndex, Object source, Object sourceContext) throws SQLException {
     checkClosed();
     checkColumnIndex(columnIndex);
@@ -636,6 +667,10 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    if (getBinaryTypeOid(columnIndex) == BOOL) {
+      return !checkNull(columnIndex) && scroller.getRowData().getBool(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Boolean.class, null), false);
   }
 
@@ -654,6 +689,10 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    if (getBinaryTypeOid(columnIndex) == INT2) {
+      return checkNull(columnIndex) ? (short)0 : scroller.getRowData().getInt2(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Short.class, null), (short)0);
   }
 
@@ -663,6 +702,13 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    switch (getBinaryTypeOid(columnIndex)) {
+      case INT4:
+        return checkNull(columnIndex) ? 0 : scroller.getRowData().getInt4(columnIndex - 1);
+      case INT2:
+        return checkNull(columnIndex) ? 0 : scroller.getRowData().getInt2(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Integer.class, null), 0);
   }
 
@@ -672,6 +718,15 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    switch (getBinaryTypeOid(columnIndex)) {
+      case INT8:
+        return checkNull(columnIndex) ? 0L : scroller.getRowData().getInt8(columnIndex - 1);
+      case INT4:
+        return checkNull(columnIndex) ? 0L : scroller.getRowData().getInt4(columnIndex - 1);
+      case INT2:
+        return checkNull(columnIndex) ? 0L : scroller.getRowData().getInt2(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Long.class, null), 0L);
   }
 
@@ -681,6 +736,10 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    if (getBinaryTypeOid(columnIndex) == FLOAT4) {
+      return checkNull(columnIndex) ? 0.0f : scroller.getRowData().getFloat4(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Float.class, null), 0.0f);
   }
 
@@ -690,6 +749,13 @@ class PGResultSet implements ResultSet {
     checkRow();
     checkColumnIndex(columnIndex);
 
+    switch (getBinaryTypeOid(columnIndex)) {
+      case FLOAT8:
+        return checkNull(columnIndex) ? 0.0 : scroller.getRowData().getFloat8(columnIndex - 1);
+      case FLOAT4:
+        return checkNull(columnIndex) ? 0.0 : scroller.getRowData().getFloat4(columnIndex - 1);
+    }
+
     return firstNonNull(getVal(columnIndex, context, Double.class, null), 0.0);
   }
 
@@ -928,16 +994,16 @@ class PGResultSet implements ResultSet {
   public int findColumn(String columnLabel) throws SQLException {
     checkClosed();
 
-    ResultField[] resultFields = scroller.getResultFields();
-
-    for (int c = 0; c < resultFields.length; ++c) {
+    if (columnLabels == null) {
+      columnLabels = statement.getColumnLabelIndex(scroller.getResultFields());
+    }
 
-      if (resultFields[c].getName().equalsIgnoreCase(columnLabel)) {
-        return c + 1;
-      }
+    int columnIndex = columnLabels.find(columnLabel);
+    if (columnIndex == 0) {
+      throw INVALID_COLUMN_NAME;
     }
 
-    throw INVALID_COLUMN_NAME;
+    return columnIndex;
   }
 
   @Override
@@ -1978,6 +2044,9 @@ class QueryScroller extends ListScroller {
   private PGResultSet resultSet;
   private int resultsIndexOffset;
   private Query query;
+  private int adaptedFetchSize;
+  private double averageRowSize;
+  private boolean prefetched;
 
   QueryScroller(PGResultSet resultSet, Query query, ResultField[] resultFields, RowDataSet results) {
     super(resultFields, results, true);
@@ -2062,14 +2131,20 @@ class QueryScroller extends ListScroller {
 
       if (query != null && query.getStatus() != Completed) {
 
-        Integer fetchSize = resultSet.fetchSize();
-        if (fetchSize != null) {
-          query.setMaxRows(fetchSize);
+        PGDirectConnection connection = resultSet.statement.connection;
+
+        if (!prefetched) {
+          prepareFetch();
         }
+        prefetched = false;
 
-        SQLWarning warningChain = query.execute(resultSet.statement.connection);
+        long started = System.nanoTime();
+
+        SQLWarning warningChain = query.execute(connection);
         resultSet.addWarnings(warningChain);
 
+        connection.getFetchStallHistogram().record(System.nanoTime() - started);
+
         List<ResultBatch> resultBatches = query.getResultBatches();
         if (resultBatches.size() != 1) {
           throw new SQLException("Invalid result data");
@@ -2088,15 +2163,57 @@ class QueryScroller extends ListScroller {
       }
 
     }
+    else if (!prefetched && currentRowIndex >= results.size() / 2 && query != null && query.getStatus() == Suspended &&
+        resultSet.statement.connection.isFetchPrefetch()) {
+
+      // Request the next batch while the rest of this one is consumed
+      prepareFetch();
+      query.prefetch(resultSet.statement.connection);
+      prefetched = true;
+    }
 
     return isValidRow();
   }
 
+  private void prepareFetch() {
+
+    Integer fetchSize = resultSet.fetchSize();
+    if (fetchSize != null) {
+      int targetSize = resultSet.statement.connection.getFetchTargetSize();
+      query.setMaxRows(targetSize > 0 ? adaptFetchSize(fetchSize, targetSize) : fetchSize);
+    }
+
+  }
+
   @Override
   boolean previous() throws SQLException {
     throw CURSOR_NOT_SCROLLABLE;
   }
 
+  /**
+   * Sizes the next batch to match the target size using the (smoothed) average
+   * size of the rows received so far. Batches grow at most twofold at a time but
+   * shrink immediately.
+   */
+  private int adaptFetchSize(int fetchSize, int targetSize) {
+
+    int previousFetchSize = adaptedFetchSize != 0 ? adaptedFetchSize : fetchSize;
+
+    long byteSize = results.getByteSize();
+    if (byteSize < 0 || results.isEmpty()) {
+      return previousFetchSize;
+    }
+
+    double rowSize = max(1.0, (double) byteSize / results.size());
+    averageRowSize = averageRowSize == 0 ? rowSize : (averageRowSize + rowSize) / 2;
+
+    long rows = (long) (targetSize / averageRowSize);
+
+    adaptedFetchSize = (int) max(1, min(rows, previousFetchSize * 2L));
+
+    return adaptedFetchSize;
+  }
+
 }
 
 /**
@@ -91,10 +91,10 @@ class PGSimpleStatement extends PGStatement {
 
     setup(sqlText);
 
-    boolean result = executeDirect(sqlText.toString());
+    boolean result = executeDirect(sqlText.toString(), sqlText.getStatementCount() == 1);
 
     if (cursorName != null) {
-      result = executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName);
+      result = executeDirect("FETCH ABSOLUTE 0 FROM " + cursorName, true);
     }
 
     return result;
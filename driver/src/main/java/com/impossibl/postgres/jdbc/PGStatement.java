@@ -75,13 +75,11 @@ abstract class PGStatement implements Statement {
     PGDirectConnection connection;
     String name;
     List<WeakReference<PGResultSet>> resultSets;
-    StackTraceElement[] allocationStackTrace;
 
     private Cleanup(PGDirectConnection connection, String name, List<WeakReference<PGResultSet>> resultSets) {
       this.connection = connection;
       this.name = name;
       this.resultSets = resultSets;
-      this.allocationStackTrace = new Exception().getStackTrace();
     }
 
     @Override
@@ -89,11 +87,6 @@ abstract class PGStatement implements Statement {
       return "statement";
     }
 
-    @Override
-    public StackTraceElement[] getAllocationStackTrace() {
-      return allocationStackTrace;
-    }
-
     @Override
     public void run() {
 
@@ -301,19 +294,30 @@ abstract class PGStatement implements Statement {
     return fetchSize != null && cursorName == null;
   }
 
-  boolean executeDirect(String sqlText) throws SQLException {
-    return executeDirect(sqlText, null, null, null);
+  boolean allowStreaming() {
+    return true;
+  }
+
+  private boolean shouldStream() {
+    // Streamed rows can only be visited once
+    return connection.isResultSetStreaming() && allowStreaming() && cursorName == null &&
+        resultSetType == ResultSet.TYPE_FORWARD_ONLY && resultSetConcurrency == ResultSet.CONCUR_READ_ONLY;
+  }
+
+  boolean executeDirect(String sqlText, boolean singleStatement) throws SQLException {
+    return executeDirect(sqlText, null, null, null, singleStatement);
   }
 
   /**
    * Execute the sql text using simple or extended query cycle.
    *
    * @param sqlText SQL text to execute
+   * @param singleStatement Whether the SQL text contains a single statement, only single statements can be streamed
    * @return true if command returned results or false if not
    * @throws SQLException
    *          If an error occurred during statement execution
    */
-  boolean executeDirect(String sqlText, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats) throws SQLException {
+  boolean executeDirect(String sqlText, FieldFormat[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats, boolean singleStatement) throws SQLException {
 
     try {
 
@@ -328,8 +332,14 @@ abstract class PGStatement implements Statement {
         query.setMaxRows(fetchSize);
       }
 
+      query.setStreaming(singleStatement && shouldStream());
+
+      long started = System.nanoTime();
+
       this.warningChain = query.execute(connection);
 
+      connection.getStatementExecutionHistogram().record(System.nanoTime() - started);
+
       this.query = query;
       this.resultBatches = query.getResultBatches();
 
@@ -370,8 +380,14 @@ abstract class PGStatement implements Statement {
         query.setMaxRows(fetchSize);
       }
 
+      query.setStreaming(shouldStream());
+
+      long started = System.nanoTime();
+
       this.warningChain = query.execute(connection);
 
+      connection.getStatementExecutionHistogram().record(System.nanoTime() - started);
+
       this.query = query;
       this.resultBatches = query.getResultBatches();
 
@@ -386,6 +402,16 @@ abstract class PGStatement implements Statement {
 
   }
 
+  /**
+   * Provides a label index for result fields produced by this statement.
+   *
+   * @param resultFields Result fields to index
+   * @return Label index for the result fields
+   */
+  ColumnLabelIndex getColumnLabelIndex(ResultField[] resultFields) {
+    return new ColumnLabelIndex(resultFields);
+  }
+
   PGResultSet createResultSet(ResultField[] resultFields, RowDataSet results, boolean releaseResults, Map<String, Class<?>> typeMap) throws SQLException {
 
     PGResultSet resultSet = new PGResultSet(this, resultFields, results, releaseResults, typeMap);
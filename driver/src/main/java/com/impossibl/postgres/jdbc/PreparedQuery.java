@@ -36,10 +36,12 @@
 package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.RequestExecutor.RowStream;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.ExecuteResult;
 import com.impossibl.postgres.protocol.RequestExecutorHandlers.SynchronizedResult;
 import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowDataSet;
 
 import static com.impossibl.postgres.jdbc.ErrorUtils.chainWarnings;
 import static com.impossibl.postgres.jdbc.ErrorUtils.makeSQLException;
@@ -57,6 +59,8 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import io.netty.buffer.ByteBuf;
 
+import static io.netty.util.ReferenceCountUtil.release;
+
 
 public class PreparedQuery implements Query {
 
@@ -68,6 +72,10 @@ public class PreparedQuery implements Query {
   private Status status;
   private Long timeout;
   private int maxRows;
+  private boolean streaming;
+  private RowStream stream;
+  private ExecuteResult streamResult;
+  private ExecuteResult prefetchResult;
   private ResultBatch resultBatch;
 
   PreparedQuery(String statementName, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, ResultField[] resultFields) {
@@ -98,13 +106,22 @@ public class PreparedQuery implements Query {
     this.maxRows = maxRows;
   }
 
+  @Override
+  public void setStreaming(boolean streaming) {
+    this.streaming = streaming;
+  }
+
   @Override
   public List<ResultBatch> getResultBatches() {
     return new ArrayList<>(singletonList(resultBatch));
   }
 
   private boolean requiresPortal() {
-    return maxRows > 0;
+    return maxRows > 0 && !requiresStream();
+  }
+
+  private boolean requiresStream() {
+    return streaming && resultFields != null && resultFields.length != 0;
   }
 
   private SQLWarning executeStatement(PGDirectConnection connection) throws SQLException {
@@ -126,11 +143,61 @@ public class PreparedQuery implements Query {
     return applyResult(connection, result);
   }
 
+  private SQLWarning executeStream(PGDirectConnection connection) throws SQLException {
+
+    portalName = null;
+
+    ExecuteResult result = new ExecuteResult(resultFields);
+
+    // Wait (under the execution timeout) for the first rows, or completion
+    RowDataSet rows = connection.executeTimed(this.timeout, (timeout) -> {
+      stream = connection.getRequestExecutor().executeStream(statementName, parameterFormats, parameterBuffers, resultFields, result);
+      return stream.take(maxRows, timeout);
+    });
+
+    streamResult = result;
+
+    return applyStream(connection, rows);
+  }
+
+  private SQLWarning applyStream(PGDirectConnection connection, RowDataSet rows) throws SQLException {
+
+    if (rows == null) {
+      stream = null;
+
+      // Stream is exhausted, the result has completed
+      connection.execute(timeout -> {
+        streamResult.await(timeout, MILLISECONDS);
+      });
+
+      return applyResult(connection, streamResult);
+    }
+
+    resultBatch = new ResultBatch(null, null, null, resultFields, rows);
+
+    try {
+      transformFieldTypes(resultBatch, connection.getRegistry()::resolve);
+    }
+    catch (IOException e) {
+      throw makeSQLException(e);
+    }
+
+    status = Status.Streaming;
+
+    return null;
+  }
+
   private SQLWarning resumeStatement(PGDirectConnection connection) throws SQLException {
 
+    ExecuteResult prefetched = prefetchResult;
+    prefetchResult = null;
+
     ExecuteResult result = connection.executeTimed(this.timeout, (timeout) -> {
-      ExecuteResult handler = new ExecuteResult(false, resultFields);
-      connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+      ExecuteResult handler = prefetched;
+      if (handler == null) {
+        handler = new ExecuteResult(false, resultFields);
+        connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+      }
       handler.await(timeout, MILLISECONDS);
       return handler;
     });
@@ -170,10 +237,17 @@ public class PreparedQuery implements Query {
   public SQLWarning execute(PGDirectConnection connection) throws SQLException {
 
     boolean wasSuspended = status == Status.Suspended;
+    boolean wasStreaming = status == Status.Streaming;
 
     status = Status.InProgress;
     try {
 
+      if (wasStreaming) {
+        // Wait (under the execution timeout) for the next rows, or completion
+        RowDataSet rows = connection.executeTimed(this.timeout, (timeout) -> stream.take(maxRows, timeout));
+        return applyStream(connection, rows);
+      }
+
       if (wasSuspended) {
 
         if (portalName == null) {
@@ -183,6 +257,10 @@ public class PreparedQuery implements Query {
         return resumeStatement(connection);
       }
 
+      if (requiresStream()) {
+        return executeStream(connection);
+      }
+
       return executeStatement(connection);
     }
     finally {
@@ -193,9 +271,41 @@ public class PreparedQuery implements Query {
 
   }
 
+  @Override
+  public void prefetch(PGDirectConnection connection) throws SQLException {
+
+    if (status != Status.Suspended || prefetchResult != null) {
+      return;
+    }
+
+    ExecuteResult handler = new ExecuteResult(false, resultFields);
+
+    connection.execute(timeout -> {
+      connection.getRequestExecutor().resume(portalName, firstNonNull(maxRows, 0), handler);
+    });
+
+    prefetchResult = handler;
+  }
+
   @Override
   public void dispose(PGDirectConnection connection) throws SQLException {
 
+    if (prefetchResult != null) {
+      ExecuteResult prefetched = prefetchResult;
+      prefetchResult = null;
+
+      // Wait for the prefetched batch before finishing the portal
+      connection.execute(timeout -> {
+        prefetched.await(timeout, MILLISECONDS);
+        release(prefetched.getBatch());
+      });
+    }
+
+    if (stream != null) {
+      stream.close();
+      stream = null;
+    }
+
     if (portalName != null) {
       connection.execute(timeout -> {
         SynchronizedResult handler = new SynchronizedResult();
@@ -55,6 +55,7 @@ public interface Query {
     InProgress,
     Completed,
     Suspended,
+    Streaming,
   }
 
   Status getStatus();
@@ -64,10 +65,22 @@ public interface Query {
 
   void setMaxRows(int maxRows);
 
+  void setStreaming(boolean streaming);
+
   List<ResultBatch> getResultBatches();
 
   SQLWarning execute(PGDirectConnection connection) throws SQLException;
 
+  /**
+   * Requests the next batch of rows of a suspended query without waiting
+   * for it to arrive; the following {@link #execute(PGDirectConnection)}
+   * completes with the prefetched batch.
+   *
+   * @param connection Connection the query is executing on
+   * @throws SQLException If an error occurs sending the request
+   */
+  void prefetch(PGDirectConnection connection) throws SQLException;
+
   void dispose(PGDirectConnection connection) throws SQLException;
 
   static Query create(String sqlText) {
@@ -28,15 +28,25 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.jdbc.SQLTextTree.CommentPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.CompositeNode;
 import com.impossibl.postgres.jdbc.SQLTextTree.GrammarPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.IdentifierPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.Node;
+import com.impossibl.postgres.jdbc.SQLTextTree.ParameterPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.ParenGroupNode;
 import com.impossibl.postgres.jdbc.SQLTextTree.StatementNode;
+import com.impossibl.postgres.jdbc.SQLTextTree.UnquotedIdentifierPiece;
+import com.impossibl.postgres.jdbc.SQLTextTree.WhitespacePiece;
 
 import static com.impossibl.postgres.system.Identifier.quoteIfNeeded;
 
 import java.io.IOException;
 import java.sql.ResultSet;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import static java.sql.Connection.TRANSACTION_READ_COMMITTED;
 import static java.sql.Connection.TRANSACTION_READ_UNCOMMITTED;
@@ -52,6 +62,27 @@ import static java.sql.Connection.TRANSACTION_SERIALIZABLE;
  */
 class SQLTextUtils {
 
+  private static final Pattern SESSION_SCOPED = Pattern.compile(
+      "\\b(?:set|reset)\\s+(?:session\\s+|local\\s+)?(?:search_path|schema|role|session\\s+authorization|all)\\b" +
+          "|\\bset_config\\s*\\(" +
+          "|\\b(?:temp|temporary)\\s+(?:table|view|sequence)\\b" +
+          "|\\binto\\s+(?:temp|temporary)\\b" +
+          "|\\bpg_temp",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * Tests if SQL text may change, or depend on, session state that determines
+   * how the server resolves names (e.g. the search path, the current role or
+   * temporary objects). The test is conservative and can report text that
+   * does neither.
+   *
+   * @param sql SQL text to test
+   * @return true if the text may be session scoped
+   */
+  public static boolean isSessionScoped(String sql) {
+    return SESSION_SCOPED.matcher(sql).find();
+  }
+
   /**
    * Tests the given value for equality to "true"
    *
@@ -314,6 +345,138 @@ class SQLTextUtils {
     return appendClause(sqlText, " RETURNING *");
   }
 
+  /**
+   * Binary {@code COPY ... FROM STDIN} command text and the (optionally qualified)
+   * table it targets, quoted as in the original INSERT.
+   */
+  static class CopyFromText {
+
+    private String text;
+    private String table;
+
+    CopyFromText(String text, String table) {
+      this.text = text;
+      this.table = table;
+    }
+
+    String getText() {
+      return text;
+    }
+
+    String getTable() {
+      return table;
+    }
+
+  }
+
+  /**
+   * Builds a binary {@code COPY ... FROM STDIN} command equivalent to the given SQL text,
+   * if (and only if) it is a simple INSERT of a single row of parameters into
+   * an explicit list of columns (e.g. {@code INSERT INTO tbl (a, b) VALUES (?, ?)}).
+   *
+   * @param sqlText Input SQL text
+   * @return Equivalent COPY command text, along with its target table, or null if
+   *          the SQL text is not a simple parameterized INSERT
+   */
+  public static CopyFromText getCopyFromText(SQLText sqlText) {
+
+    if (sqlText.getStatementCount() != 1)
+      return null;
+
+    List<Node> nodes = significantNodes(sqlText.getFirstStatement());
+    int nodeIdx = 0;
+
+    if (!isKeyword(nodes, nodeIdx++, "INSERT") || !isKeyword(nodes, nodeIdx++, "INTO"))
+      return null;
+
+    // Table name (optionally qualified)
+
+    StringBuilder table = new StringBuilder();
+    if (!(get(nodes, nodeIdx) instanceof IdentifierPiece))
+      return null;
+    nodes.get(nodeIdx++).build(table);
+
+    if (get(nodes, nodeIdx) instanceof GrammarPiece && get(nodes, nodeIdx).toString().equals(".")) {
+      if (!(get(nodes, nodeIdx + 1) instanceof IdentifierPiece))
+        return null;
+      nodes.get(nodeIdx++).build(table);
+      nodes.get(nodeIdx++).build(table);
+    }
+
+    // Explicit column list
+
+    if (!(get(nodes, nodeIdx) instanceof ParenGroupNode))
+      return null;
+
+    List<Node> columns = significantNodes((CompositeNode) nodes.get(nodeIdx++));
+    if (!isList(columns, IdentifierPiece.class))
+      return null;
+
+    // Single row of (in order) parameters
+
+    if (!isKeyword(nodes, nodeIdx++, "VALUES") || !(get(nodes, nodeIdx) instanceof ParenGroupNode))
+      return null;
+
+    List<Node> values = significantNodes((CompositeNode) nodes.get(nodeIdx++));
+    if (!isList(values, ParameterPiece.class) || values.size() != columns.size())
+      return null;
+
+    for (int valueIdx = 0; valueIdx < values.size(); valueIdx += 2) {
+      if (((ParameterPiece) values.get(valueIdx)).getIdx() != (valueIdx / 2) + 1)
+        return null;
+    }
+
+    if (nodeIdx != nodes.size())
+      return null;
+
+    StringBuilder copy = new StringBuilder("COPY ").append(table).append(" (");
+    for (Node column : columns) {
+      column.build(copy);
+    }
+    copy.append(") FROM STDIN (FORMAT binary)");
+
+    return new CopyFromText(copy.toString(), table.toString());
+  }
+
+  private static List<Node> significantNodes(CompositeNode composite) {
+
+    List<Node> nodes = new ArrayList<>(composite.getNodeCount());
+
+    Iterator<Node> nodeIter = composite.iterator();
+    while (nodeIter.hasNext()) {
+      Node node = nodeIter.next();
+      if (!(node instanceof WhitespacePiece) && !(node instanceof CommentPiece)) {
+        nodes.add(node);
+      }
+    }
+
+    return nodes;
+  }
+
+  private static Node get(List<Node> nodes, int idx) {
+    return idx < nodes.size() ? nodes.get(idx) : null;
+  }
+
+  private static boolean isKeyword(List<Node> nodes, int idx, String keyword) {
+    Node node = get(nodes, idx);
+    return node instanceof UnquotedIdentifierPiece && node.toString().equalsIgnoreCase(keyword);
+  }
+
+  private static boolean isList(List<Node> nodes, Class<? extends Node> itemClass) {
+
+    if (nodes.isEmpty() || nodes.size() % 2 == 0)
+      return false;
+
+    for (int nodeIdx = 0; nodeIdx < nodes.size(); ++nodeIdx) {
+      Node node = nodes.get(nodeIdx);
+      if (nodeIdx % 2 == 0 ? !itemClass.isInstance(node) : !(node instanceof GrammarPiece && node.toString().equals(","))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   /**
    * Joins a list of columns into a string
    *
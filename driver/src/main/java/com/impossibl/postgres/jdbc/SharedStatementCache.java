@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.system.Settings;
+import com.impossibl.postgres.types.SharedRegistry;
+import com.impossibl.postgres.utils.ConcurrentCache;
+
+import static com.impossibl.postgres.jdbc.JDBCSettings.DESCRIPTION_CACHE_SIZE;
+import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_SIZE;
+import static com.impossibl.postgres.jdbc.JDBCSettings.PREPARED_STATEMENT_CACHE_THRESHOLD;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+
+
+/**
+ * Statement usage & descriptions that can be shared between connections.
+ *
+ * Cache keys reference types loaded by a connection's registry, so a cache
+ * can only be shared by connections that share the same {@link SharedRegistry}.
+ * The server resolves statement text using session state, so a cache is also
+ * only shared by connections with the same {@link Scope}.
+ */
+class SharedStatementCache {
+
+  /**
+   * Session state that determines how the server resolves the names
+   * referenced by statement text.
+   */
+  static final class Scope {
+
+    private String user;
+    private String searchPath;
+
+    Scope(String user, String searchPath) {
+      this.user = user;
+      this.searchPath = searchPath;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      Scope scope = (Scope) o;
+      return Objects.equals(user, scope.user) &&
+          Objects.equals(searchPath, scope.searchPath);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(user, searchPath);
+    }
+
+  }
+
+  interface Factory {
+
+    SharedStatementCache get(SharedRegistry sharedRegistry, Scope scope, Settings settings);
+
+  }
+
+  /**
+   * Factory providing a private cache to each connection.
+   */
+  static final Factory UNSHARED = (sharedRegistry, scope, settings) -> new SharedStatementCache(settings);
+
+  private ConcurrentCache<StatementCacheKey, StatementDescription> descriptions;
+  private ConcurrentCache<StatementCacheKey, AtomicInteger> heat;
+  private ConcurrentCache<StatementCacheKey, StatementCacheKey> preparedStatements;
+
+  SharedStatementCache(Settings settings) {
+
+    int descriptionCacheSize = settings.get(DESCRIPTION_CACHE_SIZE);
+    if (descriptionCacheSize > 0) {
+      descriptions = new ConcurrentCache<>(descriptionCacheSize);
+    }
+
+    int statementCacheSize = settings.get(PREPARED_STATEMENT_CACHE_SIZE);
+    if (statementCacheSize > 0) {
+      preparedStatements = new ConcurrentCache<>(statementCacheSize);
+
+      if (settings.get(PREPARED_STATEMENT_CACHE_THRESHOLD) > 0) {
+        // Track more statements than can be cached to allow new statements to warm up
+        heat = new ConcurrentCache<>(max(statementCacheSize, descriptionCacheSize) * 2);
+      }
+    }
+
+  }
+
+  boolean isHeatTracked() {
+    return heat != null;
+  }
+
+  /**
+   * Increments the usage count of a statement.
+   *
+   * @param key Statement key
+   * @return Usage count including this use
+   */
+  int incrementHeat(StatementCacheKey key) {
+
+    AtomicInteger statementHeat = heat.get(key);
+    if (statementHeat == null) {
+      statementHeat = new AtomicInteger();
+      AtomicInteger existing = heat.putIfAbsent(key, statementHeat);
+      if (existing != null) {
+        statementHeat = existing;
+      }
+    }
+
+    return statementHeat.incrementAndGet();
+  }
+
+  StatementDescription getDescription(StatementCacheKey key) {
+    return descriptions != null ? descriptions.get(key) : null;
+  }
+
+  void putDescription(StatementCacheKey key, StatementDescription description) {
+    if (descriptions != null) {
+      descriptions.put(key, description);
+    }
+  }
+
+  void putDescriptionIfAbsent(StatementCacheKey key, StatementDescription description) {
+    if (descriptions != null) {
+      descriptions.putIfAbsent(key, description);
+    }
+  }
+
+  /**
+   * Records that a statement was prepared for caching by a connection.
+   *
+   * @param key Statement key
+   */
+  void addPreparedStatement(StatementCacheKey key) {
+    if (preparedStatements != null) {
+      preparedStatements.put(key, key);
+    }
+  }
+
+  /**
+   * Retrieves the statements most recently prepared for caching by any
+   * connection sharing this cache.
+   *
+   * @return Keys of prepared statements
+   */
+  List<StatementCacheKey> getPreparedStatements() {
+    List<StatementCacheKey> keys = new ArrayList<>();
+    if (preparedStatements != null) {
+      preparedStatements.forEach((key, value) -> keys.add(key));
+    }
+    return keys;
+  }
+
+}
@@ -28,12 +28,16 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.jdbc.JDBCSettings.LeakDetection;
+
+import static com.impossibl.postgres.jdbc.JDBCSettings.HOUSEKEEPER_LEAK_DETECTION;
+
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -50,12 +54,19 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   private static final Logger logger = Logger.getLogger(ThreadedHousekeeper.class.getName());
 
+  private static final int LEAK_SAMPLING_INTERVAL = 128;
+
   private static long instanceRefs = 0;
   private static ThreadedHousekeeper instance;
 
   public class Ref implements Housekeeper.Ref {
 
     private AtomicBoolean released = new AtomicBoolean(false);
+    private LeakDetection leakDetection;
+
+    Ref(LeakDetection leakDetection) {
+      this.leakDetection = leakDetection;
+    }
 
     @Override
     public ThreadedHousekeeper get() {
@@ -70,7 +81,7 @@ public class ThreadedHousekeeper implements Housekeeper {
 
     @Override
     public <T> Object add(T reference, CleanupRunnable cleanup) {
-      return ThreadedHousekeeper.this.add(reference, cleanup);
+      return ThreadedHousekeeper.this.add(reference, cleanup, captureAllocationTrace(leakDetection));
     }
 
     @Override
@@ -80,13 +91,30 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   }
 
-  public static synchronized Ref acquire() {
+  /**
+   * Captures the allocation point of a tracked object, as directed by the leak detection level.
+   *
+   * Only the VM's internal backtrace is captured; stack trace elements are not materialized
+   * unless a leak is reported.
+   */
+  private static Throwable captureAllocationTrace(LeakDetection leakDetection) {
+    switch (leakDetection) {
+      case FULL:
+        return new Throwable();
+      case SAMPLED:
+        return ThreadLocalRandom.current().nextInt(LEAK_SAMPLING_INTERVAL) == 0 ? new Throwable() : null;
+      default:
+        return null;
+    }
+  }
+
+  public static synchronized Ref acquire(LeakDetection leakDetection) {
 
     if (instanceRefs == 0) {
       instance = new ThreadedHousekeeper();
     }
     ++instanceRefs;
-    return instance.new Ref();
+    return instance.new Ref(leakDetection);
   }
 
   private static synchronized void release() {
@@ -105,8 +133,9 @@ public class ThreadedHousekeeper implements Housekeeper {
 
     int id;
     CleanupRunnable cleanup;
+    Throwable allocationTrace;
 
-    HousekeeperReference(CleanupRunnable cleanup, T referent, ReferenceQueue<? super T> q) {
+    HousekeeperReference(CleanupRunnable cleanup, Throwable allocationTrace, T referent, ReferenceQueue<? super T> q) {
       super(referent, q);
 
       if (cleanup == referent) {
@@ -115,24 +144,32 @@ public class ThreadedHousekeeper implements Housekeeper {
 
       this.id = System.identityHashCode(referent);
       this.cleanup = cleanup;
+      this.allocationTrace = allocationTrace;
     }
 
     void cleanup() {
 
       if (logLeaks) {
-        String allocationTrace = printStackTrace(getSimplifiedAllocationStackTrace());
-        logger.log(
-            Level.WARNING,
-            "Cleaning up leaked " + cleanup.getKind() + "\n"
-                + "Allocation occurred @\n" + allocationTrace);
+        StackTraceElement[] allocationStackTrace =
+            allocationTrace != null ? allocationTrace.getStackTrace() : cleanup.getAllocationStackTrace();
+        if (allocationStackTrace != null) {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation occurred @\n" + printStackTrace(simplifyAllocationStackTrace(allocationStackTrace)));
+        }
+        else {
+          logger.log(
+              Level.WARNING,
+              "Cleaning up leaked " + cleanup.getKind() + "\n"
+                  + "Allocation not captured (set 'housekeeper.leak-detection' to 'full' to capture)");
+        }
       }
 
       cleanup.run();
     }
 
-    StackTraceElement[] getSimplifiedAllocationStackTrace() {
-
-      StackTraceElement[] allocationTrace = cleanup.getAllocationStackTrace();
+    StackTraceElement[] simplifyAllocationStackTrace(StackTraceElement[] allocationTrace) {
 
       // Find the first non driver related class
       for (int c = 0; c < allocationTrace.length; ++c) {
@@ -173,7 +210,7 @@ public class ThreadedHousekeeper implements Housekeeper {
 
   private boolean logLeaks = true;
   private ReferenceQueue<Object> cleanupQueue = new ReferenceQueue<>();
-  private Set<HousekeeperReference<?>> cleanupReferences = new HashSet<>();
+  private Map<Object, HousekeeperReference<?>> cleanupReferences = new HashMap<>();
   private AtomicBoolean cleanupThreadEnabled = new AtomicBoolean(true);
   private Thread cleanupThread = new Thread() {
 
@@ -200,7 +237,7 @@ public class ThreadedHousekeeper implements Housekeeper {
         }
 
         synchronized (ThreadedHousekeeper.this) {
-          cleanupReferences.remove(ref);
+          cleanupReferences.remove(ref.cleanup);
         }
       }
 
@@ -233,29 +270,28 @@ public class ThreadedHousekeeper implements Housekeeper {
         // Ignore...
       }
 
-      cleanupReferences.remove(ref);
+      cleanupReferences.remove(ref.cleanup);
     }
 
   }
 
   @Override
-  public synchronized <T> Object add(T referent, CleanupRunnable cleanup) {
-    HousekeeperReference<T> ref = new HousekeeperReference<>(cleanup, referent, cleanupQueue);
-    cleanupReferences.add(ref);
+  public <T> Object add(T referent, CleanupRunnable cleanup) {
+    return add(referent, cleanup, captureAllocationTrace(HOUSEKEEPER_LEAK_DETECTION.getDefault()));
+  }
+
+  private synchronized <T> Object add(T referent, CleanupRunnable cleanup, Throwable allocationTrace) {
+    HousekeeperReference<T> ref = new HousekeeperReference<>(cleanup, allocationTrace, referent, cleanupQueue);
+    cleanupReferences.put(cleanup, ref);
     return cleanup;
   }
 
   @Override
   public synchronized void remove(Object cleanupKey) {
 
-    Iterator<HousekeeperReference<?>> refIter = cleanupReferences.iterator();
-    while (refIter.hasNext()) {
-      HousekeeperReference<?> ref = refIter.next();
-      if (ref.cleanup == cleanupKey) {
-        ref.clear();
-        refIter.remove();
-        return;
-      }
+    HousekeeperReference<?> ref = cleanupReferences.remove(cleanupKey);
+    if (ref != null) {
+      ref.clear();
     }
 
   }
@@ -283,7 +319,7 @@ public class ThreadedHousekeeper implements Housekeeper {
     // Ensure queue is emptied before checking
     emptyQueue();
 
-    for (HousekeeperReference<?> ref : cleanupReferences) {
+    for (HousekeeperReference<?> ref : cleanupReferences.values()) {
       if (ref.id == referentId)
         return false;
     }
@@ -91,6 +91,41 @@ public class FieldBuffersRowData extends AbstractReferenceCounted implements Upd
     return result;
   }
 
+  @Override
+  public boolean isNull(int fieldIdx) {
+    return fieldBuffers[fieldIdx] == null;
+  }
+
+  @Override
+  public boolean getBool(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getByte(0) != 0;
+  }
+
+  @Override
+  public short getInt2(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getShort(0);
+  }
+
+  @Override
+  public int getInt4(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getInt(0);
+  }
+
+  @Override
+  public long getInt8(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getLong(0);
+  }
+
+  @Override
+  public float getFloat4(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getFloat(0);
+  }
+
+  @Override
+  public double getFloat8(int fieldIdx) {
+    return fieldBuffers[fieldIdx].getDouble(0);
+  }
+
   @Override
   public void updateField(int columnIndex, ResultField field, Context context, Object source, Object sourceContext) throws IOException {
 
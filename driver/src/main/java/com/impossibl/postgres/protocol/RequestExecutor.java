@@ -28,9 +28,12 @@
  */
 package com.impossibl.postgres.protocol;
 
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
@@ -320,6 +323,142 @@ public interface RequestExecutor {
   void finish(String portalName, SynchronizedHandler handler) throws IOException;
 
 
+  /*****
+   * Stream. Execute a query delivering rows as they are received.
+   *****/
+
+
+  /**
+   * Rows of a streamed request, delivered as they are received from the server.
+   *
+   * Rows are queued as they are received; when the queued rows exceed the read buffer
+   * high watermark, reading from the connection is suspended until the consumer catches
+   * up. Submitting any other request to the connection lifts the limit so the stream
+   * can complete ahead of it.
+   */
+  interface RowStream {
+
+    /**
+     * Waits for the server to describe the rows of a query stream.
+     *
+     * @param timeout Maximum time (in milliseconds) to wait; a value less than one waits
+     *                indefinitely.
+     * @return Described result fields or {@code null} if the query returns no rows
+     * or failed.
+     * @throws BlockingReadTimeoutException If the rows are not described within {@code timeout}.
+     */
+    ResultField[] awaitFields(long timeout) throws BlockingReadTimeoutException;
+
+    /**
+     * Waits for rows to be received and takes all queued rows, up to {@code maxRows}.
+     *
+     * @param maxRows Maximum number of rows to take, zero takes all queued rows.
+     * @param timeout Maximum time (in milliseconds) to wait; a value less than one waits
+     *                indefinitely.
+     * @return Set of rows or {@code null} when the stream has been exhausted, after which
+     * the request's handler has completed.
+     * @throws BlockingReadTimeoutException If no rows are received within {@code timeout}.
+     */
+    RowDataSet take(int maxRows, long timeout) throws BlockingReadTimeoutException;
+
+    /**
+     * Discards all queued and future rows, the request continues to completion.
+     */
+    void close();
+
+  }
+
+  /**
+   * Executes the SQL text, using the "extended" query protocol, streaming its rows.
+   *
+   * @param sql SQL text to execute.
+   * @param parameterFormats Formats (text or binary) of parameters in `parameterBuffers`.
+   * @param parameterBuffers Buffer of encoded parameter values.
+   * @param resultFieldFormats Desired formats of the result fields.
+   * @param handler Query handler to process results. Produces the same callbacks as
+   *                a synchronized {@link #query(String, String, FieldFormatRef[], ByteBuf[], FieldFormatRef[], int, ExtendedQueryHandler)}
+   *                request, with rows delivered via the returned stream instead.
+   * @return Stream of result rows.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  RowStream queryStream(String sql,
+                        FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers,
+                        FieldFormatRef[] resultFieldFormats,
+                        ExtendedQueryHandler handler) throws IOException;
+
+  /**
+   * Executes a previously prepared query streaming its rows.
+   *
+   * @param statementName Name of the statement to execute or {@code null} to execute the unnamed statement.
+   * @param parameterFormats Formats (text or binary) of parameters in `parameterBuffers`.
+   * @param parameterBuffers Buffer of encoded parameter values.
+   * @param resultFieldFormats Desired formats of the result fields.
+   * @param handler Execute handler to process results. Produces the same callbacks as
+   *                a synchronized {@link #execute(String, String, FieldFormatRef[], ByteBuf[], FieldFormatRef[], int, ExecuteHandler)}
+   *                request, with rows delivered via the returned stream instead.
+   * @return Stream of result rows.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  RowStream executeStream(String statementName,
+                          FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers,
+                          FieldFormatRef[] resultFieldFormats,
+                          ExecuteHandler handler) throws IOException;
+
+
+  /*****
+   * Batch. Prepare & execute a query repeatedly in a single pipelined request.
+   *****/
+
+
+  /**
+   * Request handler interface for the
+   * {@link #executeBatch(String, String[], TypeRef[][], int[], FieldFormatRef[][], ByteBuf[][], FieldFormatRef[], BatchExecuteHandler)}
+   * request.
+   */
+  interface BatchExecuteHandler extends SynchronizedHandler {
+
+    void handlePrepared(int statementIdx, TypeRef[] parameterTypes, ResultField[] resultFields, List<Notice> notices) throws IOException;
+    void handleComplete(int statementIdx, String command, Long rowsAffected, Long insertedOid, RowDataSet rows, List<Notice> notices) throws IOException;
+
+  }
+
+  /**
+   * Prepares a query once for each distinct set of parameter types and executes it
+   * once for each set of parameters; all in a single pipelined request.
+   *
+   * All parse, describe, bind &amp; execute messages are written and flushed together
+   * followed by a single synchronization. This avoids waiting for a round trip
+   * between each execution, but also means that the entire batch is executed in a
+   * single (implicit, if none is active) transaction.
+   *
+   * Each statement will produce a single
+   * {@link BatchExecuteHandler#handlePrepared(int, TypeRef[], ResultField[], List)}
+   * callback and each execution a single
+   * {@link BatchExecuteHandler#handleComplete(int, String, Long, Long, RowDataSet, List)}
+   * callback, in the order they were requested. The first error encountered produces a
+   * {@link BatchExecuteHandler#handleError(Throwable, List)} callback and causes all following
+   * statements and executions to be skipped. The request finishes with a final
+   * {@link BatchExecuteHandler#handleReady(TransactionStatus)}.
+   *
+   * Statements prepared using a name (i.e. anything other than the unnamed statement)
+   * should be closed via a {@link #close(ServerObjectType, String)} request when they are
+   * no longer in use.
+   *
+   * @param sqlText SQL text to parse; containing a maximum of one query.
+   * @param statementNames Names of the statements to prepare, {@code null} entries use the unnamed statement.
+   * @param statementParameterTypes Parameter types of each statement in {@code statementNames}.
+   * @param executionStatements Index (in {@code statementNames}) of the statement to use for each execution.
+   * @param parameterFormats Formats (text or binary) of parameters for each execution.
+   * @param parameterBuffers Buffers of encoded parameter values for each execution.
+   * @param resultFieldFormats Desired formats of the result fields.
+   * @param handler Batch handler to process results.
+   * @throws IOException If an error occurs submitting the request.
+   */
+  void executeBatch(String sqlText, String[] statementNames, TypeRef[][] statementParameterTypes,
+                    int[] executionStatements, FieldFormatRef[][] parameterFormats, ByteBuf[][] parameterBuffers,
+                    FieldFormatRef[] resultFieldFormats, BatchExecuteHandler handler) throws IOException;
+
+
   /*****
    * Function Call
    *****/
@@ -410,7 +549,51 @@ public interface RequestExecutor {
 
   }
 
-  void copyFrom(String sql, InputStream stream, CopyFromHandler handler) throws IOException;
+  /**
+   * Executes a {@code COPY ... FROM STDIN} command sending the data read from {@code stream}.
+   *
+   * @param sql SQL text of the {@code COPY} command.
+   * @param stream Stream to read copy data from.
+   * @param handler Handler to process results of the request.
+   * @param timeout Maximum time (in milliseconds) to wait for the server while sending data; a
+   *                value less than one waits indefinitely.
+   * @throws IOException If an error occurs submitting the request or the server times out.
+   * @see #copyFrom(String, ReadableByteChannel, CopyFromHandler, long)
+   */
+  void copyFrom(String sql, InputStream stream, CopyFromHandler handler, long timeout) throws IOException;
+
+  /**
+   * Executes a {@code COPY ... FROM STDIN} command sending the data read from {@code channel}.
+   *
+   * Data is streamed from the calling thread, which blocks until all data has been sent. When
+   * {@code channel} is a {@link java.nio.channels.FileChannel}, data is transferred directly from the
+   * file to the socket when the transport allows it. The channel is read from its current position
+   * and is never closed.
+   *
+   * @param sql SQL text of the {@code COPY} command.
+   * @param channel Channel to read copy data from.
+   * @param handler Handler to process results of the request.
+   * @param timeout Maximum time (in milliseconds) to wait for the server while sending data; a
+   *                value less than one waits indefinitely.
+   * @throws IOException If an error occurs submitting the request or the server times out.
+   */
+  void copyFrom(String sql, ReadableByteChannel channel, CopyFromHandler handler, long timeout) throws IOException;
+
+  /**
+   * Executes a {@code COPY ... FROM STDIN} command sending the readable bytes of {@code data}
+   * without copying them.
+   *
+   * Data is streamed from the calling thread, which blocks until all data has been sent. Ownership
+   * of {@code data} remains with the caller.
+   *
+   * @param sql SQL text of the {@code COPY} command.
+   * @param data Buffer containing copy data.
+   * @param handler Handler to process results of the request.
+   * @param timeout Maximum time (in milliseconds) to wait for the server while sending data; a
+   *                value less than one waits indefinitely.
+   * @throws IOException If an error occurs submitting the request or the server times out.
+   */
+  void copyFrom(String sql, ByteBuf data, CopyFromHandler handler, long timeout) throws IOException;
 
 
   interface CopyToHandler extends SynchronizedHandler {
@@ -419,6 +602,53 @@ public interface RequestExecutor {
 
   }
 
-  void copyTo(String sql, OutputStream stream, CopyToHandler handler) throws IOException;
+  /**
+   * Consumer of data received during a {@code COPY ... TO STDOUT} operation.
+   */
+  interface CopyDataConsumer {
+
+    /**
+     * Consumes a single data message; PostgreSQL sends each row in its own message.
+     *
+     * The buffer is released after the call returns, consumers must retain it if it is
+     * used afterwards.
+     *
+     * @param data Message data.
+     * @throws IOException If an error occurs consuming the data.
+     */
+    void consume(ByteBuf data) throws IOException;
+
+  }
+
+  /**
+   * Executes a {@code COPY ... TO STDOUT} command writing the data to {@code stream}.
+   *
+   * @param sql SQL text of the {@code COPY} command.
+   * @param stream Stream to write copy data to.
+   * @param handler Handler to process results of the request.
+   * @param timeout Maximum time (in milliseconds) to wait for data from the server; a value less
+   *                than one waits indefinitely.
+   * @throws IOException If an error occurs submitting the request, writing the data or the
+   *                     server times out.
+   * @see #copyTo(String, CopyDataConsumer, CopyToHandler, long)
+   */
+  void copyTo(String sql, OutputStream stream, CopyToHandler handler, long timeout) throws IOException;
+
+  /**
+   * Executes a {@code COPY ... TO STDOUT} command delivering the data to {@code consumer}.
+   *
+   * Data is delivered on the calling thread, which blocks until the command completes. Reading
+   * from the server is suspended while the consumer lags behind, which never blocks the I/O
+   * thread.
+   *
+   * @param sql SQL text of the {@code COPY} command.
+   * @param consumer Consumer of copy data.
+   * @param handler Handler to process results of the request.
+   * @param timeout Maximum time (in milliseconds) to wait for data from the server; a value less
+   *                than one waits indefinitely.
+   * @throws IOException If an error occurs submitting the request, the consumer fails or the
+   *                     server times out.
+   */
+  void copyTo(String sql, CopyDataConsumer consumer, CopyToHandler handler, long timeout) throws IOException;
 
 }
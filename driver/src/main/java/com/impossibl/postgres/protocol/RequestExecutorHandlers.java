@@ -43,6 +43,8 @@ import com.impossibl.postgres.utils.BlockingReadTimeoutException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -57,6 +59,7 @@ public class RequestExecutorHandlers {
     protected Throwable error;
     protected List<Notice> notices = new ArrayList<>();
     protected CountDownLatch completed = new CountDownLatch(1);
+    private CompletableFuture<Void> completion = new CompletableFuture<>();
 
     public boolean isValid() {
       checkCompleted();
@@ -78,7 +81,35 @@ public class RequestExecutorHandlers {
       this.error = error;
       this.notices = notices;
 
+      complete();
+    }
+
+    /**
+     * Marks the result as completed, releasing any waiting threads and
+     * completing the {@link #completion() completion stage}.
+     */
+    protected void complete() {
       completed.countDown();
+      if (error != null) {
+        completion.completeExceptionally(error);
+      }
+      else {
+        completion.complete(null);
+      }
+    }
+
+    /**
+     * Stage that completes when the result completes, exceptionally if
+     * the request failed. Allows waiting for results without blocking.
+     *
+     * Note: The stage is completed on the connection's I/O thread, dependent
+     * actions that block must use the asynchronous variants of the
+     * {@link CompletionStage} methods.
+     *
+     * @return Completion stage of this result.
+     */
+    public CompletionStage<Void> completion() {
+      return completion;
     }
 
     public boolean isCompleted() {
@@ -124,7 +155,7 @@ public class RequestExecutorHandlers {
 
     @Override
     public void handleReady(TransactionStatus transactionStatus) {
-      completed.countDown();
+      complete();
     }
 
   }
@@ -157,7 +188,7 @@ public class RequestExecutorHandlers {
       this.describedResultFields = resultFields;
       this.notices = notices;
 
-      completed.countDown();
+      complete();
     }
 
   }
@@ -200,7 +231,7 @@ public class RequestExecutorHandlers {
       this.resultBatch = new ResultBatch(command, rowsAffected, insertedOid, resultFields, retain(rows));
       this.notices = notices;
       if (!synced) {
-        completed.countDown();
+        complete();
       }
     }
 
@@ -211,7 +242,7 @@ public class RequestExecutorHandlers {
 
       suspended = true;
 
-      completed.countDown();
+      complete();
     }
 
   }
@@ -249,7 +280,7 @@ public class RequestExecutorHandlers {
       this.resultBatch = new ResultBatch(command, rowsAffected, insertedOid, describedResultFields, retain(rows));
       this.notices = notices;
       if (!synced) {
-        completed.countDown();
+        complete();
       }
     }
 
@@ -259,7 +290,79 @@ public class RequestExecutorHandlers {
 
       suspended = true;
 
-      completed.countDown();
+      complete();
+    }
+
+  }
+
+  public static class BatchExecuteResult extends SynchronizedResult implements RequestExecutor.BatchExecuteHandler {
+
+    private TypeRef[][] describedParameterTypes;
+    private ResultField[][] describedResultFields;
+    private List<ResultBatch> resultBatches;
+    private boolean abandoned;
+
+    public BatchExecuteResult(int statementCount) {
+      this.describedParameterTypes = new TypeRef[statementCount][];
+      this.describedResultFields = new ResultField[statementCount][];
+      this.resultBatches = new ArrayList<>();
+    }
+
+    public Type[] getDescribedParameterTypes(int statementIdx, Context context) throws IOException {
+      checkCompleted();
+
+      if (describedParameterTypes[statementIdx] == null) return null;
+
+      List<Type> list = new ArrayList<>();
+      for (TypeRef ref : describedParameterTypes[statementIdx]) {
+        Type resolve = context.getRegistry().resolve(ref);
+        list.add(resolve);
+      }
+      return list.toArray(new Type[0]);
+    }
+
+    public ResultField[] getDescribedResultFields(int statementIdx) {
+      checkCompleted();
+
+      return describedResultFields[statementIdx];
+    }
+
+    public List<ResultBatch> getBatches() {
+      checkCompleted();
+
+      return resultBatches;
+    }
+
+    @Override
+    public void handlePrepared(int statementIdx, TypeRef[] parameterTypes, ResultField[] resultFields, List<Notice> notices) {
+      this.describedParameterTypes[statementIdx] = parameterTypes;
+      this.describedResultFields[statementIdx] = resultFields;
+      this.notices.addAll(notices);
+    }
+
+    /**
+     * Abandons an incomplete result, releasing the batches received so far
+     * and any received afterwards.
+     */
+    public synchronized void abandon() {
+      abandoned = true;
+      resultBatches.forEach(ResultBatch::release);
+      resultBatches.clear();
+    }
+
+    @Override
+    public synchronized void handleComplete(int statementIdx, String command, Long rowsAffected, Long insertedOid, RowDataSet rows, List<Notice> notices) {
+      if (!abandoned) {
+        resultBatches.add(new ResultBatch(command, rowsAffected, insertedOid, describedResultFields[statementIdx], retain(rows)));
+      }
+
+      this.notices.addAll(notices);
+    }
+
+    @Override
+    public void handleError(Throwable error, List<Notice> notices) {
+      this.notices.addAll(notices);
+      super.handleError(error, this.notices);
     }
 
   }
@@ -37,6 +37,22 @@ public interface RowData {
   int getFieldCount();
   Object getField(int fieldIdx, ResultField field, Context context, Class<?> targetClass, Object targetContext) throws IOException;
 
+  /*
+   * Primitive accessors.
+   *
+   * Read binary encoded values of built-in types directly from the row's
+   * data, without resolving codecs, boxing or slicing buffers. Callers must
+   * ensure the field is binary encoded, of the matching type and not NULL.
+   */
+
+  boolean isNull(int fieldIdx);
+  boolean getBool(int fieldIdx);
+  short getInt2(int fieldIdx);
+  int getInt4(int fieldIdx);
+  long getInt8(int fieldIdx);
+  float getFloat4(int fieldIdx);
+  double getFloat8(int fieldIdx);
+
   UpdatableRowData duplicateForUpdate();
 
 }
@@ -62,6 +62,15 @@ public class RowDataSet extends AbstractReferenceCounted {
     return rows.size();
   }
 
+  /**
+   * Size of the encoded row data.
+   *
+   * @return Size in bytes, or {@code -1} if unknown.
+   */
+  public long getByteSize() {
+    return -1;
+  }
+
   public RowData borrow(int index) {
     return rows.get(index);
   }
@@ -99,10 +108,10 @@ public class RowDataSet extends AbstractReferenceCounted {
 
   @Override
   public String toString() {
-    if (rows.size() == 0) {
+    if (size() == 0) {
       return "Empty";
     }
-    return rows.size() + " Rows";
+    return size() + " Rows";
   }
 
 }
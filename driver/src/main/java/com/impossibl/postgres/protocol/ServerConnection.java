@@ -37,6 +37,7 @@ package com.impossibl.postgres.protocol;
 
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
+import com.impossibl.postgres.system.metrics.Metrics;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -46,6 +47,7 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.ChannelFuture;
+import io.netty.util.Timer;
 
 public interface ServerConnection {
 
@@ -97,4 +99,26 @@ public interface ServerConnection {
 
   ScheduledExecutorService getIOExecutor();
 
+  /**
+   * Timer, shared by all connections, for scheduling timeouts. Scheduling &
+   * cancelling timeouts is cheap; tasks run on the timer's thread and must
+   * not block.
+   */
+  Timer getTimer();
+
+  /**
+   * Asks the server to cancel the request currently executing on this
+   * connection. The request is sent, without blocking, via a separate
+   * connection on the shared I/O threads, which is closed once the request
+   * has been written.
+   *
+   * @param connectTimeout Maximum time (in milliseconds) to wait for the
+   *                       connection to be established; a value less than
+   *                       one uses the transport's default.
+   * @return Future completing once the request has been delivered, or failed
+   */
+  ChannelFuture sendCancelRequest(long connectTimeout);
+
+  Metrics getMetrics();
+
 }
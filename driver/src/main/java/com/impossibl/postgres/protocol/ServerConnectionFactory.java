@@ -32,11 +32,23 @@ import com.impossibl.postgres.system.Configuration;
 
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.List;
 
 public interface ServerConnectionFactory {
 
   ServerConnection connect(Configuration config, SocketAddress address, ServerConnection.Listener listener) throws IOException;
 
+  /**
+   * Connects to the first available server of the given addresses.
+   *
+   * @param config Connection configuration.
+   * @param addresses Addresses of the servers, in order of preference.
+   * @param listener Listener for connection events.
+   * @return Connection to the first server that successfully completed startup.
+   * @throws IOException If no server could be connected to.
+   */
+  ServerConnection connect(Configuration config, List<SocketAddress> addresses, ServerConnection.Listener listener) throws IOException;
+
   static ServerConnectionFactory getDefault() {
     return new com.impossibl.postgres.protocol.v30.ServerConnectionFactory();
   }
@@ -35,6 +35,19 @@ public class TypeOid implements TypeRef {
 
   public static final TypeOid INVALID = new TypeOid(0);
 
+  /*
+   * Oids of built-in types; these are fixed by the server's catalog
+   */
+  public static final int BOOL = 16;
+  public static final int INT8 = 20;
+  public static final int INT2 = 21;
+  public static final int INT4 = 23;
+  public static final int TEXT = 25;
+  public static final int FLOAT4 = 700;
+  public static final int FLOAT8 = 701;
+  public static final int VARCHAR = 1043;
+  public static final int UUID = 2950;
+
   private static final AtomicReferenceArray<TypeOid> fastCachedOids = new AtomicReferenceArray<>(4096);
 
   public static TypeOid valueOf(int oid) {
@@ -29,11 +29,14 @@
 package com.impossibl.postgres.protocol.ssl;
 
 import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.utils.ConcurrentCache;
 
 import static com.impossibl.postgres.system.SystemSettings.SSL_CA_CRT_FILE;
+import static com.impossibl.postgres.system.SystemSettings.SSL_CONTEXT_CACHE;
 import static com.impossibl.postgres.system.SystemSettings.SSL_CRT_FILE;
 import static com.impossibl.postgres.system.SystemSettings.SSL_HOME_DIR;
 import static com.impossibl.postgres.system.SystemSettings.SSL_KEY_FILE;
+import static com.impossibl.postgres.system.SystemSettings.SSL_KEY_PASSWORD;
 import static com.impossibl.postgres.system.SystemSettings.SSL_KEY_PASSWORD_CALLBACK;
 
 import java.io.File;
@@ -45,11 +48,16 @@ import java.security.GeneralSecurityException;
 import java.security.KeyManagementException;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateFactory;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.Objects;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import javax.net.ssl.KeyManager;
 import javax.net.ssl.SSLContext;
@@ -68,8 +76,170 @@ public class SSLEngineFactory {
   private static final String KEY_STORE_TYPE = "JKS";
   private static final String CERTIFICATE_FACTORY_TYPE = "X.509";
 
+  private static final int CONTEXT_CACHE_SIZE = 16;
+
+  private static final ConcurrentCache<ContextKey, CachedContext> contexts = new ConcurrentCache<>(CONTEXT_CACHE_SIZE);
+
+  /**
+   * Identifies the settings an SSL context is built from. The key password is
+   * only retained as a digest.
+   */
+  private static class ContextKey {
+
+    boolean verify;
+    String certFile;
+    String keyFile;
+    String rootCertFile;
+    Class<?> passwordCallbackClass;
+    byte[] keyPasswordDigest;
+
+    ContextKey(boolean verify, String certFile, String keyFile, String rootCertFile, Class<?> passwordCallbackClass, String keyPassword) {
+      this.verify = verify;
+      this.certFile = certFile;
+      this.keyFile = keyFile;
+      this.rootCertFile = rootCertFile;
+      this.passwordCallbackClass = passwordCallbackClass;
+      this.keyPasswordDigest = keyPassword != null ? digest(keyPassword) : null;
+    }
+
+    private static byte[] digest(String password) {
+      try {
+        return MessageDigest.getInstance("SHA-256").digest(password.getBytes(UTF_8));
+      }
+      catch (NoSuchAlgorithmException e) {
+        throw new RuntimeException(e);
+      }
+    }
+
+    /**
+     * Modification stamps of the files referenced by the settings, used to
+     * detect changes requiring the context to be rebuilt.
+     */
+    long[] fileStamps() {
+      String[] files = {certFile, keyFile, rootCertFile};
+      long[] stamps = new long[files.length * 2];
+      for (int c = 0; c < files.length; ++c) {
+        if (files[c] != null) {
+          File file = new File(files[c]);
+          stamps[c * 2] = file.lastModified();
+          stamps[c * 2 + 1] = file.length();
+        }
+      }
+      return stamps;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      ContextKey that = (ContextKey) o;
+      return verify == that.verify &&
+          Objects.equals(certFile, that.certFile) &&
+          Objects.equals(keyFile, that.keyFile) &&
+          Objects.equals(rootCertFile, that.rootCertFile) &&
+          Objects.equals(passwordCallbackClass, that.passwordCallbackClass) &&
+          Arrays.equals(keyPasswordDigest, that.keyPasswordDigest);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(verify, certFile, keyFile, rootCertFile, passwordCallbackClass) * 31 + Arrays.hashCode(keyPasswordDigest);
+    }
+
+  }
+
+  private static class CachedContext {
+
+    SSLContext context;
+    long[] fileStamps;
+
+    CachedContext(SSLContext context, long[] fileStamps) {
+      this.context = context;
+      this.fileStamps = fileStamps;
+    }
+
+  }
 
   public static SSLEngine create(SSLMode sslMode, Configuration config) throws IOException {
+    return create(sslMode, config, null, -1);
+  }
+
+  /**
+   * Creates an engine for a client connection to the given peer.
+   *
+   * Unless disabled (via `ssl.context.cache`) engines are created from an
+   * SSL context shared by all connections with identical SSL settings. Providing
+   * the peer's host & port allows the engine to resume a TLS session previously
+   * established with the same peer.
+   *
+   * @param sslMode SSL mode of the connection
+   * @param config Configuration of the connection
+   * @param peerHost Host name of the server or {@code null} if unknown
+   * @param peerPort Port of the server
+   * @return Engine in client mode
+   * @throws IOException If the context cannot be created
+   */
+  public static SSLEngine create(SSLMode sslMode, Configuration config, String peerHost, int peerPort) throws IOException {
+
+    SSLContext sslContext = getContext(sslMode, config);
+
+    SSLEngine sslEngine = peerHost != null ? sslContext.createSSLEngine(peerHost, peerPort) : sslContext.createSSLEngine();
+
+    sslEngine.setUseClientMode(true);
+
+    return sslEngine;
+  }
+
+  static SSLContext getContext(SSLMode sslMode, Configuration config) throws IOException {
+
+    if (!config.getSetting(SSL_CONTEXT_CACHE)) {
+      return createContext(sslMode, config);
+    }
+
+    return getCachedContext(sslMode, config);
+  }
+
+  private static SSLContext getCachedContext(SSLMode sslMode, Configuration config) throws IOException {
+
+    boolean verify = isVerifying(sslMode);
+
+    ContextKey key = new ContextKey(verify, config.getSetting(SSL_CRT_FILE), config.getSetting(SSL_KEY_FILE),
+        verify ? getRootCertFile(config) : null, config.getSetting(SSL_KEY_PASSWORD_CALLBACK), config.getSetting(SSL_KEY_PASSWORD));
+
+    long[] fileStamps = key.fileStamps();
+
+    CachedContext cached = contexts.get(key);
+    if (cached != null && Arrays.equals(cached.fileStamps, fileStamps)) {
+      return cached.context;
+    }
+
+    SSLContext sslContext = createContext(sslMode, config);
+
+    contexts.put(key, new CachedContext(sslContext, fileStamps));
+
+    return sslContext;
+  }
+
+  /**
+   * Visible for testing
+   */
+  static int getCachedContextCount() {
+    return contexts.size();
+  }
+
+  private static boolean isVerifying(SSLMode sslMode) {
+    return sslMode == SSLMode.VerifyCa || sslMode == SSLMode.VerifyFull;
+  }
+
+  private static String getRootCertFile(Configuration config) {
+    String sslRootCertFile = config.getSetting(SSL_CA_CRT_FILE);
+    if (SSL_CA_CRT_FILE.getDefault().equals(sslRootCertFile)) {
+      sslRootCertFile = config.getSetting(SSL_HOME_DIR) + File.separator + sslRootCertFile;
+    }
+    return sslRootCertFile;
+  }
+
+  private static SSLContext createContext(SSLMode sslMode, Configuration config) throws IOException {
 
     /*
      * Load client's certificate and key file paths
@@ -111,7 +281,7 @@ public class SSLEngineFactory {
 
     TrustManager[] trustManagers;
 
-    if (sslMode == SSLMode.VerifyCa || sslMode == SSLMode.VerifyFull) {
+    if (isVerifying(sslMode)) {
 
       TrustManagerFactory trustManagerFactory;
       try {
@@ -133,10 +303,7 @@ public class SSLEngineFactory {
        * Load root certificates into a new key store (for Trust Manager)
        */
 
-      String sslRootCertFile = config.getSetting(SSL_CA_CRT_FILE);
-      if (SSL_CA_CRT_FILE.getDefault().equals(sslRootCertFile)) {
-        sslRootCertFile = config.getSetting(SSL_HOME_DIR) + File.separator + sslRootCertFile;
-      }
+      String sslRootCertFile = getRootCertFile(config);
 
       try (FileInputStream sslRootCertInputStream = new FileInputStream(sslRootCertFile)) {
 
@@ -193,11 +360,7 @@ public class SSLEngineFactory {
       throw new IOException("ssl context initialization error", e);
     }
 
-    SSLEngine sslEngine = sslContext.createSSLEngine();
-
-    sslEngine.setUseClientMode(true);
-
-    return sslEngine;
+    return sslContext;
   }
 
 }
@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.FieldFormat;
+import com.impossibl.postgres.protocol.FieldFormatRef;
+import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.BatchExecuteHandler;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.TransactionStatus;
+import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.BindComplete;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.DataRow;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.NoData;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParameterDescriptions;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParseComplete;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
+import com.impossibl.postgres.system.NoticeException;
+
+import static com.impossibl.postgres.protocol.ServerObjectType.Statement;
+import static com.impossibl.postgres.system.Empty.EMPTY_FIELDS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.Math.min;
+
+import io.netty.buffer.ByteBuf;
+
+import static io.netty.util.ReferenceCountUtil.release;
+
+
+/**
+ * Prepares &amp; executes a batch of executions in a single pipelined
+ * flight; requiring only a single round trip to the server.
+ *
+ * Each distinct statement is parsed &amp; described first, followed by
+ * a bind/execute pair for each execution and a single sync.
+ */
+public class BatchExecuteRequest implements ServerRequest {
+
+  private String sqlText;
+  private String[] statementNames;
+  private TypeRef[][] statementParameterTypes;
+  private int[] executionStatements;
+  private FieldFormatRef[][] parameterFormats;
+  private ByteBuf[][] parameterBuffers;
+  private FieldFormatRef[] resultFieldFormats;
+  private BatchExecuteHandler handler;
+  private int preparedCount;
+  private int executedCount;
+  private TypeRef[] describedParameterTypes;
+  private PackedRowDataSet rows;
+  private List<Notice> notices;
+
+  BatchExecuteRequest(String sqlText, String[] statementNames, TypeRef[][] statementParameterTypes,
+                      int[] executionStatements, FieldFormatRef[][] parameterFormats, ByteBuf[][] parameterBuffers,
+                      FieldFormatRef[] resultFieldFormats, BatchExecuteHandler handler) {
+    this.sqlText = sqlText;
+    this.statementNames = statementNames;
+    this.statementParameterTypes = statementParameterTypes;
+    this.executionStatements = executionStatements;
+    this.parameterFormats = parameterFormats;
+    this.parameterBuffers = parameterBuffers;
+    this.resultFieldFormats = resultFieldFormats;
+    this.handler = handler;
+    this.rows = new PackedRowDataSet();
+    this.notices = new ArrayList<>();
+  }
+
+  private class Handler implements ParseComplete, ParameterDescriptions, RowDescription, NoData, BindComplete, DataRow,
+      EmptyQuery, CommandComplete, ReportNotice, CommandError, ReadyForQuery {
+
+    @Override
+    public String toString() {
+      return "Batch Execute";
+    }
+
+    @Override
+    public Action notice(Notice notice) {
+      notices.add(notice);
+      return Action.Resume;
+    }
+
+    @Override
+    public Action parseComplete() {
+      return Action.Resume;
+    }
+
+    @Override
+    public Action parameterDescriptions(TypeRef[] types) {
+      describedParameterTypes = types;
+      return Action.Resume;
+    }
+
+    @Override
+    public Action rowDescription(ResultField[] fields) throws IOException {
+
+      // Statements are always described as "Text", fix formats to match what is requested in the executions
+
+      for (int idx = 0; idx < fields.length && resultFieldFormats.length != 0; ++idx) {
+        FieldFormat format = resultFieldFormats[min(idx, resultFieldFormats.length - 1)].getFormat();
+        fields[idx].setFormat(format);
+      }
+
+      handler.handlePrepared(preparedCount++, describedParameterTypes, fields, notices);
+
+      notices = new ArrayList<>();
+
+      return Action.Resume;
+    }
+
+    @Override
+    public Action noData() throws IOException {
+      return rowDescription(EMPTY_FIELDS);
+    }
+
+    @Override
+    public Action bindComplete() {
+      return Action.Resume;
+    }
+
+    @Override
+    public Action rowData(ByteBuf data) {
+      rows.append(data);
+      return Action.Resume;
+    }
+
+    @Override
+    public Action emptyQuery() throws IOException {
+      return commandComplete(null, null, null);
+    }
+
+    @Override
+    public Action commandComplete(String command, Long rowsAffected, Long insertedOid) throws IOException {
+
+      try {
+        handler.handleComplete(executionStatements[executedCount++], command, rowsAffected, insertedOid, rows, notices);
+      }
+      finally {
+        release(rows);
+        rows = new PackedRowDataSet();
+        notices = new ArrayList<>();
+      }
+
+      return Action.Resume;
+    }
+
+    @Override
+    public Action error(Notice error) throws IOException {
+
+      try {
+        handler.handleError(new NoticeException(error), notices);
+      }
+      finally {
+        release(rows);
+        rows = new PackedRowDataSet();
+      }
+
+      return Action.Resume;
+    }
+
+    @Override
+    public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
+      handler.handleReady(txnStatus);
+      return Action.Complete;
+    }
+
+    @Override
+    public void exception(Throwable cause) throws IOException {
+
+      try {
+        handler.handleError(cause, notices);
+      }
+      finally {
+        release(rows);
+      }
+
+    }
+
+  }
+
+  @Override
+  public ProtocolHandler createHandler() {
+    return new Handler();
+  }
+
+  @Override
+  public void execute(ProtocolChannel channel) throws IOException {
+
+    for (int statementIdx = 0; statementIdx < statementNames.length; ++statementIdx) {
+      channel
+          .writeParse(statementNames[statementIdx], sqlText, statementParameterTypes[statementIdx])
+          .writeDescribe(Statement, statementNames[statementIdx]);
+    }
+
+    for (int executionIdx = 0; executionIdx < executionStatements.length; ++executionIdx) {
+      channel
+          .writeBind(null, statementNames[executionStatements[executionIdx]],
+              parameterFormats[executionIdx], parameterBuffers[executionIdx], resultFieldFormats)
+          .writeExecute(null, 0);
+    }
+
+    channel
+        .writeSync()
+        .flush();
+  }
+
+}
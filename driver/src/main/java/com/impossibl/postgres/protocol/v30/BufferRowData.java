@@ -116,6 +116,32 @@ public class BufferRowData extends DefaultByteBufHolder implements RowData, Refe
     fieldOffsets = decodeFieldOffsets(content());
   }
 
+  /**
+   * Length of the row's fields in {@code DataRow} message payload format.
+   *
+   * @return Length in bytes
+   */
+  int getPayloadLength() {
+    decodeFieldOffsetsIfNeeded();
+
+    return 2 + (fieldOffsets.length != 0 ? content().writerIndex() - fieldOffsets[0] : 0);
+  }
+
+  /**
+   * Writes the row's fields in {@code DataRow} message payload format.
+   *
+   * @param out Buffer to write the payload to
+   */
+  void writePayload(ByteBuf out) {
+    decodeFieldOffsetsIfNeeded();
+
+    out.writeShort(fieldOffsets.length);
+    if (fieldOffsets.length != 0) {
+      ByteBuf buffer = content();
+      out.writeBytes(buffer, fieldOffsets[0], buffer.writerIndex() - fieldOffsets[0]);
+    }
+  }
+
   @Override
   public int getFieldCount() {
     decodeFieldOffsetsIfNeeded();
@@ -167,6 +193,49 @@ public class BufferRowData extends DefaultByteBufHolder implements RowData, Refe
 
   }
 
+  private int getFieldDataOffset(int fieldIdx) {
+    decodeFieldOffsetsIfNeeded();
+
+    return fieldOffsets[fieldIdx] + 4;
+  }
+
+  @Override
+  public boolean isNull(int fieldIdx) {
+    decodeFieldOffsetsIfNeeded();
+
+    return content().getInt(fieldOffsets[fieldIdx]) == -1;
+  }
+
+  @Override
+  public boolean getBool(int fieldIdx) {
+    return content().getByte(getFieldDataOffset(fieldIdx)) != 0;
+  }
+
+  @Override
+  public short getInt2(int fieldIdx) {
+    return content().getShort(getFieldDataOffset(fieldIdx));
+  }
+
+  @Override
+  public int getInt4(int fieldIdx) {
+    return content().getInt(getFieldDataOffset(fieldIdx));
+  }
+
+  @Override
+  public long getInt8(int fieldIdx) {
+    return content().getLong(getFieldDataOffset(fieldIdx));
+  }
+
+  @Override
+  public float getFloat4(int fieldIdx) {
+    return content().getFloat(getFieldDataOffset(fieldIdx));
+  }
+
+  @Override
+  public double getFloat8(int fieldIdx) {
+    return content().getDouble(getFieldDataOffset(fieldIdx));
+  }
+
   @Override
   public UpdatableRowData duplicateForUpdate() {
     decodeFieldOffsetsIfNeeded();
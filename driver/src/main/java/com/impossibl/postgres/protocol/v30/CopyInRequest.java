@@ -42,34 +42,194 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
 import com.impossibl.postgres.system.NoticeException;
+import com.impossibl.postgres.utils.Await;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultFileRegion;
+
+/**
+ * Executes a {@code COPY ... FROM STDIN} command.
+ *
+ * Unlike other requests, the copy data is not written when the request is executed
+ * on the event loop. After submitting the request the caller must invoke
+ * {@link #transfer(Channel, ProtocolChannel, long)}, which streams the data from the calling thread
+ * and applies back pressure by waiting for pending writes to be flushed whenever the
+ * channel's write buffer exceeds its high watermark.
+ */
 public class CopyInRequest implements ServerRequest {
 
+  /**
+   * Source of the data sent in a copy operation.
+   */
+  interface Source {
+
+    /**
+     * Writes the next {@code CopyData} message to the channel.
+     *
+     * @param channel Channel to write message to.
+     * @return {@code true} if a message was written, {@code false} if the source is exhausted.
+     * @throws IOException If an error occurs reading the source.
+     */
+    boolean writeNext(ProtocolChannel channel) throws IOException;
+
+  }
+
   private String sql;
-  private InputStream stream;
+  private Source source;
   private CopyFromHandler handler;
   private List<Notice> notices;
+  private CountDownLatch ready;
+  private volatile boolean started;
+  private volatile boolean finished;
+  private volatile IOException sourceError;
 
-  CopyInRequest(String sql, InputStream stream, CopyFromHandler handler) {
+  CopyInRequest(String sql, Source source, CopyFromHandler handler) {
     this.sql = sql;
-    this.stream = stream;
+    this.source = source;
     this.handler = handler;
     this.notices = new ArrayList<>();
+    this.ready = new CountDownLatch(1);
   }
 
-  private class Handler implements CopyInResponse, RowDescription, EmptyQuery, CommandComplete, CommandError, ReportNotice, ReadyForQuery {
+  /**
+   * Streams the source data to the server, must be called (from a thread other than the
+   * channel's event loop) after the request has been submitted.
+   *
+   * @param channel Channel the request was submitted to.
+   * @param protocolChannel Protocol channel for writing messages.
+   * @param timeout Maximum time (in milliseconds) to wait for the server to make progress; a
+   *                value less than one waits indefinitely.
+   * @throws BlockingReadTimeoutException If the server makes no progress within {@code timeout}.
+   */
+  void transfer(Channel channel, ProtocolChannel protocolChannel, long timeout) throws BlockingReadTimeoutException {
+
+    // Wait for the server to enter copy mode (or fail the command)
+    if (!Await.awaitUninterruptibly(timeout, MILLISECONDS, ready::await)) {
+      throw new BlockingReadTimeoutException();
+    }
+
+    if (!started || finished) return;
+
+    try {
 
-    boolean started = false;
+      while (!finished && channel.isActive() && source.writeNext(protocolChannel)) {
+
+        if (!channel.isWritable()) {
+          // Wait for the server to catch up
+          awaitFlush(protocolChannel, timeout);
+        }
+
+      }
+
+      protocolChannel.writeCopyDone();
+    }
+    catch (IOException e) {
+      sourceError = e;
+      try {
+        protocolChannel.writeCopyFail(e.getMessage());
+      }
+      catch (IOException ignored) {
+        // Connection failed, error will be reported via handler
+      }
+    }
+
+    // Ensure all data (e.g. file regions) has been written before the caller can release the source
+    awaitFlush(protocolChannel, timeout);
+  }
+
+  private static void awaitFlush(ProtocolChannel protocolChannel, long timeout) throws BlockingReadTimeoutException {
+    ChannelFuture flushed = protocolChannel.flushFuture();
+    if (!Await.awaitUninterruptibly(timeout, MILLISECONDS, flushed::await)) {
+      throw new BlockingReadTimeoutException();
+    }
+  }
+
+  static Source source(ByteBuf data, int messageSize) {
+    ByteBuf remaining = data.duplicate();
+    return channel -> {
+      if (!remaining.isReadable()) return false;
+
+      ByteBuf message = remaining.readSlice(Math.min(remaining.readableBytes(), messageSize));
+      channel.writeCopyData(message);
+      return true;
+    };
+  }
+
+  static Source source(ReadableByteChannel data, int messageSize) {
+    return channel -> {
+      ByteBuf message = channel.alloc().buffer(messageSize, messageSize);
+      try {
+
+        // Fill message or reach end of data
+        int read = 0;
+        while (message.isWritable() && read != -1) {
+          ByteBuffer target = message.nioBuffer(message.writerIndex(), message.writableBytes());
+          read = data.read(target);
+          if (read > 0) {
+            message.writerIndex(message.writerIndex() + read);
+          }
+        }
+
+        if (!message.isReadable()) return false;
+
+        channel.writeCopyData(message);
+        return true;
+      }
+      finally {
+        message.release();
+      }
+    };
+  }
+
+  static Source fileSource(FileChannel data, int messageSize) throws IOException {
+    long end = data.size();
+    return channel -> {
+      long position = data.position();
+      if (position >= end) return false;
+
+      long count = Math.min(end - position, messageSize);
+      channel.writeCopyData(new FileChannelRegion(data, position, count));
+      data.position(position + count);
+      return true;
+    };
+  }
+
+  /**
+   * File region that leaves the file channel open when released; the
+   * channel is owned by the caller.
+   */
+  private static class FileChannelRegion extends DefaultFileRegion {
+
+    FileChannelRegion(FileChannel file, long position, long count) {
+      super(file, position, count);
+    }
 
     @Override
-    public InputStream copyIn(CopyFormat format, FieldFormat[] columnFormats) {
+    protected void deallocate() {
+    }
+
+  }
+
+  private class Handler implements CopyInResponse, RowDescription, EmptyQuery, CommandComplete, CommandError, ReportNotice, ReadyForQuery {
+
+    @Override
+    public Action copyIn(ProtocolChannel channel, CopyFormat format, FieldFormat[] columnFormats) {
       started = true;
-      return stream;
+      ready.countDown();
+      return Action.Resume;
     }
 
     @Override
@@ -90,6 +250,7 @@ public class CopyInRequest implements ServerRequest {
 
     @Override
     public Action commandComplete(String command, Long rowsAffected, Long insertedOid) throws IOException {
+      finish();
       if (!started) {
         handler.handleError(new IOException("Command Not Initiated: COPY IN"), notices);
       }
@@ -101,21 +262,29 @@ public class CopyInRequest implements ServerRequest {
 
     @Override
     public Action error(Notice notice) throws IOException {
-      handler.handleError(new NoticeException(notice), notices);
+      finish();
+      handler.handleError(sourceError != null ? sourceError : new NoticeException(notice), notices);
       return Action.Resume;
     }
 
     @Override
     public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
+      finish();
       handler.handleReady(txnStatus);
       return Action.Complete;
     }
 
     @Override
     public void exception(Throwable cause) throws IOException {
+      finish();
       handler.handleError(cause, notices);
     }
 
+    private void finish() {
+      finished = true;
+      ready.countDown();
+    }
+
   }
 
   @Override
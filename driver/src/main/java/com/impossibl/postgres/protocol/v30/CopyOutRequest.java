@@ -31,6 +31,7 @@ package com.impossibl.postgres.protocol.v30;
 import com.impossibl.postgres.protocol.CopyFormat;
 import com.impossibl.postgres.protocol.FieldFormat;
 import com.impossibl.postgres.protocol.Notice;
+import com.impossibl.postgres.protocol.RequestExecutor.CopyDataConsumer;
 import com.impossibl.postgres.protocol.RequestExecutor.CopyToHandler;
 import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.TransactionStatus;
@@ -45,26 +46,157 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
 import com.impossibl.postgres.system.NoticeException;
+import com.impossibl.postgres.utils.Await;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 
+/**
+ * Executes a {@code COPY ... TO STDOUT} command.
+ *
+ * Copy data received on the event loop is queued and delivered to a consumer on the thread
+ * calling {@link #transfer(CopyDataConsumer, long)}; the event loop never blocks on the consumer.
+ * When the queued data exceeds the high watermark, reading from the channel is suspended
+ * (via {@code autoRead}) until the consumer drains the queue below the low watermark.
+ */
 public class CopyOutRequest implements ServerRequest {
 
+  private static final ByteBuf END = Unpooled.buffer(0);
+
   private String sql;
-  private OutputStream stream;
+  private Channel channel;
+  private int highWatermark;
+  private int lowWatermark;
   private CopyToHandler handler;
   private List<Notice> notices;
+  private BlockingQueue<ByteBuf> queue;
+  private AtomicLong queuedBytes;
+  private volatile boolean paused;
+  private volatile boolean abandoned;
+  private boolean finished;
 
-  CopyOutRequest(String sql, OutputStream stream, CopyToHandler handler) {
+  CopyOutRequest(String sql, Channel channel, int highWatermark, int lowWatermark, CopyToHandler handler) {
     this.sql = sql;
-    this.stream = stream;
+    this.channel = channel;
+    this.highWatermark = highWatermark;
+    this.lowWatermark = Math.min(lowWatermark, highWatermark);
     this.handler = handler;
     this.notices = new ArrayList<>();
+    this.queue = new LinkedBlockingQueue<>();
+    this.queuedBytes = new AtomicLong();
+  }
+
+  /**
+   * Delivers received copy data to the consumer until the request completes, must be
+   * called (from a thread other than the channel's event loop) after the request has
+   * been submitted.
+   *
+   * If the consumer fails, the remaining data is discarded to keep the connection
+   * usable and the consumer's exception is rethrown.
+   *
+   * @param consumer Consumer of copy data.
+   * @param timeout Maximum time (in milliseconds) to wait for data from the server; a value
+   *                less than one waits indefinitely.
+   * @throws IOException If the consumer failed.
+   * @throws BlockingReadTimeoutException If no data is received within {@code timeout}.
+   */
+  void transfer(CopyDataConsumer consumer, long timeout) throws IOException {
+
+    Exception consumerError = null;
+
+    while (true) {
+
+      ByteBuf data = poll(timeout);
+      if (data == END) break;
+
+      int size = data.readableBytes();
+      try {
+        if (consumerError == null) {
+          consumer.consume(data);
+        }
+      }
+      catch (IOException | RuntimeException e) {
+        consumerError = e;
+      }
+      finally {
+        data.release();
+      }
+
+      if (queuedBytes.addAndGet(-size) <= lowWatermark && paused) {
+        channel.eventLoop().execute(this::resume);
+      }
+
+    }
+
+    if (consumerError instanceof IOException) {
+      throw (IOException) consumerError;
+    }
+    else if (consumerError != null) {
+      throw (RuntimeException) consumerError;
+    }
+  }
+
+  private ByteBuf poll(long timeout) throws BlockingReadTimeoutException {
+
+    ByteBuf[] data = new ByteBuf[1];
+    Await.awaitUninterruptibly(timeout, MILLISECONDS, (pollTimeout, pollTimeoutUnits) -> {
+      data[0] = queue.poll(pollTimeout, pollTimeoutUnits);
+      return data[0] != null;
+    });
+
+    if (data[0] == null) {
+      // Discard queued (and any later) data, the connection is unusable
+      abandoned = true;
+      for (ByteBuf queued = queue.poll(); queued != null; queued = queue.poll()) {
+        queued.release();
+      }
+      throw new BlockingReadTimeoutException();
+    }
+
+    return data[0];
+  }
+
+  // Pause & resume are only called from the event loop
+
+  private void pause() {
+    if (paused || queuedBytes.get() <= highWatermark) return;
+
+    paused = true;
+    channel.config().setAutoRead(false);
+
+    // Consumer may have drained the queue before observing the pause
+    if (queuedBytes.get() <= lowWatermark) {
+      resume();
+    }
+  }
+
+  private void resume() {
+    if (!paused || queuedBytes.get() > lowWatermark) return;
+
+    paused = false;
+    channel.config().setAutoRead(true);
+  }
+
+  private void finish() {
+    if (finished) return;
+    finished = true;
+
+    if (paused) {
+      paused = false;
+      channel.config().setAutoRead(true);
+    }
+    queue.add(END);
   }
 
   private class Handler implements CopyOutResponse, CopyData, CopyDone, CopyFail, RowDescription, EmptyQuery, CommandComplete, CommandError, ReportNotice, ReadyForQuery {
@@ -78,8 +210,12 @@ public class CopyOutRequest implements ServerRequest {
     }
 
     @Override
-    public void copyData(ByteBuf data) throws IOException {
-      data.readBytes(stream, data.readableBytes());
+    public void copyData(ByteBuf data) {
+      if (finished || abandoned) return;
+
+      queuedBytes.addAndGet(data.readableBytes());
+      queue.add(data.retainedSlice());
+      pause();
     }
 
     @Override
@@ -126,13 +262,23 @@ public class CopyOutRequest implements ServerRequest {
 
     @Override
     public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
-      handler.handleReady(txnStatus);
+      try {
+        handler.handleReady(txnStatus);
+      }
+      finally {
+        finish();
+      }
       return Action.Complete;
     }
 
     @Override
     public void exception(Throwable cause) throws IOException {
-      handler.handleError(cause, notices);
+      try {
+        handler.handleError(cause, notices);
+      }
+      finally {
+        finish();
+      }
     }
 
   }
@@ -33,7 +33,6 @@ import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.ExtendedQueryHandler;
 import com.impossibl.postgres.protocol.ResultField;
-import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeRef;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.BindComplete;
@@ -45,6 +44,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.NoData;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParameterDescriptions;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ParseComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.RowDescription;
@@ -77,7 +77,8 @@ class ExecuteQueryRequest implements ServerRequest {
   private ExtendedQueryHandler handler;
   private TypeRef[] describedParameterTypes;
   private ResultField[] describedResultFields;
-  private RowDataSet rows;
+  private PackedRowDataSet rows;
+  private RowStreamQueue stream;
   private List<Notice> notices;
 
   ExecuteQueryRequest(String sql, String portalName,
@@ -85,6 +86,7 @@ class ExecuteQueryRequest implements ServerRequest {
                       ByteBuf[] parameterBuffers,
                       FieldFormatRef[] resultFieldFormats,
                       int maxRows,
+                      RowStreamQueue stream,
                       ExtendedQueryHandler handler) {
     this.sql = sql;
     this.portalName = portalName;
@@ -95,7 +97,8 @@ class ExecuteQueryRequest implements ServerRequest {
     this.handler = handler;
     this.describedParameterTypes = EMPTY_TYPES;
     this.describedResultFields = EMPTY_FIELDS;
-    this.rows = new RowDataSet();
+    this.rows = new PackedRowDataSet();
+    this.stream = stream;
     this.notices = new ArrayList<>();
   }
 
@@ -103,7 +106,7 @@ class ExecuteQueryRequest implements ServerRequest {
     return maxRows == 0;
   }
 
-  private class Handler implements ParameterDescriptions, RowDescription, ParseComplete, BindComplete, NoData, DataRow, EmptyQuery, PortalSuspended, CommandComplete, ReportNotice, CommandError, ReadyForQuery {
+  private class Handler implements ParameterDescriptions, RowDescription, ParseComplete, BindComplete, NoData, DataRow, EmptyQuery, PortalSuspended, CommandComplete, ReportNotice, CommandError, ReadyForQuery, ReadComplete {
 
     @Override
     public String toString() {
@@ -141,6 +144,9 @@ class ExecuteQueryRequest implements ServerRequest {
         describedResultFields[idx].setFormat(format);
       }
 
+      if (stream != null) {
+        stream.describe(describedResultFields);
+      }
 
       return Action.Resume;
     }
@@ -152,12 +158,20 @@ class ExecuteQueryRequest implements ServerRequest {
 
     @Override
     public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+      if (stream != null) {
+        stream.add(data);
+      }
+      else {
+        rows.append(data);
+      }
       return Action.Resume;
     }
 
     @Override
     public Action noData() {
+      if (stream != null) {
+        stream.describe(null);
+      }
       return Action.Resume;
     }
 
@@ -207,7 +221,12 @@ class ExecuteQueryRequest implements ServerRequest {
 
     @Override
     public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
-      handler.handleReady(txnStatus);
+      try {
+        handler.handleReady(txnStatus);
+      }
+      finally {
+        finishStream();
+      }
       return Action.Complete;
     }
 
@@ -219,6 +238,20 @@ class ExecuteQueryRequest implements ServerRequest {
       }
       finally {
         release(rows);
+        finishStream();
+      }
+    }
+
+    @Override
+    public void readComplete() {
+      if (stream != null) {
+        stream.flush();
+      }
+    }
+
+    private void finishStream() {
+      if (stream != null) {
+        stream.finish();
       }
     }
 
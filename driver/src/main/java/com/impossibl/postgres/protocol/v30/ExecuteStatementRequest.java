@@ -38,7 +38,6 @@ package com.impossibl.postgres.protocol.v30;
 import com.impossibl.postgres.protocol.FieldFormatRef;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.ExecuteHandler;
-import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.BindComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
@@ -46,6 +45,7 @@ import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.DataRow;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.EmptyQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.PortalSuspended;
+import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReadyForQuery;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.ReportNotice;
 import com.impossibl.postgres.system.NoticeException;
@@ -68,13 +68,14 @@ public class ExecuteStatementRequest implements ServerRequest {
   private FieldFormatRef[] resultFieldFormats;
   private int maxRows;
   private ExecuteHandler handler;
-  private RowDataSet rows;
+  private PackedRowDataSet rows;
+  private RowStreamQueue stream;
   private List<Notice> notices;
 
   ExecuteStatementRequest(String statementName, String portalName,
                           FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers,
                           FieldFormatRef[] resultFieldFormats, int maxRows,
-                          ExecuteHandler handler) {
+                          RowStreamQueue stream, ExecuteHandler handler) {
     this.statementName = statementName;
     this.portalName = portalName;
     this.parameterFormats = parameterFormats;
@@ -82,7 +83,8 @@ public class ExecuteStatementRequest implements ServerRequest {
     this.resultFieldFormats = resultFieldFormats;
     this.maxRows = maxRows;
     this.handler = handler;
-    this.rows = new RowDataSet();
+    this.rows = new PackedRowDataSet();
+    this.stream = stream;
     this.notices = new ArrayList<>();
   }
 
@@ -90,7 +92,7 @@ public class ExecuteStatementRequest implements ServerRequest {
     return maxRows == 0;
   }
 
-  private class Handler implements BindComplete, DataRow, EmptyQuery, PortalSuspended, CommandComplete, ReportNotice, CommandError, ReadyForQuery {
+  private class Handler implements BindComplete, DataRow, EmptyQuery, PortalSuspended, CommandComplete, ReportNotice, CommandError, ReadyForQuery, ReadComplete {
 
     @Override
     public String toString() {
@@ -110,7 +112,12 @@ public class ExecuteStatementRequest implements ServerRequest {
 
     @Override
     public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+      if (stream != null) {
+        stream.add(data);
+      }
+      else {
+        rows.append(data);
+      }
       return Action.Resume;
     }
 
@@ -160,7 +167,12 @@ public class ExecuteStatementRequest implements ServerRequest {
 
     @Override
     public Action readyForQuery(TransactionStatus txnStatus) throws IOException {
-      handler.handleReady(txnStatus);
+      try {
+        handler.handleReady(txnStatus);
+      }
+      finally {
+        finishStream();
+      }
       return Action.Complete;
     }
 
@@ -172,10 +184,24 @@ public class ExecuteStatementRequest implements ServerRequest {
       }
       finally {
         release(rows);
+        finishStream();
       }
 
     }
 
+    @Override
+    public void readComplete() {
+      if (stream != null) {
+        stream.flush();
+      }
+    }
+
+    private void finishStream() {
+      if (stream != null) {
+        stream.finish();
+      }
+    }
+
   }
 
   @Override
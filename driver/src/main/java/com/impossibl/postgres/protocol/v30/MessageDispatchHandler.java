@@ -35,6 +35,7 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeOid;
 import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.system.metrics.Metrics;
 
 import static com.impossibl.postgres.protocol.TransactionStatus.Active;
 import static com.impossibl.postgres.protocol.TransactionStatus.Failed;
@@ -43,11 +44,12 @@ import static com.impossibl.postgres.protocol.v30.ProtocolHandlers.SYNC;
 import static com.impossibl.postgres.utils.ByteBufs.readCString;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Writer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
 import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedDeque;
 
 import static java.util.Arrays.asList;
@@ -56,6 +58,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
 import io.netty.util.ReferenceCountUtil;
 
 
@@ -67,11 +70,28 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
   private Charset charset;
   private Writer traceWriter;
   private boolean requiresFlush = false;
+  private boolean flushScheduled = false;
+  private Metrics metrics;
+  private Map<ProtocolHandler, RequestTiming> requestTimings;
 
-  MessageDispatchHandler(Charset charset, Writer traceWriter) {
+  private static class RequestTiming {
+
+    final Class<?> requestType;
+    final long started;
+
+    RequestTiming(Class<?> requestType, long started) {
+      this.requestType = requestType;
+      this.started = started;
+    }
+
+  }
+
+  MessageDispatchHandler(Charset charset, Writer traceWriter, Metrics metrics) {
     this.protocolHandlers = new ConcurrentLinkedDeque<>();
     this.charset = charset;
     this.traceWriter = traceWriter;
+    this.metrics = metrics;
+    this.requestTimings = metrics.isEnabled() ? new IdentityHashMap<>() : null;
   }
 
   void setDefaultHandler(ProtocolHandler defaultHandler) {
@@ -82,6 +102,27 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     return transactionStatus;
   }
 
+  Charset getCharset() {
+    return charset;
+  }
+
+  Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Records the latency of the request that produced the handler,
+   * if it is being timed.
+   */
+  private void completed(ProtocolHandler handler) {
+    if (requestTimings == null) return;
+
+    RequestTiming timing = requestTimings.remove(handler);
+    if (timing != null) {
+      metrics.requestLatency(timing.requestType).record(System.nanoTime() - timing.started);
+    }
+  }
+
   @Override
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws IOException {
 
@@ -94,13 +135,36 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
       ProtocolHandler requestProtocolHandler = request.createHandler();
       if (requestProtocolHandler != null) {
 
+        if (!ctx.channel().isActive()) {
+          // No response will ever be dispatched, fail the request immediately
+          ClosedChannelException cause = new ClosedChannelException();
+          requestProtocolHandler.exception(ctx.channel(), cause);
+          promise.setFailure(cause);
+          return;
+        }
+
         protocolHandlers.offer(requestProtocolHandler);
 
+        if (requestTimings != null) {
+          requestTimings.put(requestProtocolHandler, new RequestTiming(request.getClass(), System.nanoTime()));
+        }
+
       }
 
-      // Execute the request
+      // Execute the request (deferring its flush to coalesce it with
+      // any other requests already queued on the event loop)
 
-      request.execute(new ProtocolChannel(ctx.channel(), ctx, charset));
+      try {
+        request.execute(new ProtocolChannel(ctx.channel(), () -> scheduleFlush(ctx), charset));
+      }
+      catch (IOException | RuntimeException e) {
+        // Report to request's handler, as long as it hasn't been dispatched to already
+        if (requestProtocolHandler != null && protocolHandlers.removeLastOccurrence(requestProtocolHandler)) {
+          completed(requestProtocolHandler);
+          requestProtocolHandler.exception(ctx.channel(), e);
+        }
+        throw e;
+      }
 
       promise.setSuccess();
     }
@@ -110,30 +174,64 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       ByteBuf buf = (ByteBuf) msg;
 
-      trace('<', (char) buf.getByte(0));
+      if (buf.isReadable()) {
+        trace('<', (char) buf.getByte(0));
+        metrics.getMessagesOut().increment();
+        metrics.getBytesOut().add(buf.readableBytes());
+      }
 
       ctx.write(msg,  promise);
 
       requiresFlush = true;
     }
+    else if (msg instanceof FileRegion) {
+
+      // Write region (its message header was traced separately)
+
+      metrics.getBytesOut().add(((FileRegion) msg).count());
+
+      ctx.write(msg, promise);
+
+      requiresFlush = true;
+    }
 
   }
 
   @Override
-  public void flush(ChannelHandlerContext ctx) throws Exception {
+  public void flush(ChannelHandlerContext ctx) {
     trace("\n");
     flushTrace();
     if (requiresFlush) {
-      super.flush(ctx);
+      ctx.flush();
       requiresFlush = false;
     }
   }
 
+  /**
+   * Schedules a flush to run after the tasks currently queued on the
+   * event loop. Requests submitted concurrently are written by those
+   * tasks and share a single flush (and usually a single packet).
+   *
+   * Must be called from the event loop.
+   */
+  private void scheduleFlush(ChannelHandlerContext ctx) {
+    if (flushScheduled) return;
+    flushScheduled = true;
+
+    ctx.executor().execute(() -> {
+      flushScheduled = false;
+      flush(ctx);
+    });
+  }
+
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object message) throws IOException {
 
     ByteBuf msg = (ByteBuf) message;
     try {
+      metrics.getMessagesIn().increment();
+      metrics.getBytesIn().add(msg.readableBytes());
+
       // Parse message header
 
       byte id = msg.readByte();
@@ -142,6 +240,10 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       trace('>', (char) id);
 
+      if (id == ROW_DATA_MSG_ID) {
+        metrics.getRowsReceived().increment();
+      }
+
       // Dispatch to current request handler
 
       ProtocolHandler protocolHandler = protocolHandlers.peek();
@@ -158,6 +260,12 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
   public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
     trace("\n");
     flushTrace();
+
+    ProtocolHandler protocolHandler = protocolHandlers.peek();
+    if (protocolHandler instanceof ProtocolHandler.ReadComplete) {
+      ((ProtocolHandler.ReadComplete) protocolHandler).readComplete();
+    }
+
     super.channelReadComplete(ctx);
   }
 
@@ -173,6 +281,9 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
     // Dispatch to current request handler (if any)
 
     ProtocolHandler handler = protocolHandlers.poll();
+    if (handler != null) {
+      completed(handler);
+    }
     handler = handler != null ? handler : defaultHandler;
 
     if (handler == null) return;
@@ -235,18 +346,18 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
 
       case Complete:
         trace("*");
-        protocolHandlers.pop();
+        completed(protocolHandlers.pop());
         break;
 
       case CompletePassing:
         trace("*^");
-        protocolHandlers.pop();
+        completed(protocolHandlers.pop());
         dispatch(ctx, id, data.resetReaderIndex(), protocolHandlers.peek());
         break;
 
       case Sync:
         trace("$");
-        protocolHandlers.pop();
+        completed(protocolHandlers.pop());
         protocolHandlers.addFirst(SYNC);
         break;
     }
@@ -603,16 +714,7 @@ public class MessageDispatchHandler extends ChannelDuplexHandler {
       fieldFormats[fieldFormatIdx] = buffer.readUnsignedShort() == 0 ? FieldFormat.Text : FieldFormat.Binary;
     }
 
-    InputStream stream = handler.copyIn(copyFormat, fieldFormats);
-    if (stream == null) {
-      throw new IOException("No InputStream for Copy-In");
-    }
-
-    new ProtocolChannel(ctx.channel(), charset)
-        .writeCopyData(stream)
-        .flush();
-
-    return ProtocolHandler.Action.Resume;
+    return handler.copyIn(new ProtocolChannel(ctx.channel(), charset), copyFormat, fieldFormats);
   }
 
   private ProtocolHandler.Action receiveCopyOutResponse(ByteBuf buffer, ProtocolHandler.CopyOutResponse handler) throws IOException {
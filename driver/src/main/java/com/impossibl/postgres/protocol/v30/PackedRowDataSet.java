@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.RowData;
+import com.impossibl.postgres.protocol.RowDataSet;
+import com.impossibl.postgres.protocol.UpdatableRowData;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.ReferenceCounted;
+
+/**
+ * Row data set that packs {@code DataRow} message payloads into large
+ * contiguous chunks instead of retaining one message buffer per row.
+ *
+ * Payloads are copied as they are received, which allows the network buffers
+ * to be released immediately. Each row costs a fixed 12 bytes of index plus
+ * its payload; {@link RowData} views over the chunks are created on demand
+ * when rows are borrowed.
+ */
+public class PackedRowDataSet extends RowDataSet {
+
+  private static final int MIN_CHUNK_SIZE = 4 * 1024;
+  private static final int MAX_CHUNK_SIZE = 256 * 1024;
+
+  private List<ByteBuf> chunks;
+  private ByteBuf currentChunk;
+  private long[] rowPositions;
+  private int[] rowLengths;
+  private int rowCount;
+  private long byteSize;
+  private int borrowedIndex;
+  private RowData borrowedRow;
+
+  public PackedRowDataSet() {
+    this.chunks = new ArrayList<>();
+    this.rowPositions = new long[16];
+    this.rowLengths = new int[16];
+    this.borrowedIndex = -1;
+  }
+
+  /**
+   * Appends a row by copying the readable bytes of a {@code DataRow}
+   * message payload. The payload buffer is not retained.
+   *
+   * @param data {@code DataRow} message payload
+   */
+  public void append(ByteBuf data) {
+
+    int length = data.readableBytes();
+
+    reserve(data.alloc(), length).writeBytes(data, data.readerIndex(), length);
+  }
+
+  /**
+   * Indexes a new row of the given length and returns the chunk its
+   * payload must be written to.
+   */
+  private ByteBuf reserve(ByteBufAllocator alloc, int length) {
+
+    if (currentChunk == null || currentChunk.writableBytes() < length) {
+      currentChunk = allocateChunk(alloc, length);
+      chunks.add(currentChunk);
+    }
+
+    if (rowCount == rowPositions.length) {
+      rowPositions = Arrays.copyOf(rowPositions, rowCount * 2);
+      rowLengths = Arrays.copyOf(rowLengths, rowCount * 2);
+    }
+
+    rowPositions[rowCount] = ((long) (chunks.size() - 1) << 32) | currentChunk.writerIndex();
+    rowLengths[rowCount] = length;
+    rowCount++;
+    byteSize += length;
+
+    return currentChunk;
+  }
+
+  private ByteBuf allocateChunk(ByteBufAllocator alloc, int minSize) {
+    // Chunks grow geometrically so small results stay small
+    int size = currentChunk == null ? MIN_CHUNK_SIZE : min(currentChunk.capacity() * 2, MAX_CHUNK_SIZE);
+    size = max(size, minSize);
+    return alloc.buffer(size, size);
+  }
+
+  private ByteBuf slice(int index, boolean retained) {
+    if (index < 0 || index >= rowCount) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowCount);
+    }
+
+    long position = rowPositions[index];
+    ByteBuf chunk = chunks.get((int) (position >>> 32));
+    int offset = (int) position;
+    return retained ? chunk.retainedSlice(offset, rowLengths[index]) : chunk.slice(offset, rowLengths[index]);
+  }
+
+  private void removeIndex(int index) {
+    byteSize -= rowLengths[index];
+    System.arraycopy(rowPositions, index + 1, rowPositions, index, rowCount - index - 1);
+    System.arraycopy(rowLengths, index + 1, rowLengths, index, rowCount - index - 1);
+    rowCount--;
+    borrowedIndex = -1;
+    borrowedRow = null;
+  }
+
+  /**
+   * Number of bytes allocated to store the packed rows.
+   *
+   * @return Allocated size in bytes.
+   */
+  public int getCapacity() {
+    int capacity = 0;
+    for (ByteBuf chunk : chunks) {
+      capacity += chunk.capacity();
+    }
+    return capacity;
+  }
+
+  @Override
+  public long getByteSize() {
+    return byteSize;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return rowCount == 0;
+  }
+
+  @Override
+  public int size() {
+    return rowCount;
+  }
+
+  @Override
+  public RowData borrow(int index) {
+    // Result sets borrow the current row for every column access
+    if (index != borrowedIndex) {
+      borrowedRow = new BufferRowData(slice(index, false));
+      borrowedIndex = index;
+    }
+    return borrowedRow;
+  }
+
+  /**
+   * Appends a row by copying its encoded fields, in {@code DataRow} message
+   * payload format. Ownership of the row is transferred to the set, which
+   * releases it once copied.
+   *
+   * @param row Row to append
+   */
+  @Override
+  public void add(RowData row) {
+    try {
+
+      if (row instanceof BufferRowData) {
+        BufferRowData bufferRow = (BufferRowData) row;
+        bufferRow.writePayload(reserve(bufferRow.content().alloc(), bufferRow.getPayloadLength()));
+        return;
+      }
+
+      UpdatableRowData fieldsRow = row instanceof UpdatableRowData ? (UpdatableRowData) row : row.duplicateForUpdate();
+      try {
+        appendFields(fieldsRow.getFieldBuffers());
+      }
+      finally {
+        if (fieldsRow != row) {
+          ReferenceCountUtil.release(fieldsRow);
+        }
+      }
+
+    }
+    finally {
+      ReferenceCountUtil.release(row);
+    }
+  }
+
+  private void appendFields(ByteBuf[] fieldBuffers) {
+
+    ByteBufAllocator alloc = currentChunk != null ? currentChunk.alloc() : ByteBufAllocator.DEFAULT;
+
+    int length = 2;
+    for (ByteBuf fieldBuffer : fieldBuffers) {
+      length += 4;
+      if (fieldBuffer != null) {
+        length += fieldBuffer.writerIndex();
+        alloc = fieldBuffer.alloc();
+      }
+    }
+
+    ByteBuf chunk = reserve(alloc, length);
+
+    chunk.writeShort(fieldBuffers.length);
+    for (ByteBuf fieldBuffer : fieldBuffers) {
+      if (fieldBuffer == null) {
+        chunk.writeInt(-1);
+      }
+      else {
+        chunk.writeInt(fieldBuffer.writerIndex());
+        chunk.writeBytes(fieldBuffer, 0, fieldBuffer.writerIndex());
+      }
+    }
+  }
+
+  @Override
+  public RowData copy(int index) {
+    return new BufferRowData(slice(index, true));
+  }
+
+  @Override
+  public RowData take(int index) {
+    RowData row = copy(index);
+    removeIndex(index);
+    return row;
+  }
+
+  @Override
+  public void remove(int index) {
+    slice(index, false);
+    removeIndex(index);
+  }
+
+  @Override
+  public List<RowData> borrowAll() {
+    return new AbstractList<RowData>() {
+
+      @Override
+      public RowData get(int index) {
+        return borrow(index);
+      }
+
+      @Override
+      public int size() {
+        return rowCount;
+      }
+
+    };
+  }
+
+  @Override
+  protected void deallocate() {
+    chunks.forEach(ReferenceCountUtil::release);
+    chunks.clear();
+    currentChunk = null;
+    borrowedRow = null;
+  }
+
+  @Override
+  public ReferenceCounted touch(Object hint) {
+    chunks.forEach(chunk -> chunk.touch(hint));
+    return this;
+  }
+
+}
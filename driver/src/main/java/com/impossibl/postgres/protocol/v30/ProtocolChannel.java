@@ -52,10 +52,12 @@ import java.util.Map;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelOutboundInvoker;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.FileRegion;
 
 public class ProtocolChannel {
 
@@ -76,15 +78,19 @@ public class ProtocolChannel {
   private static final byte COPY_DATA_MSG_ID = 'd';
 
   private Channel channel;
-  private ChannelOutboundInvoker flusher;
+  private Runnable flusher;
   private ByteBufAllocator alloc;
   private Charset charset;
 
   public ProtocolChannel(Channel channel, Charset charset) {
-    this(channel, channel, charset);
+    this(channel, channel::flush, charset);
   }
 
   public ProtocolChannel(Channel channel, ChannelOutboundInvoker flusher, Charset charset) {
+    this(channel, flusher::flush, charset);
+  }
+
+  ProtocolChannel(Channel channel, Runnable flusher, Charset charset) {
     this.channel = channel;
     this.flusher = flusher;
     this.alloc = channel.alloc();
@@ -95,11 +101,19 @@ public class ProtocolChannel {
     return channel.pipeline();
   }
 
+  ByteBufAllocator alloc() {
+    return alloc;
+  }
+
   ProtocolChannel flush() {
-    flusher.flush();
+    flusher.run();
     return this;
   }
 
+  ChannelFuture flushFuture() {
+    return channel.writeAndFlush(Unpooled.EMPTY_BUFFER);
+  }
+
   ProtocolChannel writeSSLRequest() {
 
     ByteBuf msg = alloc.buffer();
@@ -302,11 +316,26 @@ public class ProtocolChannel {
 
   ProtocolChannel writeCopyData(ByteBuf data) throws IOException {
 
-    ByteBuf msg = beginMessage(COPY_DATA_MSG_ID);
+    ByteBuf header = alloc.buffer(5);
 
-    msg.writeBytes(data);
+    header.writeByte(COPY_DATA_MSG_ID);
+    header.writeInt(4 + data.readableBytes());
 
-    endMessage(msg);
+    // Header & data are written as a single (composite) message to avoid copying the data
+    channel.write(Unpooled.wrappedBuffer(header, data.retain()), channel.voidPromise());
+
+    return this;
+  }
+
+  ProtocolChannel writeCopyData(FileRegion data) throws IOException {
+
+    ByteBuf header = alloc.buffer(5);
+
+    header.writeByte(COPY_DATA_MSG_ID);
+    header.writeInt(4 + (int) data.count());
+
+    channel.write(header, channel.voidPromise());
+    channel.write(data, channel.voidPromise());
 
     return this;
   }
@@ -322,7 +351,9 @@ public class ProtocolChannel {
 
     ByteBuf msg = beginMessage(COPY_FAIL_MSG_ID);
 
-    msg.writeCharSequence(message, charset);
+    writeCString(msg, nullToEmpty(message), charset);
+
+    endMessage(msg);
 
     return this;
   }
@@ -43,7 +43,6 @@ import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.TypeRef;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
 
 import io.netty.buffer.ByteBuf;
@@ -189,7 +188,7 @@ public interface ProtocolHandler {
 
   interface CopyInResponse extends ProtocolHandler {
 
-    InputStream copyIn(CopyFormat format, FieldFormat[] fieldFormats) throws IOException;
+    Action copyIn(ProtocolChannel channel, CopyFormat format, FieldFormat[] fieldFormats) throws IOException;
 
   }
 
@@ -222,4 +221,13 @@ public interface ProtocolHandler {
 
   }
 
+  /**
+   * Notified after all messages from a single read of the channel have been dispatched.
+   */
+  interface ReadComplete extends ProtocolHandler {
+
+    void readComplete() throws IOException;
+
+  }
+
 }
@@ -31,7 +31,6 @@ package com.impossibl.postgres.protocol.v30;
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.QueryHandler;
 import com.impossibl.postgres.protocol.ResultField;
-import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
@@ -58,14 +57,14 @@ public class QueryRequest implements ServerRequest {
   private String query;
   private QueryHandler handler;
   private ResultField[] resultFields;
-  private RowDataSet rows;
+  private PackedRowDataSet rows;
   private List<Notice> notices;
 
   QueryRequest(String query, QueryHandler handler) {
     this.query = query;
     this.handler = handler;
     this.resultFields = EMPTY_FIELDS;
-    this.rows = new RowDataSet();
+    this.rows = new PackedRowDataSet();
     this.notices = new ArrayList<>();
   }
 
@@ -90,7 +89,7 @@ public class QueryRequest implements ServerRequest {
 
     @Override
     public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+      rows.append(data);
       return Action.Resume;
     }
 
@@ -107,7 +106,7 @@ public class QueryRequest implements ServerRequest {
       }
       finally {
         release(rows);
-        rows = new RowDataSet();
+        rows = new PackedRowDataSet();
         resultFields = EMPTY_FIELDS;
       }
 
@@ -122,7 +121,7 @@ public class QueryRequest implements ServerRequest {
       }
       finally {
         release(rows);
-        rows = new RowDataSet();
+        rows = new PackedRowDataSet();
         resultFields = EMPTY_FIELDS;
       }
 
@@ -137,7 +136,7 @@ public class QueryRequest implements ServerRequest {
       }
       finally {
         release(rows);
-        rows = new RowDataSet();
+        rows = new PackedRowDataSet();
       }
 
     }
@@ -37,7 +37,6 @@ package com.impossibl.postgres.protocol.v30;
 
 import com.impossibl.postgres.protocol.Notice;
 import com.impossibl.postgres.protocol.RequestExecutor.ResumeHandler;
-import com.impossibl.postgres.protocol.RowDataSet;
 import com.impossibl.postgres.protocol.TransactionStatus;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandComplete;
 import com.impossibl.postgres.protocol.v30.ProtocolHandler.CommandError;
@@ -61,14 +60,14 @@ public class ResumePortalRequest implements ServerRequest {
   private String portalName;
   private int maxRows;
   private ResumeHandler handler;
-  private RowDataSet rows;
+  private PackedRowDataSet rows;
   private List<Notice> notices;
 
   ResumePortalRequest(String portalName, int maxRows, ResumeHandler handler) {
     this.portalName = portalName;
     this.maxRows = maxRows;
     this.handler = handler;
-    this.rows = new RowDataSet();
+    this.rows = new PackedRowDataSet();
     this.notices = new ArrayList<>();
   }
 
@@ -85,7 +84,7 @@ public class ResumePortalRequest implements ServerRequest {
 
     @Override
     public Action rowData(ByteBuf data) {
-      rows.add(new BufferRowData(data.retain()));
+      rows.append(data);
       return Action.Resume;
     }
 
@@ -0,0 +1,292 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.RequestExecutor.RowStream;
+import com.impossibl.postgres.protocol.ResultField;
+import com.impossibl.postgres.protocol.RowDataSet;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * Queue of rows between the event loop, receiving {@code DataRow} messages, and the
+ * consumer of a {@link RowStream}.
+ *
+ * Rows are packed into segments that are handed to the consumer after each read from
+ * the channel. The event loop never blocks on the consumer; when the queued segments
+ * exceed the high watermark, reading from the channel is suspended (via {@code autoRead})
+ * until the consumer drains the queue below the low watermark.
+ */
+class RowStreamQueue implements RowStream {
+
+  private static final PackedRowDataSet END = new PackedRowDataSet();
+
+  private Channel channel;
+  private int highWatermark;
+  private int lowWatermark;
+  private BlockingQueue<PackedRowDataSet> queue;
+  private AtomicLong queuedBytes;
+  private CountDownLatch described;
+  private ResultField[] fields;
+  private PackedRowDataSet pending;
+  private PackedRowDataSet current;
+  private int currentIndex;
+  private volatile boolean paused;
+  private volatile boolean unbounded;
+  private volatile boolean closed;
+  private boolean finished;
+  private boolean exhausted;
+
+  RowStreamQueue(Channel channel, int highWatermark, int lowWatermark) {
+    this.channel = channel;
+    this.highWatermark = highWatermark;
+    this.lowWatermark = Math.min(lowWatermark, highWatermark);
+    this.queue = new LinkedBlockingQueue<>();
+    this.queuedBytes = new AtomicLong();
+    this.described = new CountDownLatch(1);
+  }
+
+  @Override
+  public ResultField[] awaitFields(long timeout) throws BlockingReadTimeoutException {
+    await(described, timeout);
+    return fields;
+  }
+
+  @Override
+  public RowDataSet take(int maxRows, long timeout) throws BlockingReadTimeoutException {
+    if (exhausted) return null;
+
+    if (current == null) {
+      current = poll(timeout);
+      currentIndex = 0;
+      if (current == END) {
+        current = null;
+        exhausted = true;
+        return null;
+      }
+    }
+
+    int available = current.size() - currentIndex;
+    if (currentIndex == 0 && (maxRows <= 0 || maxRows >= available)) {
+      // Hand over the complete segment
+      RowDataSet rows = current;
+      current = null;
+      return rows;
+    }
+
+    int count = maxRows <= 0 ? available : Math.min(maxRows, available);
+    RowDataSet rows = new RowDataSet(count);
+    for (int idx = 0; idx < count; ++idx) {
+      rows.add(current.copy(currentIndex++));
+    }
+
+    if (currentIndex == current.size()) {
+      current.release();
+      current = null;
+    }
+
+    return rows;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+
+    if (current != null) {
+      current.release();
+      current = null;
+    }
+
+    channel.eventLoop().execute(() -> {
+      discard();
+      resume();
+    });
+  }
+
+  /**
+   * Stops limiting the queued rows; used to ensure requests submitted after this
+   * one can complete while the consumer is not reading the stream.
+   */
+  void unbound() {
+    if (unbounded) return;
+
+    unbounded = true;
+    channel.eventLoop().execute(this::resume);
+  }
+
+  private PackedRowDataSet poll(long timeout) throws BlockingReadTimeoutException {
+
+    PackedRowDataSet[] polled = new PackedRowDataSet[1];
+    await(() -> polled[0] != null, remaining -> polled[0] = queue.poll(remaining, NANOSECONDS), timeout);
+    PackedRowDataSet rows = polled[0];
+
+    if (rows != END && queuedBytes.addAndGet(-rows.getCapacity()) <= lowWatermark && paused) {
+      channel.eventLoop().execute(this::resume);
+    }
+
+    return rows;
+  }
+
+  private static void await(CountDownLatch latch, long timeout) throws BlockingReadTimeoutException {
+    await(() -> latch.getCount() == 0, remaining -> latch.await(remaining, NANOSECONDS), timeout);
+  }
+
+  private interface Wait {
+    void await(long remainingNanos) throws InterruptedException;
+  }
+
+  /**
+   * Waits until {@code done} or {@code timeout} (in milliseconds) elapses; a timeout
+   * less than one waits indefinitely. Interrupts do not end the wait, the thread's
+   * interrupt status is restored when it completes.
+   */
+  private static void await(BooleanSupplier done, Wait wait, long timeout) throws BlockingReadTimeoutException {
+
+    long deadline = timeout > 0 ? System.nanoTime() + MILLISECONDS.toNanos(timeout) : Long.MAX_VALUE;
+    boolean interrupted = false;
+    try {
+
+      while (!done.getAsBoolean()) {
+
+        long remaining = timeout > 0 ? deadline - System.nanoTime() : Long.MAX_VALUE;
+        if (remaining <= 0) {
+          throw new BlockingReadTimeoutException();
+        }
+
+        try {
+          wait.await(remaining);
+        }
+        catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+
+    }
+    finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private void discard() {
+    PackedRowDataSet rows;
+    while ((rows = queue.peek()) != null && rows != END) {
+      queue.poll();
+      queuedBytes.addAndGet(-rows.getCapacity());
+      rows.release();
+    }
+  }
+
+  // Remaining methods are only called from the event loop
+
+  void describe(ResultField[] fields) {
+    this.fields = fields;
+    described.countDown();
+  }
+
+  void add(ByteBuf data) {
+    if (finished || closed) return;
+
+    if (pending == null) {
+      pending = new PackedRowDataSet();
+    }
+    pending.append(data);
+  }
+
+  /**
+   * Hands the rows received since the last flush to the consumer.
+   */
+  void flush() {
+    if (pending == null) return;
+
+    PackedRowDataSet rows = pending;
+    pending = null;
+
+    if (closed) {
+      rows.release();
+      return;
+    }
+
+    queuedBytes.addAndGet(rows.getCapacity());
+    queue.add(rows);
+    pause();
+  }
+
+  void finish() {
+    if (finished) return;
+
+    flush();
+
+    finished = true;
+
+    if (closed) {
+      discard();
+    }
+
+    if (paused) {
+      paused = false;
+      channel.config().setAutoRead(true);
+    }
+
+    described.countDown();
+    queue.add(END);
+  }
+
+  private void pause() {
+    if (paused || unbounded || closed || queuedBytes.get() <= highWatermark) return;
+
+    paused = true;
+    channel.config().setAutoRead(false);
+
+    // Consumer may have drained the queue before observing the pause
+    if (queuedBytes.get() <= lowWatermark) {
+      resume();
+    }
+  }
+
+  private void resume() {
+    if (!paused || (!unbounded && !closed && queuedBytes.get() > lowWatermark)) return;
+
+    paused = false;
+    channel.config().setAutoRead(true);
+  }
+
+}
@@ -43,7 +43,13 @@ import com.impossibl.postgres.protocol.TypeRef;
 import com.impossibl.postgres.system.Configuration;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.Version;
+import com.impossibl.postgres.system.metrics.Metrics;
+import com.impossibl.postgres.utils.Await;
+import com.impossibl.postgres.utils.BlockingReadTimeoutException;
 
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_COPY_MESSAGE_SIZE;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_READ_BUFFER_WATERMARK_HIGH;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_READ_BUFFER_WATERMARK_LOW;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE;
 import static com.impossibl.postgres.system.SystemSettings.SQL_TRACE_FILE;
 
@@ -55,28 +61,53 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.SocketAddress;
+import java.nio.channels.Channels;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.Timer;
 
 
 class ServerConnection implements com.impossibl.postgres.protocol.ServerConnection, RequestExecutor {
 
+  private static final Logger logger = Logger.getLogger(ServerConnection.class.getName());
+
+  private static final int CANCEL_REQUEST_CODE = 80877102;
+
   private Channel channel;
   private ServerInfo serverInfo;
   private Version protocolVersion;
   private KeyData keyData;
   private ServerConnectionShared.Ref sharedRef;
   private SQLTrace sqlTrace;
+  private int copyMessageSize;
+  private int readBufferHigh;
+  private int readBufferLow;
+  private RowStreamQueue activeStream;
+  private List<ServerRequest> deferredRequests;
+  private final ReentrantLock copyInLock = new ReentrantLock();
+  private Metrics metrics;
 
   ServerConnection(Configuration config, Channel channel, ServerInfo serverInfo, Version protocolVersion, KeyData keyData, ServerConnectionShared.Ref sharedRef) {
     this.channel = channel;
@@ -84,6 +115,10 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     this.protocolVersion = protocolVersion;
     this.keyData = keyData;
     this.sharedRef = sharedRef;
+    this.copyMessageSize = config.getSetting(PROTOCOL_COPY_MESSAGE_SIZE);
+    this.readBufferHigh = config.getSetting(PROTOCOL_READ_BUFFER_WATERMARK_HIGH);
+    this.readBufferLow = config.getSetting(PROTOCOL_READ_BUFFER_WATERMARK_LOW);
+    this.metrics = getMessageDispatchHandler().getMetrics();
 
     if (config.getSetting(SQL_TRACE)) {
       OutputStream out = System.out;
@@ -177,6 +212,79 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     return channel.eventLoop();
   }
 
+  @Override
+  public Timer getTimer() {
+    return ServerConnectionShared.getTimer();
+  }
+
+  @Override
+  public ChannelFuture sendCancelRequest(long connectTimeout) {
+
+    if (keyData == null || (keyData.getProcessId() == 0 && keyData.getSecretKey() == 0)) {
+      logger.warning("Cannot send CancelRequest because of missing BackendKeyData.");
+      return channel.newSucceededFuture();
+    }
+
+    SocketAddress address = channel.remoteAddress();
+    ServerConnectionShared.Ref cancelSharedRef = sharedRef != null ? sharedRef.get().addReference() : null;
+    if (address == null || cancelSharedRef == null) {
+      // Connection has already been closed
+      return channel.newSucceededFuture();
+    }
+
+    // Connect using the same (shared) group & channel type as this connection,
+    // holding a reference to the group until the request's channel is closed
+
+    Bootstrap bootstrap = new Bootstrap()
+        .group(channel.eventLoop().parent())
+        .channel(channel.getClass())
+        .handler(new ChannelInboundHandlerAdapter());
+    if (connectTimeout > 0) {
+      bootstrap.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(connectTimeout, Integer.MAX_VALUE));
+    }
+
+    ChannelFuture connected = bootstrap.connect(address);
+
+    Channel cancelChannel = connected.channel();
+    cancelChannel.closeFuture().addListener(closed -> cancelSharedRef.release());
+
+    ChannelPromise delivered = cancelChannel.newPromise();
+
+    connected.addListener((ChannelFuture future) -> {
+      if (!future.isSuccess()) {
+        // All exceptions during a cancellation attempt are ignored...
+        cancelChannel.close();
+        delivered.tryFailure(future.cause());
+        return;
+      }
+
+      ByteBuf request = cancelChannel.alloc().buffer(16)
+          .writeInt(16)
+          .writeInt(CANCEL_REQUEST_CODE)
+          .writeInt(keyData.getProcessId())
+          .writeInt(keyData.getSecretKey());
+
+      // Close once written, rather than relying on the server to hang up
+      cancelChannel.writeAndFlush(request).addListener((ChannelFuture written) -> {
+        cancelChannel.close().addListener(closed -> {
+          if (written.isSuccess()) {
+            delivered.trySuccess();
+          }
+          else {
+            delivered.tryFailure(written.cause());
+          }
+        });
+      });
+    });
+
+    return delivered;
+  }
+
+  @Override
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
   @Override
   public TransactionStatus getTransactionStatus() throws IOException {
     if (!channel.isActive()) {
@@ -208,7 +316,7 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     if (sqlTrace != null) {
       sqlTrace.query(sql);
     }
-    submit(new ExecuteQueryRequest(sql, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler));
+    submit(new ExecuteQueryRequest(sql, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, null, handler));
   }
 
   @Override
@@ -224,7 +332,27 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     if (sqlTrace != null) {
       sqlTrace.execute(statementName);
     }
-    submit(new ExecuteStatementRequest(statementName, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, handler));
+    submit(new ExecuteStatementRequest(statementName, portalName, parameterFormats, parameterBuffers, resultFieldFormats, maxRows, null, handler));
+  }
+
+  @Override
+  public RowStream queryStream(String sql, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats, ExtendedQueryHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query("STREAM: " + sql);
+    }
+    RowStreamQueue stream = new RowStreamQueue(channel, readBufferHigh, readBufferLow);
+    submit(new ExecuteQueryRequest(sql, null, parameterFormats, parameterBuffers, resultFieldFormats, 0, stream, handler), stream);
+    return stream;
+  }
+
+  @Override
+  public RowStream executeStream(String statementName, FieldFormatRef[] parameterFormats, ByteBuf[] parameterBuffers, FieldFormatRef[] resultFieldFormats, ExecuteHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.execute(statementName);
+    }
+    RowStreamQueue stream = new RowStreamQueue(channel, readBufferHigh, readBufferLow);
+    submit(new ExecuteStatementRequest(statementName, null, parameterFormats, parameterBuffers, resultFieldFormats, 0, stream, handler), stream);
+    return stream;
   }
 
   @Override
@@ -237,6 +365,17 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     submit(new CloseRequest(ServerObjectType.Portal, portalName, handler));
   }
 
+  @Override
+  public void executeBatch(String sqlText, String[] statementNames, TypeRef[][] statementParameterTypes,
+                           int[] executionStatements, FieldFormatRef[][] parameterFormats, ByteBuf[][] parameterBuffers,
+                           FieldFormatRef[] resultFieldFormats, BatchExecuteHandler handler) throws IOException {
+    if (sqlTrace != null) {
+      sqlTrace.query("BATCH (" + executionStatements.length + "): " + sqlText);
+    }
+    submit(new BatchExecuteRequest(sqlText, statementNames, statementParameterTypes, executionStatements,
+        parameterFormats, parameterBuffers, resultFieldFormats, handler));
+  }
+
   @Override
   public void lazyExecute(String statementName) throws IOException {
     if (sqlTrace != null) {
@@ -254,19 +393,90 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
   }
 
   @Override
-  public void copyFrom(String sql, InputStream stream, CopyFromHandler handler) throws IOException {
+  public void copyFrom(String sql, InputStream stream, CopyFromHandler handler, long timeout) throws IOException {
+    copyFrom(sql, Channels.newChannel(stream), handler, timeout);
+  }
+
+  @Override
+  public void copyFrom(String sql, ReadableByteChannel source, CopyFromHandler handler, long timeout) throws IOException {
+    // File regions can only be used when the data isn't transformed (e.g. encrypted) by the pipeline
+    if (source instanceof FileChannel && channel.pipeline().get(SslHandler.class) == null) {
+      copyIn(sql, CopyInRequest.fileSource((FileChannel) source, copyMessageSize), handler, timeout);
+    }
+    else {
+      copyIn(sql, CopyInRequest.source(source, copyMessageSize), handler, timeout);
+    }
+  }
+
+  @Override
+  public void copyFrom(String sql, ByteBuf data, CopyFromHandler handler, long timeout) throws IOException {
+    copyIn(sql, CopyInRequest.source(data, copyMessageSize), handler, timeout);
+  }
+
+  private void copyIn(String sql, CopyInRequest.Source source, CopyFromHandler handler, long timeout) throws IOException {
     if (sqlTrace != null) {
       sqlTrace.query("COPY-IN: " + sql);
     }
-    submit(new CopyInRequest(sql, stream, handler));
+
+    // Only a single copy can stream at a time
+    if (!Await.awaitUninterruptibly(timeout, MILLISECONDS, copyInLock::tryLock)) {
+      throw new BlockingReadTimeoutException();
+    }
+    try {
+
+      CopyInRequest request = new CopyInRequest(sql, source, handler);
+
+      // Requests submitted while streaming are deferred to ensure no other
+      // messages are interleaved with the copy data
+      synchronized (this) {
+        submit(request);
+        deferredRequests = new ArrayList<>();
+      }
+
+      try {
+        request.transfer(channel, new ProtocolChannel(channel, getMessageDispatchHandler().getCharset()), timeout);
+      }
+      finally {
+        synchronized (this) {
+          List<ServerRequest> deferred = deferredRequests;
+          deferredRequests = null;
+          for (ServerRequest deferredRequest : deferred) {
+            try {
+              write(deferredRequest);
+            }
+            catch (IOException e) {
+              // Submitter has already returned, report to the request's handler
+              ProtocolHandler deferredHandler = deferredRequest.createHandler();
+              if (deferredHandler != null) {
+                deferredHandler.exception(channel, e);
+              }
+            }
+          }
+        }
+      }
+
+    }
+    finally {
+      copyInLock.unlock();
+    }
+  }
+
+  @Override
+  public void copyTo(String sql, OutputStream stream, CopyToHandler handler, long timeout) throws IOException {
+    copyTo(sql, data -> data.readBytes(stream, data.readableBytes()), handler, timeout);
   }
 
   @Override
-  public void copyTo(String sql, OutputStream stream, CopyToHandler handler) throws IOException {
+  public void copyTo(String sql, CopyDataConsumer consumer, CopyToHandler handler, long timeout) throws IOException {
     if (sqlTrace != null) {
       sqlTrace.query("COPY-OUT: " + sql);
     }
-    submit(new CopyOutRequest(sql, stream, handler));
+
+    CopyOutRequest request = new CopyOutRequest(sql, channel, readBufferHigh, readBufferLow, handler);
+
+    submit(request);
+
+    request.transfer(consumer, timeout);
   }
 
   @Override
@@ -274,10 +484,53 @@ class ServerConnection implements com.impossibl.postgres.protocol.ServerConnecti
     submit(new CloseRequest(objectType, objectName, null));
   }
 
-  @SuppressWarnings("RedundantThrows")
-  private synchronized void submit(ServerRequest request) throws IOException {
+  /**
+   * Submits the request without waiting for it to be written.
+   *
+   * Requests are queued on the channel's event loop in submission order,
+   * where they are written & flushed (coalescing flushes with other queued
+   * requests). Failures writing the request, and all responses, are reported
+   * to the request's handler from the event loop.
+   *
+   * The lock is only held while queueing the request. Requests submitted
+   * while a copy in is streaming are deferred until its data has been sent.
+   *
+   * Submitting a request lifts the queue limit of any active row stream, the
+   * request could otherwise wait on a consumer that is waiting on it.
+   *
+   * @throws IOException If the connection can no longer accept requests
+   */
+  private void submit(ServerRequest request) throws IOException {
+    submit(request, null);
+  }
+
+  private synchronized void submit(ServerRequest request, RowStreamQueue stream) throws IOException {
+
+    if (activeStream != null) {
+      activeStream.unbound();
+    }
+    activeStream = stream;
+
+    if (deferredRequests != null) {
+      deferredRequests.add(request);
+      return;
+    }
+
+    write(request);
+  }
 
-    channel.writeAndFlush(request).syncUninterruptibly();
+  private void write(ServerRequest request) throws IOException {
+    try {
+      // Writes (without flushes) are queued lazily by the event loop, executing
+      // the write as a task ensures the event loop wakes to process it
+      channel.eventLoop().execute(() -> channel.write(request));
+    }
+    catch (RejectedExecutionException e) {
+      // Event loop has shut down, the request will never be written
+      ClosedChannelException cause = new ClosedChannelException();
+      cause.initCause(e);
+      throw cause;
+    }
   }
 
 }
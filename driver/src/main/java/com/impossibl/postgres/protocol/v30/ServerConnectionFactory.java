@@ -55,6 +55,7 @@ import com.impossibl.postgres.system.ParameterNames;
 import com.impossibl.postgres.system.ServerInfo;
 import com.impossibl.postgres.system.SystemSettings;
 import com.impossibl.postgres.system.Version;
+import com.impossibl.postgres.system.metrics.Metrics;
 import com.impossibl.postgres.utils.MD5Authentication;
 
 import static com.impossibl.postgres.protocol.ServerConnection.KeyData;
@@ -63,6 +64,9 @@ import static com.impossibl.postgres.system.SystemSettings.CREDENTIALS_PASSWORD;
 import static com.impossibl.postgres.system.SystemSettings.CREDENTIALS_USERNAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_BUFFER_POOLING;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_CONNECT_ATTEMPT_DELAY;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_CONNECT_FAILED_ADDRESS_TIMEOUT;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_CONNECT_PARALLEL;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_ENCODING;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_IO_MODE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_IO_THREADS;
@@ -72,6 +76,8 @@ import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_SOCKET_SEND_
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_TRACE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_TRACE_FILE;
 import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_VERSION;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_WRITE_BUFFER_WATERMARK_HIGH;
+import static com.impossibl.postgres.system.SystemSettings.PROTOCOL_WRITE_BUFFER_WATERMARK_LOW;
 import static com.impossibl.postgres.system.SystemSettings.SSL_MODE;
 import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 import static com.impossibl.postgres.utils.Nulls.firstNonNull;
@@ -81,6 +87,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -90,14 +97,20 @@ import java.net.SocketAddress;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.Charset;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import javax.naming.InvalidNameException;
@@ -119,6 +132,7 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.epoll.Epoll;
 import io.netty.channel.epoll.EpollDomainSocketChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
@@ -141,28 +155,228 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
   private static final long DEFAULT_STARTUP_TIMEOUT = 60;
   private static final long DEFAULT_SSL_TIMEOUT = 60;
 
+  /**
+   * Addresses that recently failed a parallel connection attempt, mapped to
+   * the time (in nanoseconds) until which they are attempted last.
+   */
+  private static final Map<SocketAddress, Long> failedAddresses = new ConcurrentHashMap<>();
+
   static class CreatedChannel {
+    SocketAddress address;
     ServerConnectionShared.Ref sharedRef;
     ChannelFuture channelFuture;
 
-    CreatedChannel(ServerConnectionShared.Ref sharedRef, ChannelFuture channelFuture) {
+    CreatedChannel(SocketAddress address, ServerConnectionShared.Ref sharedRef, ChannelFuture channelFuture) {
+      this.address = address;
       this.sharedRef = sharedRef;
       this.channelFuture = channelFuture;
     }
+
+    void abandon() {
+      channelFuture.cancel(false);
+      channelFuture.channel().close();
+      sharedRef.release();
+    }
   }
 
   public ServerConnection connect(Configuration config, SocketAddress address, ServerConnection.Listener listener) throws IOException {
 
     SSLMode sslMode = config.getSetting(SSL_MODE);
 
-    return connect(config, sslMode, address, listener, 1);
+    return connect(config, sslMode, address, null, listener, 1);
+  }
+
+  public ServerConnection connect(Configuration config, List<SocketAddress> addresses, ServerConnection.Listener listener) throws IOException {
+
+    if (addresses.size() == 1 || !config.getSetting(PROTOCOL_CONNECT_PARALLEL)) {
+
+      // Try each address in turn
+
+      IOException lastException = null;
+      for (SocketAddress address : addresses) {
+        try {
+          return connect(config, address, listener);
+        }
+        catch (IOException e) {
+          lastException = e;
+        }
+      }
+
+      throw lastException != null ? lastException : new IOException("No server addresses");
+    }
+
+    SSLMode sslMode = config.getSetting(SSL_MODE);
+    long attemptDelay = config.getSetting(PROTOCOL_CONNECT_ATTEMPT_DELAY);
+    long failedTimeout = SECONDS.toNanos(config.getSetting(PROTOCOL_CONNECT_FAILED_ADDRESS_TIMEOUT));
+
+    List<SocketAddress> remaining = orderByRecentFailure(addresses);
+
+    IOException lastException = null;
+    while (!remaining.isEmpty()) {
+
+      CreatedChannel createdChannel;
+      try {
+        createdChannel = race(config, remaining, attemptDelay, failedTimeout);
+      }
+      catch (IOException e) {
+        if (lastException != null) {
+          e.addSuppressed(lastException);
+        }
+        throw e;
+      }
+
+      remaining.remove(createdChannel.address);
+
+      try {
+
+        ServerConnection serverConnection = connect(config, sslMode, createdChannel.address, createdChannel, listener, 1);
+
+        failedAddresses.remove(createdChannel.address);
+
+        return serverConnection;
+      }
+      catch (IOException e) {
+
+        // Startup failed, race the remaining addresses
+
+        createdChannel.channelFuture.channel().close();
+
+        failedAddresses.put(createdChannel.address, System.nanoTime() + failedTimeout);
+
+        lastException = e;
+      }
+
+    }
+
+    throw lastException;
+  }
+
+  /**
+   * Orders the given addresses such that any that recently failed are last.
+   */
+  private static List<SocketAddress> orderByRecentFailure(List<SocketAddress> addresses) {
+
+    long now = System.nanoTime();
+
+    List<SocketAddress> ordered = new ArrayList<>(addresses.size());
+    List<SocketAddress> failed = new ArrayList<>();
+
+    for (SocketAddress address : addresses) {
+
+      Long failedUntil = failedAddresses.get(address);
+      if (failedUntil != null && failedUntil - now > 0) {
+        failed.add(address);
+      }
+      else {
+        if (failedUntil != null) {
+          failedAddresses.remove(address, failedUntil);
+        }
+        ordered.add(address);
+      }
+    }
+
+    ordered.addAll(failed);
+
+    return ordered;
+  }
+
+  /**
+   * Starts connecting to each address in order, staggering each attempt by the given delay (or
+   * until the previous attempt fails), returning the first channel to successfully connect. All
+   * other attempts are cancelled.
+   */
+  private CreatedChannel race(Configuration config, List<SocketAddress> addresses, long attemptDelay, long failedTimeout) throws IOException {
+
+    BlockingQueue<CreatedChannel> completed = new LinkedBlockingQueue<>();
+    List<CreatedChannel> attempts = new ArrayList<>();
+    Iterator<SocketAddress> addressIter = addresses.iterator();
+    CreatedChannel winner = null;
+    Exception lastException = null;
+    int pending = 0;
+
+    try {
+
+      while (true) {
+
+        if (addressIter.hasNext()) {
+
+          SocketAddress address = addressIter.next();
+          try {
+            CreatedChannel attempt = createChannel(address, config);
+            attempts.add(attempt);
+            pending++;
+
+            attempt.channelFuture.addListener(future -> completed.add(attempt));
+          }
+          catch (Exception e) {
+            lastException = e;
+            continue;
+          }
+
+        }
+        else if (pending == 0) {
+          throw translateConnectionException(lastException != null ? lastException : new IOException("No server addresses"));
+        }
+
+        CreatedChannel attempt;
+        if (addressIter.hasNext()) {
+          attempt = completed.poll(attemptDelay, MILLISECONDS);
+          if (attempt == null) {
+            // Delay elapsed, start next attempt
+            continue;
+          }
+        }
+        else {
+          attempt = completed.take();
+        }
+
+        pending--;
+
+        if (attempt.channelFuture.isSuccess()) {
+          winner = attempt;
+          return winner;
+        }
+
+        failedAddresses.put(attempt.address, System.nanoTime() + failedTimeout);
+
+        Throwable cause = attempt.channelFuture.cause();
+        lastException = cause instanceof Exception ? (Exception) cause : new IOException(cause);
+      }
+
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while connecting");
+    }
+    finally {
+
+      boolean beforeWinner = true;
+      for (CreatedChannel attempt : attempts) {
+        if (attempt == winner) {
+          beforeWinner = false;
+          continue;
+        }
+
+        // Attempts that failed, or were outpaced by a later attempt, are tried last next time
+        boolean failed = attempt.channelFuture.isDone() && !attempt.channelFuture.isSuccess();
+        boolean outpaced = winner != null && beforeWinner && !attempt.channelFuture.isDone();
+        if (failed || outpaced) {
+          failedAddresses.put(attempt.address, System.nanoTime() + failedTimeout);
+        }
+
+        attempt.abandon();
+      }
+
+    }
+
   }
 
-  private ServerConnection connect(Configuration config, SSLMode sslMode, SocketAddress address, ServerConnection.Listener listener, int attempt) throws IOException {
+  private ServerConnection connect(Configuration config, SSLMode sslMode, SocketAddress address, CreatedChannel connectedChannel,
+                                   ServerConnection.Listener listener, int attempt) throws IOException {
 
     try {
 
-      CreatedChannel createdChannel = createChannel(address, config);
+      CreatedChannel createdChannel = connectedChannel != null ? connectedChannel : createChannel(address, config);
 
       ServerConnectionShared.Ref sharedRef = createdChannel.sharedRef;
       Channel channel = createdChannel.channelFuture.syncUninterruptibly().channel();
@@ -180,7 +394,14 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
           // Attach the actual handler
 
-          SSLEngine sslEngine = SSLEngineFactory.create(sslMode, config);
+          SSLEngine sslEngine;
+          if (address instanceof InetSocketAddress) {
+            InetSocketAddress inetAddress = (InetSocketAddress) address;
+            sslEngine = SSLEngineFactory.create(sslMode, config, inetAddress.getHostString(), inetAddress.getPort());
+          }
+          else {
+            sslEngine = SSLEngineFactory.create(sslMode, config);
+          }
 
           final SslHandler sslHandler = new SslHandler(sslEngine);
 
@@ -195,7 +416,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
             // Retry with no SSL
             if (sslMode == SSLMode.Prefer) {
-              return connect(config, SSLMode.Disable, address, listener, attempt);
+              return connect(config, SSLMode.Disable, address, null, listener, attempt);
             }
 
             throw e;
@@ -245,15 +466,15 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
         switch (sslMode) {
           case Allow:
-            return connect(config, SSLMode.Require, address, listener, attempt);
+            return connect(config, SSLMode.Require, address, null, listener, attempt);
 
           case Prefer:
-            return connect(config, SSLMode.Disable, address, listener, attempt);
+            return connect(config, SSLMode.Disable, address, null, listener, attempt);
 
           default:
             // WORKAROUND: ISSUE#392: Retrying random startup disconnect mitigates failures.
             if (e instanceof ClosedChannelException && attempt < 2) {
-              return connect(config, sslMode, address, listener, attempt + 1);
+              return connect(config, sslMode, address, null, listener, attempt + 1);
             }
             throw e;
         }
@@ -336,6 +557,8 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     Writer protocolTraceWriter = createProtocolTracer(config);
 
+    Metrics metrics = Metrics.create(config);
+
     Bootstrap bootstrap = new Bootstrap()
             .group(sharedRef.get().getEventLoopGroup())
             .channel(channelType)
@@ -344,7 +567,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
               protected void initChannel(SocketChannel ch) {
                 ch.pipeline().addLast(
                     new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                    new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                    new MessageDispatchHandler(clientEncoding, protocolTraceWriter, metrics)
                 );
               }
             })
@@ -354,7 +577,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ChannelFuture channelFuture = bootstrap.connect(address);
 
-    return new CreatedChannel(sharedRef, channelFuture);
+    return new CreatedChannel(address, sharedRef, channelFuture);
   }
 
   private CreatedChannel createDomainSocketChannel(DomainSocketAddress address, Configuration config) {
@@ -382,6 +605,8 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     Writer protocolTraceWriter = createProtocolTracer(config);
 
+    Metrics metrics = Metrics.create(config);
+
     Bootstrap bootstrap = new Bootstrap()
         .group(sharedRef.get().getEventLoopGroup())
         .channel(channelType)
@@ -390,7 +615,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
           protected void initChannel(DomainSocketChannel ch) {
             ch.pipeline().addLast(
                 new LengthFieldBasedFrameDecoder(maxMessageSize, 1, 4, -4, 0),
-                new MessageDispatchHandler(clientEncoding, protocolTraceWriter)
+                new MessageDispatchHandler(clientEncoding, protocolTraceWriter, metrics)
             );
           }
         });
@@ -399,7 +624,7 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
 
     ChannelFuture channelFuture = bootstrap.connect(address);
 
-    return new CreatedChannel(sharedRef, channelFuture);
+    return new CreatedChannel(address, sharedRef, channelFuture);
   }
 
   private void configureChannelOptions(Configuration config, Bootstrap bootstrap) {
@@ -414,6 +639,10 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
       bootstrap.option(ChannelOption.SO_SNDBUF, sendBufferSize);
     }
 
+    int writeBufferHigh = config.getSetting(PROTOCOL_WRITE_BUFFER_WATERMARK_HIGH);
+    int writeBufferLow = Math.min(config.getSetting(PROTOCOL_WRITE_BUFFER_WATERMARK_LOW), writeBufferHigh);
+    bootstrap.option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(writeBufferLow, writeBufferHigh));
+
     boolean usePooledAllocator = config.getSetting(PROTOCOL_BUFFER_POOLING);
     bootstrap.option(ChannelOption.ALLOCATOR, usePooledAllocator ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT);
   }
@@ -665,10 +894,18 @@ public class ServerConnectionFactory implements com.impossibl.postgres.protocol.
     }
 
     @Override
-    public InputStream copyIn(CopyFormat format, FieldFormat[] fieldFormats) {
+    public Action copyIn(ProtocolChannel channel, CopyFormat format, FieldFormat[] fieldFormats) throws IOException {
       ServerConnection.Listener listener = getListener();
-      if (listener == null) return null;
-      return listener.openStandardInput();
+      InputStream stream = listener != null ? listener.openStandardInput() : null;
+      if (stream == null) {
+        throw new IOException("No InputStream for Copy-In");
+      }
+
+      channel
+          .writeCopyData(stream)
+          .flush();
+
+      return Action.Resume;
     }
 
     @Override
@@ -40,6 +40,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import io.netty.channel.EventLoopGroup;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GlobalEventExecutor;
 
@@ -62,6 +64,8 @@ public class ServerConnectionShared {
 
   private static Map<Class<? extends EventLoopGroup>, ServerConnectionShared> instances = new HashMap<>();
 
+  private static HashedWheelTimer timer;
+
   static synchronized ServerConnectionShared.Ref acquire(Class<? extends EventLoopGroup> eventLoopGroupType, int maxThreads) {
     return instances.computeIfAbsent(eventLoopGroupType, key -> new ServerConnectionShared(eventLoopGroupType, maxThreads)).addReference();
   }
@@ -92,7 +96,21 @@ public class ServerConnectionShared {
     return eventLoopGroup;
   }
 
-  private synchronized Ref addReference() {
+  static synchronized Timer getTimer() {
+    if (timer == null) {
+      timer = new HashedWheelTimer(new NamedThreadFactory("PG-JDBC Timer"), 10, TimeUnit.MILLISECONDS);
+    }
+    return timer;
+  }
+
+  private static synchronized void stopTimer() {
+    if (timer != null) {
+      timer.stop();
+      timer = null;
+    }
+  }
+
+  synchronized Ref addReference() {
     count++;
     return new Ref();
   }
@@ -123,6 +141,8 @@ public class ServerConnectionShared {
 
     shutdowns.forEach(shutdown -> shutdown.awaitUninterruptibly(150, TimeUnit.MILLISECONDS));
 
+    stopTimer();
+
     Thread deathThread = new Thread(() -> {
       try {
         io.netty.util.ThreadDeathWatcher.awaitInactivity(5, TimeUnit.SECONDS);
@@ -153,7 +173,7 @@ public class ServerConnectionShared {
 
 
 
-  private class NamedThreadFactory implements ThreadFactory {
+  private static class NamedThreadFactory implements ThreadFactory {
 
     private String baseName;
     private AtomicInteger idx = new AtomicInteger(1);
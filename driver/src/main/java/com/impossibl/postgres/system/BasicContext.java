@@ -46,7 +46,12 @@ import com.impossibl.postgres.protocol.ResultField;
 import com.impossibl.postgres.protocol.RowData;
 import com.impossibl.postgres.protocol.ServerConnection;
 import com.impossibl.postgres.protocol.ServerConnectionFactory;
+import com.impossibl.postgres.protocol.TypeOid;
+import com.impossibl.postgres.protocol.TypeRef;
+import com.impossibl.postgres.system.metrics.Metrics;
+import com.impossibl.postgres.system.tables.PGTypeSnapshot;
 import com.impossibl.postgres.system.tables.PGTypeTable;
+import com.impossibl.postgres.system.tables.Tables;
 import com.impossibl.postgres.types.ArrayType;
 import com.impossibl.postgres.types.BaseType;
 import com.impossibl.postgres.types.CompositeType;
@@ -67,6 +72,9 @@ import static com.impossibl.postgres.system.Empty.EMPTY_FORMATS;
 import static com.impossibl.postgres.system.Empty.EMPTY_TYPES;
 import static com.impossibl.postgres.system.SystemSettings.APPLICATION_NAME;
 import static com.impossibl.postgres.system.SystemSettings.DATABASE_NAME;
+import static com.impossibl.postgres.system.SystemSettings.DEFAULT_TRANSACTION_READ_ONLY;
+import static com.impossibl.postgres.system.SystemSettings.IN_HOT_STANDBY;
+import static com.impossibl.postgres.system.SystemSettings.REGISTRY_SNAPSHOT_DIR;
 import static com.impossibl.postgres.system.SystemSettings.SESSION_USER;
 import static com.impossibl.postgres.system.SystemSettings.STANDARD_CONFORMING_STRINGS;
 import static com.impossibl.postgres.utils.guava.Strings.nullToEmpty;
@@ -76,11 +84,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketAddress;
 import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -90,7 +100,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toSet;
 
@@ -121,6 +133,17 @@ public class BasicContext extends AbstractContext {
     }
   }
 
+  private static class PendingUtilQuery {
+
+    String sql;
+    PrepareResult result;
+
+    PendingUtilQuery(String sql, PrepareResult result) {
+      this.sql = sql;
+      this.result = result;
+    }
+  }
+
   private class ServerConnectionListener implements ServerConnection.Listener {
 
     @Override
@@ -195,8 +218,13 @@ public class BasicContext extends AbstractContext {
   private ServerConnection serverConnection;
   private ServerConnectionListener serverConnectionListener;
   private Map<String, QueryDescription> utilQueries;
+  private Map<String, PendingUtilQuery> pendingUtilQueries;
 
   public BasicContext(SocketAddress address, Settings settings) throws IOException {
+    this(singletonList(address), settings);
+  }
+
+  public BasicContext(List<SocketAddress> addresses, Settings settings) throws IOException {
     this.typeMap = new HashMap<>();
     this.settings = settings;
     this.charset = UTF_8;
@@ -210,8 +238,16 @@ public class BasicContext extends AbstractContext {
     this.clientIntervalFormat = new ISOIntervalFormat();
     this.serverIntervalFormat = clientIntervalFormat;
     this.serverConnectionListener = new ServerConnectionListener();
-    this.serverConnection = ServerConnectionFactory.getDefault().connect(this, address, serverConnectionListener);
     this.utilQueries = new HashMap<>();
+    this.pendingUtilQueries = new LinkedHashMap<>();
+
+    long connectStarted = System.nanoTime();
+
+    this.serverConnection = ServerConnectionFactory.getDefault().connect(this, addresses, serverConnectionListener);
+
+    long connectTime = System.nanoTime() - connectStarted;
+    serverConnection.getMetrics().histogram(Metrics.CONNECTION_STARTUP).record(connectTime);
+    logger.fine("Startup time: " + NANOSECONDS.toMillis(connectTime) + "ms");
   }
 
   protected ChannelFuture shutdown() {
@@ -375,17 +411,42 @@ public class BasicContext extends AbstractContext {
     clientCurrencyFormatter.setGroupingUsed(false);
     ((DecimalFormat)clientCurrencyFormatter).setParseBigDecimal(true);
 
-    loadTypes();
+    Metrics metrics = serverConnection.getMetrics();
+    long initStarted = System.nanoTime();
+
+    // Submit all internal queries before waiting on any of them, allowing
+    // initialization to complete in a single round trip (any util queries
+    // submitted by subclasses during construction are included)
 
     prepareRefreshTypeQueries();
 
-    loadServerLocales();
+    QueryResult serverLocales = new QueryResult();
+    serverConnection.getRequestExecutor()
+        .query("SELECT name, setting FROM pg_settings WHERE name IN ('lc_monetary')", serverLocales);
+
+    QueryResult typeSeed = submitTypeSeedQuery();
+
+    long typesStarted = System.nanoTime();
+
+    loadTypes(serverConnectionInfo, typeSeed);
+
+    long typesTime = System.nanoTime() - typesStarted;
+    metrics.histogram(Metrics.CONNECTION_INIT_TYPES).record(typesTime);
+
+    completeUtilQueries();
+
+    loadServerLocales(serverLocales);
+
+    long initTime = System.nanoTime() - initStarted;
+    metrics.histogram(Metrics.CONNECTION_INIT).record(initTime);
+    logger.fine("Init time: " + NANOSECONDS.toMillis(initTime) + "ms (types: " + NANOSECONDS.toMillis(typesTime) + "ms)");
   }
 
-  private void loadServerLocales() throws IOException {
+  private void loadServerLocales(QueryResult serverLocales) throws IOException {
 
-    try (ResultBatch resultBatch =
-        queryBatch("SELECT name, setting FROM pg_settings WHERE name IN ('lc_monetary')", INTERNAL_QUERY_TIMEOUT)) {
+    serverLocales.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+
+    try (ResultBatch resultBatch = serverLocales.getBatch()) {
 
       for (RowData rowData : resultBatch.borrowRows().borrowAll()) {
 
@@ -410,7 +471,32 @@ public class BasicContext extends AbstractContext {
 
   }
 
-  private void loadTypes() throws IOException {
+  /**
+   * Submits the query needed to seed the registry (the type rows or, when using
+   * snapshots, the snapshot fingerprint) without waiting for its result.
+   *
+   * @return Pending result of the query or {@code null} if the registry is already seeded
+   */
+  private QueryResult submitTypeSeedQuery() throws IOException {
+
+    if (registry.getShared().isSeeded()) {
+      return null;
+    }
+
+    QueryResult typeSeed = new QueryResult();
+
+    if (getSetting(REGISTRY_SNAPSHOT_DIR) != null) {
+      serverConnection.getRequestExecutor().query(PGTypeSnapshot.FINGERPRINT_SQL, typeSeed);
+    }
+    else {
+      serverConnection.getRequestExecutor()
+          .query(getTypeRowsSQL(), null, EMPTY_FORMATS, EMPTY_BUFFERS, EMPTY_FORMATS, 0, typeSeed);
+    }
+
+    return typeSeed;
+  }
+
+  private void loadTypes(ServerConnectionInfo serverConnectionInfo, QueryResult typeSeed) throws IOException {
 
     SharedRegistry.Seeder seeder = registry -> {
 
@@ -418,9 +504,7 @@ public class BasicContext extends AbstractContext {
 
       Timer timer = new Timer();
 
-      // Load "simple" types only - composite types are loaded on demand
-      String typeSQL = PGTypeTable.INSTANCE.getSQL(serverConnection.getServerInfo().getVersion());
-      List<PGTypeTable.Row> pgTypes = PGTypeTable.INSTANCE.query(this, typeSQL + " WHERE typrelid = 0", INTERNAL_QUERY_TIMEOUT);
+      List<PGTypeTable.Row> pgTypes = loadTypeRows(serverConnectionInfo, typeSeed);
 
       // Load initial types without causing refresh queries...
       //
@@ -470,18 +554,87 @@ public class BasicContext extends AbstractContext {
 
     if (!registry.getShared().seed(seeder)) {
       logger.config("Using pre-seeded registry");
+
+      // Seeded by another connection since the seed query was submitted
+      if (typeSeed != null) {
+        typeSeed.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+        typeSeed.getBatch().close();
+      }
+    }
+  }
+
+  private List<PGTypeTable.Row> loadTypeRows(ServerConnectionInfo serverConnectionInfo, QueryResult typeSeed) throws IOException {
+
+    String snapshotDir = getSetting(REGISTRY_SNAPSHOT_DIR);
+    if (snapshotDir == null) {
+
+      if (typeSeed == null) {
+        return queryTypeRows();
+      }
+
+      typeSeed.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+
+      try (ResultBatch resultBatch = typeSeed.getBatch()) {
+        return Tables.convertRows(this, PGTypeTable.INSTANCE, resultBatch);
+      }
+    }
+
+    String fingerprint;
+    if (typeSeed != null) {
+
+      typeSeed.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+
+      try (ResultBatch resultBatch = typeSeed.getBatch()) {
+        fingerprint = getString(resultBatch);
+      }
+    }
+    else {
+      fingerprint = queryString(PGTypeSnapshot.FINGERPRINT_SQL, INTERNAL_QUERY_TIMEOUT);
+    }
+
+    PGTypeSnapshot snapshot = new PGTypeSnapshot(Paths.get(snapshotDir), serverConnectionInfo, fingerprint);
+
+    List<PGTypeTable.Row> pgTypes = snapshot.load();
+    if (pgTypes != null) {
+      logger.config("Seeding registry from snapshot " + snapshot.getFile());
+      return pgTypes;
+    }
+
+    pgTypes = queryTypeRows();
+
+    try {
+      snapshot.save(pgTypes);
+    }
+    catch (IOException e) {
+      logger.log(Level.WARNING, "Error saving type snapshot: " + snapshot.getFile(), e);
     }
+
+    return pgTypes;
+  }
+
+  private List<PGTypeTable.Row> queryTypeRows() throws IOException {
+
+    return PGTypeTable.INSTANCE.query(this, getTypeRowsSQL(), INTERNAL_QUERY_TIMEOUT);
+  }
+
+  private String getTypeRowsSQL() {
+
+    // Load "simple" types only - composite types are loaded on demand
+    String typeSQL = PGTypeTable.INSTANCE.getSQL(serverConnection.getServerInfo().getVersion());
+    return typeSQL + " WHERE typrelid = 0";
   }
 
   private void prepareRefreshTypeQueries() throws IOException {
 
     Version serverVersion = serverConnection.getServerInfo().getVersion();
 
-    prepareUtilQuery("refresh-type", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.oid = $1");
+    submitUtilQuery("refresh-type", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.oid = $1");
 
-    prepareUtilQuery("refresh-named-type", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.oid = $1::text::regtype");
+    submitUtilQuery("refresh-named-type", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.oid = $1::text::regtype");
 
-    prepareUtilQuery("refresh-reltype", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.typrelid = $1", "int4");
+    // Parameter type is passed by oid; resolving it by name would query the unseeded registry
+    submitUtilQuery("refresh-reltype", PGTypeTable.INSTANCE.getSQL(serverVersion) + " WHERE t.typrelid = $1",
+        new TypeRef[] {TypeOid.valueOf(TypeOid.INT4)});
 
   }
 
@@ -572,35 +725,74 @@ public class BasicContext extends AbstractContext {
   }
 
   public boolean isUtilQueryPrepared(String name) {
-    return utilQueries.containsKey(name);
+    return utilQueries.containsKey(name) || pendingUtilQueries.containsKey(name);
   }
 
   public void prepareUtilQuery(String name, String sql, String... parameterTypeNames) throws IOException {
 
+    submitUtilQuery(name, sql, parameterTypeNames);
+
+    completeUtilQuery(name);
+  }
+
+  /**
+   * Submits a utility query for preparation without waiting for it to complete, allowing
+   * the preparation of multiple queries to be pipelined. Submitted queries are completed
+   * when first used or by {@link #completeUtilQueries()}.
+   */
+  public void submitUtilQuery(String name, String sql, String... parameterTypeNames) throws IOException {
+
     Type[] parameterTypes = new Type[parameterTypeNames.length];
     for (int parameterIdx = 0; parameterIdx < parameterTypes.length; ++parameterIdx) {
       parameterTypes[parameterIdx] = registry.loadBaseType(parameterTypeNames[parameterIdx]);
     }
 
-    prepareUtilQuery(name, sql, parameterTypes);
+    submitUtilQuery(name, sql, parameterTypes);
   }
 
-  private void prepareUtilQuery(String name, String sql, Type[] parameterTypes) throws IOException {
+  private void submitUtilQuery(String name, String sql, TypeRef[] parameterTypes) throws IOException {
 
     PrepareResult handler = new PrepareResult();
 
     serverConnection.getRequestExecutor().prepare(name, sql, parameterTypes, handler);
 
-    handler.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+    pendingUtilQueries.put(name, new PendingUtilQuery(sql, handler));
+  }
+
+  /**
+   * Waits for all submitted utility query preparations to complete.
+   */
+  public void completeUtilQueries() throws IOException {
+
+    while (!pendingUtilQueries.isEmpty()) {
+      completeUtilQuery(pendingUtilQueries.keySet().iterator().next());
+    }
 
-    QueryDescription desc = new QueryDescription(name, sql, handler.getDescribedParameterTypes(this), handler.getDescribedResultFields());
+  }
+
+  private QueryDescription completeUtilQuery(String name) throws IOException {
+
+    // Removed before completion; resolving the described types can require
+    // other (pending) util queries
+    PendingUtilQuery pending = pendingUtilQueries.remove(name);
+
+    pending.result.await(INTERNAL_QUERY_TIMEOUT, MILLISECONDS);
+
+    QueryDescription desc = new QueryDescription(name, pending.sql,
+        pending.result.getDescribedParameterTypes(this), pending.result.getDescribedResultFields());
     utilQueries.put(name, desc);
+
+    return desc;
   }
 
   private QueryDescription prepareQuery(String queryTxt) throws IOException {
 
     if (queryTxt.charAt(0) == '@') {
-      QueryDescription util = utilQueries.get(queryTxt.substring(1));
+      String name = queryTxt.substring(1);
+      QueryDescription util = utilQueries.get(name);
+      if (util == null && pendingUtilQueries.containsKey(name)) {
+        util = completeUtilQuery(name);
+      }
       if (util == null) {
         throw new IOException("invalid utility query");
       }
@@ -640,13 +832,17 @@ public class BasicContext extends AbstractContext {
   protected String queryString(String queryTxt, long timeout) throws IOException {
 
     try (ResultBatch resultBatch = queryBatch(queryTxt, timeout)) {
-      String val = resultBatch.borrowRows().borrow(0)
-          .getField(0, resultBatch.getFields()[0], this, String.class, null).toString();
-      return nullToEmpty(val);
+      return getString(resultBatch);
     }
 
   }
 
+  private String getString(ResultBatch resultBatch) throws IOException {
+    String val = resultBatch.borrowRows().borrow(0)
+        .getField(0, resultBatch.getFields()[0], this, String.class, null).toString();
+    return nullToEmpty(val);
+  }
+
   /**
    * Queries for a single (the first) result batch. The batch must be released.
    */
@@ -676,6 +872,19 @@ public class BasicContext extends AbstractContext {
    */
   public ResultBatch queryBatchPrepared(String queryTxt, Object[] paramValues, long timeout) throws IOException {
 
+    ExecuteResult handler = submitQueryPrepared(queryTxt, paramValues);
+
+    handler.await(timeout, MILLISECONDS);
+
+    return handler.getBatch();
+  }
+
+  /**
+   * Submits a parameterized query without waiting for its result, allowing multiple
+   * queries to be pipelined. The result's batch must be released after it has been awaited.
+   */
+  public ExecuteResult submitQueryPrepared(String queryTxt, Object[] paramValues) throws IOException {
+
     QueryDescription pq = prepareQuery(queryTxt);
 
     FieldFormat[] paramFormats = EMPTY_FORMATS;
@@ -714,10 +923,20 @@ public class BasicContext extends AbstractContext {
 
       }
 
-      return queryBatchPrepared(pq.name, paramFormats, paramBuffers, pq.resultFields, timeout);
+      ExecuteResult handler = new ExecuteResult(pq.resultFields);
+
+      serverConnection.getRequestExecutor()
+          .execute(null, pq.name, paramFormats, paramBuffers, pq.resultFields, 0, handler);
+
+      // Parameters are written asynchronously, release them once the request completes
+      ByteBuf[] submittedBuffers = paramBuffers;
+      handler.completion().whenComplete((ignored, error) -> ByteBufs.releaseAll(submittedBuffers));
+
+      return handler;
     }
-    finally {
+    catch (IOException | RuntimeException e) {
       ByteBufs.releaseAll(paramBuffers);
+      throw e;
     }
   }
 
@@ -844,6 +1063,16 @@ public class BasicContext extends AbstractContext {
         settings.set(APPLICATION_NAME, value);
         break;
 
+      case ParameterNames.IN_HOT_STANDBY:
+
+        settings.set(IN_HOT_STANDBY, value.equals("on"));
+        break;
+
+      case ParameterNames.DEFAULT_TRANSACTION_READ_ONLY:
+
+        settings.set(DEFAULT_TRANSACTION_READ_ONLY, value.equals("on"));
+        break;
+
       default:
         break;
     }
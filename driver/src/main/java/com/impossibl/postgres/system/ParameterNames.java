@@ -40,5 +40,7 @@ public class ParameterNames {
   public static final String TIME_ZONE = "TimeZone";
   public static final String DATE_STYLE = "DateStyle";
   public static final String INTERVAL_STYLE = "IntervalStyle";
+  public static final String IN_HOT_STANDBY = "in_hot_standby";
+  public static final String DEFAULT_TRANSACTION_READ_ONLY = "default_transaction_read_only";
 
 }
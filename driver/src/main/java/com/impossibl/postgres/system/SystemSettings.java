@@ -188,6 +188,17 @@ public class SystemSettings {
   )
   public static final Setting<String> SSL_HOME_DIR = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Enables or disables sharing SSL contexts between connections with identical SSL settings.\n\n" +
+          "Certificates & keys of shared contexts are loaded once (and reloaded when their files are modified) and " +
+          "reconnections to the same server can resume previously established TLS sessions, avoiding full handshakes.",
+      def = "true",
+      name = "ssl.context.cache",
+      group = "system"
+  )
+  public static final Setting<Boolean> SSL_CONTEXT_CACHE = Setting.declare();
+
   @Setting.Info(
       desc = "Enables or disables SQL trace output",
       def = "false",
@@ -205,6 +216,48 @@ public class SystemSettings {
   )
   public static final Setting<String> SQL_TRACE_FILE = Setting.declare();
 
+  @Setting.Info(
+      desc = "Enables or disables recording of connection metrics (request latencies, bytes & messages " +
+          "transferred, rows received & cache hit rates).\n\n" +
+          "Metrics are available via `PGConnection.getMetrics()`.",
+      def = "false",
+      name = "metrics.enabled",
+      group = "system"
+  )
+  public static final Setting<Boolean> METRICS_ENABLED = Setting.declare();
+
+  @Setting.Info(
+      desc = "Class name of the `com.impossibl.postgres.api.metrics.MetricsRegistry` implementation that " +
+          "receives connection metrics.\n\n" +
+          "A single instance of the class, created via its public no-argument constructor, is shared by all " +
+          "connections naming it. When not provided each connection records its metrics in a separate registry.\n\n" +
+          "NOTE: `metrics.enabled` must be `true` to record metrics",
+      name = "metrics.registry",
+      group = "system"
+  )
+  public static final Setting<String> METRICS_REGISTRY = Setting.declare();
+
+  @Setting.Info(
+      desc = "Enables or disables publishing each connection's metrics as a JMX MBean named " +
+          "`com.impossibl.postgres:type=Metrics,connection=<id>`.\n\n" +
+          "NOTE: `metrics.enabled` must be `true` and `metrics.registry` must not be provided",
+      def = "false",
+      name = "metrics.jmx",
+      group = "system"
+  )
+  public static final Setting<Boolean> METRICS_JMX = Setting.declare();
+
+  @Setting.Info(
+      desc = "Directory for snapshots of the type registry.\n\n" +
+          "When provided, the types loaded to seed a registry are saved in a snapshot (one per server " +
+          "& database) and later connections, including those of other processes, load them from the snapshot " +
+          "instead of querying the server's catalog. A snapshot is only used while the catalog's fingerprint " +
+          "matches the one it was saved with.",
+      name = "registry.snapshot.dir",
+      group = "system"
+  )
+  public static final Setting<String> REGISTRY_SNAPSHOT_DIR = Setting.declare();
+
 
 
 
@@ -296,6 +349,37 @@ public class SystemSettings {
   )
   public static final Setting<Integer> PROTOCOL_SOCKET_SEND_BUFFER_SIZE = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Enables or disables connecting to multiple server addresses in parallel.\n\n" +
+          "When enabled, connection attempts to each address are started in order, staggered by " +
+          "`protocol.connect.attempt-delay`, and the first to connect is used while the others are " +
+          "cancelled. Addresses that recently failed are attempted only after all others.",
+      def = "false",
+      name = "protocol.connect.parallel",
+      group = "protocol",
+      alternateNames = {"parallelConnect"}
+  )
+  public static final Setting<Boolean> PROTOCOL_CONNECT_PARALLEL = Setting.declare();
+
+  @Setting.Info(
+      desc = "Delay (in milliseconds) before starting a parallel connection attempt to the next server address.",
+      def = "250",
+      name = "protocol.connect.attempt-delay",
+      group = "protocol",
+      min = 0
+  )
+  public static final Setting<Integer> PROTOCOL_CONNECT_ATTEMPT_DELAY = Setting.declare();
+
+  @Setting.Info(
+      desc = "Time (in seconds) a server address that failed a parallel connection attempt is tried last.",
+      def = "30",
+      name = "protocol.connect.failed-address.timeout",
+      group = "protocol",
+      min = 0
+  )
+  public static final Setting<Integer> PROTOCOL_CONNECT_FAILED_ADDRESS_TIMEOUT = Setting.declare();
+
   @Setting.Info(
       desc = "Enable or disable pooling of byte buffers",
       def = "true",
@@ -304,6 +388,59 @@ public class SystemSettings {
   )
   public static final Setting<Boolean> PROTOCOL_BUFFER_POOLING = Setting.declare();
 
+  @Setting.Info(
+      desc =
+          "Outbound byte count at which the connection stops accepting writes until pending data is " +
+          "flushed to the socket",
+      def = "" + (4 * 1024 * 1024),
+      name = "protocol.write-buffer.watermark.high",
+      min = 1,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_WRITE_BUFFER_WATERMARK_HIGH = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Outbound byte count at which the connection resumes accepting writes\n\n" +
+          "NOTE: Must be less than `protocol.write-buffer.watermark.high`",
+      def = "" + (2 * 1024 * 1024),
+      name = "protocol.write-buffer.watermark.low",
+      min = 0,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_WRITE_BUFFER_WATERMARK_LOW = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Buffered inbound byte count at which the connection stops reading from the socket until " +
+          "the consumer of a streaming operation (e.g. `COPY ... TO STDOUT`) catches up",
+      def = "" + (4 * 1024 * 1024),
+      name = "protocol.read-buffer.watermark.high",
+      min = 1,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_READ_BUFFER_WATERMARK_HIGH = Setting.declare();
+
+  @Setting.Info(
+      desc =
+          "Buffered inbound byte count at which the connection resumes reading from the socket\n\n" +
+          "NOTE: Must be less than `protocol.read-buffer.watermark.high`",
+      def = "" + (2 * 1024 * 1024),
+      name = "protocol.read-buffer.watermark.low",
+      min = 0,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_READ_BUFFER_WATERMARK_LOW = Setting.declare();
+
+  @Setting.Info(
+      desc = "Maximum size of each data message sent during a `COPY ... FROM STDIN` operation",
+      def = "" + (1024 * 1024),
+      name = "protocol.copy.message.size",
+      min = 1,
+      group = "protocol"
+  )
+  public static final Setting<Integer> PROTOCOL_COPY_MESSAGE_SIZE = Setting.declare();
+
   @Setting.Info(
       desc = "Maximum size message that can be received",
       def = "" + (20 * 1024 * 1024),
@@ -350,6 +487,20 @@ public class SystemSettings {
   )
   public static final Setting<Boolean> STANDARD_CONFORMING_STRINGS = Setting.declare();
 
+  @Setting.Info(
+      desc = "Server is a hot standby",
+      name = ParameterNames.IN_HOT_STANDBY,
+      group = "server"
+  )
+  public static final Setting<Boolean> IN_HOT_STANDBY = Setting.declare();
+
+  @Setting.Info(
+      desc = "Transactions are read-only by default",
+      name = ParameterNames.DEFAULT_TRANSACTION_READ_ONLY,
+      group = "server"
+  )
+  public static final Setting<Boolean> DEFAULT_TRANSACTION_READ_ONLY = Setting.declare();
+
   static {
     SystemSettingsInit.init();
   }
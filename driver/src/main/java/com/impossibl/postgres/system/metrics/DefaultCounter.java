@@ -26,39 +26,29 @@
  * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
  * POSSIBILITY OF SUCH DAMAGE.
  */
-package com.impossibl.postgres.utils;
+package com.impossibl.postgres.system.metrics;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.function.Consumer;
+import com.impossibl.postgres.api.metrics.Counter;
 
-public class CacheMap<K, V> extends LinkedHashMap<K, V> {
+import java.util.concurrent.atomic.LongAdder;
 
-  private int maxSize;
-  private Consumer<Map.Entry<K, V>> evictionHandler;
+public class DefaultCounter implements Counter {
 
-  public CacheMap(int maxSize, float loadFactor, boolean accessOrder) {
-    super(maxSize + 1, loadFactor, accessOrder);
-    this.maxSize = maxSize;
+  private final LongAdder count = new LongAdder();
+
+  @Override
+  public void add(long amount) {
+    count.add(amount);
   }
 
-  public CacheMap(int maxSize, float loadFactor, boolean accessOrder, Consumer<Map.Entry<K, V>> evictionHandler) {
-    super(maxSize + 1, loadFactor, accessOrder);
-    this.maxSize = maxSize;
-    this.evictionHandler = evictionHandler;
+  @Override
+  public long getCount() {
+    return count.sum();
   }
 
   @Override
-  protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-    if (size() > maxSize) {
-      if (evictionHandler != null) {
-        evictionHandler.accept(eldest);
-      }
-      return true;
-    }
-    else {
-      return false;
-    }
+  public String toString() {
+    return Long.toString(getCount());
   }
 
 }
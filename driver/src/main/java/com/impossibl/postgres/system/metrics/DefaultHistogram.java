@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.metrics;
+
+import com.impossibl.postgres.api.metrics.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Histogram with log-linear buckets, in the style of HDR histograms.
+ *
+ * Each power of two range is divided into {@value #SUB_BUCKET_COUNT} equally
+ * sized buckets, bounding the error of reported values to roughly 6%
+ * regardless of magnitude. Values above {@link #MAX_VALUE} (almost five
+ * hours when recording nanoseconds) are recorded as {@link #MAX_VALUE}.
+ *
+ * Recording is lock-free and allocation free.
+ */
+public class DefaultHistogram implements Histogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_VALUE_BITS = 44;
+
+  public static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(bucketIndex(MAX_VALUE) + 1);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong maxValue = new AtomicLong();
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = (63 - numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+  }
+
+  private static long bucketHighestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  @Override
+  public void record(long value) {
+    value = min(max(value, 0), MAX_VALUE);
+
+    buckets.incrementAndGet(bucketIndex(value));
+    count.increment();
+    sum.add(value);
+
+    long currentMax = maxValue.get();
+    while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+      currentMax = maxValue.get();
+    }
+  }
+
+  @Override
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getSum() {
+    return sum.sum();
+  }
+
+  public long getMax() {
+    return maxValue.get();
+  }
+
+  public double getMean() {
+    long count = getCount();
+    return count != 0 ? (double) getSum() / count : 0;
+  }
+
+  /**
+   * Value at or below which the given percentage of recorded values fall.
+   *
+   * @param percentile Percentile (0 - 100) to report
+   * @return Highest value equivalent (within the histogram's precision) to
+   * the percentile's value, or zero if no values have been recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+
+    long total = 0;
+    for (int idx = 0; idx < buckets.length(); ++idx) {
+      total += buckets.get(idx);
+    }
+
+    long target = max(1, (long) Math.ceil(total * min(max(percentile, 0), 100) / 100));
+
+    long seen = 0;
+    for (int idx = 0; idx < buckets.length(); ++idx) {
+      seen += buckets.get(idx);
+      if (seen >= target) {
+        return min(bucketHighestValue(idx), getMax());
+      }
+    }
+
+    return 0;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount() + ", mean=" + (long) getMean() + ", p50=" + getValueAtPercentile(50) +
+        ", p99=" + getValueAtPercentile(99) + ", max=" + getMax();
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.metrics;
+
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry used when no custom registry is configured; records into
+ * {@link DefaultCounter}s and {@link DefaultHistogram}s that can be
+ * enumerated (and are published via JMX when `metrics.jmx` is enabled).
+ */
+public class DefaultMetricsRegistry implements MetricsRegistry {
+
+  private final Map<String, DefaultCounter> counters = new ConcurrentHashMap<>();
+  private final Map<String, DefaultHistogram> histograms = new ConcurrentHashMap<>();
+
+  @Override
+  public DefaultCounter counter(String name) {
+    return counters.computeIfAbsent(name, key -> new DefaultCounter());
+  }
+
+  @Override
+  public DefaultHistogram histogram(String name) {
+    return histograms.computeIfAbsent(name, key -> new DefaultHistogram());
+  }
+
+  /**
+   * Counters registered so far.
+   *
+   * @return Map of counters, sorted by name
+   */
+  public Map<String, DefaultCounter> getCounters() {
+    return Collections.unmodifiableMap(new TreeMap<>(counters));
+  }
+
+  /**
+   * Histograms registered so far.
+   *
+   * @return Map of histograms, sorted by name
+   */
+  public Map<String, DefaultHistogram> getHistograms() {
+    return Collections.unmodifiableMap(new TreeMap<>(histograms));
+  }
+
+  @Override
+  public String toString() {
+    return "DefaultMetricsRegistry{" +
+        "counters=" + getCounters() +
+        ", histograms=" + getHistograms() +
+        '}';
+  }
+
+}
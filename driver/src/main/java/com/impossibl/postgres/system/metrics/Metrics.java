@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.metrics;
+
+import com.impossibl.postgres.api.metrics.Counter;
+import com.impossibl.postgres.api.metrics.Histogram;
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
+import com.impossibl.postgres.system.Configuration;
+
+import static com.impossibl.postgres.system.SystemSettings.METRICS_ENABLED;
+import static com.impossibl.postgres.system.SystemSettings.METRICS_REGISTRY;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Instruments a connection records its metrics in.
+ *
+ * Frequently used instruments are resolved from the registry once, when the
+ * connection is created. When metrics are disabled all instruments are
+ * no-ops; code on hot paths should check {@link #isEnabled()} before doing
+ * any work (e.g. reading the clock) solely for the purpose of recording.
+ */
+public class Metrics {
+
+  public static final String BYTES_IN = "protocol.bytes.in";
+  public static final String BYTES_OUT = "protocol.bytes.out";
+  public static final String MESSAGES_IN = "protocol.messages.in";
+  public static final String MESSAGES_OUT = "protocol.messages.out";
+  public static final String ROWS_RECEIVED = "protocol.rows.received";
+  public static final String STATEMENT_EXECUTION = "statement.execution";
+  public static final String RESULT_SET_FETCH_STALL = "result-set.fetch.stall";
+  public static final String CACHE_PARSED_SQL = "cache.parsed-sql";
+  public static final String CACHE_DESCRIPTION = "cache.description";
+  public static final String CACHE_PREPARED_STATEMENT = "cache.prepared-statement";
+  public static final String CONNECTION_STARTUP = "connection.startup";
+  public static final String CONNECTION_INIT = "connection.init";
+  public static final String CONNECTION_INIT_TYPES = "connection.init.types";
+  public static final String NOTIFICATIONS_DROPPED = "notification.dropped";
+
+  private static final Counter NO_COUNTER = new Counter() {
+
+    @Override
+    public void add(long amount) {
+    }
+
+    @Override
+    public long getCount() {
+      return 0;
+    }
+
+  };
+
+  private static final Histogram NO_HISTOGRAM = new Histogram() {
+
+    @Override
+    public void record(long value) {
+    }
+
+    @Override
+    public long getCount() {
+      return 0;
+    }
+
+  };
+
+  /**
+   * Hit & miss counters of a cache.
+   */
+  public static class CacheCounters {
+
+    private final Counter hits;
+    private final Counter misses;
+
+    CacheCounters(Metrics metrics, String cacheName) {
+      this.hits = metrics.counter(cacheName + ".hits");
+      this.misses = metrics.counter(cacheName + ".misses");
+    }
+
+    /**
+     * Records the outcome of a cache lookup.
+     *
+     * @param hit Whether the lookup found an entry
+     */
+    public void recordLookup(boolean hit) {
+      (hit ? hits : misses).increment();
+    }
+
+  }
+
+  public static final Metrics DISABLED = new Metrics(null);
+
+  private static final Map<String, MetricsRegistry> sharedRegistries = new ConcurrentHashMap<>();
+
+  private final MetricsRegistry registry;
+  private final Map<Class<?>, Histogram> requestLatencies = new ConcurrentHashMap<>();
+  private final Counter bytesIn;
+  private final Counter bytesOut;
+  private final Counter messagesIn;
+  private final Counter messagesOut;
+  private final Counter rowsReceived;
+  private final CacheCounters parsedSqlCache;
+  private final CacheCounters descriptionCache;
+  private final CacheCounters preparedStatementCache;
+
+  Metrics(MetricsRegistry registry) {
+    this.registry = registry;
+    this.bytesIn = counter(BYTES_IN);
+    this.bytesOut = counter(BYTES_OUT);
+    this.messagesIn = counter(MESSAGES_IN);
+    this.messagesOut = counter(MESSAGES_OUT);
+    this.rowsReceived = counter(ROWS_RECEIVED);
+    this.parsedSqlCache = new CacheCounters(this, CACHE_PARSED_SQL);
+    this.descriptionCache = new CacheCounters(this, CACHE_DESCRIPTION);
+    this.preparedStatementCache = new CacheCounters(this, CACHE_PREPARED_STATEMENT);
+  }
+
+  /**
+   * Creates the metrics for a new connection.
+   *
+   * @param config Configuration of the connection
+   * @return Metrics using the configured registry, or {@link #DISABLED}
+   */
+  public static Metrics create(Configuration config) {
+
+    if (!config.getSetting(METRICS_ENABLED)) {
+      return DISABLED;
+    }
+
+    String registryClassName = config.getSetting(METRICS_REGISTRY);
+    if (registryClassName == null || registryClassName.isEmpty()) {
+      return new Metrics(new DefaultMetricsRegistry());
+    }
+
+    return new Metrics(sharedRegistries.computeIfAbsent(registryClassName, Metrics::loadRegistry));
+  }
+
+  private static MetricsRegistry loadRegistry(String className) {
+    try {
+      Class<?> registryClass = Class.forName(className, true, Metrics.class.getClassLoader());
+      return (MetricsRegistry) registryClass.getConstructor().newInstance();
+    }
+    catch (ReflectiveOperationException | ClassCastException e) {
+      throw new IllegalArgumentException("Invalid metrics registry: " + className, e);
+    }
+  }
+
+  public boolean isEnabled() {
+    return registry != null;
+  }
+
+  /**
+   * Registry metrics are recorded in.
+   *
+   * @return Registry or {@code null} if metrics are disabled
+   */
+  public MetricsRegistry getRegistry() {
+    return registry;
+  }
+
+  public Counter counter(String name) {
+    return registry != null ? registry.counter(name) : NO_COUNTER;
+  }
+
+  public Histogram histogram(String name) {
+    return registry != null ? registry.histogram(name) : NO_HISTOGRAM;
+  }
+
+  /**
+   * Latency histogram, in nanoseconds, for requests of the given type.
+   *
+   * @param requestType Type of request
+   * @return Histogram named `request.[type].latency`
+   */
+  public Histogram requestLatency(Class<?> requestType) {
+    if (registry == null) return NO_HISTOGRAM;
+    return requestLatencies.computeIfAbsent(requestType,
+        key -> registry.histogram("request." + key.getSimpleName() + ".latency"));
+  }
+
+  public Counter getBytesIn() {
+    return bytesIn;
+  }
+
+  public Counter getBytesOut() {
+    return bytesOut;
+  }
+
+  public Counter getMessagesIn() {
+    return messagesIn;
+  }
+
+  public Counter getMessagesOut() {
+    return messagesOut;
+  }
+
+  public Counter getRowsReceived() {
+    return rowsReceived;
+  }
+
+  public CacheCounters getParsedSqlCache() {
+    return parsedSqlCache;
+  }
+
+  public CacheCounters getDescriptionCache() {
+    return descriptionCache;
+  }
+
+  public CacheCounters getPreparedStatementCache() {
+    return preparedStatementCache;
+  }
+
+}
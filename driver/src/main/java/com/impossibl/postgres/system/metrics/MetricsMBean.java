@@ -0,0 +1,182 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * Publishes the contents of a {@link DefaultMetricsRegistry} as read-only
+ * JMX attributes.
+ *
+ * Counters are published using their name, histograms as a set of
+ * attributes (`[name].count`, `.mean`, `.p50`, `.p99` &amp; `.max`) and
+ * caches with both `hits` &amp; `misses` counters are additionally published
+ * as `[name].hit-rate`. Attributes are determined each time they are read,
+ * so instruments registered after publishing are included.
+ */
+public class MetricsMBean implements DynamicMBean {
+
+  private static final Logger logger = Logger.getLogger(MetricsMBean.class.getName());
+
+  private static final String DOMAIN = "com.impossibl.postgres";
+  private static final AtomicLong nextId = new AtomicLong();
+
+  private final DefaultMetricsRegistry registry;
+
+  MetricsMBean(DefaultMetricsRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Registers an MBean for the registry with the platform MBean server.
+   *
+   * @param registry Registry to publish
+   * @return Name the MBean was registered under, or {@code null} if registration failed
+   */
+  public static ObjectName register(DefaultMetricsRegistry registry) {
+    try {
+      ObjectName name = new ObjectName(DOMAIN + ":type=Metrics,connection=" + nextId.incrementAndGet());
+      ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(registry), name);
+      return name;
+    }
+    catch (JMException e) {
+      logger.log(Level.WARNING, "Error registering metrics MBean", e);
+      return null;
+    }
+  }
+
+  public static void unregister(ObjectName name) {
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+    catch (JMException e) {
+      logger.log(Level.FINE, "Error unregistering metrics MBean", e);
+    }
+  }
+
+  private Map<String, Supplier<Object>> attributes() {
+    Map<String, Supplier<Object>> attributes = new TreeMap<>();
+
+    Map<String, DefaultCounter> counters = registry.getCounters();
+    counters.forEach((name, counter) -> {
+      attributes.put(name, counter::getCount);
+
+      if (name.endsWith(".hits")) {
+        String cacheName = name.substring(0, name.length() - ".hits".length());
+        DefaultCounter misses = counters.get(cacheName + ".misses");
+        if (misses != null) {
+          attributes.put(cacheName + ".hit-rate", () -> {
+            long hitCount = counter.getCount();
+            long total = hitCount + misses.getCount();
+            return total != 0 ? (double) hitCount / total : 0.0;
+          });
+        }
+      }
+    });
+
+    registry.getHistograms().forEach((name, histogram) -> {
+      attributes.put(name + ".count", histogram::getCount);
+      attributes.put(name + ".mean", histogram::getMean);
+      attributes.put(name + ".p50", () -> histogram.getValueAtPercentile(50));
+      attributes.put(name + ".p99", () -> histogram.getValueAtPercentile(99));
+      attributes.put(name + ".max", histogram::getMax);
+    });
+
+    return attributes;
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    Supplier<Object> value = attributes().get(attribute);
+    if (value == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return value.get();
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] names) {
+    Map<String, Supplier<Object>> attributes = attributes();
+
+    AttributeList list = new AttributeList();
+    for (String name : names) {
+      Supplier<Object> value = attributes.get(name);
+      if (value != null) {
+        list.add(new Attribute(name, value.get()));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only");
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+    throw new ReflectionException(new NoSuchMethodException(actionName));
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> infos = new ArrayList<>();
+    attributes().forEach((name, value) -> {
+      String type = name.endsWith(".mean") || name.endsWith(".hit-rate") ? Double.class.getName() : Long.class.getName();
+      infos.add(new MBeanAttributeInfo(name, type, name, true, false, false));
+    });
+
+    return new MBeanInfo(getClass().getName(), "PostgreSQL connection metrics",
+        infos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+  }
+
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.procs;
+
+import com.impossibl.postgres.system.Context;
+
+import static com.impossibl.postgres.protocol.TypeOid.BOOL;
+import static com.impossibl.postgres.protocol.TypeOid.FLOAT4;
+import static com.impossibl.postgres.protocol.TypeOid.FLOAT8;
+import static com.impossibl.postgres.protocol.TypeOid.INT2;
+import static com.impossibl.postgres.protocol.TypeOid.INT4;
+import static com.impossibl.postgres.protocol.TypeOid.INT8;
+import static com.impossibl.postgres.protocol.TypeOid.TEXT;
+import static com.impossibl.postgres.protocol.TypeOid.UUID;
+import static com.impossibl.postgres.protocol.TypeOid.VARCHAR;
+import static com.impossibl.postgres.system.SystemSettings.FIELD_LENGTH_MAX;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+import io.netty.buffer.ByteBuf;
+
+
+/**
+ * Bulk binary decoding & encoding of the elements of single dimension
+ * arrays with built-in element types, directly to & from Java arrays.
+ *
+ * Avoids the per element buffer, codec lookup & (for primitive arrays)
+ * boxing of the general array codec.
+ */
+class ArrayElements {
+
+  private ArrayElements() {
+  }
+
+  /**
+   * Decodes the elements of a single dimension array.
+   *
+   * @param context Context for decoding.
+   * @param elementTypeOid Type oid of the array elements.
+   * @param count Number of elements to decode.
+   * @param buffer Buffer positioned at the first element.
+   * @param componentType Component type of the requested Java array.
+   * @return Decoded array, or {@code null} if the element & component types are
+   * not supported by bulk decoding, or a {@code null} element cannot be stored in
+   * the requested primitive array. When {@code null} is returned the buffer is left
+   * untouched.
+   * @throws IOException If an element has an invalid length.
+   */
+  static Object decode(Context context, int elementTypeOid, int count, ByteBuf buffer, Class<?> componentType) throws IOException {
+
+    int start = buffer.readerIndex();
+
+    Object result = decodeElements(context, elementTypeOid, count, buffer, componentType);
+    if (result == null) {
+      buffer.readerIndex(start);
+    }
+
+    return result;
+  }
+
+  private static Object decodeElements(Context context, int elementTypeOid, int count, ByteBuf buffer, Class<?> componentType) throws IOException {
+
+    switch (elementTypeOid) {
+      case BOOL:
+        if (componentType == boolean.class) {
+          boolean[] values = new boolean[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 1)) return null;
+            values[c] = buffer.readByte() != 0;
+          }
+          return values;
+        }
+        if (componentType == Boolean.class) {
+          Boolean[] values = new Boolean[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 1)) values[c] = buffer.readByte() != 0;
+          }
+          return values;
+        }
+        break;
+
+      case INT2:
+        if (componentType == short.class) {
+          short[] values = new short[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 2)) return null;
+            values[c] = buffer.readShort();
+          }
+          return values;
+        }
+        if (componentType == Short.class) {
+          Short[] values = new Short[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 2)) values[c] = buffer.readShort();
+          }
+          return values;
+        }
+        break;
+
+      case INT4:
+        if (componentType == int.class) {
+          int[] values = new int[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 4)) return null;
+            values[c] = buffer.readInt();
+          }
+          return values;
+        }
+        if (componentType == Integer.class) {
+          Integer[] values = new Integer[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 4)) values[c] = buffer.readInt();
+          }
+          return values;
+        }
+        break;
+
+      case INT8:
+        if (componentType == long.class) {
+          long[] values = new long[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 8)) return null;
+            values[c] = buffer.readLong();
+          }
+          return values;
+        }
+        if (componentType == Long.class) {
+          Long[] values = new Long[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 8)) values[c] = buffer.readLong();
+          }
+          return values;
+        }
+        break;
+
+      case FLOAT4:
+        if (componentType == float.class) {
+          float[] values = new float[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 4)) return null;
+            values[c] = buffer.readFloat();
+          }
+          return values;
+        }
+        if (componentType == Float.class) {
+          Float[] values = new Float[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 4)) values[c] = buffer.readFloat();
+          }
+          return values;
+        }
+        break;
+
+      case FLOAT8:
+        if (componentType == double.class) {
+          double[] values = new double[count];
+          for (int c = 0; c < count; ++c) {
+            if (!readLength(buffer, 8)) return null;
+            values[c] = buffer.readDouble();
+          }
+          return values;
+        }
+        if (componentType == Double.class) {
+          Double[] values = new Double[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 8)) values[c] = buffer.readDouble();
+          }
+          return values;
+        }
+        break;
+
+      case UUID:
+        if (componentType == UUID.class) {
+          UUID[] values = new UUID[count];
+          for (int c = 0; c < count; ++c) {
+            if (readLength(buffer, 16)) values[c] = new UUID(buffer.readLong(), buffer.readLong());
+          }
+          return values;
+        }
+        break;
+
+      case TEXT:
+      case VARCHAR:
+        // Truncation of long values is left to the string codec
+        if (componentType == String.class && context.getSetting(FIELD_LENGTH_MAX) == null) {
+          Charset charset = context.getCharset();
+          String[] values = new String[count];
+          for (int c = 0; c < count; ++c) {
+            int length = buffer.readInt();
+            if (length != -1) {
+              values[c] = buffer.toString(buffer.readerIndex(), length, charset);
+              buffer.skipBytes(length);
+            }
+          }
+          return values;
+        }
+        break;
+
+      default:
+        break;
+    }
+
+    return null;
+  }
+
+  /**
+   * Encodes the elements of a single dimension array, including each
+   * element's length prefix.
+   *
+   * @param elementTypeOid Type oid of the array elements.
+   * @param array Java array of elements to encode.
+   * @param buffer Buffer to encode elements into.
+   * @return {@code true} if the elements were encoded, {@code false} if the
+   * element type & array type are not supported by bulk encoding; in which
+   * case nothing is written.
+   */
+  static boolean encode(int elementTypeOid, Object array, ByteBuf buffer) {
+
+    switch (elementTypeOid) {
+      case BOOL:
+        if (array instanceof boolean[]) {
+          boolean[] values = (boolean[]) array;
+          buffer.ensureWritable(values.length * 5);
+          for (boolean value : values) {
+            buffer.writeInt(1).writeByte(value ? 1 : 0);
+          }
+          return true;
+        }
+        if (array instanceof Boolean[]) {
+          for (Boolean value : (Boolean[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(1).writeByte(value ? 1 : 0);
+          }
+          return true;
+        }
+        break;
+
+      case INT2:
+        if (array instanceof short[]) {
+          short[] values = (short[]) array;
+          buffer.ensureWritable(values.length * 6);
+          for (short value : values) {
+            buffer.writeInt(2).writeShort(value);
+          }
+          return true;
+        }
+        if (array instanceof Short[]) {
+          for (Short value : (Short[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(2).writeShort(value);
+          }
+          return true;
+        }
+        break;
+
+      case INT4:
+        if (array instanceof int[]) {
+          int[] values = (int[]) array;
+          buffer.ensureWritable(values.length * 8);
+          for (int value : values) {
+            buffer.writeInt(4).writeInt(value);
+          }
+          return true;
+        }
+        if (array instanceof Integer[]) {
+          for (Integer value : (Integer[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(4).writeInt(value);
+          }
+          return true;
+        }
+        break;
+
+      case INT8:
+        if (array instanceof long[]) {
+          long[] values = (long[]) array;
+          buffer.ensureWritable(values.length * 12);
+          for (long value : values) {
+            buffer.writeInt(8).writeLong(value);
+          }
+          return true;
+        }
+        if (array instanceof Long[]) {
+          for (Long value : (Long[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(8).writeLong(value);
+          }
+          return true;
+        }
+        break;
+
+      case FLOAT4:
+        if (array instanceof float[]) {
+          float[] values = (float[]) array;
+          buffer.ensureWritable(values.length * 8);
+          for (float value : values) {
+            buffer.writeInt(4).writeFloat(value);
+          }
+          return true;
+        }
+        if (array instanceof Float[]) {
+          for (Float value : (Float[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(4).writeFloat(value);
+          }
+          return true;
+        }
+        break;
+
+      case FLOAT8:
+        if (array instanceof double[]) {
+          double[] values = (double[]) array;
+          buffer.ensureWritable(values.length * 12);
+          for (double value : values) {
+            buffer.writeInt(8).writeDouble(value);
+          }
+          return true;
+        }
+        if (array instanceof Double[]) {
+          for (Double value : (Double[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(8).writeDouble(value);
+          }
+          return true;
+        }
+        break;
+
+      case UUID:
+        if (array instanceof UUID[]) {
+          for (UUID value : (UUID[]) array) {
+            if (value == null) buffer.writeInt(-1);
+            else buffer.writeInt(16).writeLong(value.getMostSignificantBits()).writeLong(value.getLeastSignificantBits());
+          }
+          return true;
+        }
+        break;
+
+      default:
+        break;
+    }
+
+    return false;
+  }
+
+  /**
+   * Reads an element's length, verifying it matches the fixed length of its type.
+   *
+   * @return {@code true} if the element has a value, {@code false} if it is {@code null}.
+   */
+  private static boolean readLength(ByteBuf buffer, int length) throws IOException {
+    int elementLength = buffer.readInt();
+    if (elementLength == -1) {
+      return false;
+    }
+    if (elementLength != length) {
+      throw new IOException("invalid length");
+    }
+    return true;
+  }
+
+}
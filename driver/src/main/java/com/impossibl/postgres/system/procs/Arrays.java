@@ -125,6 +125,14 @@ public class Arrays extends SimpleProcProvider {
 
       int totalItems = strideOfDimensions(dimensions);
 
+      // Decode single dimension arrays of built-in types straight to the target array (if possible)
+      if (dimensionCount == 1 && targetClass.isArray() && !targetClass.getComponentType().isArray()) {
+        Object result = ArrayElements.decode(context, elementType.getId(), totalItems, buffer, targetClass.getComponentType());
+        if (result != null) {
+          return result;
+        }
+      }
+
       ByteBuf[] elementBufs = new ByteBuf[totalItems];
       for (int elementIdx = 0; elementIdx < totalItems; ++elementIdx) {
         int elementLength = buffer.readInt();
@@ -217,6 +225,10 @@ public class Arrays extends SimpleProcProvider {
 
     void writeElements(Context context, Type type, Object val, ByteBuf buffer) throws IOException {
 
+      if (ArrayElements.encode(type.getId(), val, buffer)) {
+        return;
+      }
+
       int len = Array.getLength(val);
 
       for (int c = 0; c < len; ++c) {
@@ -241,6 +253,10 @@ public class Arrays extends SimpleProcProvider {
 
     boolean hasNulls(Object value) {
 
+      if (value.getClass().getComponentType().isPrimitive()) {
+        return false;
+      }
+
       for (int c = 0, sz = Array.getLength(value); c < sz; ++c) {
         if (Array.get(value, c) == null)
           return true;
@@ -46,7 +46,26 @@ public class Numerics extends SimpleProcProvider {
 
   private static final short NUMERIC_POS = (short) 0x0000;
   private static final short NUMERIC_NEG = (short) 0x4000;
+  private static final short NUMERIC_NAN = (short) 0xC000;
   private static final short DEC_DIGITS = 4;
+  private static final int NBASE = 10000;
+
+  // Largest value that can be multiplied by NBASE, and have a digit added, without overflowing
+  private static final long LONG_ACCUMULATE_MAX = (Long.MAX_VALUE - (NBASE - 1)) / NBASE;
+  // Maximum decimal precision of a value encoded via a long
+  private static final int LONG_PRECISION_MAX = 18;
+  private static final long[] LONG_TEN_POWERS = new long[LONG_PRECISION_MAX + 1];
+  private static final BigInteger[] BIG_NBASE_POWERS = new BigInteger[DEC_DIGITS + 1];
+
+  static {
+    LONG_TEN_POWERS[0] = 1;
+    for (int c = 1; c < LONG_TEN_POWERS.length; ++c) {
+      LONG_TEN_POWERS[c] = LONG_TEN_POWERS[c - 1] * 10;
+    }
+    for (int c = 0; c < BIG_NBASE_POWERS.length; ++c) {
+      BIG_NBASE_POWERS[c] = BigInteger.valueOf(NBASE).pow(c);
+    }
+  }
 
   public Numerics() {
     super(new TxtEncoder(), new TxtDecoder(), new BinEncoder(), new BinDecoder(), "numeric_");
@@ -143,26 +162,21 @@ public class Numerics extends SimpleProcProvider {
       int readStart = buffer.readerIndex();
 
       short digitCount = buffer.readShort();
-      short[] info = new short[3];
-      info[0] = buffer.readShort(); //weight
-      info[1] = buffer.readShort(); //sign
-      info[2] = buffer.readShort(); //displayScale
+      short weight = buffer.readShort();
+      short sign = buffer.readShort();
+      short displayScale = buffer.readShort();
 
-      if (info[0] == 0 && info[1] == -16384 && info[2] == 0) {
+      if (weight == 0 && sign == NUMERIC_NAN && displayScale == 0) {
         return Double.NaN;
       }
 
-      short[] digits = new short[digitCount];
-      for (int d = 0; d < digits.length; ++d)
-        digits[d] = buffer.readShort();
-
-      String num = decodeToString(info[0], info[1], info[2], digits);
+      BigDecimal value = decodeToBigDecimal(digitCount, weight, sign, displayScale, buffer);
 
       if (length != buffer.readerIndex() - readStart) {
         throw new IOException("invalid length");
       }
 
-      return new BigDecimal(num);
+      return value;
     }
 
   }
@@ -181,10 +195,10 @@ public class Numerics extends SimpleProcProvider {
     @Override
     protected void encodeNativeValue(Context context, Type type, Number value, Object sourceContext, ByteBuf buffer) throws IOException {
 
-      if (Double.isNaN(value.doubleValue())) {
+      if (!(value instanceof BigDecimal) && Double.isNaN(value.doubleValue())) {
         buffer.writeShort(0);
         buffer.writeShort(0);
-        buffer.writeShort(-16384);
+        buffer.writeShort(NUMERIC_NAN);
         buffer.writeShort(0);
         return;
       }
@@ -195,21 +209,7 @@ public class Numerics extends SimpleProcProvider {
         decimal = decimal.setScale(scale, RoundingMode.HALF_UP);
       }
 
-      String num = decimal.toPlainString();
-
-      short[] info = new short[3];
-      short[] digits = encodeFromString(num, info);
-
-      buffer.writeShort(digits.length);
-
-      buffer.writeShort(info[0]); //weight
-      buffer.writeShort(info[1]); //sign
-      buffer.writeShort(info[2]); //displayScale
-
-      for (short digit : digits) {
-        buffer.writeShort(digit);
-      }
-
+      encodeFromBigDecimal(decimal, buffer);
     }
 
   }
@@ -251,154 +251,129 @@ public class Numerics extends SimpleProcProvider {
   }
 
   /**
-   * Encodes a string of the plain form xxxx.xxx into an NBASE packed sequence
-   * of shorts.
+   * Decodes a sequence of NBASE packed digits directly into a BigDecimal
+   * with the given display scale.
+   *
+   * Digits are accumulated in a {@code long} while they fit, only switching
+   * to a {@link BigInteger} for values with a larger precision.
    */
-  private static short[] encodeFromString(String num, short[] info) {
-
-    char[] numChars = num.toCharArray();
-    byte[] numDigs = new byte[numChars.length - 1 + DEC_DIGITS * 2];
-    int ch = 0;
-    int digs = DEC_DIGITS;
-    boolean haveDP = false;
+  private static BigDecimal decodeToBigDecimal(int digitCount, short weight, short sign, short displayScale, ByteBuf buffer) {
 
-    //Swallow leading zeros
-    while (ch < numChars.length && numChars[ch] == '0')
-      ch++;
+    // Decimal scale of the digits as an integer (negative when the digits are followed by zeros)
+    int digitsScale = (digitCount - 1 - weight) * DEC_DIGITS;
+    int rescale = displayScale - digitsScale;
 
-    short sign = NUMERIC_POS;
-    short displayWeight = -1;
-    short displayScale = 0;
-
-    if (ch < numChars.length && numChars[ch] == '-') {
-      sign = NUMERIC_NEG;
-      ++ch;
+    long unscaled = 0;
+    int d = 0;
+    while (d < digitCount && unscaled <= LONG_ACCUMULATE_MAX) {
+      unscaled = unscaled * NBASE + buffer.readShort();
+      ++d;
     }
 
-    /*
-     * Copy to array of single byte digits
-     */
-
-    while (ch < numChars.length) {
+    if (d == digitCount) {
 
-      if (numChars[ch] == '.') {
-
-        haveDP = true;
-        ch++;
+      if (rescale > 0 && rescale <= LONG_PRECISION_MAX && unscaled <= Long.MAX_VALUE / LONG_TEN_POWERS[rescale]) {
+        return BigDecimal.valueOf(sign == NUMERIC_NEG ? -unscaled * LONG_TEN_POWERS[rescale] : unscaled * LONG_TEN_POWERS[rescale], displayScale);
       }
-      else {
-
-        numDigs[digs++] = (byte) (numChars[ch++] - '0');
-        if (!haveDP)
-          displayWeight++;
-        else
-          displayScale++;
+      else if (rescale <= 0 && -rescale <= LONG_PRECISION_MAX) {
+        // Drop any digits beyond the display scale
+        unscaled /= LONG_TEN_POWERS[-rescale];
+        return BigDecimal.valueOf(sign == NUMERIC_NEG ? -unscaled : unscaled, displayScale);
       }
 
     }
 
-    digs -= DEC_DIGITS;
-
-    /*
-     * Pack into NBASE format
-     */
+    BigInteger bigUnscaled = BigInteger.valueOf(unscaled);
 
-    short weight;
-
-    if (displayWeight >= 0)
-      weight = (short) ((displayWeight + 1 + DEC_DIGITS - 1) / DEC_DIGITS - 1);
-    else
-      weight = (short) -((-displayWeight - 1) / DEC_DIGITS + 1);
-
-    int offset = (weight + 1) * DEC_DIGITS - (displayWeight + 1);
-    int digitCount = (digs + offset + DEC_DIGITS - 1) / DEC_DIGITS;
-
-    int i = DEC_DIGITS - offset;
-    short[] digits = new short[digitCount];
-    int d = 0;
+    // Accumulate remaining digits in groups to limit BigInteger operations
+    while (d < digitCount) {
+      int groupCount = Math.min(DEC_DIGITS, digitCount - d);
+      long group = 0;
+      for (int g = 0; g < groupCount; ++g, ++d) {
+        group = group * NBASE + buffer.readShort();
+      }
+      bigUnscaled = bigUnscaled.multiply(BIG_NBASE_POWERS[groupCount]).add(BigInteger.valueOf(group));
+    }
 
-    while (digitCount-- > 0) {
-      digits[d++] = (short) (((numDigs[i] * 10 + numDigs[i + 1]) * 10 + numDigs[i + 2]) * 10 + numDigs[i + 3]);
-      i += DEC_DIGITS;
+    if (rescale > 0) {
+      bigUnscaled = bigUnscaled.multiply(BigInteger.TEN.pow(rescale));
+    }
+    else if (rescale < 0) {
+      bigUnscaled = bigUnscaled.divide(BigInteger.TEN.pow(-rescale));
     }
 
-    info[0] = weight;
-    info[1] = sign;
-    info[2] = displayScale;
-    return digits;
+    return new BigDecimal(sign == NUMERIC_NEG ? bigUnscaled.negate() : bigUnscaled, displayScale);
   }
 
   /**
-   * Decodes a sequence of digits NBASE packed in shorts into a string of the
-   * plain form xxxx.xxx
+   * Encodes a BigDecimal directly into a sequence of NBASE packed digits,
+   * including the digit count, weight, sign & display scale header.
+   *
+   * Values with a precision that fits in a {@code long} are packed without
+   * creating a {@link BigInteger}.
    */
-  private static String decodeToString(short weight, short sign, short displayScale, short[] digits) {
-
-    StringBuilder sb = new StringBuilder();
+  private static void encodeFromBigDecimal(BigDecimal decimal, ByteBuf buffer) {
 
-    if (sign == NUMERIC_NEG) {
-      sb.append('-');
-    }
+    int scale = decimal.scale();
+    short sign = decimal.signum() < 0 ? NUMERIC_NEG : NUMERIC_POS;
+    short displayScale = (short) Math.max(scale, 0);
 
-    /*
-     * Digits before decimal
-     */
-    int d;
+    // Align decimal point with an NBASE digit boundary
+    int alignedScale = (displayScale + DEC_DIGITS - 1) / DEC_DIGITS * DEC_DIGITS;
+    int shift = alignedScale - scale;
 
-    if (weight < 0) {
-      d = weight + 1;
-      sb.append(0);
-    }
-    else {
+    // NBASE digits, least significant first
+    short[] digits;
+    int digitCount = 0;
 
-      for (d = 0; d <= weight; d++) {
+    if (decimal.precision() + shift <= LONG_PRECISION_MAX) {
 
-        short dig = d < digits.length ? digits[d] : 0;
-        boolean putIt = (d > 0);
-
-        for (int b = 1000; b > 1; b /= 10) {
-
-          short d1 = (short) (dig / b);
-          dig -= d1 * b;
-          putIt |= d1 > 0;
-          if (putIt)
-            sb.append((char) (d1 + '0'));
-        }
-
-        sb.append((char) (dig + '0'));
+      long unscaled = Math.abs(decimal.scaleByPowerOfTen(scale).longValueExact()) * LONG_TEN_POWERS[shift];
 
+      digits = new short[(LONG_PRECISION_MAX + DEC_DIGITS - 1) / DEC_DIGITS];
+      while (unscaled != 0) {
+        digits[digitCount++] = (short) (unscaled % NBASE);
+        unscaled /= NBASE;
       }
 
     }
+    else {
 
-    /*
-     * Digits after decimal
-     */
-
-    if (displayScale > 0) {
-
-      sb.append('.');
-
-      int length = sb.length() + displayScale;
-
-      for (int i = 0; i < displayScale; d++, i += DEC_DIGITS) {
+      BigInteger unscaled = decimal.unscaledValue().abs();
+      if (shift > 0) {
+        unscaled = unscaled.multiply(BigInteger.TEN.pow(shift));
+      }
 
-        short dig = (d >= 0 && d < digits.length) ? digits[d] : 0;
+      // Each NBASE digit holds at least 13 bits
+      digits = new short[unscaled.bitLength() / 13 + 1];
+      while (unscaled.signum() != 0) {
+        BigInteger[] groupAndRemainder = unscaled.divideAndRemainder(BIG_NBASE_POWERS[DEC_DIGITS]);
+        unscaled = groupAndRemainder[0];
+        long group = groupAndRemainder[1].longValue();
+        for (int g = 0; g < DEC_DIGITS && (group != 0 || unscaled.signum() != 0); ++g) {
+          digits[digitCount++] = (short) (group % NBASE);
+          group /= NBASE;
+        }
+      }
 
-        for (int b = 1000; b > 1 && sb.length() < length; b /= 10) {
+    }
 
-          short d1 = (short) (dig / b);
-          dig -= d1 * b;
-          sb.append((char) (d1 + '0'));
-        }
+    // Trailing zero digits are not transmitted
+    int lowest = 0;
+    while (lowest < digitCount && digits[lowest] == 0) {
+      ++lowest;
+    }
 
-        if (sb.length() < length)
-          sb.append((char) (dig + '0'));
+    short weight = digitCount != 0 ? (short) (digitCount - 1 - alignedScale / DEC_DIGITS) : 0;
 
-      }
+    buffer.writeShort(digitCount - lowest);
+    buffer.writeShort(weight);
+    buffer.writeShort(sign);
+    buffer.writeShort(displayScale);
 
+    for (int d = digitCount - 1; d >= lowest; --d) {
+      buffer.writeShort(digits[d]);
     }
-    return sb.toString();
   }
 
 }
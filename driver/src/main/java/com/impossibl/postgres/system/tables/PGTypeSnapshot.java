@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.system.tables;
+
+import com.impossibl.postgres.system.ServerConnectionInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+
+/**
+ * On-disk snapshot of the "pg_type" rows used to seed a shared registry.
+ *
+ * Snapshots are keyed by server address, version & database and are
+ * only used when the catalog fingerprint they were saved with matches
+ * the current fingerprint of the server's catalog.
+ */
+public class PGTypeSnapshot {
+
+  private static final Logger logger = Logger.getLogger(PGTypeSnapshot.class.getName());
+
+  /**
+   * Query producing a cheap fingerprint of the catalog rows included in
+   * the snapshot. Any creation, alteration or removal of a non-composite type
+   * (or schema) changes the count, max oid or transaction ids summed.
+   */
+  public static final String FINGERPRINT_SQL =
+      "SELECT" +
+          " count(*) || ':' || max(oid::int8) || ':' || sum(xmin::text::int8) || ':' ||" +
+          " (SELECT sum(xmin::text::int8) FROM pg_catalog.pg_namespace)" +
+          " FROM pg_catalog.pg_type WHERE typrelid = 0";
+
+  private static final int MAGIC = 0x50475453;
+  private static final short FORMAT_VERSION = 1;
+
+  private Path file;
+  private String serverVersion;
+  private String database;
+  private String fingerprint;
+
+  public PGTypeSnapshot(Path directory, ServerConnectionInfo info, String fingerprint) {
+    this.serverVersion = info.getServerInfo().getVersion().toString();
+    this.database = info.getDatabase();
+    this.fingerprint = fingerprint;
+
+    String key = info.getHost() + "/" + database + "/" + serverVersion;
+    this.file = directory.resolve("pg-types-" + UUID.nameUUIDFromBytes(key.getBytes(UTF_8)) + ".snapshot");
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Loads the snapshot's rows by memory mapping the snapshot file.
+   *
+   * @return Rows of the snapshot or null if no snapshot exists, it
+   * is unreadable or it does not match the current catalog.
+   */
+  public List<PGTypeTable.Row> load() {
+
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, READ)) {
+
+      ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      if (in.getInt() != MAGIC || in.getShort() != FORMAT_VERSION) {
+        logger.config("Ignoring type snapshot with unknown format: " + file);
+        return null;
+      }
+
+      if (!serverVersion.equals(readString(in)) || !database.equals(readString(in)) || !fingerprint.equals(readString(in))) {
+        logger.config("Ignoring stale type snapshot: " + file);
+        return null;
+      }
+
+      int rowCount = in.getInt();
+      if (rowCount < 0 || rowCount > in.remaining()) {
+        throw new IOException("Invalid row count: " + rowCount);
+      }
+
+      List<PGTypeTable.Row> rows = new ArrayList<>(rowCount);
+      for (int rowIdx = 0; rowIdx < rowCount; ++rowIdx) {
+        PGTypeTable.Row row = new PGTypeTable.Row();
+        row.read(in);
+        rows.add(row);
+      }
+
+      return rows;
+    }
+    catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+      logger.log(Level.WARNING, "Error reading type snapshot: " + file, e);
+      return null;
+    }
+
+  }
+
+  /**
+   * Saves the given rows as the snapshot, atomically replacing
+   * any existing snapshot.
+   *
+   * @param rows Rows to save.
+   * @throws IOException If an error occurs writing the snapshot.
+   */
+  public void save(List<PGTypeTable.Row> rows) throws IOException {
+
+    Path directory = file.toAbsolutePath().getParent();
+    Files.createDirectories(directory);
+
+    Path tempFile = Files.createTempFile(directory, "pg-types-", ".tmp");
+    try {
+
+      try (OutputStream os = Files.newOutputStream(tempFile);
+           DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+
+        out.writeInt(MAGIC);
+        out.writeShort(FORMAT_VERSION);
+        writeString(out, serverVersion);
+        writeString(out, database);
+        writeString(out, fingerprint);
+
+        out.writeInt(rows.size());
+        for (PGTypeTable.Row row : rows) {
+          row.write(out);
+        }
+      }
+
+      Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+    finally {
+      Files.deleteIfExists(tempFile);
+    }
+
+  }
+
+  static String readString(ByteBuffer in) throws IOException {
+    int length = in.getInt();
+    if (length == -1) {
+      return null;
+    }
+    if (length < 0 || length > in.remaining()) {
+      throw new IOException("Invalid string length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  static void writeString(DataOutput out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+}
@@ -32,9 +32,13 @@ import com.impossibl.postgres.protocol.ResultBatch;
 import com.impossibl.postgres.system.Context;
 import com.impossibl.postgres.system.Version;
 
+import static com.impossibl.postgres.system.tables.PGTypeSnapshot.readString;
+import static com.impossibl.postgres.system.tables.PGTypeSnapshot.writeString;
 import static com.impossibl.postgres.system.tables.Table.getFieldOfRow;
 
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 
 /**
@@ -119,6 +123,59 @@ public class PGTypeTable implements Table<PGTypeTable.Row> {
       this.rangeBaseTypeId = getFieldOfRow(resultBatch, rowIdx, RANGE_BASE_TYPE_ID, context, Integer.class);
     }
 
+    void read(ByteBuffer in) throws IOException {
+      this.oid = in.getInt();
+      this.name = readString(in);
+      this.length = in.getShort();
+      this.discriminator = readString(in);
+      this.category = readString(in);
+      this.deliminator = readString(in);
+      this.relationId = in.getInt();
+      this.elementTypeId = in.getInt();
+      this.arrayTypeId = in.getInt();
+      this.inputId = readString(in);
+      this.outputId = readString(in);
+      this.receiveId = readString(in);
+      this.sendId = readString(in);
+      this.modInId = readString(in);
+      this.modOutId = readString(in);
+      this.alignment = readString(in);
+      this.domainBaseTypeId = in.getInt();
+      this.domainTypeMod = in.getInt();
+      this.domainNotNull = in.get() != 0;
+      this.namespace = readString(in);
+      this.domainDefault = readString(in);
+      this.rangeBaseTypeId = in.get() != 0 ? in.getInt() : null;
+    }
+
+    void write(DataOutput out) throws IOException {
+      out.writeInt(oid);
+      writeString(out, name);
+      out.writeShort(length);
+      writeString(out, discriminator);
+      writeString(out, category);
+      writeString(out, deliminator);
+      out.writeInt(relationId);
+      out.writeInt(elementTypeId);
+      out.writeInt(arrayTypeId);
+      writeString(out, inputId);
+      writeString(out, outputId);
+      writeString(out, receiveId);
+      writeString(out, sendId);
+      writeString(out, modInId);
+      writeString(out, modOutId);
+      writeString(out, alignment);
+      out.writeInt(domainBaseTypeId);
+      out.writeInt(domainTypeMod);
+      out.writeBoolean(domainNotNull);
+      writeString(out, namespace);
+      writeString(out, domainDefault);
+      out.writeBoolean(rangeBaseTypeId != null);
+      if (rangeBaseTypeId != null) {
+        out.writeInt(rangeBaseTypeId);
+      }
+    }
+
     public int getOid() {
       return oid;
     }
@@ -290,6 +290,10 @@ public class SharedRegistry {
 
   }
 
+  public boolean isSeeded() {
+    return seeded.get();
+  }
+
   public boolean seed(Seeder seeder) throws IOException {
 
     if (seeded.getAndSet(true)) {
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded cache safe for concurrent use, with approximate LRU eviction.
+ *
+ * Lookups are lock-free; each entry tracks recent use with a "referenced"
+ * flag and, once the cache is full, entries are evicted using the CLOCK
+ * (second chance) algorithm. Only threads inserting into a full cache
+ * synchronize with each other.
+ *
+ * The eviction handler is notified of values that are evicted and of
+ * values that are replaced by {@link #put(Object, Object)}.
+ *
+ * @param <K> Key type
+ * @param <V> Value type
+ */
+public class ConcurrentCache<K, V> {
+
+  private static class Entry<K, V> {
+
+    final K key;
+    final V value;
+    volatile boolean referenced;
+
+    Entry(K key, V value) {
+      this.key = key;
+      this.value = value;
+    }
+
+  }
+
+  private final int maxSize;
+  private final BiConsumer<K, V> evictionHandler;
+  private final ConcurrentHashMap<K, Entry<K, V>> entries;
+  private final Queue<Entry<K, V>> clock;
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder evictions;
+  private final AtomicInteger staleEntries;
+
+  public ConcurrentCache(int maxSize) {
+    this(maxSize, null);
+  }
+
+  public ConcurrentCache(int maxSize, BiConsumer<K, V> evictionHandler) {
+    this.maxSize = maxSize;
+    this.evictionHandler = evictionHandler;
+    this.entries = new ConcurrentHashMap<>(maxSize + 1);
+    this.clock = new ConcurrentLinkedQueue<>();
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.evictions = new LongAdder();
+    this.staleEntries = new AtomicInteger();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public V get(K key) {
+
+    Entry<K, V> entry = entries.get(key);
+    if (entry == null) {
+      misses.increment();
+      return null;
+    }
+
+    // Only write when needed, avoiding contention on frequently used entries
+    if (!entry.referenced) {
+      entry.referenced = true;
+    }
+
+    hits.increment();
+    return entry.value;
+  }
+
+  public void put(K key, V value) {
+
+    Entry<K, V> entry = new Entry<>(key, value);
+    Entry<K, V> displaced = entries.put(key, entry);
+
+    admit(entry);
+
+    if (displaced != null) {
+      displace(displaced, value);
+    }
+  }
+
+  public V putIfAbsent(K key, V value) {
+
+    Entry<K, V> entry = new Entry<>(key, value);
+    Entry<K, V> existing = entries.putIfAbsent(key, entry);
+    if (existing != null) {
+      return existing.value;
+    }
+
+    admit(entry);
+    return null;
+  }
+
+  /**
+   * Performs an action for each entry currently in the cache; entries
+   * concurrently added or removed may or may not be visited.
+   *
+   * @param action Action to perform
+   */
+  public void forEach(BiConsumer<? super K, ? super V> action) {
+    entries.forEach((key, entry) -> action.accept(key, entry.value));
+  }
+
+  /**
+   * Retrieves the value of a key without recording its use.
+   *
+   * @param key Key to lookup
+   * @return Value of key or {@code null} if it is not cached
+   */
+  public V peek(K key) {
+    Entry<K, V> entry = entries.get(key);
+    return entry != null ? entry.value : null;
+  }
+
+  private void displace(Entry<K, V> displaced, V value) {
+
+    // Displaced entries remain in the clock until visited; purge them
+    // before they can outnumber the cached entries
+    if (staleEntries.incrementAndGet() > maxSize) {
+      purge();
+    }
+
+    if (evictionHandler != null && displaced.value != value) {
+      evictionHandler.accept(displaced.key, displaced.value);
+    }
+  }
+
+  private void purge() {
+
+    synchronized (clock) {
+
+      int purged = 0;
+      for (Iterator<Entry<K, V>> iter = clock.iterator(); iter.hasNext();) {
+        Entry<K, V> entry = iter.next();
+        if (entries.get(entry.key) != entry) {
+          iter.remove();
+          purged++;
+        }
+      }
+
+      staleEntries.addAndGet(-purged);
+    }
+
+  }
+
+  // Visible for testing
+  int getClockSize() {
+    return clock.size();
+  }
+
+  private void admit(Entry<K, V> entry) {
+
+    clock.add(entry);
+
+    if (entries.size() > maxSize) {
+      evict();
+    }
+  }
+
+  private void evict() {
+
+    List<Entry<K, V>> evicted = new ArrayList<>();
+
+    synchronized (clock) {
+
+      while (entries.size() > maxSize) {
+
+        Entry<K, V> entry = clock.poll();
+        if (entry == null) {
+          break;
+        }
+
+        if (entry.referenced) {
+          // Used since last visited, give it a second chance
+          entry.referenced = false;
+          clock.add(entry);
+        }
+        else if (entries.remove(entry.key, entry)) {
+          evictions.increment();
+          evicted.add(entry);
+        }
+        else {
+          // Entry was replaced and is simply dropped
+          staleEntries.decrementAndGet();
+        }
+      }
+
+    }
+
+    // Notify outside of the lock, handlers may be slow
+    if (evictionHandler != null) {
+      for (Entry<K, V> entry : evicted) {
+        evictionHandler.accept(entry.key, entry.value);
+      }
+    }
+
+  }
+
+  @Override
+  public String toString() {
+    return "ConcurrentCache{size=" + size() + ", maxSize=" + maxSize +
+        ", hits=" + getHitCount() + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "}";
+  }
+
+}
@@ -45,6 +45,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Struct;
 import java.sql.Types;
+import java.util.UUID;
 
 import org.junit.After;
 import org.junit.Before;
@@ -672,6 +673,48 @@ public class ArrayTest {
     }
   }
 
+  @Test
+  public void testPrimitiveArrays() throws SQLException {
+    UUID uuid = UUID.randomUUID();
+
+    try (PreparedStatement pstmt = conn.prepareStatement("SELECT ?::bool[], ?::int2[], ?::int4[], ?::int8[], ?::float4[], ?::float8[], ?::uuid[], ?::text[]")) {
+      pstmt.setObject(1, new boolean[] {true, false});
+      pstmt.setObject(2, new short[] {1, -2, Short.MAX_VALUE});
+      pstmt.setObject(3, new int[] {1, -2, Integer.MAX_VALUE});
+      pstmt.setObject(4, new long[] {1, -2, Long.MAX_VALUE});
+      pstmt.setObject(5, new float[] {1.5f, -2.5f});
+      pstmt.setObject(6, new double[] {1.5, -2.5});
+      pstmt.setObject(7, new UUID[] {uuid, null});
+      pstmt.setObject(8, new String[] {"a", null, "\u00e9"});
+
+      try (ResultSet rs = pstmt.executeQuery()) {
+        assertTrue(rs.next());
+        assertArrayEquals(new boolean[] {true, false}, rs.getObject(1, boolean[].class));
+        assertArrayEquals(new short[] {1, -2, Short.MAX_VALUE}, rs.getObject(2, short[].class));
+        assertArrayEquals(new int[] {1, -2, Integer.MAX_VALUE}, rs.getObject(3, int[].class));
+        assertArrayEquals(new long[] {1, -2, Long.MAX_VALUE}, rs.getObject(4, long[].class));
+        assertArrayEquals(new float[] {1.5f, -2.5f}, rs.getObject(5, float[].class), 0);
+        assertArrayEquals(new double[] {1.5, -2.5}, rs.getObject(6, double[].class), 0);
+        assertArrayEquals(new UUID[] {uuid, null}, rs.getObject(7, UUID[].class));
+        assertArrayEquals(new String[] {"a", null, "\u00e9"}, rs.getObject(8, String[].class));
+
+        // Boxed & converted targets
+        assertArrayEquals(new Integer[] {1, -2, Integer.MAX_VALUE}, rs.getObject(3, Integer[].class));
+        assertArrayEquals(new Long[] {1L, -2L, (long) Integer.MAX_VALUE}, rs.getObject(3, Long[].class));
+        assertArrayEquals(new Integer[] {1, -2, Integer.MAX_VALUE}, (Integer[]) rs.getArray(3).getArray());
+      }
+    }
+
+    try (PreparedStatement pstmt = conn.prepareStatement("SELECT ?::int4[]")) {
+      pstmt.setObject(1, new Integer[] {1, null, 3});
+
+      try (ResultSet rs = pstmt.executeQuery()) {
+        assertTrue(rs.next());
+        assertArrayEquals(new Integer[] {1, null, 3}, rs.getObject(1, Integer[].class));
+      }
+    }
+  }
+
   @Test
   public void testSetObjectFromJavaArray() throws SQLException {
     String[] strArray = new String[] {"a", "b", "c"};
@@ -47,6 +47,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Properties;
 
 import org.junit.After;
 import org.junit.Before;
@@ -412,6 +413,200 @@ public class BatchExecuteTest {
 
   }
 
+  @Test
+  public void testPreparedStatementWithMixedTypes() throws SQLException {
+
+    try (Statement stmt = con.createStatement()) {
+
+      stmt.execute("CREATE TEMP TABLE batchmixed (idx int, a text)");
+
+      con.commit();
+
+      try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO batchmixed VALUES (?, ?)")) {
+
+        for (int c = 0; c < 10; ++c) {
+          pstmt.setInt(1, c);
+          if (c % 3 == 0) {
+            pstmt.setInt(2, c);
+          }
+          else if (c % 3 == 1) {
+            pstmt.setNull(2, Types.VARCHAR);
+          }
+          else {
+            pstmt.setString(2, "s" + c);
+          }
+          pstmt.addBatch();
+        }
+
+        int[] counts = pstmt.executeBatch();
+        assertEquals(10, counts.length);
+        for (int count : counts) {
+          assertEquals(1, count);
+        }
+
+        con.commit();
+      }
+
+      try (ResultSet rs = stmt.executeQuery("SELECT a FROM batchmixed ORDER BY idx")) {
+
+        for (int c = 0; c < 10; ++c) {
+          assertTrue(rs.next());
+          if (c % 3 == 0) {
+            assertEquals(Integer.toString(c), rs.getString(1));
+          }
+          else if (c % 3 == 1) {
+            assertNull(rs.getString(1));
+          }
+          else {
+            assertEquals("s" + c, rs.getString(1));
+          }
+        }
+      }
+
+    }
+
+  }
+
+  @Test
+  public void testPreparedStatementWithCopy() throws SQLException {
+
+    Properties props = new Properties();
+    props.setProperty("batch.copy", "true");
+
+    try (Connection copyCon = TestUtil.openDB(props)) {
+
+      TestUtil.createTempTable(copyCon, "batchcopy", "idx int, a text, b int8, c varchar(10)");
+
+      try (PreparedStatement pstmt = copyCon.prepareStatement("INSERT INTO batchcopy (idx, a, b, c) VALUES (?, ?, ?, ?)")) {
+
+        for (int c = 0; c < 100; ++c) {
+          pstmt.setInt(1, c);
+          pstmt.setString(2, "Row " + c);
+          if (c % 2 == 0) {
+            pstmt.setLong(3, c * 1000L);
+          }
+          else {
+            pstmt.setNull(3, Types.BIGINT);
+          }
+          pstmt.setString(4, "c" + c);
+          pstmt.addBatch();
+        }
+
+        int[] counts = pstmt.executeBatch();
+        assertEquals(100, counts.length);
+        for (int count : counts) {
+          assertEquals(1, count);
+        }
+
+        // Incompatible (int4 into text) batches fall back to normal execution
+        pstmt.setInt(1, 100);
+        pstmt.setInt(2, 100);
+        pstmt.setLong(3, 100L);
+        pstmt.setString(4, "c100");
+        pstmt.addBatch();
+
+        assertEquals(1, pstmt.executeBatch().length);
+      }
+
+      try (Statement stmt = copyCon.createStatement()) {
+        try (ResultSet rs = stmt.executeQuery("SELECT idx, a, b, c FROM batchcopy ORDER BY idx")) {
+          for (int c = 0; c < 100; ++c) {
+            assertTrue(rs.next());
+            assertEquals(c, rs.getInt(1));
+            assertEquals("Row " + c, rs.getString(2));
+            assertEquals(c % 2 == 0 ? Long.valueOf(c * 1000L) : null, rs.getObject(3));
+            assertEquals("c" + c, rs.getString(4));
+          }
+          assertTrue(rs.next());
+          assertEquals("100", rs.getString(2));
+        }
+      }
+
+    }
+
+  }
+
+  @Test
+  public void testPreparedStatementWithCopyIntoRuleTable() throws SQLException {
+
+    Properties props = new Properties();
+    props.setProperty("batch.copy", "true");
+
+    try (Connection copyCon = TestUtil.openDB(props)) {
+
+      TestUtil.createTempTable(copyCon, "batchcopyrules", "idx int, a text");
+      TestUtil.createTempTable(copyCon, "batchcopylog", "idx int");
+
+      try (Statement stmt = copyCon.createStatement()) {
+        stmt.execute("CREATE RULE batchcopyrule AS ON INSERT TO batchcopyrules DO INSTEAD INSERT INTO batchcopylog VALUES (NEW.idx)");
+      }
+
+      // COPY ignores rules; the batch must be executed normally for the rule to apply
+      try (PreparedStatement pstmt = copyCon.prepareStatement("INSERT INTO batchcopyrules (idx, a) VALUES (?, ?)")) {
+
+        for (int c = 0; c < 10; ++c) {
+          pstmt.setInt(1, c);
+          pstmt.setString(2, "Row " + c);
+          pstmt.addBatch();
+        }
+
+        assertEquals(10, pstmt.executeBatch().length);
+      }
+
+      try (Statement stmt = copyCon.createStatement()) {
+        try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM batchcopyrules")) {
+          assertTrue(rs.next());
+          assertEquals(0, rs.getInt(1));
+        }
+        try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM batchcopylog")) {
+          assertTrue(rs.next());
+          assertEquals(10, rs.getInt(1));
+        }
+      }
+
+    }
+
+  }
+
+  @Test
+  public void testPreparedStatementWithCopyIntoRowSecurityTable() throws SQLException {
+
+    Properties props = new Properties();
+    props.setProperty("batch.copy", "true");
+
+    try (Connection copyCon = TestUtil.openDB(props)) {
+
+      TestUtil.createTempTable(copyCon, "batchcopyrls", "idx int, a text");
+
+      try (Statement stmt = copyCon.createStatement()) {
+        stmt.execute("CREATE POLICY batchcopypolicy ON batchcopyrls USING (true) WITH CHECK (idx >= 0)");
+        stmt.execute("ALTER TABLE batchcopyrls ENABLE ROW LEVEL SECURITY");
+        stmt.execute("ALTER TABLE batchcopyrls FORCE ROW LEVEL SECURITY");
+      }
+
+      // COPY FROM is not supported with row level security; the batch must be executed normally
+      try (PreparedStatement pstmt = copyCon.prepareStatement("INSERT INTO batchcopyrls (idx, a) VALUES (?, ?)")) {
+
+        for (int c = 0; c < 10; ++c) {
+          pstmt.setInt(1, c);
+          pstmt.setString(2, "Row " + c);
+          pstmt.addBatch();
+        }
+
+        assertEquals(10, pstmt.executeBatch().length);
+      }
+
+      try (Statement stmt = copyCon.createStatement()) {
+        try (ResultSet rs = stmt.executeQuery("SELECT count(*) FROM batchcopyrls")) {
+          assertTrue(rs.next());
+          assertEquals(10, rs.getInt(1));
+        }
+      }
+
+    }
+
+  }
+
   @Test
   public void testPreparedStatementWithObject() throws SQLException {
 
@@ -46,6 +46,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.Connection;
@@ -55,6 +57,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.Arrays;
+import java.util.Random;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
@@ -64,6 +67,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -346,6 +350,84 @@ public class BlobTest {
     stmt.close();
   }
 
+  @Test
+  public void testPipelinedStreamsBlob() throws Exception {
+
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+    new Random(42).nextBytes(data);
+
+    Blob lob = conn.createBlob();
+
+    // Write in uneven pieces so the stream both buffers & writes directly
+    try (OutputStream os = lob.setBinaryStream(1)) {
+      int off = 0;
+      while (off < data.length) {
+        int len = Math.min(data.length - off, off % 3 == 0 ? 100_000 : 333);
+        os.write(data, off, len);
+        off += len;
+      }
+    }
+
+    assertEquals(data.length, lob.length());
+
+    try (InputStream is = lob.getBinaryStream()) {
+      assertArrayEquals(data, ByteStreams.toByteArray(is));
+      assertEquals(-1, is.read());
+    }
+
+    try (BlobInputStream is = (BlobInputStream) lob.getBinaryStream()) {
+      assertEquals(data[0] & 0xff, is.read());
+
+      ByteBuffer buffer = ByteBuffer.allocate(data.length + 1);
+      buffer.put(data[0]);
+      ReadableByteChannel channel = is.getChannel();
+      while (channel.read(buffer) != -1) {
+        assertTrue(buffer.hasRemaining());
+      }
+      assertEquals(data.length, buffer.position());
+      assertArrayEquals(data, Arrays.copyOf(buffer.array(), data.length));
+    }
+
+    // Closing before the end discards any data read ahead
+    try (InputStream is = lob.getBinaryStream(); InputStream is2 = lob.getBinaryStream(data.length - 9, 10)) {
+      assertEquals(data[0] & 0xff, is.read());
+      byte[] tail = ByteStreams.toByteArray(is2);
+      assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length), tail);
+    }
+
+    lob.free();
+  }
+
+  @Test
+  public void testPipelinedStreamsClob() throws Exception {
+
+    StringBuilder sb = new StringBuilder();
+    for (int c = 0; c < 300_000; ++c) {
+      sb.append((char) ('a' + c % 26));
+    }
+    String data = sb.toString();
+
+    Clob lob = conn.createClob();
+
+    try (Writer w = lob.setCharacterStream(1)) {
+      w.write(data);
+    }
+
+    assertEquals(data.length(), lob.length());
+
+    try (Reader r = lob.getCharacterStream()) {
+      char[] chars = new char[data.length() + 1];
+      int read = 0;
+      int amt;
+      while ((amt = r.read(chars, read, chars.length - read)) != -1) {
+        read += amt;
+      }
+      assertEquals(data, new String(chars, 0, read));
+    }
+
+    lob.free();
+  }
+
   private long uploadFileBlob(String file) throws Exception {
 
     FileInputStream fis = new FileInputStream(file);
@@ -35,6 +35,11 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.protocol.RequestExecutor;
+import com.impossibl.postgres.protocol.RequestExecutorHandlers.QueryResult;
+import com.impossibl.postgres.protocol.ResultBatch;
+import com.impossibl.postgres.system.NoticeException;
+
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_APPLICATION_NAME;
 import static com.impossibl.postgres.jdbc.JDBCSettings.CI_CLIENT_USER;
 
@@ -45,11 +50,17 @@ import java.sql.SQLException;
 import java.sql.SQLTimeoutException;
 import java.sql.SQLWarning;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -533,6 +544,47 @@ public class ConnectionTest {
 
   }
 
+  /*
+   * Tests requests are submitted without blocking and their
+   * results complete asynchronously
+   */
+  @Test
+  public void testAsyncRequestSubmission() throws Exception {
+
+    con = TestUtil.openDB();
+
+    RequestExecutor executor = con.unwrap(PGDirectConnection.class).getRequestExecutor();
+
+    List<QueryResult> results = new ArrayList<>();
+    for (int c = 1; c <= 100; ++c) {
+      QueryResult result = new QueryResult();
+      executor.query("SELECT generate_series(1, " + c + ")", null, null, null, null, 0, result);
+      results.add(result);
+    }
+
+    CompletableFuture<?>[] completions = results.stream()
+        .map(result -> result.completion().toCompletableFuture())
+        .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(completions).get(30, SECONDS);
+
+    for (int c = 0; c < results.size(); ++c) {
+      try (ResultBatch batch = results.get(c).getBatch()) {
+        assertEquals(c + 1, batch.borrowRows().size());
+      }
+    }
+
+    QueryResult failed = new QueryResult();
+    executor.query("SELECT * FROM non_existent_table", null, null, null, null, 0, failed);
+
+    try {
+      failed.completion().toCompletableFuture().get(30, SECONDS);
+      fail("Request should have failed");
+    }
+    catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof NoticeException);
+    }
+  }
+
   @Test
   public void testSchema() throws Exception {
 
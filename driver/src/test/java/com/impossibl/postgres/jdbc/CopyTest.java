@@ -37,12 +37,24 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 
 import org.junit.After;
 import org.junit.Before;
@@ -120,6 +132,201 @@ public class CopyTest {
 
   }
 
+  @Test
+  public void testCopyFromFileChannel() throws SQLException, IOException {
+
+    Path file = Files.createTempFile("copytbl", ".txt");
+    try {
+      Files.write(file, "ab\t1\nbc\t20\ncd\t300".getBytes(UTF_8));
+
+      Properties settings = new Properties();
+      settings.setProperty("protocol.copy.message.size", "4");
+
+      try (Connection con = TestUtil.openDB(settings)) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+          con.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", channel);
+        }
+      }
+
+      assertCopied();
+    }
+    finally {
+      Files.delete(file);
+    }
+
+  }
+
+  @Test
+  public void testCopyFromChannel() throws SQLException, IOException {
+
+    InputStream in = new ByteArrayInputStream("ab\t1\nbc\t20\ncd\t300".getBytes(UTF_8));
+    con.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", Channels.newChannel(in));
+
+    assertCopied();
+  }
+
+  @Test
+  public void testCopyFromBuffers() throws SQLException {
+
+    ByteBuffer first = ByteBuffer.wrap("ab\t1\nb".getBytes(UTF_8));
+    ByteBuffer second = ByteBuffer.allocateDirect(11).put("c\t20\ncd\t300".getBytes(UTF_8));
+    second.flip();
+
+    con.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", first, second);
+
+    assertThat(first.remaining(), equalTo(6));
+    assertThat(second.remaining(), equalTo(11));
+
+    assertCopied();
+  }
+
+  @Test
+  public void testCopyFromInvalidData() throws SQLException {
+
+    StringBuilder data = new StringBuilder("bad\tdata\n");
+    for (int c = 0; c < 100000; ++c) {
+      data.append("ab\t").append(c).append('\n');
+    }
+
+    ByteBuffer buffer = ByteBuffer.wrap(data.toString().getBytes(UTF_8));
+
+    assertThrows(SQLException.class, () -> {
+      con.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", buffer);
+    });
+
+    // Connection should remain usable
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM copytbl")) {
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getInt(1), equalTo(0));
+      }
+    }
+  }
+
+  @Test
+  public void testCopyFromNetworkTimeout() throws SQLException {
+
+    Connection copyCon = TestUtil.openDB();
+    try {
+
+      // Hold a lock that stalls the copy before the server enters copy mode
+      con.setAutoCommit(false);
+      try (Statement statement = con.createStatement()) {
+        statement.execute("LOCK TABLE copytbl IN ACCESS EXCLUSIVE MODE");
+      }
+
+      copyCon.setNetworkTimeout(null, 1000);
+
+      long start = System.currentTimeMillis();
+
+      assertThrows(SQLTimeoutException.class, () -> {
+        InputStream in = new ByteArrayInputStream("ab\t1\n".getBytes(UTF_8));
+        copyCon.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", in);
+      });
+
+      assertThat(System.currentTimeMillis() - start < 10000, equalTo(true));
+    }
+    finally {
+      con.rollback();
+      con.setAutoCommit(true);
+      TestUtil.closeDB(copyCon);
+    }
+  }
+
+  @Test
+  public void testCopyFromConcurrentQuery() throws Exception {
+
+    // Stream slowly to ensure the query is submitted while copy data is being sent
+    InputStream in = new InputStream() {
+      int rows = 0;
+      byte[] row = "ab\t1\n".getBytes(UTF_8);
+      int pos = row.length;
+
+      @Override
+      public int read() throws IOException {
+        if (pos == row.length) {
+          if (rows == 20) return -1;
+          rows++;
+          try {
+            Thread.sleep(10);
+          }
+          catch (InterruptedException e) {
+            throw new IOException(e);
+          }
+          pos = 0;
+        }
+        return row[pos++];
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        int val = read();
+        if (val == -1) return -1;
+        b[off] = (byte) val;
+        return 1;
+      }
+    };
+
+    AtomicInteger queried = new AtomicInteger(-1);
+    Thread queryThread = new Thread(() -> {
+      try (Statement statement = con.createStatement()) {
+        try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+          rs.next();
+          queried.set(rs.getInt(1));
+        }
+      }
+      catch (SQLException ignored) {
+      }
+    });
+
+    Thread copyThread = new Thread(() -> {
+      try {
+        con.unwrap(PGConnection.class).copyFrom("COPY copytbl FROM STDIN", in);
+      }
+      catch (SQLException ignored) {
+      }
+    });
+
+    copyThread.start();
+    Thread.sleep(50);
+    queryThread.start();
+
+    copyThread.join();
+    queryThread.join();
+
+    assertThat(queried.get(), equalTo(1));
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT count(*) FROM copytbl")) {
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getInt(1), equalTo(20));
+      }
+    }
+  }
+
+  private void assertCopied() throws SQLException {
+
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT * FROM copytbl")) {
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo("ab"));
+        assertThat(rs.getInt(2), equalTo(1));
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo("bc"));
+        assertThat(rs.getInt(2), equalTo(20));
+
+        assertThat(rs.next(), equalTo(true));
+        assertThat(rs.getString(1), equalTo("cd"));
+        assertThat(rs.getInt(2), equalTo(300));
+
+        assertThat(rs.next(), equalTo(false));
+      }
+    }
+
+  }
+
   @Test
   public void testCopyFromSystemOut() throws SQLException, IOException {
 
@@ -161,6 +368,99 @@ public class CopyTest {
 
   }
 
+  @Test
+  public void testCopyToListener() throws SQLException {
+
+    try (Statement statement = con.createStatement()) {
+      statement.executeUpdate("INSERT INTO copytbl VALUES ('ab', 1), ('bc', 20), ('cd', 300)");
+    }
+
+    List<String> rows = new ArrayList<>();
+
+    con.unwrap(PGConnection.class).copyTo("COPY copytbl TO STDOUT", data -> rows.add(UTF_8.decode(data).toString()));
+
+    assertThat(rows, equalTo(asList("ab\t1\n", "bc\t20\n", "cd\t300\n")));
+  }
+
+  @Test
+  public void testCopyToSlowListener() throws SQLException {
+
+    Properties settings = new Properties();
+    settings.setProperty("protocol.read-buffer.watermark.high", "1024");
+    settings.setProperty("protocol.read-buffer.watermark.low", "512");
+
+    try (Connection con = TestUtil.openDB(settings)) {
+
+      AtomicInteger rows = new AtomicInteger();
+
+      con.unwrap(PGConnection.class).copyTo("COPY (SELECT generate_series(1, 20000)) TO STDOUT", data -> {
+        if (rows.incrementAndGet() % 1000 == 0) {
+          try {
+            Thread.sleep(10);
+          }
+          catch (InterruptedException ignored) {
+          }
+        }
+      });
+
+      assertThat(rows.get(), equalTo(20000));
+
+      // Connection should continue reading after the copy
+      try (Statement statement = con.createStatement()) {
+        try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+          assertThat(rs.next(), equalTo(true));
+        }
+      }
+    }
+
+  }
+
+  @Test
+  public void testCopyToFailingListener() throws SQLException {
+
+    assertThrows(SQLException.class, () -> {
+      con.unwrap(PGConnection.class).copyTo("COPY (SELECT generate_series(1, 20000)) TO STDOUT", data -> {
+        throw new IOException("Listener failed");
+      });
+    });
+
+    // Connection should remain usable
+    try (Statement statement = con.createStatement()) {
+      try (ResultSet rs = statement.executeQuery("SELECT 1")) {
+        assertThat(rs.next(), equalTo(true));
+      }
+    }
+  }
+
+  @Test
+  public void testCopyToNetworkTimeout() throws SQLException {
+
+    Connection copyCon = TestUtil.openDB();
+    try {
+
+      // Hold a lock that stalls the copy before the server sends any data
+      con.setAutoCommit(false);
+      try (Statement statement = con.createStatement()) {
+        statement.execute("LOCK TABLE copytbl IN ACCESS EXCLUSIVE MODE");
+      }
+
+      copyCon.setNetworkTimeout(null, 1000);
+
+      long start = System.currentTimeMillis();
+
+      assertThrows(SQLTimeoutException.class, () -> {
+        copyCon.unwrap(PGConnection.class).copyTo("COPY copytbl TO STDOUT", new ByteArrayOutputStream());
+      });
+
+      assertThat(System.currentTimeMillis() - start < 10000, equalTo(true));
+    }
+    finally {
+      con.rollback();
+      con.setAutoCommit(true);
+      TestUtil.closeDB(copyCon);
+    }
+  }
+
   @Test
   public void testCopyInInvalid() {
 
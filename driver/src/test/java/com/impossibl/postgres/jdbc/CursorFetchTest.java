@@ -35,12 +35,17 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.system.SystemSettings;
+import com.impossibl.postgres.system.metrics.Metrics;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
 import java.sql.Statement;
+import java.util.Properties;
 
 import org.junit.After;
 import org.junit.Before;
@@ -488,6 +493,79 @@ public class CursorFetchTest {
     stmt.close();
   }
 
+  @Test
+  public void testAdaptiveFetch() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.FETCH_TARGET_SIZE.getName(), "8192");
+
+    try (Connection adaptiveCon = TestUtil.openDB(props)) {
+      adaptiveCon.setAutoCommit(false);
+
+      try (Statement stmt = adaptiveCon.createStatement()) {
+        stmt.setFetchSize(5);
+
+        // Row width changes mid-result, batches must shrink & grow again
+        ResultSet rs = stmt.executeQuery("SELECT i, repeat('x', CASE WHEN i BETWEEN 300 AND 600 THEN 4000 ELSE 10 END) FROM generate_series(1, 1000) i");
+        int count = 0;
+        while (rs.next()) {
+          assertEquals(++count, rs.getInt(1));
+          assertEquals(count >= 300 && count <= 600 ? 4000 : 10, rs.getString(2).length());
+        }
+        assertEquals(1000, count);
+        rs.close();
+      }
+
+      adaptiveCon.rollback();
+    }
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.FETCH_PREFETCH.getName(), "true");
+    props.setProperty(SystemSettings.METRICS_ENABLED.getName(), "true");
+
+    try (Connection prefetchCon = TestUtil.openDB(props)) {
+      prefetchCon.setAutoCommit(false);
+
+      try (PreparedStatement stmt = prefetchCon.prepareStatement("SELECT i FROM generate_series(1, ?) i")) {
+        stmt.setFetchSize(10);
+        stmt.setInt(1, 1000);
+
+        ResultSet rs = stmt.executeQuery();
+        int count = 0;
+        while (rs.next()) {
+          assertEquals(++count, rs.getInt(1));
+        }
+        assertEquals(1000, count);
+        rs.close();
+
+        assertEquals(100, prefetchCon.unwrap(PGConnection.class).getMetrics().histogram(Metrics.RESULT_SET_FETCH_STALL).getCount());
+
+        // Close with a prefetched batch outstanding
+        rs = stmt.executeQuery();
+        for (int c = 0; c < 15; ++c) {
+          assertTrue(rs.next());
+        }
+        rs.close();
+      }
+
+      try (Statement stmt = prefetchCon.createStatement()) {
+        stmt.setFetchSize(7);
+
+        ResultSet rs = stmt.executeQuery("SELECT i FROM generate_series(1, 100) i");
+        int count = 0;
+        while (rs.next()) {
+          assertEquals(++count, rs.getInt(1));
+        }
+        assertEquals(100, count);
+        rs.close();
+      }
+
+      prefetchCon.rollback();
+    }
+  }
+
   @Test
   public void testGetRow() throws SQLException {
     Statement stmt = con.createStatement();
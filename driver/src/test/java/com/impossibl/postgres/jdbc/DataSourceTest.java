@@ -46,7 +46,10 @@ import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.net.InetSocketAddress;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Random;
 
 import static java.util.Arrays.asList;
@@ -61,6 +64,7 @@ import org.junit.runners.JUnit4;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -204,6 +208,174 @@ public class DataSourceTest {
 
   }
 
+  /*
+   * Test statements that become hot on one connection are prepared by other connections
+   * of the same data source on first use
+   */
+  @Test
+  public void testSharedStatementHeat() throws Exception {
+    PGDataSource ds = createDataSource();
+    ds.setPreparedStatementCacheThreshold(3);
+    ds.setPreparedStatementCacheSharing(true);
+
+    String sql = "SELECT 1 AS shared_heat";
+
+    try (Connection first = ds.getConnection()) {
+      for (int c = 0; c < 3; ++c) {
+        executePrepared(first, sql);
+      }
+      assertTrue(isServerPrepared(first, sql));
+    }
+
+    try (Connection second = ds.getConnection()) {
+      assertFalse(isServerPrepared(second, sql));
+      executePrepared(second, sql);
+      assertTrue(isServerPrepared(second, sql));
+    }
+  }
+
+  /*
+   * Test statement heat is not shared when sharing is disabled
+   */
+  @Test
+  public void testSharedStatementHeatDisabled() throws Exception {
+    PGDataSource ds = createDataSource();
+    ds.setPreparedStatementCacheThreshold(3);
+    ds.setPreparedStatementCacheSharing(false);
+
+    String sql = "SELECT 1 AS unshared_heat";
+
+    try (Connection first = ds.getConnection()) {
+      for (int c = 0; c < 3; ++c) {
+        executePrepared(first, sql);
+      }
+      assertTrue(isServerPrepared(first, sql));
+    }
+
+    try (Connection second = ds.getConnection()) {
+      executePrepared(second, sql);
+      assertFalse(isServerPrepared(second, sql));
+    }
+  }
+
+  /*
+   * Test statements are not shared with connections using a different search path
+   */
+  @Test
+  public void testSharedStatementHeatSearchPath() throws Exception {
+    PGDataSource ds = createDataSource();
+    ds.setPreparedStatementCacheThreshold(3);
+    ds.setPreparedStatementCacheSharing(true);
+
+    String sql = "SELECT 1 AS search_path_heat";
+
+    try (Connection first = ds.getConnection()) {
+      first.setSchema("pg_catalog");
+      for (int c = 0; c < 3; ++c) {
+        executePrepared(first, sql);
+      }
+      assertTrue(isServerPrepared(first, sql));
+    }
+
+    try (Connection second = ds.getConnection()) {
+      executePrepared(second, sql);
+      assertFalse(isServerPrepared(second, sql));
+    }
+  }
+
+  /*
+   * Test statements are not shared by connections referencing temporary objects
+   */
+  @Test
+  public void testSharedStatementHeatTempTable() throws Exception {
+    PGDataSource ds = createDataSource();
+    ds.setPreparedStatementCacheThreshold(3);
+    ds.setPreparedStatementCacheSharing(true);
+
+    String sql = "SELECT * FROM shared_heat_temp";
+
+    try (Connection first = ds.getConnection()) {
+      try (Statement stmt = first.createStatement()) {
+        stmt.execute("CREATE TEMP TABLE shared_heat_temp (id int)");
+        stmt.execute("INSERT INTO shared_heat_temp VALUES (1)");
+      }
+      for (int c = 0; c < 3; ++c) {
+        executePrepared(first, sql);
+      }
+      assertTrue(isServerPrepared(first, sql));
+    }
+
+    try (Connection second = ds.getConnection()) {
+      try (Statement stmt = second.createStatement()) {
+        stmt.execute("CREATE TABLE shared_heat_temp (id int)");
+      }
+      // Resolves to the (empty) permanent table
+      try (PreparedStatement ps = second.prepareStatement(sql)) {
+        try (ResultSet rs = ps.executeQuery()) {
+          assertFalse(rs.next());
+        }
+      }
+      assertFalse(isServerPrepared(second, sql));
+    }
+    finally {
+      try (Connection conn = ds.getConnection()) {
+        TestUtil.dropTable(conn, "shared_heat_temp");
+      }
+    }
+  }
+
+  /*
+   * Test new connections eagerly prepare the data source's cached statements
+   */
+  @Test
+  public void testSharedStatementEagerPrepare() throws Exception {
+    PGDataSource ds = createDataSource();
+    ds.setPreparedStatementCacheThreshold(3);
+    ds.setPreparedStatementCacheSharing(true);
+    ds.setPreparedStatementCacheEager(true);
+
+    String sql = "SELECT 1 AS eager_heat";
+
+    try (Connection first = ds.getConnection()) {
+      for (int c = 0; c < 3; ++c) {
+        executePrepared(first, sql);
+      }
+    }
+
+    try (Connection second = ds.getConnection()) {
+      assertTrue(isServerPrepared(second, sql));
+    }
+  }
+
+  private PGDataSource createDataSource() {
+    PGDataSource ds = new PGDataSource();
+    ds.setServerName(TestUtil.getServer());
+    ds.setPortNumber(Integer.valueOf(TestUtil.getPort()));
+    ds.setDatabaseName(TestUtil.getDatabase());
+    ds.setUser(TestUtil.getUser());
+    ds.setPassword(TestUtil.getPassword());
+    ds.setNetworkTimeout(10000);
+    return ds;
+  }
+
+  private static void executePrepared(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+      try (ResultSet rs = ps.executeQuery()) {
+        assertTrue(rs.next());
+      }
+    }
+  }
+
+  private static boolean isServerPrepared(Connection connection, String sql) throws SQLException {
+    try (PreparedStatement ps = connection.prepareStatement("SELECT count(*) FROM pg_prepared_statements WHERE name LIKE 'cached-%' AND statement = ?")) {
+      ps.setString(1, sql);
+      try (ResultSet rs = ps.executeQuery()) {
+        assertTrue(rs.next());
+        return rs.getInt(1) > 0;
+      }
+    }
+  }
+
   private PropertyDescriptor findPropertyDescriptor(BeanInfo beanInfo, String name) {
     for (PropertyDescriptor pd : beanInfo.getPropertyDescriptors()) {
       if (pd.getName().equals(name)) {
@@ -39,10 +39,19 @@ import com.impossibl.postgres.system.SystemSettings;
 
 import static com.impossibl.postgres.jdbc.ConnectionUtil.parseURL;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import io.netty.channel.unix.DomainSocketAddress;
 import org.junit.Test;
@@ -158,6 +167,84 @@ public class DriverTest {
 
   }
 
+  /*
+   * Test that parallel connection attempts skip an unresponsive address.
+   */
+  @Test
+  public void testParallelConnect() throws Exception {
+
+    // First address never completes connection attempts, its accept backlog is full
+    try (ServerSocket unresponsive = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+
+      List<Socket> backlog = new ArrayList<>();
+      try {
+        while (backlog.size() < 16) {
+          Socket socket = new Socket();
+          backlog.add(socket);
+          try {
+            socket.connect(unresponsive.getLocalSocketAddress(), 500);
+          }
+          catch (SocketTimeoutException e) {
+            break;
+          }
+        }
+
+        String url = "jdbc:pgsql://127.0.0.1:" + unresponsive.getLocalPort() + "," + TestUtil.getServer() + ":" + TestUtil.getPort() +
+            "/" + TestUtil.getDatabase() + "?parallelConnect=true&protocol.connect.attempt-delay=3000";
+
+        // Second connection attempts the outpaced address last
+        for (int c = 0; c < 2; ++c) {
+          long start = System.nanoTime();
+
+          Connection con = DriverManager.getConnection(url, TestUtil.getUser(), TestUtil.getPassword());
+          assertNotNull(con);
+          assertTrue(con.isValid(5));
+          con.close();
+
+          long elapsed = NANOSECONDS.toMillis(System.nanoTime() - start);
+          if (c == 0) {
+            assertTrue(elapsed >= 3000 && elapsed < 10000);
+          }
+          else {
+            assertTrue(elapsed < 3000);
+          }
+        }
+
+      }
+      finally {
+        for (Socket socket : backlog) {
+          socket.close();
+        }
+      }
+    }
+  }
+
+  /*
+   * Test that connections are routed by the targetServerType property.
+   */
+  @Test
+  public void testTargetServerType() throws Exception {
+    // Test server is a primary
+    Connection con = DriverManager.getConnection(TestUtil.getURL("targetServerType", "primary"), TestUtil.getUser(), TestUtil.getPassword());
+    assertNotNull(con);
+    con.close();
+
+    con = DriverManager.getConnection(TestUtil.getURL("targetServerType", "prefer-standby", "loadBalanceHosts", true), TestUtil.getUser(), TestUtil.getPassword());
+    assertNotNull(con);
+    con.close();
+
+    // Second attempt is rejected using the cached server status
+    for (int c = 0; c < 2; ++c) {
+      try {
+        DriverManager.getConnection(TestUtil.getURL("targetServerType", "standby"), TestUtil.getUser(), TestUtil.getPassword());
+        fail("Connected to primary");
+      }
+      catch (SQLException e) {
+        assertTrue(e.getMessage().contains("standby"));
+      }
+    }
+  }
+
   /*
    * Test that the readOnly property works.
    */
@@ -35,6 +35,8 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.protocol.ResultField;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -321,6 +323,39 @@ public class GeneratedKeysTest {
     ps.close();
   }
 
+  @Test
+  public void testBatchGeneratedKeysFormats() throws SQLException {
+    try (PreparedStatement ps = _conn.prepareStatement("INSERT INTO genkeys(b, c) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+      ps.setString(1, "a");
+      ps.setInt(2, 1);
+      ps.executeUpdate();
+
+      ResultField[] fields;
+      try (ResultSet rs = ps.getGeneratedKeys()) {
+        fields = rs.unwrap(PGResultSet.class).getResultFields();
+      }
+
+      ps.setString(1, "b");
+      ps.setInt(2, 2);
+      ps.addBatch();
+      ps.executeBatch();
+
+      // Batches request the same formats as single executions
+      try (ResultSet rs = ps.getGeneratedKeys()) {
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt("a"));
+        assertEquals("b", rs.getString("b"));
+        assertEquals(2, rs.getInt("c"));
+
+        ResultField[] batchFields = rs.unwrap(PGResultSet.class).getResultFields();
+        assertEquals(fields.length, batchFields.length);
+        for (int fieldIdx = 0; fieldIdx < fields.length; ++fieldIdx) {
+          assertEquals(fields[fieldIdx].getFormat(), batchFields[fieldIdx].getFormat());
+        }
+      }
+    }
+  }
+
   @Test
   public void testGeneratedKeysCapitalizedColumnNames() throws SQLException {
     try (Statement stmt = _conn.createStatement()) {
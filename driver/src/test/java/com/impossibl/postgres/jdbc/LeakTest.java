@@ -32,7 +32,12 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
 
 import static java.lang.Boolean.FALSE;
 
@@ -43,6 +48,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -249,6 +255,65 @@ public class LeakTest {
 
   }
 
+  @Test
+  public void testLeakDetectionLevels() throws Exception {
+
+    List<String> messages = new CopyOnWriteArrayList<>();
+    Handler handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        messages.add(record.getMessage());
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+
+    Logger logger = Logger.getLogger(ThreadedHousekeeper.class.getName());
+    logger.addHandler(handler);
+    getHousekeeper().setLogLeakedReferences(true);
+    try {
+
+      for (String level : new String[] {"off", "full"}) {
+
+        messages.clear();
+
+        Properties settings = new Properties();
+        settings.setProperty("housekeeper.leak-detection", level);
+
+        try (Connection conn = TestUtil.openDB(settings)) {
+
+          Statement stmt = conn.createStatement();
+          int stmtId = System.identityHashCode(stmt);
+
+          stmt = null;
+
+          sleep();
+          assertTrue(getHousekeeper().testCheckCleaned(stmtId));
+        }
+
+        assertEquals(1, messages.size());
+        if (level.equals("full")) {
+          assertTrue(messages.get(0).contains("LeakTest.testLeakDetectionLevels"));
+        }
+        else {
+          assertTrue(messages.get(0).contains("Allocation not captured"));
+        }
+      }
+
+    }
+    finally {
+      getHousekeeper().setLogLeakedReferences(false);
+      logger.removeHandler(handler);
+    }
+
+  }
+
   private void sleep() {
     System.gc();
     try {
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.api.metrics.MetricsRegistry;
+import com.impossibl.postgres.system.SystemSettings;
+import com.impossibl.postgres.system.metrics.DefaultCounter;
+import com.impossibl.postgres.system.metrics.DefaultHistogram;
+import com.impossibl.postgres.system.metrics.DefaultMetricsRegistry;
+import com.impossibl.postgres.system.metrics.Metrics;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Tests for connection metrics (metrics.*)
+ */
+@RunWith(JUnit4.class)
+public class MetricsTest {
+
+  public static class TestRegistry extends DefaultMetricsRegistry {
+  }
+
+  private static Properties metricsProperties() {
+    Properties props = new Properties();
+    props.setProperty(SystemSettings.METRICS_ENABLED.getName(), "true");
+    return props;
+  }
+
+  private static void executeQueries(Connection con) throws Exception {
+    for (int c = 0; c < 3; ++c) {
+      try (PreparedStatement ps = con.prepareStatement("SELECT i FROM generate_series(1, ?) i")) {
+        ps.setInt(1, 10);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            rs.getInt(1);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    try (Connection con = TestUtil.openDB()) {
+      assertNull(con.unwrap(PGConnection.class).getMetrics());
+    }
+  }
+
+  @Test
+  public void testConnectionMetrics() throws Exception {
+    try (Connection con = TestUtil.openDB(metricsProperties())) {
+
+      DefaultMetricsRegistry registry = (DefaultMetricsRegistry) con.unwrap(PGConnection.class).getMetrics();
+      long rowsBefore = registry.counter(Metrics.ROWS_RECEIVED).getCount();
+
+      executeQueries(con);
+
+      assertTrue(registry.counter(Metrics.BYTES_IN).getCount() > 0);
+      assertTrue(registry.counter(Metrics.BYTES_OUT).getCount() > 0);
+      assertTrue(registry.counter(Metrics.MESSAGES_IN).getCount() > 0);
+      assertTrue(registry.counter(Metrics.MESSAGES_OUT).getCount() > 0);
+      assertEquals(rowsBefore + 30, registry.counter(Metrics.ROWS_RECEIVED).getCount());
+
+      assertEquals(3, registry.histogram(Metrics.STATEMENT_EXECUTION).getCount());
+
+      DefaultHistogram prepareLatency = registry.getHistograms().get("request.PrepareRequest.latency");
+      assertNotNull(prepareLatency);
+      assertTrue(prepareLatency.getMax() > 0);
+      assertNotNull(registry.getHistograms().get("request.ExecuteStatementRequest.latency"));
+
+      DefaultCounter parsedSqlHits = registry.getCounters().get(Metrics.CACHE_PARSED_SQL + ".hits");
+      assertNotNull(parsedSqlHits);
+      assertTrue(parsedSqlHits.getCount() >= 2);
+    }
+  }
+
+  @Test
+  public void testCustomRegistry() throws Exception {
+    Properties props = metricsProperties();
+    props.setProperty(SystemSettings.METRICS_REGISTRY.getName(), TestRegistry.class.getName());
+
+    try (Connection con1 = TestUtil.openDB(props);
+         Connection con2 = TestUtil.openDB(props)) {
+
+      MetricsRegistry registry = con1.unwrap(PGConnection.class).getMetrics();
+      assertTrue(registry instanceof TestRegistry);
+      assertSame(registry, con2.unwrap(PGConnection.class).getMetrics());
+
+      long before = registry.counter(Metrics.ROWS_RECEIVED).getCount();
+      executeQueries(con1);
+      executeQueries(con2);
+      assertEquals(before + 60, registry.counter(Metrics.ROWS_RECEIVED).getCount());
+    }
+  }
+
+  @Test
+  public void testJMX() throws Exception {
+    Properties props = metricsProperties();
+    props.setProperty(SystemSettings.METRICS_JMX.getName(), "true");
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName query = new ObjectName("com.impossibl.postgres:type=Metrics,*");
+
+    Set<ObjectName> existing = server.queryNames(query, null);
+
+    ObjectName name;
+    try (Connection con = TestUtil.openDB(props)) {
+
+      Set<ObjectName> names = server.queryNames(query, null);
+      names.removeAll(existing);
+      assertEquals(1, names.size());
+      name = names.iterator().next();
+
+      long rowsBefore = (Long) server.getAttribute(name, Metrics.ROWS_RECEIVED);
+
+      executeQueries(con);
+
+      assertEquals(rowsBefore + 30, server.getAttribute(name, Metrics.ROWS_RECEIVED));
+      assertEquals(3L, server.getAttribute(name, Metrics.STATEMENT_EXECUTION + ".count"));
+      double hitRate = (Double) server.getAttribute(name, Metrics.CACHE_PARSED_SQL + ".hit-rate");
+      assertTrue(hitRate > 0 && hitRate <= 1);
+
+      try {
+        server.invoke(name, "reset", new Object[0], new String[0]);
+        fail("Metrics MBean should not support operations");
+      }
+      catch (ReflectionException e) {
+        assertTrue(e.getCause() instanceof NoSuchMethodException);
+      }
+    }
+
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  public void testHistogram() throws Exception {
+    DefaultHistogram histogram = new DefaultHistogram();
+    for (long value = 1; value <= 100000; ++value) {
+      histogram.record(value * 1000);
+    }
+
+    assertEquals(100000, histogram.getCount());
+    assertEquals(100000000L, histogram.getMax());
+    assertEquals(50000500.0, histogram.getMean(), 1.0);
+
+    long p50 = histogram.getValueAtPercentile(50);
+    assertTrue(Math.abs(p50 - 50000000) < 50000000 * 0.07);
+    long p99 = histogram.getValueAtPercentile(99);
+    assertTrue(Math.abs(p99 - 99000000) < 99000000 * 0.07);
+    assertEquals(100000000L, histogram.getValueAtPercentile(100));
+
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(DefaultHistogram.MAX_VALUE, histogram.getMax());
+  }
+
+  @Test
+  public void testStatementCacheMetrics() throws Exception {
+    Properties props = metricsProperties();
+    props.setProperty(JDBCSettings.PREPARED_STATEMENT_CACHE_THRESHOLD.getName(), "0");
+
+    try (Connection con = TestUtil.openDB(props)) {
+
+      try (Statement stmt = con.createStatement()) {
+        stmt.execute("SELECT 1");
+      }
+      executeQueries(con);
+
+      DefaultMetricsRegistry registry = (DefaultMetricsRegistry) con.unwrap(PGConnection.class).getMetrics();
+      assertTrue(registry.counter(Metrics.CACHE_PREPARED_STATEMENT + ".hits").getCount() >= 2);
+      assertTrue(registry.counter(Metrics.CACHE_PREPARED_STATEMENT + ".misses").getCount() >= 1);
+    }
+  }
+
+  @Test
+  public void testConnectionPhaseMetrics() throws Exception {
+
+    try (Connection con = TestUtil.openDB(metricsProperties())) {
+
+      DefaultMetricsRegistry registry = (DefaultMetricsRegistry) con.unwrap(PGConnection.class).getMetrics();
+
+      DefaultHistogram startup = registry.histogram(Metrics.CONNECTION_STARTUP);
+      DefaultHistogram init = registry.histogram(Metrics.CONNECTION_INIT);
+      DefaultHistogram initTypes = registry.histogram(Metrics.CONNECTION_INIT_TYPES);
+      assertEquals(1, startup.getCount());
+      assertEquals(1, init.getCount());
+      assertEquals(1, initTypes.getCount());
+      assertTrue(startup.getMax() > 0);
+      assertTrue(initTypes.getMax() <= init.getMax());
+
+      // Util queries submitted during initialization are all completed
+      PGDirectConnection directConnection = con.unwrap(PGDirectConnection.class);
+      assertTrue(directConnection.isUtilQueryPrepared("TB"));
+      assertTrue(directConnection.isUtilQueryPrepared("refresh-type"));
+    }
+  }
+
+}
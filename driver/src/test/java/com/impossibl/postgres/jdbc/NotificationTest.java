@@ -30,6 +30,9 @@ package com.impossibl.postgres.jdbc;
 
 import com.impossibl.postgres.api.jdbc.PGConnection;
 import com.impossibl.postgres.api.jdbc.PGNotificationListener;
+import com.impossibl.postgres.api.metrics.Counter;
+import com.impossibl.postgres.system.SystemSettings;
+import com.impossibl.postgres.system.metrics.Metrics;
 
 import static com.impossibl.postgres.utils.Await.awaitUninterruptibly;
 
@@ -37,11 +40,29 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -49,6 +70,7 @@ import org.junit.runners.JUnit4;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -230,6 +252,342 @@ public class NotificationTest {
 
   }
 
+  public static class CountingExecutor implements Executor {
+
+    static AtomicInteger executions = new AtomicInteger();
+
+    @Override
+    public void execute(Runnable command) {
+      executions.incrementAndGet();
+      new Thread(command).start();
+    }
+
+  }
+
+  public static class RejectingExecutor implements Executor {
+
+    @Override
+    public void execute(Runnable command) {
+      throw new RejectedExecutionException();
+    }
+
+  }
+
+  private static Properties asyncProperties() {
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.NOTIFICATION_ASYNC.getName(), "true");
+    return props;
+  }
+
+  @Test
+  public void testAsyncNotification() throws Exception {
+
+    try (PGConnection conn = TestUtil.openDB(asyncProperties()).unwrap(PGConnection.class)) {
+
+      CountDownLatch release = new CountDownLatch(1);
+      CountDownLatch delivered = new CountDownLatch(2);
+      AtomicReference<String> threadName = new AtomicReference<>();
+
+      conn.addNotificationListener("async_channel", new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          threadName.set(Thread.currentThread().getName());
+          awaitUninterruptibly(10L, SECONDS, release::await);
+          delivered.countDown();
+        }
+      });
+
+      try (Statement stmt = conn.createStatement()) {
+
+        stmt.execute("LISTEN async_channel");
+        stmt.execute("NOTIFY async_channel");
+        stmt.execute("NOTIFY async_channel");
+
+        // Connection remains usable while the listener is busy
+        try (ResultSet rs = stmt.executeQuery("SELECT 1")) {
+          assertTrue(rs.next());
+        }
+      }
+
+      assertEquals(2, delivered.getCount());
+      release.countDown();
+
+      assertTrue(awaitUninterruptibly(10L, SECONDS, delivered::await));
+      assertFalse(threadName.get().startsWith("PG-JDBC I/O"));
+    }
+
+  }
+
+  @Test
+  public void testAsyncNotificationExecutor() throws Exception {
+
+    Properties props = asyncProperties();
+    props.setProperty(JDBCSettings.NOTIFICATION_EXECUTOR.getName(), CountingExecutor.class.getName());
+
+    try (PGConnection conn = TestUtil.openDB(props).unwrap(PGConnection.class)) {
+
+      CountDownLatch delivered = new CountDownLatch(1);
+
+      conn.addNotificationListener(new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          delivered.countDown();
+        }
+      });
+
+      int executions = CountingExecutor.executions.get();
+
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("LISTEN executor_channel");
+        stmt.execute("NOTIFY executor_channel");
+      }
+
+      assertTrue(awaitUninterruptibly(10L, SECONDS, delivered::await));
+      assertTrue(CountingExecutor.executions.get() > executions);
+    }
+
+  }
+
+  @Test
+  public void testAsyncNotificationRejected() throws Exception {
+
+    Properties props = asyncProperties();
+    props.setProperty(JDBCSettings.NOTIFICATION_EXECUTOR.getName(), RejectingExecutor.class.getName());
+
+    try (PGConnection conn = TestUtil.openDB(props).unwrap(PGConnection.class)) {
+
+      CountDownLatch delivered = new CountDownLatch(3);
+
+      conn.addNotificationListener(new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          delivered.countDown();
+        }
+      });
+
+      // Rejected deliveries fall back to the reporting thread
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("LISTEN rejected_channel");
+        for (int c = 0; c < 3; ++c) {
+          stmt.execute("NOTIFY rejected_channel");
+        }
+      }
+
+      assertTrue(awaitUninterruptibly(10L, SECONDS, delivered::await));
+    }
+
+  }
+
+  @Test
+  public void testAsyncQueueDropPolicy() throws Exception {
+
+    Properties props = asyncProperties();
+    props.setProperty(JDBCSettings.NOTIFICATION_QUEUE_SIZE.getName(), "2");
+    props.setProperty(SystemSettings.METRICS_ENABLED.getName(), "true");
+
+    try (PGConnection conn = TestUtil.openDB(props).unwrap(PGConnection.class)) {
+
+      CountDownLatch release = new CountDownLatch(1);
+      AtomicInteger received = new AtomicInteger();
+
+      conn.addNotificationListener(new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          awaitUninterruptibly(10L, SECONDS, release::await);
+          received.incrementAndGet();
+        }
+      });
+
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("LISTEN drop_channel");
+        for (int c = 0; c < 10; ++c) {
+          stmt.execute("NOTIFY drop_channel");
+        }
+      }
+
+      release.countDown();
+
+      Counter dropped = conn.getMetrics().counter(Metrics.NOTIFICATIONS_DROPPED);
+      for (int c = 0; c < 100 && received.get() + dropped.getCount() < 10; ++c) {
+        Thread.sleep(50);
+      }
+
+      // One notification being delivered & two queued
+      assertTrue(received.get() <= 3);
+      assertEquals(10, received.get() + dropped.getCount());
+    }
+
+  }
+
+  @Test
+  public void testAsyncQueueBlockPolicy() throws Exception {
+
+    Properties props = asyncProperties();
+    props.setProperty(JDBCSettings.NOTIFICATION_QUEUE_SIZE.getName(), "1");
+    props.setProperty(JDBCSettings.NOTIFICATION_QUEUE_POLICY.getName(), "block");
+
+    try (PGConnection conn = TestUtil.openDB(props).unwrap(PGConnection.class)) {
+
+      List<String> payloads = new CopyOnWriteArrayList<>();
+      CountDownLatch delivered = new CountDownLatch(10);
+
+      conn.addNotificationListener(new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          try {
+            Thread.sleep(10);
+          }
+          catch (InterruptedException ignored) {
+          }
+          payloads.add(payload);
+          delivered.countDown();
+        }
+      });
+
+      try (Statement stmt = conn.createStatement()) {
+        stmt.execute("LISTEN block_channel");
+        stmt.execute("SELECT pg_notify('block_channel', i::text) FROM generate_series(1, 10) i");
+      }
+
+      assertTrue(awaitUninterruptibly(10L, SECONDS, delivered::await));
+      assertEquals(IntStream.rangeClosed(1, 10).mapToObj(Integer::toString).collect(toList()), payloads);
+    }
+
+  }
+
+  @Test
+  public void testChannelIndexedNotification() throws Exception {
+
+    assertEquals("plain_channel", NotificationDispatcher.getChannelName("plain_channel"));
+    assertEquals("Quoted.Channel", NotificationDispatcher.getChannelName(Pattern.quote("Quoted.Channel")));
+    assertNull(NotificationDispatcher.getChannelName("plain_.*"));
+
+    try (PGConnection conn = TestUtil.openDB().unwrap(PGConnection.class)) {
+
+      List<String> received = new CopyOnWriteArrayList<>();
+
+      conn.addNotificationListener("plain", "plain_channel", new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          received.add("plain:" + channelName);
+        }
+      });
+      conn.addNotificationListener("quoted", Pattern.quote("Quoted.Channel"), new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          received.add("quoted:" + channelName);
+        }
+      });
+      conn.addNotificationListener("pattern", "plain_.*", new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          received.add("pattern:" + channelName);
+        }
+      });
+
+      try (Statement stmt = conn.createStatement()) {
+
+        stmt.execute("LISTEN plain_channel");
+        stmt.execute("LISTEN \"Quoted.Channel\"");
+        stmt.execute("LISTEN \"QuotedXChannel\"");
+
+        stmt.execute("NOTIFY plain_channel");
+        stmt.execute("NOTIFY \"Quoted.Channel\"");
+        stmt.execute("NOTIFY \"QuotedXChannel\"");
+
+        assertEquals(3, received.size());
+        assertTrue(received.containsAll(asList("plain:plain_channel", "pattern:plain_channel", "quoted:Quoted.Channel")));
+
+        conn.removeNotificationListener("plain");
+        received.clear();
+
+        stmt.execute("NOTIFY plain_channel");
+
+        assertEquals(singletonList("pattern:plain_channel"), received);
+      }
+    }
+
+  }
+
+  @Test
+  public void testMultiplexer() throws Exception {
+
+    PGConnection listenConn = TestUtil.openDB(asyncProperties()).unwrap(PGConnection.class);
+
+    PGNotificationMultiplexer multiplexer = new PGNotificationMultiplexer(listenConn);
+    try {
+
+      List<BlockingQueue<String>> channelA = new ArrayList<>();
+      List<PGNotificationMultiplexer.Subscription> channelASubscriptions = new ArrayList<>();
+      for (int c = 0; c < 5; ++c) {
+        BlockingQueue<String> payloads = new LinkedBlockingQueue<>();
+        channelA.add(payloads);
+        channelASubscriptions.add(multiplexer.subscribe("Mux Channel A", new PGNotificationListener() {
+          @Override
+          public void notification(int processId, String channelName, String payload) {
+            payloads.add(payload);
+          }
+        }));
+      }
+
+      BlockingQueue<String> channelB = new LinkedBlockingQueue<>();
+      CountDownLatch channelBClosed = new CountDownLatch(1);
+      multiplexer.subscribe("mux_b", new PGNotificationListener() {
+        @Override
+        public void notification(int processId, String channelName, String payload) {
+          channelB.add(payload);
+        }
+
+        @Override
+        public void closed() {
+          channelBClosed.countDown();
+        }
+      });
+
+      assertEquals(new HashSet<>(asList("Mux Channel A", "mux_b")), listeningChannels(listenConn));
+
+      try (Connection conn = TestUtil.openDB()) {
+        try (Statement stmt = conn.createStatement()) {
+          stmt.execute("NOTIFY \"Mux Channel A\", 'a'");
+          stmt.execute("NOTIFY mux_b, 'b'");
+        }
+      }
+
+      for (BlockingQueue<String> payloads : channelA) {
+        assertEquals("a", payloads.poll(10, SECONDS));
+      }
+      assertEquals("b", channelB.poll(10, SECONDS));
+      assertNull(channelB.poll(100, MILLISECONDS));
+
+      // Last subscriber leaving stops listening to the channel
+      for (PGNotificationMultiplexer.Subscription subscription : channelASubscriptions) {
+        subscription.close();
+      }
+
+      assertEquals(singleton("mux_b"), listeningChannels(listenConn));
+
+      multiplexer.close();
+
+      assertTrue(awaitUninterruptibly(10L, SECONDS, channelBClosed::await));
+    }
+    finally {
+      multiplexer.close();
+    }
+
+  }
+
+  private static Set<String> listeningChannels(Connection conn) throws Exception {
+    Set<String> channels = new HashSet<>();
+    try (Statement stmt = conn.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT pg_listening_channels()")) {
+        while (rs.next()) {
+          channels.add(rs.getString(1));
+        }
+      }
+    }
+    return channels;
+  }
+
   static void log(String msg) {
     System.out.println(String.format("%d [%20s] %s",
         System.currentTimeMillis(), Thread.currentThread().getName(), msg));
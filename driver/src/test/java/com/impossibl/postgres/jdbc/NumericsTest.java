@@ -88,4 +88,38 @@ public class NumericsTest {
 
   }
 
+  @Test
+  public void testBinaryRoundTrip() throws Exception {
+
+    String[] values = {
+      "0", "0.00", "1", "-1", "0.0001", "-0.00001", "12345.678", "10000", "99999999", "100000000.00000001",
+      "9223372036854775807", "-9223372036854775808", "92233720368547758070", "0.000000000000000000001",
+      "1E+20", "-1.5E+3", "123456789012345678901234567890.123456789012345678901234567890",
+      "3.14159265358979323846264338327950288419716939937510",
+    };
+
+    try (PreparedStatement pstmt = conn.prepareStatement("SELECT ?::numeric, ?::numeric::text, ?::text::numeric")) {
+
+      for (String value : values) {
+        BigDecimal decimal = new BigDecimal(value);
+
+        pstmt.setBigDecimal(1, decimal);
+        pstmt.setBigDecimal(2, decimal);
+        pstmt.setString(3, decimal.toPlainString());
+
+        try (ResultSet rs = pstmt.executeQuery()) {
+          assertTrue(rs.next());
+
+          BigDecimal expected = decimal.scale() < 0 ? decimal.setScale(0) : decimal;
+
+          assertThat(rs.getBigDecimal(1), is(expected));
+          assertThat(rs.getString(2), is(expected.toPlainString()));
+          assertThat(rs.getBigDecimal(3), is(expected));
+        }
+      }
+
+    }
+
+  }
+
 }
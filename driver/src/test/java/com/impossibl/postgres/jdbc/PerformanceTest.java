@@ -28,19 +28,57 @@
  */
 package com.impossibl.postgres.jdbc;
 
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.system.SystemSettings;
+import com.impossibl.postgres.system.metrics.DefaultHistogram;
+import com.impossibl.postgres.system.metrics.Metrics;
+import com.impossibl.postgres.utils.ConcurrentCache;
 import com.impossibl.postgres.utils.Timer;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Array;
+import java.sql.Blob;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class PerformanceTest {
 
   static Connection conn;
@@ -99,4 +137,735 @@ public class PerformanceTest {
 
   }
 
+  @Test
+  public void testBatchExecute() throws Exception {
+
+    TestUtil.createTempTable(conn, "batchperf", "id int, val text, num int8");
+
+    int rows = 20000;
+
+    try (PreparedStatement ps = conn.prepareStatement("INSERT INTO batchperf VALUES (?, ?, ?)")) {
+
+      Timer timer = new Timer();
+
+      for (int c = 0; c < rows; ++c) {
+        setBatchRow(ps, c);
+        ps.executeUpdate();
+      }
+
+      System.out.println("Single: " + (long) (rows / timer.getLapSeconds()) + " rows/s");
+
+      for (int c = 0; c < rows; ++c) {
+        setBatchRow(ps, c);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+
+      System.out.println("Batch: " + (long) (rows / timer.getLapSeconds()) + " rows/s");
+    }
+
+  }
+
+  @Test
+  public void testBatchCopy() throws Exception {
+
+    int rows = 100000;
+
+    for (boolean copy : new boolean[] {false, true}) {
+
+      Properties props = new Properties();
+      props.setProperty("batch.copy", Boolean.toString(copy));
+
+      try (Connection copyConn = TestUtil.openDB(props)) {
+
+        TestUtil.createTempTable(copyConn, "batchperf", "id int, val text, num int8");
+
+        try (PreparedStatement ps = copyConn.prepareStatement("INSERT INTO batchperf (id, val, num) VALUES (?, ?, ?)")) {
+
+          for (int c = 0; c < rows; ++c) {
+            setBatchRow(ps, c);
+            ps.addBatch();
+          }
+
+          Timer timer = new Timer();
+
+          ps.executeBatch();
+
+          System.out.println((copy ? "Copy: " : "Batch: ") + (long) (rows / timer.getLapSeconds()) + " rows/s");
+        }
+
+      }
+
+    }
+
+  }
+
+  @Test
+  public void testCopyFrom() throws Exception {
+
+    Path file = Files.createTempFile("copyperf", ".txt");
+    try {
+
+      try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+        for (int c = 0; c < 1000000; ++c) {
+          writer.append(Integer.toString(c)).append("\tRow ").append(Integer.toString(c)).append('\n');
+        }
+      }
+
+      double megabytes = Files.size(file) / (1024.0 * 1024.0);
+
+      PGConnection pgConn = conn.unwrap(PGConnection.class);
+
+      TestUtil.createTempTable(conn, "copyperf", "id int, val text");
+
+      for (String source : new String[] {"Stream", "Channel", "Buffer"}) {
+
+        try (Statement stmt = conn.createStatement()) {
+          stmt.execute("TRUNCATE copyperf");
+        }
+
+        Timer timer = new Timer();
+
+        switch (source) {
+          case "Stream":
+            try (InputStream in = Files.newInputStream(file)) {
+              pgConn.copyFrom("COPY copyperf FROM STDIN", in);
+            }
+            break;
+          case "Channel":
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+              pgConn.copyFrom("COPY copyperf FROM STDIN", channel);
+            }
+            break;
+          case "Buffer":
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+              pgConn.copyFrom("COPY copyperf FROM STDIN", channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+            break;
+        }
+
+        System.out.println(source + ": " + (long) (megabytes / timer.getLapSeconds()) + " MiB/s");
+      }
+
+    }
+    finally {
+      Files.delete(file);
+    }
+
+  }
+
+  @Test
+  public void testBlobStreaming() throws Exception {
+
+    byte[] data = new byte[64 * 1024 * 1024];
+    ThreadLocalRandom.current().nextBytes(data);
+
+    double megabytes = data.length / (1024.0 * 1024.0);
+
+    for (int depth : new int[] {1, 4, 8}) {
+
+      Properties props = new Properties();
+      props.setProperty(JDBCSettings.LARGE_OBJECT_PIPELINE_DEPTH.getName(), Integer.toString(depth));
+
+      try (Connection blobConn = TestUtil.openDB(props)) {
+        blobConn.setAutoCommit(false);
+
+        Blob blob = blobConn.createBlob();
+
+        Timer timer = new Timer();
+
+        try (OutputStream out = blob.setBinaryStream(1)) {
+          for (int off = 0; off < data.length; off += 8192) {
+            out.write(data, off, 8192);
+          }
+        }
+
+        System.out.println("Write (depth " + depth + "): " + (long) (megabytes / timer.getLapSeconds()) + " MiB/s");
+
+        byte[] read = new byte[8192];
+        long total = 0;
+        try (InputStream in = blob.getBinaryStream()) {
+          int amt;
+          while ((amt = in.read(read)) != -1) {
+            total += amt;
+          }
+        }
+
+        System.out.println("Read (depth " + depth + "): " + (long) (megabytes / timer.getLapSeconds()) + " MiB/s");
+
+        assertEquals(data.length, total);
+
+        blob.free();
+        blobConn.rollback();
+      }
+    }
+
+  }
+
+  @Test
+  public void testLeakDetection() throws Exception {
+
+    int statements = 200000;
+
+    for (String level : new String[] {"full", "sampled", "off"}) {
+
+      Properties props = new Properties();
+      props.setProperty("housekeeper.leak-detection", level);
+
+      try (Connection leakConn = TestUtil.openDB(props)) {
+
+        Timer timer = new Timer();
+
+        for (int c = 0; c < statements; ++c) {
+          leakConn.createStatement().close();
+        }
+
+        System.out.println(level + ": " + (long) (timer.getLapSeconds() * 1e9 / statements) + " ns/statement");
+      }
+
+    }
+
+  }
+
+  private static void setBatchRow(PreparedStatement ps, int row) throws SQLException {
+    ps.setInt(1, row);
+    if (row % 3 == 0) {
+      ps.setNull(2, Types.VARCHAR);
+    }
+    else {
+      ps.setString(2, "Row " + row);
+    }
+    if (row % 5 == 0) {
+      ps.setNull(3, Types.BIGINT);
+    }
+    else {
+      ps.setLong(3, row * 31L);
+    }
+  }
+
+  @Test
+  public void testPrimitiveGetters() throws Exception {
+
+    int rows = 500000;
+
+    try (PreparedStatement ps = conn.prepareStatement("SELECT i::int4, i::int8, i::float8, i % 2 = 0 FROM generate_series(1, ?) i")) {
+      ps.setInt(1, rows);
+
+      for (boolean primitive : new boolean[] {false, true, false, true, false, true}) {
+
+        try (ResultSet rs = ps.executeQuery()) {
+
+          Timer timer = new Timer();
+
+          long sum = 0;
+          while (rs.next()) {
+            if (primitive) {
+              sum += rs.getInt(1) + rs.getLong(2) + (long) rs.getDouble(3) + (rs.getBoolean(4) ? 1 : 0);
+            }
+            else {
+              sum += rs.getObject(1, Integer.class) + rs.getObject(2, Long.class) +
+                  rs.getObject(3, Double.class).longValue() + (rs.getObject(4, Boolean.class) ? 1 : 0);
+            }
+          }
+
+          System.out.println((primitive ? "Primitive: " : "Boxed: ") + (long) (timer.getLapSeconds() * 1e9 / (rows * 4)) + " ns/value (" + sum + ")");
+        }
+
+      }
+    }
+
+  }
+
+
+  @Test
+  public void testRowMemory() throws Exception {
+
+    int rows = 1000000;
+
+    try (Statement stmt = conn.createStatement()) {
+
+      long heapBefore = usedHeap();
+      long rssBefore = residentSetSize();
+
+      Timer timer = new Timer();
+
+      try (ResultSet rs = stmt.executeQuery("SELECT i::int4, i::int8, md5(i::text) FROM generate_series(1, " + rows + ") i")) {
+
+        double seconds = timer.getLapSeconds();
+
+        long heapAfter = usedHeap();
+        long rssAfter = residentSetSize();
+
+        System.out.println("Fetch: " + (long) (seconds * 1e9 / rows) + " ns/row");
+        System.out.println("Heap: " + (heapAfter - heapBefore) / rows + " bytes/row");
+        if (rssBefore != -1 && rssAfter != -1) {
+          System.out.println("RSS: " + (rssAfter - rssBefore) / rows + " bytes/row");
+        }
+
+        int count = 0;
+        while (rs.next()) {
+          count++;
+        }
+        assertEquals(rows, count);
+      }
+    }
+
+  }
+
+  @Test
+  public void testStreamingResults() throws Exception {
+
+    int rows = 2000000;
+
+    for (boolean streaming : new boolean[] {false, true}) {
+
+      Properties props = new Properties();
+      props.setProperty(JDBCSettings.RESULT_SET_STREAMING.getName(), Boolean.toString(streaming));
+
+      try (Connection streamConn = TestUtil.openDB(props)) {
+        try (Statement stmt = streamConn.createStatement()) {
+
+          long heapBefore = usedHeap();
+
+          Timer timer = new Timer();
+
+          try (ResultSet rs = stmt.executeQuery("SELECT i::int4, i::int8, md5(i::text) FROM generate_series(1, " + rows + ") i")) {
+
+            assertTrue(rs.next());
+            double firstRow = timer.getLapSeconds();
+
+            long peakHeap = usedHeap() - heapBefore;
+
+            int count = 1;
+            while (rs.next()) {
+              count++;
+            }
+            assertEquals(rows, count);
+
+            System.out.println((streaming ? "Streamed: " : "Buffered: ") +
+                (long) (firstRow * 1e3) + " ms to first row, " +
+                (long) (timer.getLapSeconds() * 1e9 / rows) + " ns/row, " +
+                peakHeap / (1024 * 1024) + " MiB heap after first row");
+          }
+        }
+      }
+    }
+
+  }
+
+  @Test
+  public void testAdaptiveFetch() throws Exception {
+
+    for (int targetSize : new int[] {0, 1024 * 1024}) {
+
+      Properties props = new Properties();
+      props.setProperty(JDBCSettings.FETCH_TARGET_SIZE.getName(), Integer.toString(targetSize));
+
+      try (Connection fetchConn = TestUtil.openDB(props)) {
+        fetchConn.setAutoCommit(false);
+
+        try (Statement stmt = fetchConn.createStatement()) {
+
+          for (int width : new int[] {4, 4096}) {
+
+            int rows = width == 4 ? 1000000 : 20000;
+
+            stmt.setFetchSize(width == 4 ? 100 : 10000);
+
+            Timer timer = new Timer();
+
+            try (ResultSet rs = stmt.executeQuery("SELECT i, repeat('x', " + width + ") FROM generate_series(1, " + rows + ") i")) {
+              int count = 0;
+              while (rs.next()) {
+                count++;
+              }
+              assertEquals(rows, count);
+            }
+
+            System.out.println((targetSize != 0 ? "Adaptive" : "Fixed") + " (" + width + " byte rows): " + (long) (timer.getLapSeconds() * 1e9 / rows) + " ns/row");
+          }
+        }
+
+        fetchConn.rollback();
+      }
+    }
+
+  }
+
+  @Test
+  public void testPrefetch() throws Exception {
+
+    int rows = 200000;
+
+    for (boolean prefetch : new boolean[] {false, true}) {
+
+      Properties props = new Properties();
+      props.setProperty(JDBCSettings.FETCH_PREFETCH.getName(), Boolean.toString(prefetch));
+      props.setProperty(SystemSettings.METRICS_ENABLED.getName(), "true");
+
+      try (Connection fetchConn = TestUtil.openDB(props)) {
+        fetchConn.setAutoCommit(false);
+
+        try (Statement stmt = fetchConn.createStatement()) {
+          stmt.setFetchSize(1000);
+
+          Timer timer = new Timer();
+
+          long work = 0;
+          try (ResultSet rs = stmt.executeQuery("SELECT i, repeat('x', 100) FROM generate_series(1, " + rows + ") i")) {
+            while (rs.next()) {
+              // Simulate processing each row
+              for (char c : rs.getString(2).toCharArray()) {
+                work += c * rs.getInt(1);
+              }
+            }
+          }
+
+          double seconds = timer.getLapSeconds();
+
+          DefaultHistogram stalls = (DefaultHistogram) fetchConn.unwrap(PGConnection.class).getMetrics().histogram(Metrics.RESULT_SET_FETCH_STALL);
+          System.out.println((prefetch ? "Prefetch" : "No prefetch") + ": " + (long) (seconds * 1e9 / rows) + " ns/row, " +
+              stalls.getCount() + " fetches, " + (long) stalls.getMean() / 1000 + " us/fetch stalled (" + work % 10 + ")");
+        }
+
+        fetchConn.rollback();
+      }
+    }
+
+  }
+
+  @Test
+  public void testMetricsOverhead() throws Exception {
+
+    int executions = 20000;
+
+    for (int run = 0; run < 2; ++run) {
+      for (boolean enabled : new boolean[] {false, true}) {
+
+        Properties props = new Properties();
+        props.setProperty(SystemSettings.METRICS_ENABLED.getName(), Boolean.toString(enabled));
+
+        try (Connection metricsConn = TestUtil.openDB(props)) {
+          try (PreparedStatement ps = metricsConn.prepareStatement("SELECT i, 'x' FROM generate_series(1, ?) i")) {
+            ps.setInt(1, 10);
+
+            Timer timer = new Timer();
+
+            for (int c = 0; c < executions; ++c) {
+              try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                  rs.getInt(1);
+                }
+              }
+            }
+
+            System.out.println("Metrics " + (enabled ? "enabled" : "disabled") + ": " + (long) (timer.getLapSeconds() * 1e6 / executions) + " us/execution");
+          }
+        }
+      }
+    }
+
+  }
+
+  @Test
+  public void testTLSConnectionRate() throws Exception {
+
+    int connections = 200;
+
+    for (int run = 0; run < 2; ++run) {
+      for (boolean cached : new boolean[] {false, true}) {
+
+        Properties props = new Properties();
+        props.setProperty(SystemSettings.SSL_MODE.getName(), "require");
+        props.setProperty(SystemSettings.SSL_CONTEXT_CACHE.getName(), Boolean.toString(cached));
+
+        Timer timer = new Timer();
+
+        for (int c = 0; c < connections; ++c) {
+          TestUtil.openDB(props).close();
+        }
+
+        System.out.println("TLS connections (context " + (cached ? "cached" : "not cached") + "): " + (long) (connections / timer.getLapSeconds()) + "/s");
+      }
+    }
+
+  }
+
+  @Test
+  public void testRegistrySnapshotStartup() throws Exception {
+
+    int connections = 100;
+
+    Path snapshotDir = Files.createTempDirectory("pgjdbc-snapshot");
+    try {
+
+      for (int run = 0; run < 2; ++run) {
+        for (boolean snapshot : new boolean[] {false, true}) {
+
+          // Unshared registries so every connection seeds its own, as a new process would
+          Properties props = new Properties();
+          props.setProperty(JDBCSettings.REGISTRY_SHARING.getName(), "false");
+          if (snapshot) {
+            props.setProperty(SystemSettings.REGISTRY_SNAPSHOT_DIR.getName(), snapshotDir.toString());
+          }
+
+          Timer timer = new Timer();
+
+          for (int c = 0; c < connections; ++c) {
+            TestUtil.openDB(props).close();
+          }
+
+          System.out.println("Connection startup (" + (snapshot ? "snapshot" : "no snapshot") + "): " + timer.getLap() / (double) connections + "ms");
+        }
+      }
+
+    }
+    finally {
+      try (Stream<Path> files = Files.list(snapshotDir)) {
+        for (Path file : files.collect(Collectors.toList())) {
+          Files.delete(file);
+        }
+      }
+      Files.delete(snapshotDir);
+    }
+
+  }
+
+  @Test
+  public void testQueryTimeoutOverhead() throws Exception {
+
+    int executions = 20000;
+
+    try (Connection conn = TestUtil.openDB()) {
+      try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+
+        for (int run = 0; run < 2; ++run) {
+          for (int timeout : new int[] {0, 30}) {
+
+            ps.setQueryTimeout(timeout);
+
+            Timer timer = new Timer();
+
+            for (int c = 0; c < executions; ++c) {
+              try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+              }
+            }
+
+            System.out.println("Query timeout " + (timeout != 0 ? "enabled" : "disabled") + ": " + (long) (timer.getLapSeconds() * 1e6 / executions) + " us/execution");
+          }
+        }
+
+      }
+    }
+
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int c = 0; c < 3; ++c) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static long residentSetSize() throws IOException {
+    Path status = Paths.get("/proc/self/status");
+    if (!Files.exists(status)) {
+      return -1;
+    }
+    for (String line : Files.readAllLines(status)) {
+      if (line.startsWith("VmRSS:")) {
+        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+      }
+    }
+    return -1;
+  }
+
+  @Test
+  public void testPrimitiveArrays() throws Exception {
+
+    for (int size : new int[] {1000, 100000, 1000000}) {
+
+      int rounds = Math.max(10000000 / size, 5);
+
+      try (PreparedStatement ps = conn.prepareStatement("SELECT array_agg(i) FROM generate_series(1, ?) i")) {
+        ps.setInt(1, size);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          assertTrue(rs.next());
+
+          for (boolean bulk : new boolean[] {false, true, false, true}) {
+
+            Timer timer = new Timer();
+
+            long sum = 0;
+            for (int round = 0; round < rounds; ++round) {
+              if (bulk) {
+                int[] values = rs.getObject(1, int[].class);
+                sum += values[values.length - 1];
+              }
+              else {
+                Array array = rs.getArray(1);
+                Object[] values = (Object[]) array.getArray();
+                sum += (Integer) values[values.length - 1];
+                array.free();
+              }
+            }
+
+            System.out.println((bulk ? "Decode int[" : "Decode Array [") + size + "]: " + (long) (timer.getLapSeconds() * 1e9 / ((long) rounds * size)) + " ns/element (" + sum + ")");
+          }
+        }
+      }
+
+      int[] values = new int[size];
+      for (int c = 0; c < size; ++c) {
+        values[c] = c;
+      }
+
+      try (PreparedStatement ps = conn.prepareStatement("SELECT cardinality(?::int4[])")) {
+
+        for (boolean bulk : new boolean[] {false, true, false, true}) {
+
+          Timer timer = new Timer();
+
+          int encodeRounds = Math.max(rounds / 10, 5);
+          for (int round = 0; round < encodeRounds; ++round) {
+            ps.setObject(1, bulk ? values : IntStream.of(values).asLongStream().boxed().toArray(Long[]::new));
+            try (ResultSet rs = ps.executeQuery()) {
+              assertTrue(rs.next());
+              assertEquals(size, rs.getInt(1));
+            }
+          }
+
+          System.out.println((bulk ? "Encode int[" : "Encode Long[") + size + "]: " + (long) (timer.getLapSeconds() * 1e9 / ((long) encodeRounds * size)) + " ns/element");
+        }
+      }
+    }
+
+  }
+
+  @Test
+  public void testNumerics() throws Exception {
+
+    int count = 200000;
+
+    for (int[] precisionScale : new int[][] {{9, 2}, {18, 6}, {38, 10}, {100, 50}}) {
+
+      int precision = precisionScale[0];
+      int scale = precisionScale[1];
+      String type = "numeric(" + precision + "," + scale + ")";
+
+      BigDecimal[] values = new BigDecimal[count];
+      for (int c = 0; c < count; ++c) {
+        StringBuilder digits = new StringBuilder(precision);
+        for (int d = 0; d < precision; ++d) {
+          digits.append((char) ('0' + ThreadLocalRandom.current().nextInt(10)));
+        }
+        BigDecimal value = new BigDecimal(new BigInteger(digits.toString()), scale);
+        values[c] = c % 2 == 0 ? value : value.negate();
+      }
+
+      try (PreparedStatement ps = conn.prepareStatement("SELECT count(*) FROM unnest(?::" + type + "[])")) {
+
+        for (int round = 0; round < 3; ++round) {
+
+          Timer timer = new Timer();
+
+          ps.setObject(1, values);
+          try (ResultSet rs = ps.executeQuery()) {
+            assertTrue(rs.next());
+            assertEquals(count, rs.getInt(1));
+          }
+
+          System.out.println("Encode " + type + ": " + (long) (timer.getLapSeconds() * 1e9 / count) + " ns/value");
+        }
+      }
+
+      try (PreparedStatement ps = conn.prepareStatement("SELECT ?::" + type + "[]")) {
+
+        ps.setObject(1, values);
+
+        try (ResultSet rs = ps.executeQuery()) {
+          assertTrue(rs.next());
+
+          for (int round = 0; round < 5; ++round) {
+
+            Timer timer = new Timer();
+
+            BigDecimal[] decoded = rs.getObject(1, BigDecimal[].class);
+
+            System.out.println("Decode " + type + ": " + (long) (timer.getLapSeconds() * 1e9 / count) + " ns/value");
+
+            assertArrayEquals(values, decoded);
+          }
+        }
+      }
+    }
+
+  }
+
+  @Test
+  public void testCacheContention() throws Exception {
+
+    int threads = 16;
+    int operations = 1000000;
+    int maxSize = 250;
+    String[] keys = new String[maxSize];
+    for (int c = 0; c < keys.length; ++c) {
+      keys[c] = "SELECT * FROM table" + c;
+    }
+
+    Map<String, String> lruMap = new LinkedHashMap<String, String>(maxSize + 1, 1.1f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxSize;
+      }
+    };
+    Map<String, String> synchronizedCache = Collections.synchronizedMap(lruMap);
+    ConcurrentCache<String, String> concurrentCache = new ConcurrentCache<>(maxSize);
+
+    for (int run = 0; run < 2; ++run) {
+      for (boolean concurrent : new boolean[] {false, true}) {
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+
+          Timer timer = new Timer();
+
+          List<Future<?>> futures = new ArrayList<>();
+          for (int t = 0; t < threads; ++t) {
+            futures.add(executor.submit(() -> {
+              for (int c = 0; c < operations; ++c) {
+                String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+                if (concurrent) {
+                  if (concurrentCache.get(key) == null) {
+                    concurrentCache.put(key, key);
+                  }
+                }
+                else {
+                  if (synchronizedCache.get(key) == null) {
+                    synchronizedCache.put(key, key);
+                  }
+                }
+              }
+            }));
+          }
+
+          for (Future<?> future : futures) {
+            future.get();
+          }
+
+          System.out.println((concurrent ? "Concurrent: " : "Synchronized: ") + (long) (threads * operations / timer.getLapSeconds()) + " ops/s");
+        }
+        finally {
+          executor.shutdown();
+        }
+
+      }
+    }
+
+    System.out.println(concurrentCache);
+  }
+
 }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.api.jdbc.PGConnection;
+import com.impossibl.postgres.system.SystemSettings;
+import com.impossibl.postgres.system.metrics.Metrics;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/*
+ * Tests for type registry snapshots (registry.snapshot.dir)
+ */
+@RunWith(JUnit4.class)
+public class RegistrySnapshotTest {
+
+  private Path snapshotDir;
+
+  @Before
+  public void before() throws Exception {
+    snapshotDir = Files.createTempDirectory("pgjdbc-snapshot");
+  }
+
+  @After
+  public void after() throws Exception {
+    try (Connection con = TestUtil.openDB()) {
+      TestUtil.dropType(con, "snapshot_domain");
+    }
+    try (Stream<Path> files = Files.list(snapshotDir)) {
+      for (Path file : files.collect(Collectors.toList())) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(snapshotDir);
+  }
+
+  private Connection openDB() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.REGISTRY_SHARING.getName(), "false");
+    props.setProperty(SystemSettings.REGISTRY_SNAPSHOT_DIR.getName(), snapshotDir.toString());
+    props.setProperty(SystemSettings.METRICS_ENABLED.getName(), "true");
+    return TestUtil.openDB(props);
+  }
+
+  private static long rowsReceived(Connection con) throws Exception {
+    return con.unwrap(PGConnection.class).getMetrics().counter(Metrics.ROWS_RECEIVED).getCount();
+  }
+
+  private List<Path> snapshotFiles() throws IOException {
+    try (Stream<Path> files = Files.list(snapshotDir)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+
+  private static void checkTypes(Connection con) throws Exception {
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT ARRAY[1,2,3]::int4[], 2.5::numeric, 'a'::varchar")) {
+        assertTrue(rs.next());
+        Array array = rs.getArray(1);
+        assertArrayEquals(new Integer[] {1, 2, 3}, (Object[]) array.getArray());
+        assertEquals(new BigDecimal("2.5"), rs.getObject(2));
+        assertEquals("a", rs.getObject(3));
+      }
+    }
+  }
+
+  @Test
+  public void testSnapshotSavedAndLoaded() throws Exception {
+
+    long seedRows;
+    try (Connection con = openDB()) {
+      seedRows = rowsReceived(con);
+      checkTypes(con);
+    }
+
+    assertEquals(1, snapshotFiles().size());
+
+    try (Connection con = openDB()) {
+      // Seeding from the snapshot skips the type query entirely
+      assertTrue(rowsReceived(con) < seedRows - 100);
+      checkTypes(con);
+    }
+
+    assertEquals(1, snapshotFiles().size());
+  }
+
+  @Test
+  public void testSnapshotInvalidatedByCatalogChange() throws Exception {
+
+    try (Connection con = openDB()) {
+      checkTypes(con);
+    }
+
+    Path snapshotFile = snapshotFiles().get(0);
+    byte[] original = Files.readAllBytes(snapshotFile);
+
+    try (Connection con = TestUtil.openDB()) {
+      try (Statement stmt = con.createStatement()) {
+        stmt.execute("CREATE DOMAIN snapshot_domain AS int4 CHECK (VALUE > 0)");
+      }
+    }
+
+    try (Connection con = openDB()) {
+      try (Statement stmt = con.createStatement()) {
+        try (ResultSet rs = stmt.executeQuery("SELECT 5::snapshot_domain")) {
+          assertTrue(rs.next());
+          assertEquals(5, rs.getObject(1));
+        }
+      }
+    }
+
+    assertFalse(Arrays.equals(original, Files.readAllBytes(snapshotFile)));
+  }
+
+  @Test
+  public void testCorruptSnapshotIgnored() throws Exception {
+
+    try (Connection con = openDB()) {
+      checkTypes(con);
+    }
+
+    Path snapshotFile = snapshotFiles().get(0);
+    byte[] original = Files.readAllBytes(snapshotFile);
+
+    Files.write(snapshotFile, Arrays.copyOf(original, original.length / 2));
+
+    try (Connection con = openDB()) {
+      checkTypes(con);
+    }
+
+    assertArrayEquals(original, Files.readAllBytes(snapshotFile));
+  }
+
+  @Test
+  public void testInvalidStringLengthSnapshotIgnored() throws Exception {
+
+    try (Connection con = openDB()) {
+      checkTypes(con);
+    }
+
+    Path snapshotFile = snapshotFiles().get(0);
+    byte[] original = Files.readAllBytes(snapshotFile);
+
+    // Length of the server version string, following the magic & format version
+    byte[] corrupt = original.clone();
+    ByteBuffer.wrap(corrupt).putInt(6, Integer.MAX_VALUE);
+    Files.write(snapshotFile, corrupt);
+
+    try (Connection con = openDB()) {
+      checkTypes(con);
+    }
+
+    assertArrayEquals(original, Files.readAllBytes(snapshotFile));
+  }
+
+}
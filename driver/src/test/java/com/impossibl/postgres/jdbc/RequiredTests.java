@@ -58,6 +58,7 @@ import org.junit.runners.Suite.SuiteClasses;
 //    GiantBlobTest.class,
     LeakTest.class,
     LockTest.class,
+    MetricsTest.class,
     MultiSchemasStructsTest.class,
     NetworkTest.class,
     NotificationTest.class,
@@ -65,6 +66,7 @@ import org.junit.runners.Suite.SuiteClasses;
     ParameterMetaDataTest.class,
     PreparedStatementTest.class,
     PsuedoRecordTest.class,
+    RegistrySnapshotTest.class,
     ResultSetMetaDataTest.class,
     ResultSetTest.class,
     SavepointTest.class,
@@ -74,6 +76,7 @@ import org.junit.runners.Suite.SuiteClasses;
 //    SSLDataSourceTest.class,
 //    SSLTest.class,
     StatementTest.class,
+    StreamingResultSetTest.class,
     StructTest.class,
     TimestampTest.class,
     TimeTest.class,
@@ -795,6 +795,27 @@ public class ResultSetTest {
     stmt.close();
   }
 
+  @Test
+  public void testFindColumnCaseInsensitiveDuplicates() throws SQLException {
+    PreparedStatement pstmt = con.prepareStatement("SELECT 1 AS \"A\", 2 AS a, 3 AS \"B\"");
+
+    // Executed twice to use the label index shared via the statement's description
+    for (int c = 0; c < 2; ++c) {
+      ResultSet rs = pstmt.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(1, rs.findColumn("A"));
+      assertEquals(1, rs.findColumn("a"));
+      assertEquals(3, rs.findColumn("b"));
+      assertEquals(3, rs.findColumn("B"));
+      assertEquals(1, rs.getInt("a"));
+      assertThrows(SQLException.class, () -> rs.findColumn("c"));
+      assertThrows(SQLException.class, () -> rs.findColumn(null));
+      rs.close();
+    }
+
+    pstmt.close();
+  }
+
   @Test
   public void testGetOutOfBounds() throws SQLException {
     Statement stmt = con.createStatement();
@@ -927,6 +948,73 @@ public class ResultSetTest {
     stmt.close();
   }
 
+  @Test
+  public void testPrimitiveGetters() throws SQLException {
+    PreparedStatement pstmt = con.prepareStatement(
+        "SELECT true, 12::int2, 123456::int4, 1234567890123::int8, 1.5::float4, 2.25::float8, " +
+            "null::bool, null::int2, null::int4, null::int8, null::float4, null::float8, 7::numeric");
+    ResultSet rs = pstmt.executeQuery();
+    assertTrue(rs.next());
+
+    assertTrue(rs.getBoolean(1));
+    assertFalse(rs.wasNull());
+    assertEquals(12, rs.getShort(2));
+    assertEquals(12, rs.getInt(2));
+    assertEquals(12L, rs.getLong(2));
+    assertEquals(123456, rs.getInt(3));
+    assertEquals(123456L, rs.getLong(3));
+    assertEquals(1234567890123L, rs.getLong(4));
+    assertEquals(1.5f, rs.getFloat(5), 0.0f);
+    assertEquals(1.5, rs.getDouble(5), 0.0);
+    assertEquals(2.25, rs.getDouble(6), 0.0);
+    assertFalse(rs.wasNull());
+
+    // Conversions not handled by the primitive accessors
+    assertEquals(123456.0, rs.getDouble(3), 0.0);
+    assertEquals(2.25f, rs.getFloat(6), 0.0f);
+    assertEquals(7, rs.getInt(13));
+
+    assertFalse(rs.getBoolean(7));
+    assertTrue(rs.wasNull());
+    assertEquals(0, rs.getShort(8));
+    assertTrue(rs.wasNull());
+    assertEquals(0, rs.getInt(9));
+    assertTrue(rs.wasNull());
+    assertEquals(0L, rs.getLong(10));
+    assertTrue(rs.wasNull());
+    assertEquals(0.0f, rs.getFloat(11), 0.0f);
+    assertTrue(rs.wasNull());
+    assertEquals(0.0, rs.getDouble(12), 0.0);
+    assertTrue(rs.wasNull());
+
+    rs.close();
+    pstmt.close();
+  }
+
+  @Test
+  public void testLargeResultSpanningChunks() throws SQLException {
+    int rows = 20000;
+    try (Statement stmt = con.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+      try (ResultSet rs = stmt.executeQuery("SELECT i, CASE WHEN i = 5000 THEN repeat('y', 400000) ELSE repeat('x', i % 100) END FROM generate_series(1, " + rows + ") i")) {
+
+        int count = 0;
+        while (rs.next()) {
+          int i = rs.getInt(1);
+          assertEquals(++count, i);
+          assertEquals(i == 5000 ? 400000 : i % 100, rs.getString(2).length());
+        }
+        assertEquals(rows, count);
+
+        assertTrue(rs.absolute(5000));
+        assertEquals(400000, rs.getString(2).length());
+        assertTrue(rs.absolute(4999));
+        assertEquals(4999 % 100, rs.getString(2).length());
+        assertTrue(rs.absolute(rows));
+        assertEquals(rows, rs.getInt(1));
+      }
+    }
+  }
+
   @Test
   public void testTurkishLocale() throws SQLException {
     Locale current = Locale.getDefault();
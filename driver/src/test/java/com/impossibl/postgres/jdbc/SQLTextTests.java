@@ -36,6 +36,7 @@ import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class SQLTextTests {
@@ -187,4 +188,24 @@ public class SQLTextTests {
     SQLText sqlText = new SQLText(sql);
     SQLTextEscapes.processEscapes(sqlText, null);
   }
+
+  @Test
+  public void testCopyFromText() throws ParseException {
+
+    SQLTextUtils.CopyFromText copy = SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test (a, \"B\", c) VALUES (?, ?, ?)"));
+    assertThat(copy.getText(), is(equalTo("COPY test (a,\"B\",c) FROM STDIN (FORMAT binary)")));
+    assertThat(copy.getTable(), is(equalTo("test")));
+
+    copy = SQLTextUtils.getCopyFromText(new SQLText("insert into s.\"Test\"(a) /* comment */ values(?)"));
+    assertThat(copy.getText(), is(equalTo("COPY s.\"Test\" (a) FROM STDIN (FORMAT binary)")));
+    assertThat(copy.getTable(), is(equalTo("s.\"Test\"")));
+
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test VALUES (?, ?)")), is(nullValue()));
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test (a, b) VALUES (?, 1)")), is(nullValue()));
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test (a) VALUES (?), (?)")), is(nullValue()));
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test (a, b) VALUES (?, ?) RETURNING *")), is(nullValue()));
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("INSERT INTO test (a) VALUES (?); SELECT 1")), is(nullValue()));
+    assertThat(SQLTextUtils.getCopyFromText(new SQLText("UPDATE test SET a = ?")), is(nullValue()));
+  }
+
 }
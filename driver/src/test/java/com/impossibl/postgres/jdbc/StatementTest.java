@@ -575,6 +575,65 @@ public class StatementTest {
     stmt.close();
   }
 
+  /**
+   * Query timeouts on multiple connections share a single timer and
+   * must each cancel only their own query.
+   *
+   * @throws Exception
+   */
+  @Test
+  public void testSetQueryTimeoutMultipleConnections() throws Exception {
+
+    Connection[] cons = new Connection[4];
+    Thread[] threads = new Thread[cons.length];
+    String[] states = new String[cons.length];
+    try {
+
+      for (int c = 0; c < cons.length; ++c) {
+        cons[c] = TestUtil.openDB();
+      }
+
+      long start = System.currentTimeMillis();
+
+      for (int c = 0; c < cons.length; ++c) {
+        Connection threadCon = cons[c];
+        int idx = c;
+        threads[c] = new Thread(() -> {
+          try (Statement stmt = threadCon.createStatement()) {
+            stmt.setQueryTimeout(1);
+            stmt.execute("select pg_sleep(30)");
+          }
+          catch (SQLException sqle) {
+            states[idx] = sqle.getSQLState();
+          }
+        });
+        threads[c].start();
+      }
+
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      assertTrue("Query timeouts should have fired promptly", System.currentTimeMillis() - start < 15000);
+
+      for (int c = 0; c < cons.length; ++c) {
+        assertEquals("Should have received cancel exception", "57014", states[c]);
+
+        // Ensure connection is still usable
+        try (Statement stmt = cons[c].createStatement()) {
+          stmt.setQueryTimeout(1);
+          assertTrue(stmt.execute("select 1"));
+        }
+      }
+
+    }
+    finally {
+      for (Connection c : cons) {
+        if (c != null) c.close();
+      }
+    }
+  }
+
   @Test
   public void testResultSetTwice() throws SQLException {
     Statement stmt = con.createStatement();
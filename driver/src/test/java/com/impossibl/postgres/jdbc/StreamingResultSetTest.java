@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.jdbc;
+
+import com.impossibl.postgres.system.SystemSettings;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/*
+ * Tests for streamed result sets (result-set.streaming)
+ */
+@RunWith(JUnit4.class)
+public class StreamingResultSetTest {
+
+  private static final int ROWS = 200000;
+  private static final String SQL = "SELECT i, repeat('x', 50) FROM generate_series(1, " + ROWS + ") i";
+
+  private Connection con;
+
+  @Before
+  public void before() throws Exception {
+    Properties props = new Properties();
+    props.setProperty(JDBCSettings.RESULT_SET_STREAMING.getName(), "true");
+    // Small watermarks ensure reading is suspended & resumed repeatedly
+    props.setProperty(SystemSettings.PROTOCOL_READ_BUFFER_WATERMARK_HIGH.getName(), "65536");
+    props.setProperty(SystemSettings.PROTOCOL_READ_BUFFER_WATERMARK_LOW.getName(), "16384");
+    con = TestUtil.openDB(props);
+  }
+
+  @After
+  public void after() throws Exception {
+    TestUtil.closeDB(con);
+  }
+
+  private static void assertRows(ResultSet rs, int expected) throws SQLException {
+    int count = 0;
+    while (rs.next()) {
+      assertEquals(++count, rs.getInt(1));
+      assertEquals(count, rs.getRow());
+    }
+    assertEquals(expected, count);
+    assertFalse(rs.next());
+  }
+
+  @Test
+  public void testStatement() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery(SQL)) {
+        assertEquals(ResultSet.TYPE_FORWARD_ONLY, rs.getType());
+        assertRows(rs, ROWS);
+      }
+    }
+  }
+
+  @Test
+  public void testPreparedStatement() throws SQLException {
+    try (PreparedStatement stmt = con.prepareStatement("SELECT i, repeat('x', 50) FROM generate_series(1, ?) i")) {
+      stmt.setInt(1, ROWS);
+      // Execute repeatedly to use the prepared (named) statement
+      for (int c = 0; c < 6; ++c) {
+        try (ResultSet rs = stmt.executeQuery()) {
+          assertRows(rs, ROWS);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testFetchSize() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      stmt.setFetchSize(7);
+      try (ResultSet rs = stmt.executeQuery(SQL)) {
+        assertRows(rs, ROWS);
+      }
+    }
+  }
+
+  @Test
+  public void testTransaction() throws SQLException {
+    con.setAutoCommit(false);
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery(SQL)) {
+        assertRows(rs, ROWS);
+      }
+    }
+    con.commit();
+  }
+
+  @Test
+  public void testEmptyAndUpdates() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT 1 WHERE false")) {
+        assertFalse(rs.next());
+      }
+
+      stmt.executeUpdate("CREATE TEMP TABLE stream_test (id int)");
+      assertEquals(3, stmt.executeUpdate("INSERT INTO stream_test VALUES (1), (2), (3)"));
+
+      // Multiple statements are not streamed
+      assertTrue(stmt.execute("SELECT 1; SELECT 2"));
+      assertTrue(stmt.getMoreResults());
+      try (ResultSet rs = stmt.getResultSet()) {
+        assertTrue(rs.next());
+        assertEquals(2, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  public void testError() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery("SELECT 1 / (" + (ROWS / 2) + " - i) FROM generate_series(1, " + ROWS + ") i")) {
+        while (rs.next()) {
+          rs.getInt(1);
+        }
+        fail("Expected division by zero");
+      }
+      catch (SQLException e) {
+        assertEquals("22012", e.getSQLState());
+      }
+
+      // Connection remains usable
+      try (ResultSet rs = stmt.executeQuery("SELECT 1")) {
+        assertTrue(rs.next());
+        assertEquals(1, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  public void testInterleavedStatements() throws SQLException {
+    try (Statement stmt = con.createStatement(); Statement other = con.createStatement()) {
+      try (ResultSet rs = stmt.executeQuery(SQL)) {
+
+        for (int c = 1; c <= 1000; ++c) {
+          assertTrue(rs.next());
+          assertEquals(c, rs.getInt(1));
+        }
+
+        // Must not wait on the unread stream
+        try (ResultSet otherRs = other.executeQuery("SELECT 42")) {
+          assertTrue(otherRs.next());
+          assertEquals(42, otherRs.getInt(1));
+        }
+
+        int count = 1000;
+        while (rs.next()) {
+          assertEquals(++count, rs.getInt(1));
+        }
+        assertEquals(ROWS, count);
+      }
+    }
+  }
+
+  @Test
+  public void testCloseEarly() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      for (int c = 0; c < 3; ++c) {
+        try (ResultSet rs = stmt.executeQuery(SQL)) {
+          assertTrue(rs.next());
+          assertEquals(1, rs.getInt(1));
+        }
+      }
+
+      try (ResultSet rs = stmt.executeQuery("SELECT 42")) {
+        assertTrue(rs.next());
+        assertEquals(42, rs.getInt(1));
+      }
+    }
+  }
+
+  // First row is large enough to be flushed by the server before it stalls
+  private static final String STALLING_SQL =
+      "SELECT g, CASE WHEN g = 1 THEN repeat('x', 100000) ELSE pg_sleep(10)::text END FROM generate_series(1, 2) g";
+
+  @Test
+  public void testQueryTimeoutAfterFirstRows() throws SQLException {
+    try (Statement stmt = con.createStatement()) {
+      stmt.setQueryTimeout(1);
+
+      long start = System.currentTimeMillis();
+      try (ResultSet rs = stmt.executeQuery(STALLING_SQL)) {
+        assertTrue(rs.next());
+        rs.next();
+        fail("Query timeout should have canceled the query");
+      }
+      catch (SQLException e) {
+        assertEquals("57014", e.getSQLState());
+      }
+      assertTrue(System.currentTimeMillis() - start < 5000);
+
+      try (ResultSet rs = stmt.executeQuery("SELECT 42")) {
+        assertTrue(rs.next());
+        assertEquals(42, rs.getInt(1));
+      }
+    }
+  }
+
+  @Test
+  public void testNetworkTimeoutAfterFirstRows() throws SQLException {
+    con.setNetworkTimeout(null, 1000);
+    try (Statement stmt = con.createStatement()) {
+
+      long start = System.currentTimeMillis();
+      try (ResultSet rs = stmt.executeQuery(STALLING_SQL)) {
+        assertTrue(rs.next());
+        rs.next();
+        fail("Network timeout should have failed the query");
+      }
+      catch (SQLTimeoutException e) {
+        // Expected
+      }
+      assertTrue(System.currentTimeMillis() - start < 5000);
+      assertTrue(con.isClosed());
+    }
+  }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.ssl;
+
+import com.impossibl.postgres.system.Configuration;
+import com.impossibl.postgres.system.Setting;
+import com.impossibl.postgres.system.Settings;
+
+import static com.impossibl.postgres.system.SystemSettings.SSL_CONTEXT_CACHE;
+import static com.impossibl.postgres.system.SystemSettings.SSL_CRT_FILE;
+import static com.impossibl.postgres.system.SystemSettings.SSL_KEY_FILE;
+import static com.impossibl.postgres.system.SystemSettings.SSL_KEY_PASSWORD;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import javax.net.ssl.SSLContext;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class SSLEngineFactoryTest {
+
+  private static Configuration config(Settings settings) {
+    return new Configuration() {
+      @Override
+      public <T> T getSetting(Setting<T> setting) {
+        return settings.get(setting);
+      }
+    };
+  }
+
+  @Test
+  public void testContextShared() throws Exception {
+
+    Settings settings = new Settings();
+    settings.set(SSL_CRT_FILE, "shared.crt");
+
+    SSLContext context = SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+
+    assertSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+    assertSame(context, SSLEngineFactory.getContext(SSLMode.Prefer, config(settings)));
+
+    settings.set(SSL_KEY_FILE, "shared.pk8");
+
+    assertNotSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+  }
+
+  @Test
+  public void testContextKeyPassword() throws Exception {
+
+    Settings settings = new Settings();
+    settings.set(SSL_CRT_FILE, "password.crt");
+    settings.set(SSL_KEY_PASSWORD, "first");
+
+    SSLContext context = SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+
+    assertSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+
+    settings.set(SSL_KEY_PASSWORD, "second");
+
+    assertNotSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+  }
+
+  @Test
+  public void testContextCacheBounded() throws Exception {
+
+    for (int c = 0; c < 100; ++c) {
+      Settings settings = new Settings();
+      settings.set(SSL_CRT_FILE, "bounded-" + c + ".crt");
+
+      SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+    }
+
+    assertTrue(SSLEngineFactory.getCachedContextCount() < 100);
+  }
+
+  @Test
+  public void testContextCacheDisabled() throws Exception {
+
+    Settings settings = new Settings();
+    settings.set(SSL_CONTEXT_CACHE, false);
+
+    SSLContext context = SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+
+    assertNotSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+  }
+
+  @Test
+  public void testContextRefreshedOnFileChange() throws Exception {
+
+    File certFile = File.createTempFile("ssl-engine-factory", ".crt");
+    try {
+      Settings settings = new Settings();
+      settings.set(SSL_CRT_FILE, certFile.getAbsolutePath());
+
+      SSLContext context = SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+      assertSame(context, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+
+      Files.write(certFile.toPath(), "updated".getBytes(UTF_8));
+
+      SSLContext refreshed = SSLEngineFactory.getContext(SSLMode.Require, config(settings));
+      assertNotSame(context, refreshed);
+      assertSame(refreshed, SSLEngineFactory.getContext(SSLMode.Require, config(settings)));
+    }
+    finally {
+      certFile.delete();
+    }
+  }
+
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.protocol.v30;
+
+import com.impossibl.postgres.protocol.FieldBuffersRowData;
+import com.impossibl.postgres.protocol.RowData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class PackedRowDataSetTest {
+
+  private static ByteBuf payload(int value) {
+    ByteBuf data = Unpooled.buffer();
+    data.writeShort(2);
+    data.writeInt(4).writeInt(value);
+    data.writeInt(-1);
+    return data;
+  }
+
+  private static void assertRow(RowData row, int value) {
+    assertEquals(2, row.getFieldCount());
+    assertEquals(value, row.getInt4(0));
+    assertFalse(row.isNull(0));
+    assertTrue(row.isNull(1));
+  }
+
+  @Test
+  public void testAdd() {
+
+    PackedRowDataSet rows = new PackedRowDataSet();
+    try {
+
+      ByteBuf appended = payload(1);
+      rows.append(appended);
+      appended.release();
+
+      BufferRowData bufferRow = new BufferRowData(payload(2));
+      rows.add(bufferRow);
+      assertEquals(0, bufferRow.refCnt());
+
+      ByteBuf field = Unpooled.buffer().writeInt(3);
+      FieldBuffersRowData fieldsRow = new FieldBuffersRowData(new ByteBuf[] {field, null}, ByteBufAllocator.DEFAULT);
+      rows.add(fieldsRow);
+      assertEquals(0, fieldsRow.refCnt());
+      assertEquals(0, field.refCnt());
+
+      assertEquals(3, rows.size());
+      assertEquals(3 * 14, rows.getByteSize());
+
+      for (int c = 0; c < 3; ++c) {
+        assertRow(rows.borrow(c), c + 1);
+      }
+    }
+    finally {
+      rows.release();
+    }
+  }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2013, impossibl.com
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ *  * Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ *  * Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ *  * Neither the name of impossibl.com nor the names of its contributors may
+ *    be used to endorse or promote products derived from this software
+ *    without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.impossibl.postgres.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(JUnit4.class)
+public class ConcurrentCacheTest {
+
+  @Test
+  public void testGetPut() {
+
+    ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(2);
+
+    assertNull(cache.get("a"));
+    cache.put("a", 1);
+    assertEquals(1, (int) cache.get("a"));
+    assertEquals(1, (int) cache.putIfAbsent("a", 2));
+    assertEquals(1, (int) cache.get("a"));
+    cache.put("a", 3);
+    assertEquals(3, (int) cache.get("a"));
+
+    assertEquals(1, cache.size());
+    assertEquals(3, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testEviction() {
+
+    List<String> evicted = new ArrayList<>();
+    ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(3, (key, value) -> evicted.add(key));
+
+    cache.put("a", 1);
+    cache.put("b", 2);
+    cache.put("c", 3);
+
+    // Recently used entries are given a second chance
+    cache.get("a");
+    cache.get("c");
+
+    cache.put("d", 4);
+
+    assertEquals(3, cache.size());
+    assertNull(cache.get("b"));
+    assertEquals(1, (int) cache.get("a"));
+    assertEquals(3, (int) cache.get("c"));
+    assertEquals(4, (int) cache.get("d"));
+
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(1, evicted.size());
+    assertEquals("b", evicted.get(0));
+  }
+
+  @Test
+  public void testReplace() {
+
+    List<Integer> displaced = new ArrayList<>();
+    ConcurrentCache<String, Integer> cache = new ConcurrentCache<>(10, (key, value) -> displaced.add(value));
+
+    for (int c = 0; c < 100000; ++c) {
+      cache.put("a", c);
+    }
+
+    assertEquals(1, cache.size());
+    assertEquals(99999, (int) cache.get("a"));
+    assertEquals(99999, displaced.size());
+    assertEquals(0, (int) displaced.get(0));
+
+    // Displaced entries must not accumulate in the clock
+    assertTrue(cache.getClockSize() <= 11);
+
+    displaced.clear();
+    cache.put("a", cache.get("a"));
+    assertTrue(displaced.isEmpty());
+  }
+
+  @Test
+  public void testConcurrentBound() throws Exception {
+
+    int maxSize = 100;
+    ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(maxSize);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; ++t) {
+        futures.add(executor.submit(() -> {
+          for (int c = 0; c < 100000; ++c) {
+            int key = ThreadLocalRandom.current().nextInt(maxSize * 2);
+            if (cache.get(key) == null) {
+              cache.putIfAbsent(key, key);
+            }
+          }
+        }));
+      }
+
+      for (Future<?> future : futures) {
+        future.get();
+      }
+
+    }
+    finally {
+      executor.shutdown();
+    }
+
+    assertTrue(cache.size() <= maxSize);
+    assertEquals(800000, cache.getHitCount() + cache.getMissCount());
+    assertTrue(cache.getEvictionCount() > 0);
+  }
+
+}